@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.bench.memcached;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+/**
+ * Builds binary protocol request frames.
+ */
+final class BinaryFrames {
+
+    private BinaryFrames() {
+    }
+
+    static ChannelBuffer frame(int opcode, String key, int extrasLength, byte[] value) {
+        byte[] keyBytes = key == null ? new byte[0] : key.getBytes();
+        int valueLength = value == null ? 0 : value.length;
+        ChannelBuffer buffer = ChannelBuffers.buffer(24 + extrasLength + keyBytes.length + valueLength);
+        buffer.writeByte(0x80);
+        buffer.writeByte(opcode);
+        buffer.writeShort(keyBytes.length);
+        buffer.writeByte(extrasLength);
+        buffer.writeByte(0);
+        buffer.writeShort(0);
+        buffer.writeInt(extrasLength + keyBytes.length + valueLength);
+        buffer.writeInt(0);
+        buffer.writeLong(0);
+        buffer.writeZero(extrasLength);
+        buffer.writeBytes(keyBytes);
+        if (value != null) {
+            buffer.writeBytes(value);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.bench.memcached;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openspaces.memcached.protocol.SessionStatus;
+import org.openspaces.memcached.protocol.binary.MemcachedBinaryCommandDecoder;
+import org.openspaces.memcached.protocol.text.MemcachedCommandDecoder;
+import org.openspaces.memcached.protocol.text.MemcachedFrameDecoder;
+import org.openspaces.memcached.protocol.text.MemcachedPipelineFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding throughput of the text and binary memcached protocols.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MemcachedDecoderBenchmark {
+
+    private static final int BINARY_GETQ = 0x09;
+    private static final int BINARY_NOOP = 0x0A;
+    private static final int BINARY_GET = 0x00;
+    private static final int BINARY_SET = 0x01;
+
+    private DecoderEmbedder<Object> textDecoder;
+    private DecoderEmbedder<Object> binaryDecoder;
+
+    private ChannelBuffer textGet;
+    private ChannelBuffer textMultiGet;
+    private ChannelBuffer textSet;
+    private ChannelBuffer binaryGet;
+    private ChannelBuffer binarySet;
+    private ChannelBuffer binaryQuietGets;
+
+    @Setup
+    public void setup() {
+        SessionStatus status = new SessionStatus().ready();
+        textDecoder = new DecoderEmbedder<Object>(new MemcachedFrameDecoder(status, 32768 * 1024), new MemcachedCommandDecoder(status));
+        binaryDecoder = new DecoderEmbedder<Object>(new MemcachedBinaryCommandDecoder());
+
+        textGet = ascii("get user:session:0001\r\n");
+        textMultiGet = ascii("get user:session:0001 user:session:0002 user:session:0003 user:session:0004\r\n");
+        textSet = ascii("set user:session:0001 0 0 128\r\n" + value(128) + "\r\n");
+
+        binaryGet = BinaryFrames.frame(BINARY_GET, "user:session:0001", 0, null);
+        binarySet = BinaryFrames.frame(BINARY_SET, "user:session:0001", 8, value(128).getBytes());
+        ChannelBuffer[] frames = new ChannelBuffer[33];
+        for (int i = 0; i < 32; i++) {
+            frames[i] = BinaryFrames.frame(BINARY_GETQ, "user:session:" + i, 0, null);
+        }
+        frames[32] = BinaryFrames.frame(BINARY_NOOP, null, 0, null);
+        binaryQuietGets = ChannelBuffers.copiedBuffer(frames);
+    }
+
+    @Benchmark
+    public Object textGet() {
+        return decode(textDecoder, textGet);
+    }
+
+    @Benchmark
+    public Object textMultiGet() {
+        return decode(textDecoder, textMultiGet);
+    }
+
+    @Benchmark
+    public Object textSet() {
+        return decode(textDecoder, textSet);
+    }
+
+    @Benchmark
+    public Object binaryGet() {
+        return decode(binaryDecoder, binaryGet);
+    }
+
+    @Benchmark
+    public Object binarySet() {
+        return decode(binaryDecoder, binarySet);
+    }
+
+    /**
+     * A run of 32 <code>getq</code> commands terminated by a <code>noop</code>, decoded into a quiet batch.
+     */
+    @Benchmark
+    public Object binaryQuietGets() {
+        return decode(binaryDecoder, binaryQuietGets);
+    }
+
+    private static Object decode(DecoderEmbedder<Object> decoder, ChannelBuffer input) {
+        decoder.offer(input.duplicate());
+        Object last = null;
+        Object message;
+        while ((message = decoder.poll()) != null) {
+            last = message;
+        }
+        return last;
+    }
+
+    static ChannelBuffer ascii(String value) {
+        return ChannelBuffers.copiedBuffer(value, MemcachedPipelineFactory.USASCII);
+    }
+
+    static String value(int size) {
+        StringBuilder sb = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.bench.memcached;
+
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openspaces.memcached.Key;
+import org.openspaces.memcached.LocalCacheElement;
+import org.openspaces.memcached.SpaceCache;
+import org.openspaces.memcached.protocol.CommandMessage;
+import org.openspaces.memcached.protocol.Op;
+import org.openspaces.memcached.protocol.ResponseMessage;
+import org.openspaces.memcached.protocol.binary.MemcachedBinaryResponseEncoder;
+import org.openspaces.memcached.protocol.text.MemcachedResponseEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response encoding throughput of the text and binary memcached protocols. The written buffers are collected
+ * (and dropped) by the embedder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MemcachedEncoderBenchmark {
+
+    @Param({"128", "16384"})
+    public int valueSize;
+
+    private DecoderEmbedder<Object> textEncoder;
+    private DecoderEmbedder<Object> binaryEncoder;
+
+    private ResponseMessage getResponse;
+    private ResponseMessage storeResponse;
+
+    @Setup
+    public void setup() {
+        textEncoder = new DecoderEmbedder<Object>(new MemcachedResponseEncoder());
+        binaryEncoder = new DecoderEmbedder<Object>(new MemcachedBinaryResponseEncoder());
+
+        Key key = new Key("user:session:0001".getBytes());
+        LocalCacheElement element = new LocalCacheElement(key, 0, 0, 1L);
+        element.setData(MemcachedDecoderBenchmark.value(valueSize).getBytes());
+
+        CommandMessage get = CommandMessage.command(Op.GET);
+        get.setKey(key);
+        getResponse = new ResponseMessage(get).withElements(new LocalCacheElement[]{element});
+
+        CommandMessage set = CommandMessage.command(Op.SET);
+        set.element = element;
+        storeResponse = new ResponseMessage(set).withResponse(SpaceCache.StoreResponse.STORED);
+    }
+
+    @Benchmark
+    public Object textGet() {
+        return encode(textEncoder, getResponse);
+    }
+
+    @Benchmark
+    public Object textStore() {
+        return encode(textEncoder, storeResponse);
+    }
+
+    @Benchmark
+    public Object binaryGet() {
+        return encode(binaryEncoder, getResponse);
+    }
+
+    @Benchmark
+    public Object binaryStore() {
+        return encode(binaryEncoder, storeResponse);
+    }
+
+    private static Object encode(DecoderEmbedder<Object> encoder, ResponseMessage response) {
+        encoder.offer(response);
+        Object last = null;
+        Object written;
+        while ((written = encoder.poll()) != null) {
+            last = written;
+        }
+        return last;
+    }
+}
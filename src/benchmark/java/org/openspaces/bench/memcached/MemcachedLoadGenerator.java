@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.bench.memcached;
+
+import org.openspaces.core.GigaSpaceConfigurer;
+import org.openspaces.core.space.UrlSpaceConfigurer;
+import org.openspaces.core.util.ConcurrentHistogram;
+import org.openspaces.memcached.MemCacheDaemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A closed loop load generator for the memcached text protocol. Each client thread holds a single connection and
+ * issues a mix of gets and sets, one at a time, recording the round trip latency. Throughput and latency percentiles
+ * are reported once done.
+ * <p/>
+ * Unless <code>-host</code> is given, a {@link MemCacheDaemon} backed by an embedded space is started on the
+ * loopback interface.
+ * <p/>
+ * Options (with their defaults): <code>-host</code>, <code>-port 11311</code>, <code>-threads 16</code>,
+ * <code>-duration 30</code> (seconds), <code>-warmup 5</code> (seconds), <code>-keys 10000</code>,
+ * <code>-valueSize 512</code>, <code>-getRatio 0.9</code>.
+ */
+public class MemcachedLoadGenerator {
+
+    private String host;
+    private int port = 11311;
+    private int threads = 16;
+    private int duration = 30;
+    private int warmup = 5;
+    private int keys = 10000;
+    private int valueSize = 512;
+    private double getRatio = 0.9;
+
+    private final ConcurrentHistogram getLatency = new ConcurrentHistogram();
+    private final ConcurrentHistogram setLatency = new ConcurrentHistogram();
+    private final AtomicLong errors = new AtomicLong();
+
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        MemcachedLoadGenerator generator = new MemcachedLoadGenerator();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            generator.setOption(args[i], args[i + 1]);
+        }
+        generator.run();
+    }
+
+    private void setOption(String name, String value) {
+        if ("-host".equals(name)) {
+            host = value;
+        } else if ("-port".equals(name)) {
+            port = Integer.parseInt(value);
+        } else if ("-threads".equals(name)) {
+            threads = Integer.parseInt(value);
+        } else if ("-duration".equals(name)) {
+            duration = Integer.parseInt(value);
+        } else if ("-warmup".equals(name)) {
+            warmup = Integer.parseInt(value);
+        } else if ("-keys".equals(name)) {
+            keys = Integer.parseInt(value);
+        } else if ("-valueSize".equals(name)) {
+            valueSize = Integer.parseInt(value);
+        } else if ("-getRatio".equals(name)) {
+            getRatio = Double.parseDouble(value);
+        } else {
+            throw new IllegalArgumentException("Unknown option [" + name + "]");
+        }
+    }
+
+    public void run() throws Exception {
+        UrlSpaceConfigurer spaceConfigurer = null;
+        MemCacheDaemon daemon = null;
+        String targetHost = host;
+        int targetPort = port;
+        if (targetHost == null) {
+            spaceConfigurer = new UrlSpaceConfigurer("/./memcachedLoad").versioned(true);
+            daemon = new MemCacheDaemon();
+            daemon.setSpace(new GigaSpaceConfigurer(spaceConfigurer).gigaSpace());
+            daemon.setHost("127.0.0.1");
+            daemon.setPort(port);
+            daemon.setPortRetries(1);
+            daemon.afterPropertiesSet();
+            targetHost = "127.0.0.1";
+        }
+        try {
+            final String clientHost = targetHost;
+            final int clientPort = targetPort;
+            final CountDownLatch done = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                final int seed = i;
+                Thread thread = new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            runClient(clientHost, clientPort, seed);
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                            System.err.println("Client failed: " + e);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }, "memcached-load-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            Thread.sleep(warmup * 1000L);
+            recording = true;
+            long start = System.nanoTime();
+            Thread.sleep(duration * 1000L);
+            recording = false;
+            long elapsed = System.nanoTime() - start;
+            running = false;
+            done.await();
+            report(elapsed);
+        } finally {
+            if (daemon != null) {
+                daemon.destroy();
+            }
+            if (spaceConfigurer != null) {
+                spaceConfigurer.destroy();
+            }
+        }
+    }
+
+    private void runClient(String host, int port, int seed) throws IOException {
+        Random random = new Random(seed);
+        byte[] value = MemcachedDecoderBenchmark.value(valueSize).getBytes("US-ASCII");
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        try {
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            while (running) {
+                String key = "key:" + random.nextInt(keys);
+                boolean get = random.nextDouble() < getRatio;
+                long start = System.nanoTime();
+                if (get) {
+                    out.write(("get " + key + "\r\n").getBytes("US-ASCII"));
+                    out.flush();
+                    readGetResponse(in);
+                } else {
+                    out.write(("set " + key + " 0 0 " + value.length + "\r\n").getBytes("US-ASCII"));
+                    out.write(value);
+                    out.write('\r');
+                    out.write('\n');
+                    out.flush();
+                    String line = readLine(in);
+                    if (!"STORED".equals(line)) {
+                        errors.incrementAndGet();
+                    }
+                }
+                if (recording) {
+                    (get ? getLatency : setLatency).record((System.nanoTime() - start) / 1000);
+                }
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    private void readGetResponse(InputStream in) throws IOException {
+        String line;
+        while (!"END".equals(line = readLine(in))) {
+            if (!line.startsWith("VALUE ")) {
+                errors.incrementAndGet();
+                return;
+            }
+            int bytes = Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+            // the data followed by \r\n
+            for (int i = 0; i < bytes + 2; i++) {
+                if (in.read() < 0) {
+                    throw new IOException("Connection closed");
+                }
+            }
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (c != '\r') {
+                sb.append((char) c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1000000000.0;
+        long operations = getLatency.getCount() + setLatency.getCount();
+        System.out.println("threads=" + threads + " keys=" + keys + " valueSize=" + valueSize + " getRatio=" + getRatio);
+        System.out.println(String.format("throughput: %.0f ops/sec (%d operations, %d errors)", operations / seconds, operations, errors.get()));
+        report("get", getLatency);
+        report("set", setLatency);
+    }
+
+    private static void report(String name, ConcurrentHistogram latency) {
+        System.out.println(String.format("%s: count=%d mean=%.1fus p50=%dus p99=%dus p999=%dus max=%dus", name, latency.getCount(),
+                latency.getMean(), latency.getPercentile(50), latency.getPercentile(99), latency.getPercentile(99.9), latency.getMax()));
+    }
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.bench.memcached;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openspaces.core.GigaSpace;
+import org.openspaces.core.GigaSpaceConfigurer;
+import org.openspaces.core.space.UrlSpaceConfigurer;
+import org.openspaces.memcached.Key;
+import org.openspaces.memcached.LocalCacheElement;
+import org.openspaces.memcached.NearCache;
+import org.openspaces.memcached.SpaceCache;
+import org.openspaces.memcached.ValueCompressor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Latency of {@link SpaceCache} operations against an embedded space.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(4)
+@Fork(1)
+public class SpaceCacheBenchmark {
+
+    private static final int KEYS = 10000;
+
+    @Param({"false", "true"})
+    public boolean nearCache;
+
+    @Param({"0", "1024"})
+    public int compressionThreshold;
+
+    @Param({"128", "16384"})
+    public int valueSize;
+
+    private UrlSpaceConfigurer spaceConfigurer;
+
+    private SpaceCache cache;
+
+    private Key[] keys;
+
+    private LocalCacheElement[] elements;
+
+    private Key counterKey;
+
+    private Key appendKey;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        spaceConfigurer = new UrlSpaceConfigurer("/./memcachedBenchmark").versioned(true);
+        GigaSpace space = new GigaSpaceConfigurer(spaceConfigurer).gigaSpace();
+        cache = new SpaceCache(space, nearCache ? new NearCache(KEYS, 256 * 1024 * 1024, 60000) : null, null,
+                compressionThreshold > 0 ? new ValueCompressor(compressionThreshold, Deflater.BEST_SPEED) : null);
+
+        byte[] value = MemcachedDecoderBenchmark.value(valueSize).getBytes();
+        keys = new Key[KEYS];
+        elements = new LocalCacheElement[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = new Key(("user:session:" + i).getBytes());
+            elements[i] = new LocalCacheElement(keys[i], 0, Integer.MAX_VALUE, 0L);
+            elements[i].setData(value);
+            cache.set(elements[i]);
+        }
+
+        counterKey = new Key("counter".getBytes());
+        LocalCacheElement counter = new LocalCacheElement(counterKey, 0, Integer.MAX_VALUE, 0L);
+        counter.setData("0".getBytes());
+        cache.set(counter);
+        appendKey = new Key("append".getBytes());
+    }
+
+    @Setup(Level.Iteration)
+    public void resetAppendKey() {
+        // keeps the appended value from growing across iterations
+        LocalCacheElement element = new LocalCacheElement(appendKey, 0, Integer.MAX_VALUE, 0L);
+        element.setData(new byte[0]);
+        cache.set(element);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        cache.close();
+        spaceConfigurer.destroy();
+    }
+
+    @State(Scope.Thread)
+    public static class KeyIndex {
+        int next;
+
+        int next() {
+            next = (next + 1) % KEYS;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public Object get(KeyIndex index) {
+        return cache.get(keys[index.next()]);
+    }
+
+    @Benchmark
+    public Object multiGet(KeyIndex index) {
+        return cache.get(keys[index.next()], keys[index.next()], keys[index.next()], keys[index.next()]);
+    }
+
+    @Benchmark
+    public Object set(KeyIndex index) {
+        return cache.set(elements[index.next()]);
+    }
+
+    @Benchmark
+    public Object incr() {
+        return cache.get_add(counterKey, 1);
+    }
+
+    @Benchmark
+    public Object append() {
+        LocalCacheElement element = new LocalCacheElement(appendKey, 0, Integer.MAX_VALUE, 0L);
+        element.setData(new byte[]{'a'});
+        return cache.append(element);
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.bench.remoting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openspaces.core.GigaSpace;
+import org.openspaces.remoting.EventDrivenSpaceRemotingProxyFactoryBean;
+import org.openspaces.remoting.ExecutorRemotingMethod;
+import org.openspaces.remoting.ExecutorSpaceRemotingProxyFactoryBean;
+import org.openspaces.remoting.RemoteRoutingHandler;
+import org.openspaces.remoting.Routing;
+import org.openspaces.remoting.SpaceRemotingInvocation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side overhead of the remoting proxies: everything an invocation does before handing the
+ * remoting entry or task to the space. The space is a stub doing nothing, so one way event driven
+ * calls and async executor calls return right after building the invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RemotingProxyBenchmark {
+
+    public interface Service {
+
+        void notify(@Routing String key, String value);
+
+        Future<String> asyncEcho(@Routing String key, String value);
+
+        @ExecutorRemotingMethod(broadcast = false, remoteRoutingHandlerType = KeyRoutingHandler.class)
+        Future<String> asyncRoutedEcho(String key, String value);
+    }
+
+    public static class KeyRoutingHandler implements RemoteRoutingHandler<String> {
+
+        public String computeRouting(SpaceRemotingInvocation remotingEntry) {
+            return (String) remotingEntry.getArguments()[0];
+        }
+    }
+
+    private Service eventDrivenProxy;
+
+    private Service executorProxy;
+
+    @Setup
+    public void setup() {
+        GigaSpace gigaSpace = (GigaSpace) Proxy.newProxyInstance(GigaSpace.class.getClassLoader(), new Class[]{GigaSpace.class},
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                });
+
+        EventDrivenSpaceRemotingProxyFactoryBean eventDriven = new EventDrivenSpaceRemotingProxyFactoryBean();
+        eventDriven.setGigaSpace(gigaSpace);
+        eventDriven.setServiceInterface(Service.class);
+        eventDriven.setGlobalOneWay(true);
+        eventDriven.afterPropertiesSet();
+        eventDrivenProxy = (Service) eventDriven.getObject();
+
+        ExecutorSpaceRemotingProxyFactoryBean executor = new ExecutorSpaceRemotingProxyFactoryBean();
+        executor.setGigaSpace(gigaSpace);
+        executor.setServiceInterface(Service.class);
+        executor.afterPropertiesSet();
+        executorProxy = (Service) executor.getObject();
+    }
+
+    @Benchmark
+    public void eventDrivenOneWay() {
+        eventDrivenProxy.notify("key", "value");
+    }
+
+    @Benchmark
+    public Object executorAsync() {
+        return executorProxy.asyncEcho("key", "value");
+    }
+
+    @Benchmark
+    public Object executorAsyncRoutingHandler() {
+        return executorProxy.asyncRoutedEcho("key", "value");
+    }
+}
@@ -132,6 +132,21 @@ public @interface Archive {
      * @see org.openspaces.archive.ArchivePollingContainer#setBatchSize(Integer)
      */
     int batchSize() default 50;
+
+    /**
+     * @see org.openspaces.archive.ArchivePollingContainer#setArchiveWorkers(int)
+     */
+    int archiveWorkers() default 0;
+
+    /**
+     * @see org.openspaces.archive.ArchivePollingContainer#setArchiveMergeSize(int)
+     */
+    int archiveMergeSize() default 500;
+
+    /**
+     * @see org.openspaces.archive.ArchivePollingContainer#setArchiveMergeTime(long)
+     */
+    long archiveMergeTime() default 10;
     
 
     /**
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.archive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openspaces.core.util.ConcurrentHistogram;
+
+import com.gigaspaces.metrics.LongCounter;
+import com.j_spaces.kernel.threadpool.DynamicExecutors;
+
+/**
+ * Decouples taking entries from the space from archiving them. The consumers of an
+ * {@link ArchivePollingContainer} hand the batches they took to a bounded queue and wait for them
+ * to be archived, while a pool of archive workers drains the queue, merging pending batches (up to
+ * a size or time limit) into a single {@link ArchiveOperationHandler#archive(Object...)} call when
+ * the handler {@link ArchiveOperationHandler#supportsBatchArchiving() supports batch archiving}.
+ *
+ * <p>A consumer is released only once its batch was archived (or failed to), so the take
+ * transaction is committed only after a successful archive, keeping the at-least-once delivery of
+ * the non pipelined container. When a merged archive call fails, the merged batches are retried
+ * one by one so a single bad batch does not fail the others.
+ *
+ * @see ArchivePollingContainer#setArchiveWorkers(int)
+ * @since 11.0
+ */
+public class ArchivePipeline {
+
+    private static final Log logger = LogFactory.getLog(ArchivePipeline.class);
+
+    // the archive times and lags cover the last one to two minutes
+    private static final long LATENCY_WINDOW_MILLIS = 60000;
+
+    private final ArchiveOperationHandler archiveHandler;
+
+    private final BlockingQueue<PendingBatch> queue;
+
+    private final int maxMergeSize;
+
+    private final long maxMergeTime;
+
+    private final Thread[] workers;
+
+    private final LongCounter archivedEntries = new LongCounter();
+
+    private final LongCounter archiveCalls = new LongCounter();
+
+    private final LongCounter failedBatches = new LongCounter();
+
+    // microseconds spent in archive calls
+    private final ConcurrentHistogram archiveTimes = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+
+    // microseconds from handing a batch to the pipeline until it was archived
+    private final ConcurrentHistogram archiveLags = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+
+    private volatile boolean shutdown;
+
+    /**
+     * @param name           the name of the worker threads
+     * @param archiveHandler the handler archiving the batches
+     * @param workerCount    the number of archive workers
+     * @param queueCapacity  the number of batches that may wait for a worker
+     * @param maxMergeSize   the number of entries above which pending batches are no longer merged
+     * @param maxMergeTime   the time, in <b>milliseconds</b>, a worker waits for more batches to merge
+     */
+    public ArchivePipeline(String name, ArchiveOperationHandler archiveHandler, int workerCount, int queueCapacity,
+                           int maxMergeSize, long maxMergeTime) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.archiveHandler = archiveHandler;
+        this.queue = new ArrayBlockingQueue<PendingBatch>(queueCapacity);
+        this.maxMergeSize = archiveHandler.supportsBatchArchiving() ? maxMergeSize : 1;
+        this.maxMergeTime = maxMergeTime;
+        ThreadFactory threadFactory = DynamicExecutors.daemonThreadFactory(name);
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = threadFactory.newThread(new Worker());
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Hands the given objects to the archive workers, blocking until they were archived.
+     *
+     * @throws RuntimeException     the exception the archive handler failed with
+     * @throws InterruptedException if interrupted while waiting, in which case the objects might
+     *                              still be archived
+     */
+    public void archive(Object[] objects) throws InterruptedException {
+        if (shutdown) {
+            throw new IllegalStateException("Archive pipeline is shut down");
+        }
+        PendingBatch batch = new PendingBatch(objects);
+        queue.put(batch);
+        if (shutdown && queue.remove(batch)) {
+            // shut down concurrently, no worker is left to archive it
+            throw new IllegalStateException("Archive pipeline is shut down");
+        }
+        batch.done.await();
+        if (batch.failure != null) {
+            if (batch.failure instanceof RuntimeException) {
+                throw (RuntimeException) batch.failure;
+            }
+            if (batch.failure instanceof Error) {
+                throw (Error) batch.failure;
+            }
+            throw new IllegalStateException("Failed to archive batch", batch.failure);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    public LongCounter getArchivedEntries() {
+        return archivedEntries;
+    }
+
+    public LongCounter getArchiveCalls() {
+        return archiveCalls;
+    }
+
+    public LongCounter getFailedBatches() {
+        return failedBatches;
+    }
+
+    /**
+     * Returns the duration of the archive calls over the last one to two minutes, in microseconds.
+     */
+    public ConcurrentHistogram getArchiveTimes() {
+        return archiveTimes;
+    }
+
+    /**
+     * Returns the time from handing a batch to the pipeline until it was archived, over the last
+     * one to two minutes, in microseconds.
+     */
+    public ConcurrentHistogram getArchiveLags() {
+        return archiveLags;
+    }
+
+    /**
+     * Stops the workers. Batches still pending are failed, so their take transactions roll back.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        List<PendingBatch> pending = new ArrayList<PendingBatch>();
+        queue.drainTo(pending);
+        IllegalStateException failure = new IllegalStateException("Archive pipeline is shut down");
+        for (PendingBatch batch : pending) {
+            batch.complete(failure);
+        }
+    }
+
+    private void archiveMerged(List<PendingBatch> batches, int size) {
+        if (batches.size() == 1) {
+            doArchive(batches.get(0));
+            return;
+        }
+        Object[] merged = new Object[size];
+        int index = 0;
+        for (PendingBatch batch : batches) {
+            System.arraycopy(batch.objects, 0, merged, index, batch.objects.length);
+            index += batch.objects.length;
+        }
+        try {
+            invokeHandler(merged);
+        } catch (Throwable t) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to archive [" + batches.size() + "] merged batches, retrying them one by one", t);
+            }
+            for (PendingBatch batch : batches) {
+                doArchive(batch);
+            }
+            return;
+        }
+        for (PendingBatch batch : batches) {
+            batch.complete(null);
+        }
+    }
+
+    private void doArchive(PendingBatch batch) {
+        try {
+            if (archiveHandler.supportsBatchArchiving()) {
+                invokeHandler(batch.objects);
+            } else {
+                for (Object object : batch.objects) {
+                    invokeHandler(object);
+                }
+            }
+        } catch (Throwable t) {
+            failedBatches.inc();
+            batch.complete(t);
+            return;
+        }
+        batch.complete(null);
+    }
+
+    private void invokeHandler(Object... objects) {
+        long start = System.nanoTime();
+        archiveHandler.archive(objects);
+        archiveTimes.record((System.nanoTime() - start) / 1000);
+        archiveCalls.inc();
+        archivedEntries.inc(objects.length);
+    }
+
+    private final class PendingBatch {
+
+        final Object[] objects;
+
+        final long enqueueTime = System.nanoTime();
+
+        final CountDownLatch done = new CountDownLatch(1);
+
+        volatile Throwable failure;
+
+        PendingBatch(Object[] objects) {
+            this.objects = objects;
+        }
+
+        void complete(Throwable failure) {
+            this.failure = failure;
+            if (failure == null) {
+                archiveLags.record((System.nanoTime() - enqueueTime) / 1000);
+            }
+            done.countDown();
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        public void run() {
+            List<PendingBatch> batches = new ArrayList<PendingBatch>();
+            while (!shutdown) {
+                try {
+                    PendingBatch first = queue.take();
+                    batches.add(first);
+                    int size = first.objects.length;
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxMergeTime);
+                    while (size < maxMergeSize) {
+                        PendingBatch next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batches.add(next);
+                        size += next.objects.length;
+                    }
+                    archiveMerged(batches, size);
+                } catch (InterruptedException e) {
+                    IllegalStateException failure = new IllegalStateException("Archive pipeline is shut down");
+                    for (PendingBatch batch : batches) {
+                        batch.complete(failure);
+                    }
+                    return;
+                } finally {
+                    batches.clear();
+                }
+            }
+        }
+    }
+}
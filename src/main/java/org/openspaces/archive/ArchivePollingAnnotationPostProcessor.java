@@ -81,6 +81,9 @@ public class ArchivePollingAnnotationPostProcessor implements BeanPostProcessor,
                 .recoveryInterval(archive.recoveryInterval())
                 .autoStart(archive.autoStart())
                 .batchSize(archive.batchSize())
+                .archiveWorkers(archive.archiveWorkers())
+                .archiveMergeSize(archive.archiveMergeSize())
+                .archiveMergeTime(archive.archiveMergeTime())
                 .useFifoGrouping(archive.useFifoGrouping());
 
         Object staticTemplateProvider = AnnotationProcessorUtils.findTemplateFromProvider(bean);
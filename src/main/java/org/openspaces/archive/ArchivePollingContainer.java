@@ -20,10 +20,15 @@ import org.openspaces.events.SpaceDataEventListener;
 import org.openspaces.events.polling.SimplePollingEventListenerContainer;
 import org.openspaces.events.polling.receive.MultiTakeReceiveOperationHandler;
 import org.openspaces.events.polling.receive.SingleTakeReceiveOperationHandler;
+import org.openspaces.events.polling.PollingEventContainerServiceMonitors;
+import org.openspaces.pu.service.ServiceMonitors;
 import org.springframework.beans.factory.annotation.Required;
+import org.springframework.dao.DataAccessException;
 import org.springframework.transaction.TransactionStatus;
 
 import com.gigaspaces.internal.client.spaceproxy.ISpaceProxy;
+import com.gigaspaces.metrics.BeanMetricManager;
+import com.gigaspaces.metrics.Gauge;
 
 /**
  * Takes objects specified in the template into the archive handler defined by {@link #setArchiveHandler(ArchiveOperationHandler)}
@@ -40,6 +45,11 @@ public class ArchivePollingContainer
     private int batchSize = 50; // == MultiTakeReceiveOperationHandler#DEFAULT_MAX_ENTRIES;
     private long nonBlockingSleep = 100;
     private boolean useFifoGrouping = false;
+    private int archiveWorkers = 0;
+    private int archiveQueueCapacity = 100;
+    private int archiveMergeSize = 500;
+    private long archiveMergeTime = 10;
+    private volatile ArchivePipeline archivePipeline;
     
     public ArchivePollingContainer() {
         super.setEventListener(this);
@@ -91,8 +101,23 @@ public class ArchivePollingContainer
             setExceptionHandler(new DefaultArchivePollingContainerExceptionHandler());
         }
         
+        if (archiveWorkers > 0) {
+            archivePipeline = new ArchivePipeline("archive-" + getBeanName(), archiveHandler, archiveWorkers,
+                    archiveQueueCapacity, archiveMergeSize, archiveMergeTime);
+        }
+        
         super.initialize();
     }
+
+    @Override
+    protected void doShutdown() throws DataAccessException {
+        super.doShutdown();
+        ArchivePipeline pipeline = archivePipeline;
+        if (pipeline != null) {
+            pipeline.shutdown();
+            archivePipeline = null;
+        }
+    }
     
     private int calcNonBlockingFactor() {
         long nonblockingFactor = getReceiveTimeout()/getNonBlockingSleep();
@@ -101,7 +126,18 @@ public class ArchivePollingContainer
 
     @Override
     public void onEvent(Object data, GigaSpace gigaSpace, TransactionStatus txStatus, Object source) {
-        if (isPassArrayAsIs()) {
+        ArchivePipeline pipeline = archivePipeline;
+        if (pipeline != null) {
+            Object[] objects = isPassArrayAsIs() ? (Object[]) data : new Object[] {data};
+            try {
+                // returns once archived, so the take transaction is committed only after the archive succeeded
+                pipeline.archive(objects);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the archive of [" + objects.length + "] objects", e);
+            }
+        }
+        else if (isPassArrayAsIs()) {
             archiveHandler.archive((Object[])data);
         }
         else {
@@ -136,6 +172,95 @@ public class ArchivePollingContainer
         this.nonBlockingSleep = nonBlockingSleepMilliseconds;
     }
 
+    /**
+     * Sets the number of archive workers, turning on the pipelined mode: the consumers hand the
+     * objects they took to a bounded queue, and the workers call the archive handler in parallel,
+     * merging pending batches into a single call (see {@link #setArchiveMergeSize(int)}) when the
+     * handler {@link ArchiveOperationHandler#supportsBatchArchiving() supports batch archiving}.
+     * A consumer commits its take transaction only once its objects were archived, so the
+     * at-least-once delivery is kept, and raising the number of consumers (see
+     * {@link #setConcurrentConsumers(int)}) above the number of workers lets the takes overlap the
+     * archiving.
+     *
+     * <p>Defaults to <code>0</code>, meaning the consumers call the archive handler themselves.
+     */
+    public void setArchiveWorkers(int archiveWorkers) {
+        this.archiveWorkers = archiveWorkers;
+    }
+
+    public int getArchiveWorkers() {
+        return archiveWorkers;
+    }
+
+    /**
+     * Sets the number of taken batches that may wait for an archive worker before the consumers
+     * block. Defaults to <code>100</code>. Has affect only if {@link #setArchiveWorkers(int)} is set.
+     */
+    public void setArchiveQueueCapacity(int archiveQueueCapacity) {
+        this.archiveQueueCapacity = archiveQueueCapacity;
+    }
+
+    public int getArchiveQueueCapacity() {
+        return archiveQueueCapacity;
+    }
+
+    /**
+     * Sets the number of objects above which an archive worker stops merging pending batches into
+     * a single archive call. Defaults to <code>500</code>. Has affect only if
+     * {@link #setArchiveWorkers(int)} is set and the handler supports batch archiving.
+     */
+    public void setArchiveMergeSize(int archiveMergeSize) {
+        this.archiveMergeSize = archiveMergeSize;
+    }
+
+    public int getArchiveMergeSize() {
+        return archiveMergeSize;
+    }
+
+    /**
+     * Sets the time, in <b>milliseconds</b>, an archive worker waits for more pending batches to
+     * merge. Defaults to <code>10</code>.
+     */
+    public void setArchiveMergeTime(long archiveMergeTime) {
+        this.archiveMergeTime = archiveMergeTime;
+    }
+
+    public long getArchiveMergeTime() {
+        return archiveMergeTime;
+    }
+
+    @Override
+    public ServiceMonitors[] getServicesMonitors() {
+        ServiceMonitors[] monitors = super.getServicesMonitors();
+        ArchivePipeline pipeline = archivePipeline;
+        if (pipeline != null) {
+            PollingEventContainerServiceMonitors pollingMonitors = (PollingEventContainerServiceMonitors) monitors[0];
+            pollingMonitors.setLatency("archive-time", pipeline.getArchiveTimes());
+            pollingMonitors.setLatency("archive-lag", pipeline.getArchiveLags());
+        }
+        return monitors;
+    }
+
+    @Override
+    protected void registerMetrics() {
+        super.registerMetrics();
+        BeanMetricManager metricManager = getBeanMetricManager();
+        final ArchivePipeline pipeline = archivePipeline;
+        if (metricManager != null && pipeline != null) {
+            metricManager.register("archived-entries", pipeline.getArchivedEntries());
+            metricManager.register("archive-calls", pipeline.getArchiveCalls());
+            metricManager.register("archive-failed-batches", pipeline.getFailedBatches());
+            metricManager.register("archive-queue-depth", new Gauge<Integer>() {
+                @Override
+                public Integer getValue() throws Exception {
+                    return pipeline.getQueueDepth();
+                }
+            });
+            registerHistogram("archive-time", pipeline.getArchiveTimes());
+            registerHistogram("archive-lag", pipeline.getArchiveLags());
+        }
+    }
+
     public boolean isUseFifoGrouping() {
         return useFifoGrouping;
     }
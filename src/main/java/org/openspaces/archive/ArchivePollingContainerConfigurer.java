@@ -203,6 +203,38 @@ public class ArchivePollingContainerConfigurer {
         return this;
     }
     
+    /**
+     * @see ArchivePollingContainer#setArchiveWorkers(int)
+     */
+    public ArchivePollingContainerConfigurer archiveWorkers(int archiveWorkers) {
+        archiveContainer.setArchiveWorkers(archiveWorkers);
+        return this;
+    }
+
+    /**
+     * @see ArchivePollingContainer#setArchiveQueueCapacity(int)
+     */
+    public ArchivePollingContainerConfigurer archiveQueueCapacity(int archiveQueueCapacity) {
+        archiveContainer.setArchiveQueueCapacity(archiveQueueCapacity);
+        return this;
+    }
+
+    /**
+     * @see ArchivePollingContainer#setArchiveMergeSize(int)
+     */
+    public ArchivePollingContainerConfigurer archiveMergeSize(int archiveMergeSize) {
+        archiveContainer.setArchiveMergeSize(archiveMergeSize);
+        return this;
+    }
+
+    /**
+     * @see ArchivePollingContainer#setArchiveMergeTime(long)
+     */
+    public ArchivePollingContainerConfigurer archiveMergeTime(long archiveMergeTime) {
+        archiveContainer.setArchiveMergeTime(archiveMergeTime);
+        return this;
+    }
+
     /**
      * @see ArchivePollingContainer#setNonBlockingSleep(long)
      */
@@ -0,0 +1,350 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+/**
+ * An {@link ArchiveOperationHandler} appending the archived objects to local segment files.
+ *
+ * <p>Each {@link #archive(Object...)} call is written as a single block holding the serialized
+ * objects, optionally deflate compressed, into a memory mapped segment file. Once a segment reaches
+ * its {@link #setSegmentSize(long) size} a new one is started, segments being named
+ * <code>[prefix]-[sequence].seg</code> so they sort in write order. Blocks carry a checksum, so a
+ * block torn by a crash is detected (and ignored) when {@link FileArchiveReader replaying} the
+ * archive.
+ *
+ * <p>When {@link #setSync(boolean) sync} is on (the default), an archive call returns only once its
+ * block was forced to disk, so the archive container commits the take only after the objects are
+ * durable. Concurrent archive calls (for example from several consumers or
+ * {@link ArchivePollingContainer#setArchiveWorkers(int) archive workers}) share a single force
+ * of the segment ("group commit"), instead of each paying for its own.
+ *
+ * <p>A block is written atomically as far as replaying is concerned, so batch archiving is
+ * supported.
+ *
+ * @see FileArchiveReader
+ * @since 11.0
+ */
+public class FileArchiveOperationHandler implements ArchiveOperationHandler, InitializingBean, DisposableBean {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    public static final String DEFAULT_FILE_PREFIX = "archive";
+
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    static final int SEGMENT_MAGIC = 0x4F534152;
+
+    static final int SEGMENT_HEADER_SIZE = 4;
+
+    static final byte BLOCK_PLAIN = 1;
+
+    static final byte BLOCK_DEFLATED = 2;
+
+    // marker, entry count, stored length, raw length, checksum
+    static final int BLOCK_HEADER_SIZE = 1 + 4 + 4 + 4 + 4;
+
+    private static final Log logger = LogFactory.getLog(FileArchiveOperationHandler.class);
+
+    private File directory;
+
+    private String filePrefix = DEFAULT_FILE_PREFIX;
+
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    private boolean compress = false;
+
+    private boolean sync = true;
+
+    private final Object writeLock = new Object();
+
+    private final Object syncLock = new Object();
+
+    private Segment segment;
+
+    private long nextSequence;
+
+    // the total number of bytes appended, and the part of them known to be on disk
+    private long writtenBytes;
+
+    private volatile long syncedBytes;
+
+    private volatile long syncCount;
+
+    /**
+     * Sets the directory the segment files are written to. Created if missing.
+     */
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Sets the prefix of the segment file names. Defaults to <code>archive</code>.
+     */
+    public void setFilePrefix(String filePrefix) {
+        this.filePrefix = filePrefix;
+    }
+
+    /**
+     * Sets the size, in bytes, of each segment file. A block larger than a segment gets a segment of
+     * its own. Defaults to 64MB.
+     */
+    public void setSegmentSize(long segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Sets whether blocks are deflate compressed. Defaults to <code>false</code>.
+     */
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * Sets whether an archive call waits for its block to be forced to disk. Defaults to
+     * <code>true</code>. When off, blocks reach the disk whenever the operating system writes the
+     * mapped pages back, or when a segment is rolled or closed.
+     */
+    public void setSync(boolean sync) {
+        this.sync = sync;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public String getFilePrefix() {
+        return filePrefix;
+    }
+
+    /**
+     * Returns the number of times segments were forced to disk on behalf of archive calls.
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    public void afterPropertiesSet() throws Exception {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory must be set");
+        }
+        if (segmentSize <= SEGMENT_HEADER_SIZE + BLOCK_HEADER_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentSize must be larger than " + (SEGMENT_HEADER_SIZE + BLOCK_HEADER_SIZE)
+                    + " and at most " + Integer.MAX_VALUE);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Failed to create archive directory [" + directory + "]");
+        }
+        // never append to an existing segment, its tail might be torn
+        File[] segments = FileArchiveReader.listSegments(directory, filePrefix);
+        if (segments.length > 0) {
+            nextSequence = FileArchiveReader.sequenceOf(segments[segments.length - 1], filePrefix) + 1;
+        }
+    }
+
+    public void destroy() throws Exception {
+        synchronized (writeLock) {
+            if (segment != null) {
+                segment.close();
+                segment = null;
+            }
+        }
+    }
+
+    public boolean supportsBatchArchiving() {
+        return true;
+    }
+
+    public void archive(Object... objects) {
+        byte[] block;
+        try {
+            block = encode(objects);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to serialize archived objects", e);
+        }
+        long position;
+        synchronized (writeLock) {
+            try {
+                segmentFor(block.length).append(block);
+            } catch (IOException e) {
+                throw new DataAccessResourceFailureException("Failed to write archive segment in [" + directory + "]", e);
+            }
+            writtenBytes += block.length;
+            position = writtenBytes;
+        }
+        if (sync) {
+            awaitSync(position);
+        }
+    }
+
+    private byte[] encode(Object[] objects) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * objects.length);
+        // a single stream per block writes each class descriptor once
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        for (Object object : objects) {
+            out.writeObject(object);
+        }
+        out.close();
+        byte[] raw = bytes.toByteArray();
+        byte[] stored = raw;
+        int storedLength = raw.length;
+        byte marker = BLOCK_PLAIN;
+        if (compress) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(raw);
+                deflater.finish();
+                byte[] deflated = new byte[raw.length];
+                int length = deflater.deflate(deflated);
+                // keep the block plain when compression does not pay off
+                if (deflater.finished() && length < raw.length) {
+                    stored = deflated;
+                    storedLength = length;
+                    marker = BLOCK_DEFLATED;
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(stored, 0, storedLength);
+        byte[] block = new byte[BLOCK_HEADER_SIZE + storedLength];
+        block[0] = marker;
+        putInt(block, 1, objects.length);
+        putInt(block, 5, storedLength);
+        putInt(block, 9, raw.length);
+        putInt(block, 13, (int) crc.getValue());
+        System.arraycopy(stored, 0, block, BLOCK_HEADER_SIZE, storedLength);
+        return block;
+    }
+
+    private Segment segmentFor(int blockSize) throws IOException {
+        if (segment != null && segment.remaining() >= blockSize) {
+            return segment;
+        }
+        if (segment != null) {
+            // never keep appending to a closed segment, even if the next one can not be created
+            Segment rolled = segment;
+            segment = null;
+            rolled.close();
+        }
+        long size = Math.max(segmentSize, SEGMENT_HEADER_SIZE + (long) blockSize);
+        File file = new File(directory, FileArchiveReader.segmentName(filePrefix, nextSequence++));
+        segment = new Segment(file, size);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Started archive segment [" + file + "]");
+        }
+        return segment;
+    }
+
+    private void awaitSync(long position) {
+        if (syncedBytes >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            // a concurrent archive call might have forced our block while we waited
+            if (syncedBytes >= position) {
+                return;
+            }
+            Segment target;
+            long written;
+            synchronized (writeLock) {
+                target = segment;
+                written = writtenBytes;
+            }
+            // a rolled segment was already forced on close, only the current one might be behind
+            if (target != null) {
+                target.force();
+            }
+            syncedBytes = written;
+            syncCount++;
+        }
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static final class Segment {
+
+        private final File file;
+
+        private final RandomAccessFile raf;
+
+        private final MappedByteBuffer buffer;
+
+        private boolean closed;
+
+        Segment(File file, long size) throws IOException {
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+            try {
+                this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+            buffer.putInt(SEGMENT_MAGIC);
+        }
+
+        int remaining() {
+            return buffer.remaining();
+        }
+
+        void append(byte[] block) {
+            buffer.put(block);
+        }
+
+        synchronized void force() {
+            if (!closed) {
+                buffer.force();
+            }
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            buffer.force();
+            closed = true;
+            try {
+                raf.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close archive segment [" + file + "]", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Replays the objects archived by a {@link FileArchiveOperationHandler}, in the order they were
+ * archived.
+ *
+ * <p>Segments are read one after the other. A block failing its checksum (typically the last block
+ * of a segment being written when the process crashed, whose take was therefore not committed) ends
+ * the replay of its segment and is counted in {@link #getCorruptedBlocks()}.
+ *
+ * <pre>
+ * FileArchiveReader reader = new FileArchiveReader(new File("/data/archive"));
+ * while (reader.hasNext()) {
+ *     Object archived = reader.next();
+ *     ...
+ * }
+ * </pre>
+ *
+ * @since 11.0
+ */
+public class FileArchiveReader implements Iterator<Object> {
+
+    private static final Log logger = LogFactory.getLog(FileArchiveReader.class);
+
+    private final File[] segments;
+
+    private int segmentIndex;
+
+    private ByteBuffer buffer;
+
+    private Object[] block = new Object[0];
+
+    private int blockIndex;
+
+    private int corruptedBlocks;
+
+    /**
+     * Reads the segments written with the default file prefix to the given directory.
+     */
+    public FileArchiveReader(File directory) {
+        this(directory, FileArchiveOperationHandler.DEFAULT_FILE_PREFIX);
+    }
+
+    public FileArchiveReader(File directory, String filePrefix) {
+        this.segments = listSegments(directory, filePrefix);
+    }
+
+    /**
+     * Returns the segment files this reader replays, in write order.
+     */
+    public File[] getSegments() {
+        return segments.clone();
+    }
+
+    /**
+     * Returns the number of blocks skipped so far since they failed their checksum.
+     */
+    public int getCorruptedBlocks() {
+        return corruptedBlocks;
+    }
+
+    public boolean hasNext() {
+        while (blockIndex == block.length) {
+            if (!readBlock()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object object = block[blockIndex];
+        block[blockIndex++] = null;
+        return object;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException("Archive segments are read only");
+    }
+
+    private boolean readBlock() {
+        while (true) {
+            if (buffer == null || !decodeBlock()) {
+                if (segmentIndex == segments.length) {
+                    return false;
+                }
+                buffer = openSegment(segments[segmentIndex++]);
+                continue;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Decodes the next block of the current segment, returning <code>false</code> at its end.
+     */
+    private boolean decodeBlock() {
+        if (buffer.remaining() < FileArchiveOperationHandler.BLOCK_HEADER_SIZE) {
+            return false;
+        }
+        int start = buffer.position();
+        byte marker = buffer.get();
+        if (marker == 0) {
+            // the zero filled, never written, tail of the segment
+            return false;
+        }
+        int count = buffer.getInt();
+        int storedLength = buffer.getInt();
+        int rawLength = buffer.getInt();
+        int checksum = buffer.getInt();
+        if ((marker != FileArchiveOperationHandler.BLOCK_PLAIN && marker != FileArchiveOperationHandler.BLOCK_DEFLATED)
+                || count < 0 || storedLength < 0 || rawLength < 0 || storedLength > buffer.remaining()) {
+            return corrupted(start);
+        }
+        byte[] stored = new byte[storedLength];
+        buffer.get(stored);
+        CRC32 crc = new CRC32();
+        crc.update(stored);
+        if ((int) crc.getValue() != checksum) {
+            return corrupted(start);
+        }
+        try {
+            byte[] raw = marker == FileArchiveOperationHandler.BLOCK_DEFLATED ? inflate(stored, rawLength) : stored;
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(raw));
+            Object[] objects = new Object[count];
+            for (int i = 0; i < count; i++) {
+                objects[i] = in.readObject();
+            }
+            in.close();
+            block = objects;
+            blockIndex = 0;
+            return true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read archived objects from [" + segments[segmentIndex - 1] + "]", e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Failed to read archived objects from [" + segments[segmentIndex - 1] + "]", e);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Failed to inflate archived objects from [" + segments[segmentIndex - 1] + "]", e);
+        }
+    }
+
+    private boolean corrupted(int position) {
+        corruptedBlocks++;
+        if (logger.isWarnEnabled()) {
+            logger.warn("Ignoring the corrupted tail of archive segment [" + segments[segmentIndex - 1] + "] from position [" + position + "]");
+        }
+        return false;
+    }
+
+    private static byte[] inflate(byte[] stored, int rawLength) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] raw = new byte[rawLength];
+            int length = inflater.inflate(raw);
+            if (length != rawLength) {
+                throw new DataFormatException("Expected [" + rawLength + "] bytes, inflated [" + length + "]");
+            }
+            return raw;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static ByteBuffer openSegment(File file) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                ByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                if (buffer.remaining() < FileArchiveOperationHandler.SEGMENT_HEADER_SIZE
+                        || buffer.getInt() != FileArchiveOperationHandler.SEGMENT_MAGIC) {
+                    throw new IllegalStateException("[" + file + "] is not an archive segment");
+                }
+                return buffer;
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open archive segment [" + file + "]", e);
+        }
+    }
+
+    static String segmentName(String filePrefix, long sequence) {
+        return filePrefix + "-" + String.format("%020d", sequence) + FileArchiveOperationHandler.SEGMENT_SUFFIX;
+    }
+
+    static long sequenceOf(File segment, String filePrefix) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(filePrefix.length() + 1, name.length() - FileArchiveOperationHandler.SEGMENT_SUFFIX.length()));
+    }
+
+    static File[] listSegments(File directory, final String filePrefix) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith(filePrefix + "-") && name.endsWith(FileArchiveOperationHandler.SEGMENT_SUFFIX)
+                        && name.length() == segmentName(filePrefix, 0).length();
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        // zero padded sequences sort lexicographically
+        Arrays.sort(files);
+        return files;
+    }
+}
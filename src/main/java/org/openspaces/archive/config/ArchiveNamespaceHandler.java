@@ -27,5 +27,6 @@ public class ArchiveNamespaceHandler extends NamespaceHandlerSupport {
     public void init() {
         registerBeanDefinitionParser("annotation-support", new AnnotationSupportBeanDefinitionParser());
         registerBeanDefinitionParser("archive-container", new ArchivePollingContainerBeanDefinitionParser());
+        registerBeanDefinitionParser("file-archive-handler", new FileArchiveHandlerBeanDefinitionParser());
     }
 }
@@ -48,6 +48,14 @@ public class ArchivePollingContainerBeanDefinitionParser
 
         private static final String CASSANDRA_USE_FIFO_GROUPING = "use-fifo-grouping";
 
+        private static final String ARCHIVE_WORKERS = "archive-workers";
+
+        private static final String ARCHIVE_QUEUE_CAPACITY = "archive-queue-capacity";
+
+        private static final String ARCHIVE_MERGE_SIZE = "archive-merge-size";
+
+        private static final String ARCHIVE_MERGE_TIME = "archive-merge-time";
+
         @Override
         protected Class<ArchivePollingContainer> getBeanClass(Element element) {
             return ArchivePollingContainer.class;
@@ -100,5 +108,25 @@ public class ArchivePollingContainerBeanDefinitionParser
             if (StringUtils.hasLength(useFifoGrouping)) {
                 builder.addPropertyValue("useFifoGrouping", useFifoGrouping);
             }
+
+            String archiveWorkers = element.getAttribute(ARCHIVE_WORKERS);
+            if (StringUtils.hasLength(archiveWorkers)) {
+                builder.addPropertyValue("archiveWorkers", archiveWorkers);
+            }
+
+            String archiveQueueCapacity = element.getAttribute(ARCHIVE_QUEUE_CAPACITY);
+            if (StringUtils.hasLength(archiveQueueCapacity)) {
+                builder.addPropertyValue("archiveQueueCapacity", archiveQueueCapacity);
+            }
+
+            String archiveMergeSize = element.getAttribute(ARCHIVE_MERGE_SIZE);
+            if (StringUtils.hasLength(archiveMergeSize)) {
+                builder.addPropertyValue("archiveMergeSize", archiveMergeSize);
+            }
+
+            String archiveMergeTime = element.getAttribute(ARCHIVE_MERGE_TIME);
+            if (StringUtils.hasLength(archiveMergeTime)) {
+                builder.addPropertyValue("archiveMergeTime", archiveMergeTime);
+            }
         }
     }
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.archive.config;
+
+import org.openspaces.archive.FileArchiveOperationHandler;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.xml.AbstractSingleBeanDefinitionParser;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Element;
+
+/**
+ * A bean definition builder for {@link FileArchiveOperationHandler}.
+ *
+ * @since 11.0
+ * @see ArchiveNamespaceHandler
+ */
+public class FileArchiveHandlerBeanDefinitionParser extends AbstractSingleBeanDefinitionParser {
+
+    private static final String DIRECTORY = "directory";
+
+    private static final String FILE_PREFIX = "file-prefix";
+
+    private static final String SEGMENT_SIZE = "segment-size";
+
+    private static final String COMPRESS = "compress";
+
+    private static final String SYNC = "sync";
+
+    @Override
+    protected Class<FileArchiveOperationHandler> getBeanClass(Element element) {
+        return FileArchiveOperationHandler.class;
+    }
+
+    @Override
+    protected void doParse(Element element, BeanDefinitionBuilder builder) {
+        builder.addPropertyValue("directory", element.getAttribute(DIRECTORY));
+
+        String filePrefix = element.getAttribute(FILE_PREFIX);
+        if (StringUtils.hasLength(filePrefix)) {
+            builder.addPropertyValue("filePrefix", filePrefix);
+        }
+
+        String segmentSize = element.getAttribute(SEGMENT_SIZE);
+        if (StringUtils.hasLength(segmentSize)) {
+            builder.addPropertyValue("segmentSize", segmentSize);
+        }
+
+        String compress = element.getAttribute(COMPRESS);
+        if (StringUtils.hasLength(compress)) {
+            builder.addPropertyValue("compress", compress);
+        }
+
+        String sync = element.getAttribute(SYNC);
+        if (StringUtils.hasLength(sync)) {
+            builder.addPropertyValue("sync", sync);
+        }
+    }
+}
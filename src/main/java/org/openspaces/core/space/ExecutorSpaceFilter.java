@@ -37,6 +37,7 @@ import org.openspaces.core.executor.TaskGigaSpaceAware;
 import org.openspaces.core.executor.internal.InternalSpaceTaskWrapper;
 import org.openspaces.core.executor.support.DelegatingTask;
 import org.openspaces.core.executor.support.ProcessObjectsProvider;
+import org.openspaces.remoting.ExecutorRemotingBatchTask;
 import org.openspaces.remoting.ExecutorRemotingTask;
 import org.openspaces.remoting.SpaceRemotingServiceExporter;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
@@ -87,6 +88,8 @@ public class ExecutorSpaceFilter implements ISpaceFilter {
 
             if (task instanceof ExecutorRemotingTask)
                 ((ExecutorRemotingTask)task).setServiceExporter(getServiceExporter(applicationContext));
+            else if (task instanceof ExecutorRemotingBatchTask)
+                ((ExecutorRemotingBatchTask)task).setServiceExporter(getServiceExporter(applicationContext));
             // go over the task and inject what can be injected
             // break when there is no more DelegatingTasks
             while (true) {
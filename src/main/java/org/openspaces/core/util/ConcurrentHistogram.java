@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.core.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of non negative <code>long</code> values (latencies, sizes), allowing to compute
+ * percentiles with a bounded relative error of about 3%.
+ * <p/>
+ * Values below 64 are counted exactly. Larger values are counted in log-linear buckets: each power of two is
+ * split into 32 sub buckets. Recording a value is a couple of atomic increments, so it can be used on hot paths
+ * by many threads concurrently.
+ * <p/>
+ * By default the histogram accumulates all the values ever recorded. A histogram created with a window only
+ * reflects the recent values: it records into the current window and reads the current and the previous one,
+ * so it covers the values recorded within the last one to two windows. Values recorded concurrently with the
+ * switch to a new window might be lost.
+ *
+ * @since 11.0
+ */
+public class ConcurrentHistogram {
+
+    private static final int LINEAR_BUCKETS = 64;
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // the exponent of the smallest value counted in log-linear buckets (64 = 2^6)
+    private static final int MIN_EXPONENT = 6;
+
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - MIN_EXPONENT) * SUB_BUCKETS;
+
+    private final Window[] windows;
+
+    private final long windowNanos;
+
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    private volatile int current;
+
+    /**
+     * Creates a histogram of all the values ever recorded.
+     */
+    public ConcurrentHistogram() {
+        this.windows = new Window[]{new Window()};
+        this.windowNanos = 0;
+    }
+
+    /**
+     * Creates a histogram of the values recorded within the last one to two windows of the given length.
+     */
+    public ConcurrentHistogram(long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("window must be positive, got [" + windowMillis + "]");
+        }
+        this.windows = new Window[]{new Window(), new Window()};
+        this.windowNanos = windowMillis * 1000000L;
+    }
+
+    /**
+     * Records the given value. Negative values are recorded as <code>0</code>.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        rollIfNecessary();
+        windows[current].record(value);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long getCount() {
+        rollIfNecessary();
+        long total = 0;
+        for (Window window : windows) {
+            total += window.count.get();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the sum of the recorded values.
+     */
+    public long getSum() {
+        rollIfNecessary();
+        long total = 0;
+        for (Window window : windows) {
+            total += window.sum.get();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     */
+    public long getMax() {
+        rollIfNecessary();
+        long max = 0;
+        for (Window window : windows) {
+            max = Math.max(max, window.max.get());
+        }
+        return max;
+    }
+
+    /**
+     * Returns the mean of the recorded values, or <code>0</code> if none were recorded.
+     */
+    public double getMean() {
+        long currentCount = getCount();
+        return currentCount == 0 ? 0 : (double) getSum() / currentCount;
+    }
+
+    /**
+     * Returns (an upper bound of) the value below which the given percentage of the recorded values fall.
+     *
+     * @param percentile the percentile, between <code>0</code> and <code>100</code> (e.g. <code>99.9</code>)
+     * @return the value at the given percentile, or <code>0</code> if no values were recorded
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100, got [" + percentile + "]");
+        }
+        long max = getMax();
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (Window window : windows) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long bucketCount = window.counts.get(i);
+                snapshot[i] += bucketCount;
+                total += bucketCount;
+            }
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * (percentile / 100.0));
+        if (threshold < 1) {
+            threshold = 1;
+        }
+        long accumulated = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            accumulated += snapshot[i];
+            if (accumulated >= threshold) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Clears all the recorded values.
+     */
+    public void reset() {
+        for (Window window : windows) {
+            window.reset();
+        }
+    }
+
+    /**
+     * Switches to a new window once the current one elapsed, clearing the oldest window. If more than two
+     * windows elapsed since, both windows are cleared.
+     */
+    private void rollIfNecessary() {
+        if (windowNanos == 0) {
+            return;
+        }
+        long start = windowStart.get();
+        long now = System.nanoTime();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        int next = (current + 1) % windows.length;
+        windows[next].reset();
+        if (now - start >= 2 * windowNanos) {
+            windows[current].reset();
+        }
+        current = next;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + MIN_EXPONENT;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long upper = ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    private static final class Window {
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong sum = new AtomicLong();
+
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            counts.incrementAndGet(bucketIndex(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long currentMax;
+            while (value > (currentMax = max.get())) {
+                if (max.compareAndSet(currentMax, value)) {
+                    break;
+                }
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+}
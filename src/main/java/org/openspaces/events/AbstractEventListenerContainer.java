@@ -24,7 +24,9 @@ import com.gigaspaces.cluster.activeelection.SpaceMode;
 import com.gigaspaces.internal.dump.InternalDump;
 import com.gigaspaces.internal.dump.InternalDumpProcessor;
 import com.gigaspaces.internal.dump.InternalDumpProcessorFailedException;
+import com.gigaspaces.document.SpaceDocument;
 import com.gigaspaces.metrics.BeanMetricManager;
+import com.gigaspaces.metrics.Gauge;
 import com.gigaspaces.metrics.LongCounter;
 import com.j_spaces.core.IJSpace;
 import com.j_spaces.core.admin.IInternalRemoteJSpaceAdmin;
@@ -35,6 +37,7 @@ import org.openspaces.core.GigaSpace;
 import org.openspaces.core.space.mode.AfterSpaceModeChangeEvent;
 import org.openspaces.core.space.mode.BeforeSpaceModeChangeEvent;
 import org.openspaces.core.transaction.manager.JiniPlatformTransactionManager;
+import org.openspaces.core.util.ConcurrentHistogram;
 import org.openspaces.core.util.SpaceUtils;
 import org.openspaces.events.adapter.EventListenerAdapter;
 import org.openspaces.events.support.AnnotationProcessorUtils;
@@ -43,6 +46,7 @@ import org.openspaces.pu.container.ProcessingUnitContainerContextAware;
 import org.openspaces.pu.service.ServiceDetailsProvider;
 import org.openspaces.pu.service.ServiceMonitorsProvider;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
@@ -62,6 +66,7 @@ import java.rmi.RemoteException;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -100,6 +105,17 @@ public abstract class AbstractEventListenerContainer implements ApplicationConte
     private final LongCounter processedEvents = new LongCounter();
     private final LongCounter failedEvents = new LongCounter();
 
+    // latency breakdown, all in microseconds, covering the last one to two minutes
+    protected static final long LATENCY_WINDOW_MILLIS = 60000;
+    private final ConcurrentHistogram receiveWaitTimes = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+    private final ConcurrentHistogram listenerExecutionTimes = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+    private final ConcurrentHistogram commitTimes = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+    private final ConcurrentHistogram rollbackTimes = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+    private final ConcurrentHistogram eventAges = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+    private final AtomicLong listenerInvocations = new AtomicLong();
+    private final AtomicLong listenerBusyTime = new AtomicLong();
+    private String eventTimestampProperty;
+
     private Object template;
     private boolean performSnapshot = true; // enabled by default
     private Object receiveTemplate;
@@ -656,6 +672,21 @@ public abstract class AbstractEventListenerContainer implements ApplicationConte
      * @throws DataAccessException
      */
     protected void invokeListener(SpaceDataEventListener eventListener, Object eventData, TransactionStatus txStatus, Object source) throws Throwable {
+        if (eventTimestampProperty != null) {
+            recordEventAge(eventData);
+        }
+        long start = System.nanoTime();
+        try {
+            doInvokeListener(eventListener, eventData, txStatus, source);
+        } finally {
+            long time = System.nanoTime() - start;
+            listenerExecutionTimes.record(time / 1000);
+            listenerInvocations.incrementAndGet();
+            listenerBusyTime.addAndGet(time);
+        }
+    }
+
+    private void doInvokeListener(SpaceDataEventListener eventListener, Object eventData, TransactionStatus txStatus, Object source) throws Throwable {
         if (exceptionHandler != null) {
             try {
                 eventListener.onEvent(eventData, getGigaSpace(), txStatus, source);
@@ -702,6 +733,129 @@ public abstract class AbstractEventListenerContainer implements ApplicationConte
         return processedEvents.getCount();
     }
 
+    /**
+     * Sets the name of a property of the events holding the time (in milliseconds, as a
+     * <code>Long</code> or a <code>Date</code>) the event was written to the space. When set, the
+     * age of each event when the listener is invoked (write-to-process time) is recorded and
+     * reported in the container metrics. Supports both POJOs (using their getters) and documents.
+     * Defaults to <code>null</code>, meaning the event age is not recorded.
+     */
+    public void setEventTimestampProperty(String eventTimestampProperty) {
+        this.eventTimestampProperty = eventTimestampProperty;
+    }
+
+    protected String getEventTimestampProperty() {
+        return eventTimestampProperty;
+    }
+
+    private void recordEventAge(Object eventData) {
+        if (eventData instanceof Object[]) {
+            for (Object event : (Object[]) eventData) {
+                recordEventAge(event);
+            }
+            return;
+        }
+        if (eventData == null) {
+            return;
+        }
+        Object timestamp;
+        try {
+            if (eventData instanceof SpaceDocument) {
+                timestamp = ((SpaceDocument) eventData).getProperty(eventTimestampProperty);
+            } else {
+                timestamp = new BeanWrapperImpl(eventData).getPropertyValue(eventTimestampProperty);
+            }
+        } catch (RuntimeException e) {
+            // not all the events have to carry a timestamp
+            return;
+        }
+        long writeTime;
+        if (timestamp instanceof Number) {
+            writeTime = ((Number) timestamp).longValue();
+        } else if (timestamp instanceof java.util.Date) {
+            writeTime = ((java.util.Date) timestamp).getTime();
+        } else {
+            return;
+        }
+        eventAges.record(Math.max(0, System.currentTimeMillis() - writeTime) * 1000);
+    }
+
+    /**
+     * Records the time, in <b>nanoseconds</b>, a receive operation waited until it returned an
+     * event.
+     */
+    protected void recordReceiveWaitTime(long nanos) {
+        receiveWaitTimes.record(nanos / 1000);
+    }
+
+    /**
+     * Records the time, in <b>nanoseconds</b>, a transaction commit took. For containers not
+     * committing through {@link #commitTransaction(org.springframework.transaction.TransactionStatus)}.
+     */
+    protected void recordCommitTime(long nanos) {
+        commitTimes.record(nanos / 1000);
+    }
+
+    /**
+     * Records the time, in <b>nanoseconds</b>, a transaction rollback took. For containers not
+     * rolling back through {@link #rollbackTransaction(org.springframework.transaction.TransactionStatus)}.
+     */
+    protected void recordRollbackTime(long nanos) {
+        rollbackTimes.record(nanos / 1000);
+    }
+
+    /**
+     * Commits the given transaction using the container transaction manager, recording the commit
+     * time.
+     */
+    protected void commitTransaction(TransactionStatus status) {
+        long start = System.nanoTime();
+        try {
+            getTransactionManager().commit(status);
+        } finally {
+            recordCommitTime(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Rolls back the given transaction using the container transaction manager, recording the
+     * rollback time.
+     */
+    protected void rollbackTransaction(TransactionStatus status) {
+        long start = System.nanoTime();
+        try {
+            getTransactionManager().rollback(status);
+        } finally {
+            recordRollbackTime(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the number of times the listener was invoked since the container was created.
+     */
+    protected final long getListenerInvocations() {
+        return listenerInvocations.get();
+    }
+
+    /**
+     * Returns the total time, in <b>nanoseconds</b>, spent in the listener since the container was
+     * created.
+     */
+    protected final long getListenerBusyTime() {
+        return listenerBusyTime.get();
+    }
+
+    /**
+     * Adds the latency breakdown of this container to the given monitors.
+     */
+    protected void addLatencyMonitors(EventContainerServiceMonitors monitors) {
+        monitors.setLatency(EventContainerServiceMonitors.Attributes.RECEIVE_WAIT_TIME, receiveWaitTimes);
+        monitors.setLatency(EventContainerServiceMonitors.Attributes.LISTENER_EXECUTION_TIME, listenerExecutionTimes);
+        monitors.setLatency(EventContainerServiceMonitors.Attributes.COMMIT_TIME, commitTimes);
+        monitors.setLatency(EventContainerServiceMonitors.Attributes.ROLLBACK_TIME, rollbackTimes);
+        monitors.setLatency(EventContainerServiceMonitors.Attributes.EVENT_AGE, eventAges);
+    }
+
     public long getFailedEvents() {
         return failedEvents.getCount();
     }
@@ -900,6 +1054,13 @@ public abstract class AbstractEventListenerContainer implements ApplicationConte
         writer.println("Status: " + getStatus());
         writer.println("Processed events: " + getProcessedEvents());
         writer.println("Failed events: " + getFailedEvents());
+        writer.println("Receive wait time (p50/p99 us): " + receiveWaitTimes.getPercentile(50) + "/" + receiveWaitTimes.getPercentile(99));
+        writer.println("Listener time (p50/p99 us): " + listenerExecutionTimes.getPercentile(50) + "/" + listenerExecutionTimes.getPercentile(99));
+        writer.println("Commit time (p50/p99 us): " + commitTimes.getPercentile(50) + "/" + commitTimes.getPercentile(99));
+        writer.println("Rollback time (p50/p99 us): " + rollbackTimes.getPercentile(50) + "/" + rollbackTimes.getPercentile(99));
+        if (eventTimestampProperty != null) {
+            writer.println("Event age (p50/p99 us): " + eventAges.getPercentile(50) + "/" + eventAges.getPercentile(99));
+        }
         writer.println("===== CONFIGURATION =====");
         writer.println("Type                  : [" + getEventListenerContainerType() + "]");
         writer.println("GigaSpace             : [" + getGigaSpace().getName() + "]");
@@ -909,11 +1070,53 @@ public abstract class AbstractEventListenerContainer implements ApplicationConte
 
     protected abstract String getEventListenerContainerType();
 
+    /**
+     * Returns the metric manager of this container, <code>null</code> if not running within a
+     * processing unit container.
+     */
+    protected BeanMetricManager getBeanMetricManager() {
+        return beanMetricManager;
+    }
+
     protected void registerMetrics() {
         if (beanMetricManager != null) {
             beanMetricManager.register("processed-events", processedEvents);
             beanMetricManager.register("failed-events", failedEvents);
+            registerHistogram("receive-wait-time", receiveWaitTimes);
+            registerHistogram("listener-execution-time", listenerExecutionTimes);
+            registerHistogram("commit-time", commitTimes);
+            registerHistogram("rollback-time", rollbackTimes);
+            if (eventTimestampProperty != null) {
+                registerHistogram("event-age", eventAges);
+            }
+        }
+    }
+
+    /**
+     * Registers the p50, p99 and max of the given histogram as gauges named after it.
+     */
+    protected void registerHistogram(String name, final ConcurrentHistogram histogram) {
+        if (beanMetricManager == null) {
+            return;
         }
+        beanMetricManager.register(name + "-p50", new Gauge<Long>() {
+            @Override
+            public Long getValue() throws Exception {
+                return histogram.getPercentile(50);
+            }
+        });
+        beanMetricManager.register(name + "-p99", new Gauge<Long>() {
+            @Override
+            public Long getValue() throws Exception {
+                return histogram.getPercentile(99);
+            }
+        });
+        beanMetricManager.register(name + "-max", new Gauge<Long>() {
+            @Override
+            public Long getValue() throws Exception {
+                return histogram.getMax();
+            }
+        });
     }
 
     protected void unregisterMetrics() {
@@ -16,6 +16,7 @@
 
 package org.openspaces.events;
 
+import org.openspaces.core.util.ConcurrentHistogram;
 import org.openspaces.pu.service.PlainServiceMonitors;
 
 import java.io.IOException;
@@ -35,6 +36,12 @@ public class EventContainerServiceMonitors extends PlainServiceMonitors {
         public static final String PROCESSED_EVENTS = "processed-events";
         public static final String FAILED_EVENTS = "failed-events";
         public static final String STATUS = "status";
+        // latency breakdown, each reported with the -p50, -p99 and -max suffixes, in microseconds
+        public static final String RECEIVE_WAIT_TIME = "receive-wait-time";
+        public static final String LISTENER_EXECUTION_TIME = "listener-execution-time";
+        public static final String COMMIT_TIME = "commit-time";
+        public static final String ROLLBACK_TIME = "rollback-time";
+        public static final String EVENT_AGE = "event-age";
     }
 
     public EventContainerServiceMonitors() {
@@ -48,6 +55,47 @@ public class EventContainerServiceMonitors extends PlainServiceMonitors {
         getMonitors().put(Attributes.STATUS, status);
     }
 
+    /**
+     * Sets the p50, p99 and max of the given latency histogram under the given attribute. Nothing
+     * is set if nothing was recorded.
+     */
+    public void setLatency(String attribute, ConcurrentHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        getMonitors().put(attribute + "-p50", histogram.getPercentile(50));
+        getMonitors().put(attribute + "-p99", histogram.getPercentile(99));
+        getMonitors().put(attribute + "-max", histogram.getMax());
+    }
+
+    /**
+     * Returns the median of the given latency attribute in microseconds, <code>null</code> if not
+     * recorded.
+     */
+    public Long getLatencyP50(String attribute) {
+        return (Long) getMonitors().get(attribute + "-p50");
+    }
+
+    /**
+     * Returns the 99th percentile of the given latency attribute in microseconds, <code>null</code>
+     * if not recorded.
+     */
+    public Long getLatencyP99(String attribute) {
+        return (Long) getMonitors().get(attribute + "-p99");
+    }
+
+    public Long getLatencyMax(String attribute) {
+        return (Long) getMonitors().get(attribute + "-max");
+    }
+
+    public Long getListenerExecutionTimeP99() {
+        return getLatencyP99(Attributes.LISTENER_EXECUTION_TIME);
+    }
+
+    public Long getEventAgeP99() {
+        return getLatencyP99(Attributes.EVENT_AGE);
+    }
+
     public EventContainerServiceDetails getEventDetails() {
         return (EventContainerServiceDetails) getDetails();
     }
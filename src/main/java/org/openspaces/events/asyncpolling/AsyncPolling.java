@@ -66,6 +66,11 @@ public @interface AsyncPolling {
      */
     int concurrentConsumers() default 1;
 
+    /**
+     * @see org.openspaces.events.asyncpolling.SimpleAsyncPollingEventListenerContainer#setPipelineDepth(int)
+     */
+    int pipelineDepth() default 1;
+
     /**
      * Set the timeout to use for receive calls, in <b>milliseconds</b>. The default is 60000 ms,
      * that is, 1 minute.
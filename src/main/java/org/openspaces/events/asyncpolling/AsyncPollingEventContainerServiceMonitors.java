@@ -32,6 +32,7 @@ public class AsyncPollingEventContainerServiceMonitors extends EventContainerSer
     private static final long serialVersionUID = -6863158719393041020L;
     
     public static class Attributes extends EventContainerServiceMonitors.Attributes {
+        public static final String IN_FLIGHT_OPERATIONS = "in-flight-operations";
     }
 
     public AsyncPollingEventContainerServiceMonitors() {
@@ -42,6 +43,17 @@ public class AsyncPollingEventContainerServiceMonitors extends EventContainerSer
         super(id, processedEvents, failedEvents, status);
     }
 
+    public void setInFlightOperations(int inFlightOperations) {
+        getMonitors().put(Attributes.IN_FLIGHT_OPERATIONS, inFlightOperations);
+    }
+
+    /**
+     * Returns the number of async operations awaiting a result, <code>null</code> if not reported.
+     */
+    public Integer getInFlightOperations() {
+        return (Integer) getMonitors().get(Attributes.IN_FLIGHT_OPERATIONS);
+    }
+
     public AsyncPollingEventContainerServiceDetails getAsyncPollingDetails() {
         return (AsyncPollingEventContainerServiceDetails) getEventDetails();
     }
@@ -78,6 +78,14 @@ public class SimpleAsyncPollingContainerConfigurer {
         return this;
     }
 
+    /**
+     * @see org.openspaces.events.asyncpolling.SimpleAsyncPollingEventListenerContainer#setPipelineDepth(int)
+     */
+    public SimpleAsyncPollingContainerConfigurer pipelineDepth(int pipelineDepth) {
+        pollingEventListenerContainer.setPipelineDepth(pipelineDepth);
+        return this;
+    }
+
     /**
      * @see org.openspaces.events.asyncpolling.SimpleAsyncPollingEventListenerContainer#setReceiveTimeout(long)
      */
@@ -19,6 +19,10 @@ package org.openspaces.events.asyncpolling;
 import com.gigaspaces.async.AsyncFutureListener;
 import com.gigaspaces.async.AsyncResult;
 import org.openspaces.core.transaction.internal.TransactionalAsyncFutureListener;
+import org.openspaces.core.transaction.manager.AbstractJiniTransactionManager;
+import org.openspaces.core.transaction.manager.ExisitingJiniTransactionHolder;
+import org.openspaces.core.transaction.manager.ExistingJiniTransactionManager;
+import org.openspaces.core.transaction.manager.JiniTransactionHolder;
 import org.openspaces.events.AbstractEventListenerContainer;
 import org.openspaces.events.ListenerExecutionFailedException;
 import org.openspaces.events.asyncpolling.receive.AsyncOperationHandler;
@@ -29,12 +33,16 @@ import org.springframework.aop.support.AopUtils;
 import org.springframework.dao.DataAccessException;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionStatus;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 
 import java.io.Serializable;
 import java.io.PrintWriter;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +58,10 @@ import java.util.concurrent.atomic.AtomicReference;
  * The rest of the operations will be driven by the results arriving, but in essence, there will be concurrent async
  * operations performed based on the inital number of concurrent consumers.
  *
+ * <p>Each consumer may keep several async operations outstanding using {@link #setPipelineDepth(int)},
+ * hiding the round trip between consecutive events, while still invoking the listener with one
+ * event at a time per consumer, in the order its operations were issued.
+ *
  * <p>The actual execution of an async operation is abstracted using {@link org.openspaces.events.asyncpolling.receive.AsyncOperationHandler}
  * with default implementation for take, read, and exclusive read lock.
  *
@@ -69,8 +81,9 @@ public class SimpleAsyncPollingEventListenerContainer extends AbstractEventListe
 
     private int concurrentConsumers = 1;
 
+    private int pipelineDepth = 1;
 
-    private AsyncFutureListener listener = new AsyncEventListener();
+    private final AtomicInteger inFlightOperations = new AtomicInteger();
 
     /**
      * Set the timeout to use for receive calls, in <b>milliseconds</b>. The default is 60000 ms,
@@ -107,6 +120,40 @@ public class SimpleAsyncPollingEventListenerContainer extends AbstractEventListe
         this.concurrentConsumers = concurrentConsumers;
     }
 
+    /**
+     * Sets the number of async operations each consumer keeps outstanding. The results of a
+     * consumer operations are queued and handed to the listener one at a time, in the order the
+     * operations were issued, so the listener concurrency is still bound by
+     * {@link #setConcurrentConsumers(int)} while the round trip of the next operation overlaps the
+     * listener execution. An operation is issued again only once its result was handled, bounding
+     * the operations and queued results of a consumer by the pipeline depth. Defaults to
+     * <code>1</code>.
+     *
+     * <p>The queued results are handled by whichever thread delivered the next result in order,
+     * so no result callback waits for another. When working with a transaction manager each
+     * operation runs within its own transaction, committed (or rolled back) by the container once
+     * its listener invocation completes. Note that a received event may wait for the listener
+     * invocations of the earlier operations of its consumer, so the transaction timeout should
+     * account for it.
+     */
+    public void setPipelineDepth(int pipelineDepth) {
+        if (pipelineDepth < 1) {
+            throw new IllegalArgumentException("pipelineDepth must be at least 1");
+        }
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    protected int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    /**
+     * Returns the number of async operations currently awaiting a result.
+     */
+    public int getInFlightOperations() {
+        return inFlightOperations.get();
+    }
+
     public ServiceDetails[] getServicesDetails() {
         Object tempalte = getTemplate();
         if (!(tempalte instanceof Serializable)) {
@@ -117,7 +164,10 @@ public class SimpleAsyncPollingEventListenerContainer extends AbstractEventListe
     }
 
     public ServiceMonitors[] getServicesMonitors() {
-        return new ServiceMonitors[]{new AsyncPollingEventContainerServiceMonitors(beanName, getProcessedEvents(), getFailedEvents(), getStatus())};
+        AsyncPollingEventContainerServiceMonitors monitors = new AsyncPollingEventContainerServiceMonitors(beanName, getProcessedEvents(), getFailedEvents(), getStatus());
+        monitors.setInFlightOperations(getInFlightOperations());
+        addLatencyMonitors(monitors);
+        return new ServiceMonitors[]{monitors};
     }
 
     public String getName() {
@@ -134,6 +184,7 @@ public class SimpleAsyncPollingEventListenerContainer extends AbstractEventListe
         super.dump(writer);
         writer.println("Receive Timeout       : [" + getReceiveTimeout() + "]");
         writer.println("Consumers             : [" + concurrentConsumers + "]");
+        writer.println("Pipeline Depth        : [" + pipelineDepth + "], In Flight [" + getInFlightOperations() + "]");
     }
 
     @Override
@@ -177,7 +228,12 @@ public class SimpleAsyncPollingEventListenerContainer extends AbstractEventListe
     protected void doAfterStart() throws DataAccessException {
         super.doAfterStart();
         for (int i = 0; i < concurrentConsumers; i++) {
-            reschedule(listener);
+            // a single operation invokes the listener directly, pipelined ones share the result queue of their consumer
+            Consumer consumer = pipelineDepth > 1 ? new Consumer() : null;
+            for (int j = 0; j < pipelineDepth; j++) {
+                // a listener per operation, as each one tracks the timings of its own outstanding receive
+                reschedule(new AsyncEventListener(consumer));
+            }
         }
         if (logger.isDebugEnabled()) {
             StringBuilder sb = new StringBuilder();
@@ -196,10 +252,16 @@ public class SimpleAsyncPollingEventListenerContainer extends AbstractEventListe
     }
 
 
-    private void reschedule(AsyncFutureListener listener) {
+    private void reschedule(AsyncEventListener listener) {
         if (!isRunning()) {
             return;
         }
+        listener.receiveStart = System.nanoTime();
+        if (listener.consumer != null) {
+            // taken before issuing the operation, as its result might arrive before it returns
+            listener.sequence = listener.consumer.nextSequence();
+        }
+        inFlightOperations.incrementAndGet();
 
         if (logger.isTraceEnabled()) {
             logger.trace(message("Rescheduling async receive operation"));
@@ -211,17 +273,58 @@ public class SimpleAsyncPollingEventListenerContainer extends AbstractEventListe
             try {
                 asyncOperationHandler.asyncReceive(getReceiveTemplate(), getGigaSpace(), receiveTimeout, listener);
             } catch (RuntimeException ex) {
+                receiveFailed(listener);
                 rollbackOnException(status, ex);
                 throw ex;
             } catch (Error err) {
+                receiveFailed(listener);
                 rollbackOnException(status, err);
                 throw err;
             }
             if (!status.isCompleted()) {
+                // completes the receive registration, the actual commit happens once the result arrives
                 this.getTransactionManager().commit(status);
             }
         } else {
-            asyncOperationHandler.asyncReceive(getReceiveTemplate(), getGigaSpace(), receiveTimeout, listener);
+            try {
+                asyncOperationHandler.asyncReceive(getReceiveTemplate(), getGigaSpace(), receiveTimeout, listener);
+            } catch (RuntimeException ex) {
+                receiveFailed(listener);
+                throw ex;
+            }
+        }
+    }
+
+    private void receiveFailed(AsyncEventListener listener) {
+        inFlightOperations.decrementAndGet();
+        if (listener.consumer != null) {
+            // no result will arrive, do not hold back the results of later operations
+            listener.consumer.offer(listener.sequence, null);
+        }
+    }
+
+    /**
+     * Completes a transaction whose commit was deferred until its result was handled.
+     */
+    private void completeDeferredTransaction(JiniTransactionHolder holder, boolean rollback) {
+        AbstractJiniTransactionManager.JiniTransactionObject jiniTransactionObject = new AbstractJiniTransactionManager.JiniTransactionObject();
+        jiniTransactionObject.setJiniHolder(holder, false);
+        TransactionStatus status = new DefaultTransactionStatus(jiniTransactionObject, true, false, false, false, null);
+        if (rollback) {
+            rollbackTransaction(status);
+            return;
+        }
+        try {
+            commitTransaction(status);
+        } catch (RuntimeException e) {
+            logger.warn(message("Failed to commit transaction of async operation"), e);
+            try {
+                rollbackTransaction(status);
+            } catch (RuntimeException e1) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug(message("Failed to rollback transaction after failed commit"), e1);
+                }
+            }
         }
     }
 
@@ -235,7 +338,7 @@ public class SimpleAsyncPollingEventListenerContainer extends AbstractEventListe
     private void rollbackOnException(TransactionStatus status, Throwable ex) {
         logger.trace(message("Initiating transaction rollback on application exception"), ex);
         try {
-            this.getTransactionManager().rollback(status);
+            rollbackTransaction(status);
         } catch (RuntimeException ex2) {
             logger.error(message("Application exception overridden by rollback exception"), ex);
             throw ex2;
@@ -245,18 +348,110 @@ public class SimpleAsyncPollingEventListenerContainer extends AbstractEventListe
         }
     }
 
+    /**
+     * The pipelined operations of a single consumer. Results are queued by the sequence of their
+     * operation, and handed to the listener in that order by whichever thread offered the next
+     * expected one, while the threads offering out of order results return immediately.
+     */
+    private final class Consumer {
+
+        private final Map<Long, AsyncEventListener> results = new HashMap<Long, AsyncEventListener>();
+
+        private long issued;
+
+        private long delivered;
+
+        private boolean draining;
+
+        synchronized long nextSequence() {
+            return issued++;
+        }
+
+        /**
+         * @param listener the listener holding the result of the operation, <code>null</code> if
+         *                 the operation failed to be issued
+         */
+        void offer(long sequence, AsyncEventListener listener) {
+            synchronized (this) {
+                results.put(sequence, listener);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            while (true) {
+                AsyncEventListener next;
+                synchronized (this) {
+                    if (!results.containsKey(delivered)) {
+                        draining = false;
+                        return;
+                    }
+                    next = results.remove(delivered++);
+                }
+                if (next == null) {
+                    continue;
+                }
+                try {
+                    next.handleResult();
+                } catch (Throwable t) {
+                    // keep draining, the results of the other operations still need to be handled
+                    logger.error(message("Failed to handle async operation result"), t);
+                }
+            }
+        }
+    }
+
     private class AsyncEventListener implements TransactionalAsyncFutureListener {
 
+        // a listener has a single outstanding receive at any time, so its steps never overlap, yet
+        // they may be handled by different threads
+        private volatile long receiveStart;
+
+        private volatile long listenerEnd;
+
+        private final Consumer consumer;
+
+        private volatile long sequence;
+
+        // the result and deferred transaction of a pipelined operation, until handled by its consumer
+        private volatile AsyncResult pendingResult;
+
+        private volatile JiniTransactionHolder deferredTransaction;
+
+        AsyncEventListener(Consumer consumer) {
+            this.consumer = consumer;
+        }
+
         public void onTransactionalResult(AsyncResult asyncResult, TransactionStatus txStatus) {
+            inFlightOperations.decrementAndGet();
+            listenerEnd = 0;
+            if (consumer != null) {
+                if (asyncResult.getException() == null && asyncResult.getResult() != null) {
+                    recordReceiveWaitTime(System.nanoTime() - receiveStart);
+                }
+                if (txStatus != null) {
+                    // holding a reference turns the commit following this callback into a no-op, the
+                    // transaction is completed once the result is handled
+                    JiniTransactionHolder holder = ((AbstractJiniTransactionManager.JiniTransactionObject)
+                            ((DefaultTransactionStatus) txStatus).getTransaction()).getJiniHolder();
+                    holder.incRef();
+                    deferredTransaction = holder;
+                }
+                pendingResult = asyncResult;
+                return;
+            }
             if (asyncResult.getException() != null) {
                 if (logger.isWarnEnabled()) {
                     logger.warn(message("Async result operation internal exception"), asyncResult.getException());
                 }
             } else {
                 if (asyncResult.getResult() != null) {
+                    recordReceiveWaitTime(System.nanoTime() - receiveStart);
                     try {
                         executeListener(getEventListener(), asyncResult.getResult(), null, asyncResult);
+                        listenerEnd = System.nanoTime();
                     } catch (Throwable e) {
+                        listenerEnd = System.nanoTime();
                         handleListenerException(e);
                         if (e instanceof RuntimeException) {
                             throw (RuntimeException) e;
@@ -268,11 +463,74 @@ public class SimpleAsyncPollingEventListenerContainer extends AbstractEventListe
             }
         }
 
+        /**
+         * Handles the result of a pipelined operation within its deferred transaction, and issues
+         * the operation again.
+         */
+        void handleResult() {
+            AsyncResult asyncResult = pendingResult;
+            JiniTransactionHolder holder = deferredTransaction;
+            pendingResult = null;
+            deferredTransaction = null;
+            boolean failed = false;
+            try {
+                if (asyncResult.getException() != null) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn(message("Async result operation internal exception"), asyncResult.getException());
+                    }
+                } else if (asyncResult.getResult() != null) {
+                    failed = !executeWithinTransaction(asyncResult, holder);
+                }
+            } finally {
+                if (holder != null) {
+                    completeDeferredTransaction(holder, failed);
+                }
+                reschedule(this);
+            }
+        }
+
+        private boolean executeWithinTransaction(AsyncResult asyncResult, JiniTransactionHolder holder) {
+            // the handling thread might be within the callback of another operation, bound to its transaction
+            ExisitingJiniTransactionHolder previous = null;
+            if (holder != null) {
+                previous = ExistingJiniTransactionManager.unbindExistingTransactionIfPossible();
+                ExistingJiniTransactionManager.bindExistingTransaction(holder.getTransaction(), true, true);
+            }
+            try {
+                executeListener(getEventListener(), asyncResult.getResult(), null, asyncResult);
+                return true;
+            } catch (Throwable e) {
+                handleListenerException(e);
+                return false;
+            } finally {
+                if (holder != null) {
+                    ExistingJiniTransactionManager.unbindExistingTransactionIfPossible();
+                    if (previous != null) {
+                        ExistingJiniTransactionManager.bindExistingTransaction(previous);
+                    }
+                }
+            }
+        }
+
         public void onPostCommitTransaction(AsyncResult asyncResult) {
+            if (consumer != null) {
+                consumer.offer(sequence, this);
+                return;
+            }
+            if (listenerEnd != 0 && getTransactionManager() != null) {
+                recordCommitTime(System.nanoTime() - listenerEnd);
+            }
             reschedule(this);
         }
 
         public void onPostRollbackTransaction(AsyncResult asyncResult) {
+            if (consumer != null) {
+                consumer.offer(sequence, this);
+                return;
+            }
+            if (listenerEnd != 0 && getTransactionManager() != null) {
+                recordRollbackTime(System.nanoTime() - listenerEnd);
+            }
             reschedule(this);
         }
 
@@ -88,6 +88,7 @@ public class AsyncPollingAnnotationPostProcessor implements BeanPostProcessor, A
         }
         
         pollingContainerConfigurer.concurrentConsumers(polling.concurrentConsumers());
+        pollingContainerConfigurer.pipelineDepth(polling.pipelineDepth());
         pollingContainerConfigurer.receiveTimeout(polling.receiveTimeout());
         pollingContainerConfigurer.performSnapshot(polling.performSnapshot());
         pollingContainerConfigurer.autoStart(polling.autoStart());
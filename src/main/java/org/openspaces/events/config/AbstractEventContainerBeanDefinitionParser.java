@@ -36,6 +36,8 @@ public abstract class AbstractEventContainerBeanDefinitionParser extends Abstrac
     
     private static final String AUTO_START = "auto-start";
 
+    private static final String EVENT_TIMESTAMP_PROPERTY = "event-timestamp-property";
+
     private static final String EXCEPTION_HANDLER = "exception-handler";
 
 
@@ -70,6 +72,10 @@ public abstract class AbstractEventContainerBeanDefinitionParser extends Abstrac
         String autoStart = element.getAttribute(AUTO_START);
         if (StringUtils.hasLength(autoStart)) {
             builder.addPropertyValue("autoStart", Boolean.valueOf(autoStart));
-        }        
+        }
+        String eventTimestampProperty = element.getAttribute(EVENT_TIMESTAMP_PROPERTY);
+        if (StringUtils.hasLength(eventTimestampProperty)) {
+            builder.addPropertyValue("eventTimestampProperty", eventTimestampProperty);
+        }
     }
 }
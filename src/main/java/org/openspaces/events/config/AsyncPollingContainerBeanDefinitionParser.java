@@ -34,6 +34,8 @@ public class AsyncPollingContainerBeanDefinitionParser extends AbstractTemplateE
 
     private static final String CONCURRENT_CONSUMERS = "concurrent-consumers";
 
+    private static final String PIPELINE_DEPTH = "pipeline-depth";
+
     private static final String PERFORM_SNAPSHOT = "perform-snapshot";
 
     protected Class<SimpleAsyncPollingEventListenerContainer> getBeanClass(Element element) {
@@ -60,6 +62,11 @@ public class AsyncPollingContainerBeanDefinitionParser extends AbstractTemplateE
             builder.addPropertyValue("concurrentConsumers", concurrentConsumers);
         }
 
+        String pipelineDepth = element.getAttribute(PIPELINE_DEPTH);
+        if (StringUtils.hasLength(pipelineDepth)) {
+            builder.addPropertyValue("pipelineDepth", pipelineDepth);
+        }
+
         String performSnapshot = element.getAttribute(PERFORM_SNAPSHOT);
         if (StringUtils.hasLength(performSnapshot)) {
             builder.addPropertyValue("performSnapshot", performSnapshot);
@@ -52,6 +52,10 @@ public class NotifyContainerBeanDefinitionParser extends AbstractTemplateEventCo
 
     private static final String BATCH_PENDING_THRESHOLD = "pending-threshold";
 
+    private static final String BATCH_CONFLATE = "conflate";
+
+    private static final String BATCH_CONFLATION_REMOVALS = "conflation-removals";
+
     private static final String LEASE = "lease";
 
     private static final String LEASE_AUTO_RENEW = "auto-renew";
@@ -60,6 +64,16 @@ public class NotifyContainerBeanDefinitionParser extends AbstractTemplateEventCo
 
     private static final String NOTIFY_FILTER = "notify-filter";
 
+    private static final String DISPATCH = "dispatch";
+
+    private static final String DISPATCH_WORKERS = "workers";
+
+    private static final String DISPATCH_QUEUE_CAPACITY = "queue-capacity";
+
+    private static final String DISPATCH_BACKPRESSURE = "backpressure";
+
+    private static final String DISPATCH_ORDERING_KEY_EXTRACTOR = "ordering-key-extractor";
+
     private static final String NOTIFY = "notify";
 
     private static final String PERFORM_SNAPSHOT = "perform-snapshot";
@@ -124,6 +138,32 @@ public class NotifyContainerBeanDefinitionParser extends AbstractTemplateEventCo
             if (batchEle.hasAttribute(BATCH_PENDING_THRESHOLD)) {
                 builder.addPropertyValue("batchPendingThreshold", batchEle.getAttribute(BATCH_PENDING_THRESHOLD));
             }
+            String conflate = batchEle.getAttribute(BATCH_CONFLATE);
+            if (StringUtils.hasLength(conflate)) {
+                builder.addPropertyValue("conflate", conflate);
+            }
+            String conflationRemovals = batchEle.getAttribute(BATCH_CONFLATION_REMOVALS);
+            if (StringUtils.hasLength(conflationRemovals)) {
+                builder.addPropertyValue("conflationRemovalPolicy", conflationRemovals);
+            }
+        }
+
+        Element dispatchEle = DomUtils.getChildElementByTagName(element, DISPATCH);
+        if (dispatchEle != null) {
+            builder.addPropertyValue("dispatchWorkers", dispatchEle.getAttribute(DISPATCH_WORKERS));
+            String queueCapacity = dispatchEle.getAttribute(DISPATCH_QUEUE_CAPACITY);
+            if (StringUtils.hasLength(queueCapacity)) {
+                builder.addPropertyValue("dispatchQueueCapacity", queueCapacity);
+            }
+            String backpressure = dispatchEle.getAttribute(DISPATCH_BACKPRESSURE);
+            if (StringUtils.hasLength(backpressure)) {
+                builder.addPropertyValue("dispatchBackpressure", backpressure);
+            }
+            Element orderingKeyExtractorEle = DomUtils.getChildElementByTagName(dispatchEle, DISPATCH_ORDERING_KEY_EXTRACTOR);
+            if (orderingKeyExtractorEle != null) {
+                builder.addPropertyValue("dispatchOrderingKeyExtractor",
+                        parserContext.getDelegate().parsePropertyValue(orderingKeyExtractorEle, builder.getRawBeanDefinition(), "dispatchOrderingKeyExtractor"));
+            }
         }
 
         Element leaseEle = DomUtils.getChildElementByTagName(element, LEASE);
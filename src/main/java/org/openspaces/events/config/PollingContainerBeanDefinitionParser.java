@@ -45,6 +45,28 @@ public class PollingContainerBeanDefinitionParser extends AbstractTemplateEventC
     private static final String PERFORM_SNAPSHOT = "perform-snapshot";
 
     private static final String PASS_ARRAY_AS_IS = "pass-array-as-is";
+
+    private static final String SCALING_POLICY = "scaling-policy";
+
+    private static final String SCALING_INTERVAL = "scaling-interval";
+
+    private static final String SAMPLE_BACKLOG = "sample-backlog";
+
+    private static final String MAX_BATCH_SIZE = "max-batch-size";
+
+    private static final String MAX_BATCH_DELAY = "max-batch-delay";
+
+    private static final String BATCH_WORKERS = "batch-workers";
+
+    private static final String ORDERING_KEY_EXTRACTOR = "ordering-key-extractor";
+
+    private static final String FAILURE_ISOLATION = "failure-isolation";
+
+    private static final String MAX_FAILURES = "max-failures";
+
+    private static final String DEAD_LETTER_SPACE = "dead-letter-space";
+
+    private static final String WRAP_DEAD_LETTERS = "wrap-dead-letters";
     
     protected Class<SimplePollingEventListenerContainer> getBeanClass(Element element) {
         return SimplePollingEventListenerContainer.class;
@@ -66,6 +88,18 @@ public class PollingContainerBeanDefinitionParser extends AbstractTemplateEventC
                     parserContext.getDelegate().parsePropertyValue(triggerOperationHandlerEle, builder.getRawBeanDefinition(), "triggerOperationHandler"));
         }
 
+        Element scalingPolicyEle = DomUtils.getChildElementByTagName(element, SCALING_POLICY);
+        if (scalingPolicyEle != null) {
+            builder.addPropertyValue("scalingPolicy",
+                    parserContext.getDelegate().parsePropertyValue(scalingPolicyEle, builder.getRawBeanDefinition(), "scalingPolicy"));
+        }
+
+        Element orderingKeyExtractorEle = DomUtils.getChildElementByTagName(element, ORDERING_KEY_EXTRACTOR);
+        if (orderingKeyExtractorEle != null) {
+            builder.addPropertyValue("orderingKeyExtractor",
+                    parserContext.getDelegate().parsePropertyValue(orderingKeyExtractorEle, builder.getRawBeanDefinition(), "orderingKeyExtractor"));
+        }
+
         String receiveTimeout = element.getAttribute(RECEIVE_TIMEOUT);
         if (StringUtils.hasLength(receiveTimeout)) {
             builder.addPropertyValue("receiveTimeout", receiveTimeout);
@@ -100,5 +134,50 @@ public class PollingContainerBeanDefinitionParser extends AbstractTemplateEventC
         if (StringUtils.hasLength(passArrayAsIs)) {
             builder.addPropertyValue("passArrayAsIs", passArrayAsIs);
         }
+
+        String scalingInterval = element.getAttribute(SCALING_INTERVAL);
+        if (StringUtils.hasLength(scalingInterval)) {
+            builder.addPropertyValue("scalingInterval", scalingInterval);
+        }
+
+        String sampleBacklog = element.getAttribute(SAMPLE_BACKLOG);
+        if (StringUtils.hasLength(sampleBacklog)) {
+            builder.addPropertyValue("sampleBacklog", sampleBacklog);
+        }
+
+        String maxBatchSize = element.getAttribute(MAX_BATCH_SIZE);
+        if (StringUtils.hasLength(maxBatchSize)) {
+            builder.addPropertyValue("maxBatchSize", maxBatchSize);
+        }
+
+        String maxBatchDelay = element.getAttribute(MAX_BATCH_DELAY);
+        if (StringUtils.hasLength(maxBatchDelay)) {
+            builder.addPropertyValue("maxBatchDelay", maxBatchDelay);
+        }
+
+        String batchWorkers = element.getAttribute(BATCH_WORKERS);
+        if (StringUtils.hasLength(batchWorkers)) {
+            builder.addPropertyValue("batchWorkers", batchWorkers);
+        }
+
+        String failureIsolation = element.getAttribute(FAILURE_ISOLATION);
+        if (StringUtils.hasLength(failureIsolation)) {
+            builder.addPropertyValue("failureIsolation", failureIsolation);
+        }
+
+        String maxFailures = element.getAttribute(MAX_FAILURES);
+        if (StringUtils.hasLength(maxFailures)) {
+            builder.addPropertyValue("maxFailures", maxFailures);
+        }
+
+        String deadLetterSpace = element.getAttribute(DEAD_LETTER_SPACE);
+        if (StringUtils.hasLength(deadLetterSpace)) {
+            builder.addPropertyReference("deadLetterSpace", deadLetterSpace);
+        }
+
+        String wrapDeadLetters = element.getAttribute(WRAP_DEAD_LETTERS);
+        if (StringUtils.hasLength(wrapDeadLetters)) {
+            builder.addPropertyValue("wrapDeadLetters", wrapDeadLetters);
+        }
     }
 }
@@ -76,6 +76,21 @@ public @interface Notify {
      */
     boolean ignoreEventOnNullTake() default false;
 
+    /**
+     * @see SimpleNotifyEventListenerContainer#setDispatchWorkers(int)
+     */
+    int dispatchWorkers() default 0;
+
+    /**
+     * @see SimpleNotifyEventListenerContainer#setDispatchQueueCapacity(int)
+     */
+    int dispatchQueueCapacity() default SimpleNotifyEventListenerContainer.DEFAULT_DISPATCH_QUEUE_CAPACITY;
+
+    /**
+     * @see SimpleNotifyEventListenerContainer#setDispatchBackpressure(NotifyDispatcher.Backpressure)
+     */
+    NotifyDispatcher.Backpressure dispatchBackpressure() default NotifyDispatcher.Backpressure.BLOCK;
+
     /**
      * @see SimpleNotifyEventListenerContainer#setGuaranteed(Boolean)
      */
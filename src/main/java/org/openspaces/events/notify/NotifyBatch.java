@@ -56,4 +56,18 @@ public @interface NotifyBatch {
      */
     boolean passArrayAsIs() default false;
 
+    /**
+     * Should each batch be collapsed to the latest notification of each entry (type name and space id).
+     *
+     * @see SimpleNotifyEventListenerContainer#setConflate(boolean)
+     */
+    boolean conflate() default false;
+
+    /**
+     * How take and lease expiration notifications are handled when conflating.
+     *
+     * @see SimpleNotifyEventListenerContainer#setConflationRemovalPolicy(NotifyConflator.RemovalPolicy)
+     */
+    NotifyConflator.RemovalPolicy conflationRemovalPolicy() default NotifyConflator.RemovalPolicy.DELIVER;
+
 }
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.events.notify;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.jini.core.event.RemoteEvent;
+
+import org.openspaces.core.GigaSpace;
+import org.springframework.beans.BeanWrapperImpl;
+
+import com.gigaspaces.document.SpaceDocument;
+import com.gigaspaces.metadata.SpaceTypeDescriptor;
+import com.j_spaces.core.client.EntryArrivedRemoteEvent;
+import com.j_spaces.core.client.NotifyModifiers;
+
+/**
+ * Collapses a batch of notifications to the latest notification of each entry (identified by its
+ * type name and space id), so a listener handles every entry once per batch no matter how many
+ * times it changed.
+ *
+ * <p>Notifications keep their relative order, each surviving notification staying at the position
+ * it was delivered at. Entries of different types sharing the same id are conflated separately.
+ * Notifications of entries without an id are never conflated. The handling of
+ * take and lease expiration notifications is controlled by the {@link RemovalPolicy}.
+ *
+ * @see SimpleNotifyEventListenerContainer#setConflate(boolean)
+ */
+public class NotifyConflator {
+
+    /**
+     * Controls how take and lease expiration notifications ("removals") are conflated.
+     */
+    public static enum RemovalPolicy {
+        /**
+         * Removals are always delivered. They supersede the earlier notifications of the same id in
+         * the batch, while later ones (the id being written again) are conflated separately and
+         * delivered after the removal.
+         */
+        DELIVER,
+        /**
+         * Removals are conflated like any other notification, only the latest notification of an id
+         * being delivered.
+         */
+        CONFLATE,
+        /**
+         * Removals are not delivered, and discard the earlier notifications of the same id in the
+         * batch.
+         */
+        DISCARD
+    }
+
+    private static final String NO_ID = "";
+
+    private final GigaSpace gigaSpace;
+
+    private final RemovalPolicy removalPolicy;
+
+    private final ConcurrentMap<String, String> idProperties = new ConcurrentHashMap<String, String>();
+
+    public NotifyConflator(GigaSpace gigaSpace, RemovalPolicy removalPolicy) {
+        this.gigaSpace = gigaSpace;
+        this.removalPolicy = removalPolicy == null ? RemovalPolicy.DELIVER : removalPolicy;
+    }
+
+    public RemovalPolicy getRemovalPolicy() {
+        return removalPolicy;
+    }
+
+    /**
+     * Returns the notifications of the given batch that should be delivered, in delivery order.
+     */
+    public RemoteEvent[] conflate(RemoteEvent[] events) {
+        boolean[] dropped = new boolean[events.length];
+        // the index of the pending (latest) notification of each entry
+        Map<EntryKey, Integer> latest = new HashMap<EntryKey, Integer>(events.length * 2);
+        for (int i = 0; i < events.length; i++) {
+            Object entry = getEntry(events[i]);
+            if (entry == null) {
+                continue;
+            }
+            String typeName = getTypeName(entry);
+            Object id = getId(typeName, entry);
+            if (id == null) {
+                continue;
+            }
+            EntryKey key = new EntryKey(typeName, id);
+            Integer previous = latest.get(key);
+            if (previous != null) {
+                dropped[previous] = true;
+            }
+            if (removalPolicy != RemovalPolicy.CONFLATE && isRemoval(events[i])) {
+                latest.remove(key);
+                dropped[i] = removalPolicy == RemovalPolicy.DISCARD;
+            } else {
+                latest.put(key, i);
+            }
+        }
+        List<RemoteEvent> result = new ArrayList<RemoteEvent>(latest.size());
+        for (int i = 0; i < events.length; i++) {
+            if (!dropped[i]) {
+                result.add(events[i]);
+            }
+        }
+        return result.toArray(new RemoteEvent[result.size()]);
+    }
+
+    /**
+     * Returns <code>true</code> if the given notification is of a take or a lease expiration.
+     */
+    protected boolean isRemoval(RemoteEvent event) {
+        if (!(event instanceof EntryArrivedRemoteEvent)) {
+            return false;
+        }
+        int notifyType = ((EntryArrivedRemoteEvent) event).getNotifyType();
+        return (notifyType & (NotifyModifiers.NOTIFY_TAKE | NotifyModifiers.NOTIFY_LEASE_EXPIRATION)) != 0;
+    }
+
+    /**
+     * Returns the entry of the given notification, <code>null</code> if it could not be resolved.
+     */
+    protected Object getEntry(RemoteEvent event) {
+        if (!(event instanceof EntryArrivedRemoteEvent)) {
+            return null;
+        }
+        try {
+            return ((EntryArrivedRemoteEvent) event).getObject();
+        } catch (Exception e) {
+            // let the container report the unusable entry
+            return null;
+        }
+    }
+
+    /**
+     * Returns the space type name of the given entry.
+     */
+    protected String getTypeName(Object data) {
+        return (data instanceof SpaceDocument) ? ((SpaceDocument) data).getTypeName() : data.getClass().getName();
+    }
+
+    /**
+     * Returns the space id of the given entry, <code>null</code> if it has none (or it could not be
+     * resolved).
+     */
+    protected Object getId(String typeName, Object data) {
+        String idProperty = idProperties.get(typeName);
+        if (idProperty == null) {
+            SpaceTypeDescriptor typeDescriptor = gigaSpace.getTypeManager().getTypeDescriptor(typeName);
+            idProperty = (typeDescriptor == null || typeDescriptor.getIdPropertyName() == null) ? NO_ID : typeDescriptor.getIdPropertyName();
+            idProperties.put(typeName, idProperty);
+        }
+        if (idProperty.length() == 0) {
+            return null;
+        }
+        if (data instanceof SpaceDocument) {
+            return ((SpaceDocument) data).getProperty(idProperty);
+        }
+        try {
+            return new BeanWrapperImpl(data).getPropertyValue(idProperty);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static final class EntryKey {
+
+        private final String typeName;
+
+        private final Object id;
+
+        EntryKey(String typeName, Object id) {
+            this.typeName = typeName;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EntryKey)) {
+                return false;
+            }
+            EntryKey other = (EntryKey) o;
+            return id.equals(other.id) && typeName.equals(other.typeName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * typeName.hashCode() + id.hashCode();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.events.notify;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openspaces.core.util.ConcurrentHistogram;
+
+import com.gigaspaces.metrics.LongCounter;
+import com.j_spaces.kernel.threadpool.DynamicExecutors;
+
+/**
+ * A bounded dispatch stage moving the execution of notifications off the thread delivering them.
+ *
+ * <p>Tasks are spread over a fixed number of workers, each owning a bounded queue. Tasks with equal
+ * keys always land on the same worker and are therefore executed one after the other in the order
+ * they were dispatched, while tasks with different keys may execute concurrently. When the queue
+ * of a worker is full the configured {@link Backpressure} is applied.
+ *
+ * @see SimpleNotifyEventListenerContainer#setDispatchWorkers(int)
+ */
+public class NotifyDispatcher {
+
+    private static final Log logger = LogFactory.getLog(NotifyDispatcher.class);
+
+    // the wait times cover the last one to two minutes
+    private static final long LATENCY_WINDOW_MILLIS = 60000;
+
+    /**
+     * Controls what happens when a notification is dispatched to a worker whose queue is full.
+     */
+    public static enum Backpressure {
+        /**
+         * Block the delivering thread until the worker queue has room, slowing down the
+         * notifications delivery.
+         */
+        BLOCK,
+        /**
+         * Discard the oldest pending notification of the worker in favour of the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Reject the new notification, failing its delivery.
+         */
+        FAIL
+    }
+
+    private final Backpressure backpressure;
+
+    private final Worker[] workers;
+
+    private final ConcurrentHistogram waitTimes = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+
+    private final LongCounter droppedTasks = new LongCounter();
+
+    private final LongCounter rejectedTasks = new LongCounter();
+
+    private volatile boolean shutdown;
+
+    public NotifyDispatcher(String name, int workerCount, int queueCapacity, Backpressure backpressure) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.backpressure = backpressure == null ? Backpressure.BLOCK : backpressure;
+        ThreadFactory threadFactory = DynamicExecutors.daemonThreadFactory(name);
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(queueCapacity);
+        }
+        for (Worker worker : workers) {
+            worker.thread = threadFactory.newThread(worker);
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Dispatches the given task to the worker owning the given key.
+     *
+     * @throws RejectedExecutionException if the dispatcher was shut down, or the worker queue is
+     *                                    full and the backpressure is {@link Backpressure#FAIL}
+     */
+    public void dispatch(Object key, Runnable task) throws RejectedExecutionException {
+        if (shutdown) {
+            throw new RejectedExecutionException("Notify dispatcher is shut down");
+        }
+        Worker worker = workers[indexFor(key, workers.length)];
+        Task pending = new Task(task);
+        switch (backpressure) {
+            case BLOCK:
+                try {
+                    worker.queue.put(pending);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for the notify dispatch queue");
+                }
+                break;
+            case DROP_OLDEST:
+                while (!worker.queue.offer(pending)) {
+                    if (worker.queue.poll() != null) {
+                        droppedTasks.inc();
+                    }
+                }
+                break;
+            case FAIL:
+                if (!worker.queue.offer(pending)) {
+                    rejectedTasks.inc();
+                    throw new RejectedExecutionException("Notify dispatch queue is full");
+                }
+                break;
+        }
+    }
+
+    /**
+     * Returns the number of dispatched tasks waiting for a worker.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Worker worker : workers) {
+            depth += worker.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the time, in microseconds, dispatched tasks waited in the queue before executing over
+     * the last one to two minutes.
+     */
+    public ConcurrentHistogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    /**
+     * Returns the number of tasks discarded by the {@link Backpressure#DROP_OLDEST} backpressure.
+     */
+    public LongCounter getDroppedTasks() {
+        return droppedTasks;
+    }
+
+    /**
+     * Returns the number of tasks rejected by the {@link Backpressure#FAIL} backpressure.
+     */
+    public LongCounter getRejectedTasks() {
+        return rejectedTasks;
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    /**
+     * Stops the workers. Tasks still pending are discarded.
+     */
+    public void shutdown() {
+        shutdown = true;
+        int discarded = 0;
+        for (Worker worker : workers) {
+            discarded += worker.queue.size();
+            worker.queue.clear();
+            worker.thread.interrupt();
+        }
+        if (discarded > 0 && logger.isWarnEnabled()) {
+            logger.warn("Discarded [" + discarded + "] pending notifications on shutdown");
+        }
+    }
+
+    static int indexFor(Object key, int count) {
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        // spread the hash so keys differing only in their high bits do not collide
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % count;
+    }
+
+    private static final class Task {
+
+        final Runnable runnable;
+
+        final long dispatchTime = System.nanoTime();
+
+        Task(Runnable runnable) {
+            this.runnable = runnable;
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        final BlockingQueue<Task> queue;
+
+        Thread thread;
+
+        Worker(int capacity) {
+            this.queue = new ArrayBlockingQueue<Task>(capacity);
+        }
+
+        public void run() {
+            while (!shutdown) {
+                Task task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                waitTimes.record((System.nanoTime() - task.dispatchTime) / 1000);
+                try {
+                    task.runnable.run();
+                } catch (Throwable t) {
+                    // the listener exceptions are already handled by the container, this is a last resort
+                    logger.error("Failed to execute dispatched notification", t);
+                }
+            }
+        }
+    }
+}
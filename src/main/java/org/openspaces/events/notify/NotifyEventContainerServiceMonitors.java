@@ -32,6 +32,13 @@ public class NotifyEventContainerServiceMonitors extends EventContainerServiceMo
     private static final long serialVersionUID = 5733661691119820165L;
     
     public static class Attributes extends EventContainerServiceMonitors.Attributes {
+        public static final String DISPATCH_QUEUE_DEPTH = "dispatch-queue-depth";
+        public static final String DISPATCH_DROPPED = "dispatch-dropped";
+        public static final String DISPATCH_REJECTED = "dispatch-rejected";
+        public static final String DISPATCH_WAIT_TIME = "dispatch-wait-time";
+        public static final String CONFLATION_RECEIVED = "conflation-received";
+        public static final String CONFLATION_DELIVERED = "conflation-delivered";
+        public static final String CONFLATION_RATIO = "conflation-ratio";
     }
 
     public NotifyEventContainerServiceMonitors() {
@@ -42,6 +49,42 @@ public class NotifyEventContainerServiceMonitors extends EventContainerServiceMo
         super(id, processedEvents, failedEvents, status);
     }
 
+    public void setDispatchStats(int queueDepth, long dropped, long rejected) {
+        getMonitors().put(Attributes.DISPATCH_QUEUE_DEPTH, queueDepth);
+        getMonitors().put(Attributes.DISPATCH_DROPPED, dropped);
+        getMonitors().put(Attributes.DISPATCH_REJECTED, rejected);
+    }
+
+    /**
+     * Returns the number of notifications waiting for a dispatch worker, <code>null</code> if
+     * dispatching is not enabled.
+     */
+    public Integer getDispatchQueueDepth() {
+        return (Integer) getMonitors().get(Attributes.DISPATCH_QUEUE_DEPTH);
+    }
+
+    public Long getDispatchDropped() {
+        return (Long) getMonitors().get(Attributes.DISPATCH_DROPPED);
+    }
+
+    public Long getDispatchRejected() {
+        return (Long) getMonitors().get(Attributes.DISPATCH_REJECTED);
+    }
+
+    public void setConflationStats(long received, long delivered, double ratio) {
+        getMonitors().put(Attributes.CONFLATION_RECEIVED, received);
+        getMonitors().put(Attributes.CONFLATION_DELIVERED, delivered);
+        getMonitors().put(Attributes.CONFLATION_RATIO, ratio);
+    }
+
+    /**
+     * Returns the ratio between the notifications received and the ones delivered after
+     * conflation, <code>null</code> if conflation is not enabled.
+     */
+    public Double getConflationRatio() {
+        return (Double) getMonitors().get(Attributes.CONFLATION_RATIO);
+    }
+
     public NotifyEventContainerServiceDetails getNotifyEventDetails() {
         return (NotifyEventContainerServiceDetails) getEventDetails();
     }
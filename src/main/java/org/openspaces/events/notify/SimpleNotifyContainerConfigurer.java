@@ -23,6 +23,7 @@ import org.openspaces.events.EventExceptionHandler;
 import org.openspaces.events.SpaceDataEventListener;
 import org.openspaces.events.adapter.AnnotationEventListenerAdapter;
 import org.openspaces.events.adapter.MethodEventListenerAdapter;
+import org.openspaces.events.polling.parallel.OrderingKeyExtractor;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import com.j_spaces.core.client.INotifyDelegatorFilter;
@@ -82,6 +83,38 @@ public class SimpleNotifyContainerConfigurer {
         return this;
     }
 
+    /**
+     * @see org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setDispatchWorkers(int)
+     */
+    public SimpleNotifyContainerConfigurer dispatchWorkers(int dispatchWorkers) {
+        notifyEventListenerContainer.setDispatchWorkers(dispatchWorkers);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setDispatchQueueCapacity(int)
+     */
+    public SimpleNotifyContainerConfigurer dispatchQueueCapacity(int dispatchQueueCapacity) {
+        notifyEventListenerContainer.setDispatchQueueCapacity(dispatchQueueCapacity);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setDispatchBackpressure(NotifyDispatcher.Backpressure)
+     */
+    public SimpleNotifyContainerConfigurer dispatchBackpressure(NotifyDispatcher.Backpressure dispatchBackpressure) {
+        notifyEventListenerContainer.setDispatchBackpressure(dispatchBackpressure);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setDispatchOrderingKeyExtractor(org.openspaces.events.polling.parallel.OrderingKeyExtractor)
+     */
+    public SimpleNotifyContainerConfigurer dispatchOrderingKeyExtractor(OrderingKeyExtractor dispatchOrderingKeyExtractor) {
+        notifyEventListenerContainer.setDispatchOrderingKeyExtractor(dispatchOrderingKeyExtractor);
+        return this;
+    }
+
     /**
      * @see org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setComType(int)
      * @deprecated This configuration is redundant and has no affect.
@@ -118,6 +151,22 @@ public class SimpleNotifyContainerConfigurer {
         return this;
     }
 
+    /**
+     * @see org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setConflate(boolean)
+     */
+    public SimpleNotifyContainerConfigurer conflate(boolean conflate) {
+        notifyEventListenerContainer.setConflate(conflate);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setConflationRemovalPolicy(NotifyConflator.RemovalPolicy)
+     */
+    public SimpleNotifyContainerConfigurer conflationRemovalPolicy(NotifyConflator.RemovalPolicy conflationRemovalPolicy) {
+        notifyEventListenerContainer.setConflationRemovalPolicy(conflationRemovalPolicy);
+        return this;
+    }
+
     /**
      * @see org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setBatchSize(Integer)
      */
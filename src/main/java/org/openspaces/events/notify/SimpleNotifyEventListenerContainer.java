@@ -23,6 +23,9 @@ import com.gigaspaces.events.NotifyActionType;
 import com.gigaspaces.events.batching.BatchRemoteEvent;
 import com.gigaspaces.events.batching.BatchRemoteEventListener;
 import com.gigaspaces.internal.events.IInternalEventSessionAdmin;
+import com.gigaspaces.metrics.BeanMetricManager;
+import com.gigaspaces.metrics.Gauge;
+import com.gigaspaces.metrics.LongCounter;
 import com.j_spaces.core.client.EntryArrivedRemoteEvent;
 
 import com.j_spaces.core.client.INotifyDelegatorFilter;
@@ -36,6 +39,8 @@ import org.openspaces.core.GigaSpace;
 import org.openspaces.core.UnusableEntryException;
 import org.openspaces.core.util.SpaceUtils;
 import org.openspaces.events.AbstractEventListenerContainer;
+import org.openspaces.events.polling.parallel.DefaultOrderingKeyExtractor;
+import org.openspaces.events.polling.parallel.OrderingKeyExtractor;
 import org.openspaces.pu.service.ServiceDetails;
 import org.openspaces.pu.service.ServiceMonitors;
 import org.springframework.core.Constants;
@@ -48,6 +53,7 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * A simple notification based container allowing to register a
@@ -94,6 +100,8 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
 
     protected static final Constants constants = new Constants(SimpleNotifyEventListenerContainer.class);
 
+    public static final int DEFAULT_DISPATCH_QUEUE_CAPACITY = 1000;
+
     private int comType = COM_TYPE_MULTIPLEX;
 
     //private boolean notifyPreviousValueOnUpdate = false;
@@ -154,6 +162,26 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
 
     private EventRegistration eventRegistration;
 
+    private int dispatchWorkers = 0;
+
+    private int dispatchQueueCapacity = DEFAULT_DISPATCH_QUEUE_CAPACITY;
+
+    private NotifyDispatcher.Backpressure dispatchBackpressure = NotifyDispatcher.Backpressure.BLOCK;
+
+    private OrderingKeyExtractor dispatchOrderingKeyExtractor;
+
+    private volatile NotifyDispatcher dispatcher;
+
+    private boolean conflate = false;
+
+    private NotifyConflator.RemovalPolicy conflationRemovalPolicy = NotifyConflator.RemovalPolicy.DELIVER;
+
+    private volatile NotifyConflator conflator;
+
+    private final LongCounter conflationReceived = new LongCounter();
+
+    private final LongCounter conflationDelivered = new LongCounter();
+
     public SimpleNotifyEventListenerContainer() {
         // we register for notifications even when the embedded space is backup
         setActiveWhenPrimary(false);
@@ -637,9 +665,113 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
         this.ignoreEventOnNullTake = ignoreEventOnNullTake;
     }
 
+    /**
+     * Sets the number of workers executing the notifications, moving the listener execution (and
+     * the optional take and transaction) off the thread delivering the notifications, so a slow
+     * listener does not back up the notifications channel of the space. Notifications with the same
+     * ordering key (see {@link #setDispatchOrderingKeyExtractor(OrderingKeyExtractor)}) are
+     * executed in order, others may execute concurrently.
+     *
+     * <p>When batching is enabled each notification of a batch is dispatched (and executed within
+     * its own transaction) separately. Can not be used with {@link #setPassArrayAsIs(boolean)}.
+     *
+     * <p>Defaults to <code>0</code>, meaning the listener is invoked on the delivering thread.
+     */
+    public void setDispatchWorkers(int dispatchWorkers) {
+        this.dispatchWorkers = dispatchWorkers;
+    }
+
+    protected int getDispatchWorkers() {
+        return dispatchWorkers;
+    }
+
+    /**
+     * Sets the number of notifications each dispatch worker may hold pending before the
+     * {@link #setDispatchBackpressure(NotifyDispatcher.Backpressure) backpressure} applies.
+     * Defaults to <code>1000</code>.
+     */
+    public void setDispatchQueueCapacity(int dispatchQueueCapacity) {
+        this.dispatchQueueCapacity = dispatchQueueCapacity;
+    }
+
+    protected int getDispatchQueueCapacity() {
+        return dispatchQueueCapacity;
+    }
+
+    /**
+     * Sets what happens when a dispatch worker queue is full: block the delivering thread
+     * (default), drop the oldest pending notification, or fail the delivery.
+     */
+    public void setDispatchBackpressure(NotifyDispatcher.Backpressure dispatchBackpressure) {
+        this.dispatchBackpressure = dispatchBackpressure;
+    }
+
+    protected NotifyDispatcher.Backpressure getDispatchBackpressure() {
+        return dispatchBackpressure;
+    }
+
+    /**
+     * Sets the extractor of the key notifications are kept in order by when dispatched. Defaults
+     * to a {@link DefaultOrderingKeyExtractor}, ordering by the routing property (which is the id
+     * property unless set otherwise).
+     */
+    public void setDispatchOrderingKeyExtractor(OrderingKeyExtractor dispatchOrderingKeyExtractor) {
+        this.dispatchOrderingKeyExtractor = dispatchOrderingKeyExtractor;
+    }
+
+    protected boolean isDispatching() {
+        return dispatchWorkers > 0;
+    }
+
+    /**
+     * When batching is enabled, should each batch be collapsed to the latest notification of each
+     * entry (type name and space id), so the listener processes every entry once per batch instead
+     * of every intermediate version of it. Notifications of entries without an id are never conflated. Defaults to
+     * <code>false</code>.
+     *
+     * @see #setConflationRemovalPolicy(NotifyConflator.RemovalPolicy)
+     */
+    public void setConflate(boolean conflate) {
+        this.conflate = conflate;
+    }
+
+    protected boolean isConflate() {
+        return conflate;
+    }
+
+    /**
+     * Sets how take and lease expiration notifications are handled when conflating. Defaults to
+     * {@link NotifyConflator.RemovalPolicy#DELIVER}, always delivering them.
+     */
+    public void setConflationRemovalPolicy(NotifyConflator.RemovalPolicy conflationRemovalPolicy) {
+        this.conflationRemovalPolicy = conflationRemovalPolicy;
+    }
+
+    protected NotifyConflator.RemovalPolicy getConflationRemovalPolicy() {
+        return conflationRemovalPolicy;
+    }
+
+    /**
+     * Returns the ratio between the notifications received and the ones delivered to the listener
+     * after conflation, <code>1</code> if nothing was conflated (yet).
+     */
+    protected double getConflationRatio() {
+        long delivered = conflationDelivered.getCount();
+        return delivered == 0 ? 1d : (double) conflationReceived.getCount() / delivered;
+    }
+
     @Override
     protected void validateConfiguration() {
         super.validateConfiguration();
+        if (dispatchWorkers > 0 && passArrayAsIs) {
+            throw new IllegalArgumentException("passArrayAsIs can not be used with dispatchWorkers, as a batch can not be split across the dispatch workers");
+        }
+        if (dispatchWorkers > 0 && dispatchQueueCapacity <= 0) {
+            throw new IllegalArgumentException("dispatchQueueCapacity must be positive");
+        }
+        if (conflate && !isBatchEnabled()) {
+            throw new IllegalArgumentException("conflate is set but batching is not enabled, batchSize and batchTime must have a value");
+        }
         if (batchSize == null && batchTime != null) {
             throw new IllegalArgumentException("batchTime has value [" + batchTime
                     + "] which enables batching. batchSize must have a value as well");
@@ -710,11 +842,26 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
 
     @Override
     protected void doInitialize() throws DataAccessException {
+        if (conflate) {
+            conflator = new NotifyConflator(getGigaSpace(), conflationRemovalPolicy);
+        }
+        if (isDispatching()) {
+            if (dispatchOrderingKeyExtractor == null) {
+                dispatchOrderingKeyExtractor = new DefaultOrderingKeyExtractor(getGigaSpace());
+            }
+            dispatcher = new NotifyDispatcher("notify-dispatch-" + getBeanName(), dispatchWorkers,
+                    dispatchQueueCapacity, dispatchBackpressure);
+        }
     }
 
     @Override
     protected void doShutdown() throws DataAccessException {
         closeSession();
+        NotifyDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            this.dispatcher = null;
+        }
     }
 
     @Override
@@ -819,7 +966,19 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
     }
 
     public ServiceMonitors[] getServicesMonitors() {
-        return new ServiceMonitors[]{new NotifyEventContainerServiceMonitors(beanName, getProcessedEvents(), getFailedEvents(), getStatus())};
+        NotifyEventContainerServiceMonitors monitors = new NotifyEventContainerServiceMonitors(beanName, getProcessedEvents(), getFailedEvents(), getStatus());
+        // notifications are pushed by the space, so there is no receive wait time to report
+        addLatencyMonitors(monitors);
+        NotifyDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            monitors.setDispatchStats(dispatcher.getQueueDepth(), dispatcher.getDroppedTasks().getCount(),
+                    dispatcher.getRejectedTasks().getCount());
+            monitors.setLatency(NotifyEventContainerServiceMonitors.Attributes.DISPATCH_WAIT_TIME, dispatcher.getWaitTimes());
+        }
+        if (conflator != null) {
+            monitors.setConflationStats(conflationReceived.getCount(), conflationDelivered.getCount(), getConflationRatio());
+        }
+        return new ServiceMonitors[]{monitors};
     }
 
     public String getName() {
@@ -831,6 +990,34 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
         return "Notify Container";
     }
 
+    @Override
+    protected void registerMetrics() {
+        super.registerMetrics();
+        BeanMetricManager metricManager = getBeanMetricManager();
+        final NotifyDispatcher dispatcher = this.dispatcher;
+        if (metricManager != null && dispatcher != null) {
+            metricManager.register("dispatch-queue-depth", new Gauge<Integer>() {
+                @Override
+                public Integer getValue() throws Exception {
+                    return dispatcher.getQueueDepth();
+                }
+            });
+            metricManager.register("dispatch-dropped", dispatcher.getDroppedTasks());
+            metricManager.register("dispatch-rejected", dispatcher.getRejectedTasks());
+            registerHistogram("dispatch-wait-time", dispatcher.getWaitTimes());
+        }
+        if (metricManager != null && conflate) {
+            metricManager.register("conflation-received", conflationReceived);
+            metricManager.register("conflation-delivered", conflationDelivered);
+            metricManager.register("conflation-ratio", new Gauge<Double>() {
+                @Override
+                public Double getValue() throws Exception {
+                    return getConflationRatio();
+                }
+            });
+        }
+    }
+
     @Override
     protected void dump(PrintWriter writer) {
         super.dump(writer);
@@ -862,6 +1049,16 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
         writer.println("Perform Snapshot      : [" + isPerformSnapshot() + "]");
         writer.println("Pass Array            : [" + isPassArrayAsIs() + "]");
         writer.println("Durable               : [" + isDurable() + "]");
+        if (conflator != null) {
+            writer.println("Conflation            : Removals [" + conflator.getRemovalPolicy() + "], Received ["
+                    + conflationReceived.getCount() + "], Delivered [" + conflationDelivered.getCount() + "]");
+        }
+        NotifyDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            writer.println("Dispatch              : Workers [" + dispatcher.getWorkerCount() + "], Backpressure ["
+                    + dispatcher.getBackpressure() + "], Queued [" + dispatcher.getQueueDepth() + "], Dropped ["
+                    + dispatcher.getDroppedTasks().getCount() + "], Rejected [" + dispatcher.getRejectedTasks().getCount() + "]");
+        }
 
         if (isDurable() &&
                 eventRegistration != null &&
@@ -961,6 +1158,18 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
 
     protected void invokeListenerWithTransaction(BatchRemoteEvent batchRemoteEvent, boolean performTakeOnNotify,
                                                  boolean ignoreEventOnNullTake) throws DataAccessException {
+        invokeListenerWithTransaction(batchRemoteEvent.getEvents(), batchRemoteEvent, performTakeOnNotify, ignoreEventOnNullTake);
+    }
+
+    /**
+     * Executes the listener with the given events of a batch (possibly a subset of it, see
+     * {@link #setConflate(boolean)}), within a single transaction if a transaction manager is set.
+     *
+     * @param events The batch events to execute the listener with
+     * @param source The batch remote event
+     */
+    protected void invokeListenerWithTransaction(RemoteEvent[] events, Object source, boolean performTakeOnNotify,
+                                                 boolean ignoreEventOnNullTake) throws DataAccessException {
 
         boolean invokeListener = true;
         TransactionStatus status = null;
@@ -969,7 +1178,6 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
             status = this.getTransactionManager().getTransaction(this.getTransactionDefinition());
         }
         if (passArrayAsIs) {
-            RemoteEvent[] events = batchRemoteEvent.getEvents();
             Object[] eventData = new Object[events.length];
             try {
                 for (int i = 0; i < events.length; i++) {
@@ -1004,7 +1212,7 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
                 }
                 try {
                     if (invokeListener) {
-                        invokeListener(getEventListener(), eventData, status, batchRemoteEvent);
+                        invokeListener(getEventListener(), eventData, status, source);
                     }
                 } catch (Throwable t) {
                     if (logger.isTraceEnabled()) {
@@ -1027,7 +1235,7 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
                 throw err;
             }
         } else {
-            for (RemoteEvent remoteEvent : batchRemoteEvent.getEvents()) {
+            for (RemoteEvent remoteEvent : events) {
                 Object eventData;
                 try {
                     try {
@@ -1076,9 +1284,9 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
         if (status != null) {
             if (!status.isCompleted()) {
                 if (status.isRollbackOnly()) {
-                    this.getTransactionManager().rollback(status);
+                    rollbackTransaction(status);
                 } else {
-                    this.getTransactionManager().commit(status);
+                    commitTransaction(status);
                 }
             }
         }
@@ -1134,9 +1342,9 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
             }
             if (!status.isCompleted()) {
                 if (status.isRollbackOnly()) {
-                    this.getTransactionManager().rollback(status);
+                    rollbackTransaction(status);
                 } else {
-                    this.getTransactionManager().commit(status);
+                    commitTransaction(status);
                 }
             }
         } else {
@@ -1156,6 +1364,37 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
         }
     }
 
+    /**
+     * Executes the given event using {@link #invokeListenerWithTransaction(Object, Object, boolean, boolean)},
+     * either directly or, if {@link #setDispatchWorkers(int) dispatching} is enabled, on the dispatch
+     * worker owning its ordering key.
+     */
+    protected void dispatchOrInvoke(final Object eventData, final Object source) throws RemoteException {
+        NotifyDispatcher dispatcher = this.dispatcher;
+        if (dispatcher == null) {
+            invokeListenerWithTransaction(eventData, source, performTakeOnNotify, ignoreEventOnNullTake);
+            return;
+        }
+        Object key;
+        try {
+            key = dispatchOrderingKeyExtractor.extractKey(eventData);
+        } catch (RuntimeException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(message("Failed to extract the ordering key of event [" + eventData + "]"), e);
+            }
+            key = null;
+        }
+        try {
+            dispatcher.dispatch(key, new Runnable() {
+                public void run() {
+                    invokeListenerWithTransaction(eventData, source, performTakeOnNotify, ignoreEventOnNullTake);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new RemoteException(message("Notification rejected: " + e.getMessage()), e);
+        }
+    }
+
     /**
      * Perform a rollback, handling rollback exceptions properly.
      *
@@ -1167,7 +1406,7 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
             logger.debug(message("Initiating transaction rollback on application exception"), ex);
         }
         try {
-            this.getTransactionManager().rollback(status);
+            rollbackTransaction(status);
         } catch (RuntimeException ex2) {
             logger.error(message("Application exception overridden by rollback exception"), ex);
             throw ex2;
@@ -1186,7 +1425,8 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
      * {@link org.openspaces.events.notify.SimpleNotifyEventListenerContainer#invokeListenerWithTransaction(Object,Object,boolean,boolean)}
      * for a possible listener execution within a transaction and passed the
      * {@link org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setPerformTakeOnNotify(boolean)}
-     * flag.
+     * flag. The invocation is handed to the dispatch workers if
+     * {@link org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setDispatchWorkers(int)} is set.
      */
     private class NotifyListenerDelegate implements RemoteEventListener {
 
@@ -1203,7 +1443,7 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
             if (logger.isTraceEnabled()) {
                 logger.trace(message("Received event [" + eventData + "]"));
             }
-            invokeListenerWithTransaction(eventData, remoteEvent, performTakeOnNotify, ignoreEventOnNullTake);
+            dispatchOrInvoke(eventData, remoteEvent);
         }
     }
 
@@ -1213,7 +1453,30 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
 //            if (!isRunning()) {
 //                return;
 //            }
-            invokeListenerWithTransaction(batchRemoteEvent, performTakeOnNotify, ignoreEventOnNullTake);
+            RemoteEvent[] events = batchRemoteEvent.getEvents();
+            NotifyConflator conflator = SimpleNotifyEventListenerContainer.this.conflator;
+            if (conflator != null) {
+                RemoteEvent[] conflated = conflator.conflate(events);
+                conflationReceived.inc(events.length);
+                conflationDelivered.inc(conflated.length);
+                if (conflated.length == 0) {
+                    return;
+                }
+                events = conflated;
+            }
+            if (dispatcher == null) {
+                invokeListenerWithTransaction(events, batchRemoteEvent, performTakeOnNotify, ignoreEventOnNullTake);
+                return;
+            }
+            for (RemoteEvent remoteEvent : events) {
+                Object eventData;
+                try {
+                    eventData = ((EntryArrivedRemoteEvent) remoteEvent).getObject();
+                } catch (net.jini.core.entry.UnusableEntryException e) {
+                    throw new UnusableEntryException("Failure to get object from event [" + remoteEvent + "]", e);
+                }
+                dispatchOrInvoke(eventData, remoteEvent);
+            }
         }
 
         public void notify(RemoteEvent remoteEvent) throws UnknownEventException, RemoteException {
@@ -1229,7 +1492,7 @@ public class SimpleNotifyEventListenerContainer extends AbstractEventListenerCon
             if (logger.isTraceEnabled()) {
                 logger.trace(message("Received event [" + eventData + "]"));
             }
-            invokeListenerWithTransaction(eventData, remoteEvent, performTakeOnNotify, ignoreEventOnNullTake);
+            dispatchOrInvoke(eventData, remoteEvent);
         }
     }
 }
@@ -86,6 +86,10 @@ public class NotifyAnnotationPostProcessor implements BeanPostProcessor, Applica
         notifyContainerConfigurer.ignoreEventOnNullTake(notify.ignoreEventOnNullTake());
         notifyContainerConfigurer.performTakeOnNotify(notify.performTakeOnNotify());
 
+        notifyContainerConfigurer.dispatchWorkers(notify.dispatchWorkers());
+        notifyContainerConfigurer.dispatchQueueCapacity(notify.dispatchQueueCapacity());
+        notifyContainerConfigurer.dispatchBackpressure(notify.dispatchBackpressure());
+
         notifyContainerConfigurer.guaranteed(notify.guaranteed());
 
         notifyContainerConfigurer.durable(notify.durable());
@@ -160,6 +164,8 @@ public class NotifyAnnotationPostProcessor implements BeanPostProcessor, Applica
             notifyContainerConfigurer.batchTime(notifyBatch.time());
             notifyContainerConfigurer.batchPendingThreshold(notifyBatch.pendingThreshold());
             notifyContainerConfigurer.passArrayAsIs(notifyBatch.passArrayAsIs());
+            notifyContainerConfigurer.conflate(notifyBatch.conflate());
+            notifyContainerConfigurer.conflationRemovalPolicy(notifyBatch.conflationRemovalPolicy());
         }
 
         NotifyLease notifyLease = AnnotationUtils.findAnnotation(beanClass, NotifyLease.class);
@@ -136,4 +136,29 @@ public @interface Polling {
      * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setRecoveryInterval(long)
      */
     long recoveryInterval() default SimplePollingEventListenerContainer.DEFAULT_RECOVERY_INTERVAL;
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setMaxBatchSize(int)
+     */
+    int maxBatchSize() default 0;
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setMaxBatchDelay(long)
+     */
+    long maxBatchDelay() default SimplePollingEventListenerContainer.DEFAULT_MAX_BATCH_DELAY;
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setBatchWorkers(int)
+     */
+    int batchWorkers() default 0;
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setFailureIsolation(boolean)
+     */
+    boolean failureIsolation() default false;
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setMaxFailures(int)
+     */
+    int maxFailures() default SimplePollingEventListenerContainer.DEFAULT_MAX_FAILURES;
 }
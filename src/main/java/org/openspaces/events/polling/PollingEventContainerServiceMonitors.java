@@ -17,6 +17,7 @@
 package org.openspaces.events.polling;
 
 import org.openspaces.events.EventContainerServiceMonitors;
+import org.openspaces.events.polling.scaling.ConsumerScalingStatistics;
 
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -33,6 +34,21 @@ public class PollingEventContainerServiceMonitors extends EventContainerServiceM
     
     public static class Attributes extends EventContainerServiceMonitors.Attributes {
         public static final String CONSUMERS = "consumers";
+        public static final String SCHEDULED_CONSUMERS = "scheduled-consumers";
+        public static final String ACTIVE_CONSUMERS = "active-consumers";
+        public static final String TARGET_CONSUMERS = "target-consumers";
+        public static final String BACKLOG = "backlog";
+        public static final String UTILIZATION = "utilization";
+        public static final String LISTENER_LATENCY = "listener-latency";
+        public static final String SCALE_UPS = "scale-ups";
+        public static final String SCALE_DOWNS = "scale-downs";
+        public static final String BATCHES = "batches";
+        public static final String BATCH_SIZE_MEAN = "batch-size-mean";
+        public static final String BATCH_SIZE_P99 = "batch-size-p99";
+        public static final String BATCH_FILL_TIME_P50 = "batch-fill-time-p50";
+        public static final String BATCH_FILL_TIME_P99 = "batch-fill-time-p99";
+        public static final String ISOLATION_RETRIES = "isolation-retries";
+        public static final String QUARANTINED_EVENTS = "quarantined-events";
     }
 
     public PollingEventContainerServiceMonitors() {
@@ -44,6 +60,41 @@ public class PollingEventContainerServiceMonitors extends EventContainerServiceM
         getMonitors().put(Attributes.CONSUMERS, consumers);
     }
 
+    /**
+     * Sets the consumer scaling state of the container. The statistics are the ones of the last
+     * scaling decision and might be <code>null</code> if none was taken yet.
+     */
+    public void setScalingStats(int scheduledConsumers, int activeConsumers, int targetConsumers,
+                                ConsumerScalingStatistics statistics, long scaleUps, long scaleDowns) {
+        getMonitors().put(Attributes.SCHEDULED_CONSUMERS, scheduledConsumers);
+        getMonitors().put(Attributes.ACTIVE_CONSUMERS, activeConsumers);
+        getMonitors().put(Attributes.TARGET_CONSUMERS, targetConsumers);
+        getMonitors().put(Attributes.BACKLOG, statistics != null ? statistics.getBacklog() : ConsumerScalingStatistics.UNKNOWN_BACKLOG);
+        getMonitors().put(Attributes.UTILIZATION, statistics != null ? statistics.getUtilization() : 0d);
+        getMonitors().put(Attributes.LISTENER_LATENCY, statistics != null ? statistics.getAverageLatency() / 1000 : 0L);
+        getMonitors().put(Attributes.SCALE_UPS, scaleUps);
+        getMonitors().put(Attributes.SCALE_DOWNS, scaleDowns);
+    }
+
+    /**
+     * Sets the micro batching statistics of the container, fill times are in microseconds.
+     */
+    public void setBatchStats(long batches, double meanSize, long p99Size, long p50FillTime, long p99FillTime) {
+        getMonitors().put(Attributes.BATCHES, batches);
+        getMonitors().put(Attributes.BATCH_SIZE_MEAN, meanSize);
+        getMonitors().put(Attributes.BATCH_SIZE_P99, p99Size);
+        getMonitors().put(Attributes.BATCH_FILL_TIME_P50, p50FillTime);
+        getMonitors().put(Attributes.BATCH_FILL_TIME_P99, p99FillTime);
+    }
+
+    /**
+     * Sets the failure isolation statistics of the container.
+     */
+    public void setIsolationStats(long retries, long quarantined) {
+        getMonitors().put(Attributes.ISOLATION_RETRIES, retries);
+        getMonitors().put(Attributes.QUARANTINED_EVENTS, quarantined);
+    }
+
     public PollingEventContainerServiceDetails getPollingEventDetails() {
         return (PollingEventContainerServiceDetails) getEventDetails();
     }
@@ -52,6 +103,96 @@ public class PollingEventContainerServiceMonitors extends EventContainerServiceM
         return (Integer) getMonitors().get(Attributes.CONSUMERS);
     }
 
+    public int getScheduledConsumers() {
+        return (Integer) getMonitors().get(Attributes.SCHEDULED_CONSUMERS);
+    }
+
+    public int getActiveConsumers() {
+        return (Integer) getMonitors().get(Attributes.ACTIVE_CONSUMERS);
+    }
+
+    /**
+     * The number of consumers the scaling policy decided on in its last evaluation.
+     */
+    public int getTargetConsumers() {
+        return (Integer) getMonitors().get(Attributes.TARGET_CONSUMERS);
+    }
+
+    /**
+     * The number of entries matching the template when last sampled, -1 if unknown.
+     */
+    public long getBacklog() {
+        return (Long) getMonitors().get(Attributes.BACKLOG);
+    }
+
+    /**
+     * The fraction (0 to 1) of the consumers time spent in the listener during the last scaling
+     * interval.
+     */
+    public double getUtilization() {
+        return (Double) getMonitors().get(Attributes.UTILIZATION);
+    }
+
+    /**
+     * The average listener invocation time during the last scaling interval, in microseconds.
+     */
+    public long getListenerLatency() {
+        return (Long) getMonitors().get(Attributes.LISTENER_LATENCY);
+    }
+
+    public long getScaleUps() {
+        return (Long) getMonitors().get(Attributes.SCALE_UPS);
+    }
+
+    public long getScaleDowns() {
+        return (Long) getMonitors().get(Attributes.SCALE_DOWNS);
+    }
+
+    /**
+     * The number of batches processed, <code>null</code> if the container does not batch.
+     */
+    public Long getBatches() {
+        return (Long) getMonitors().get(Attributes.BATCHES);
+    }
+
+    /**
+     * The mean number of events of a batch over the last one to two minutes.
+     */
+    public Double getBatchSizeMean() {
+        return (Double) getMonitors().get(Attributes.BATCH_SIZE_MEAN);
+    }
+
+    public Long getBatchSizeP99() {
+        return (Long) getMonitors().get(Attributes.BATCH_SIZE_P99);
+    }
+
+    /**
+     * The median time (in microseconds) it took to fill a batch over the last one to two minutes.
+     */
+    public Long getBatchFillTimeP50() {
+        return (Long) getMonitors().get(Attributes.BATCH_FILL_TIME_P50);
+    }
+
+    public Long getBatchFillTimeP99() {
+        return (Long) getMonitors().get(Attributes.BATCH_FILL_TIME_P99);
+    }
+
+    /**
+     * The number of failed retries of isolated events, <code>null</code> if failure isolation
+     * is disabled.
+     */
+    public Long getIsolationRetries() {
+        return (Long) getMonitors().get(Attributes.ISOLATION_RETRIES);
+    }
+
+    /**
+     * The number of events moved to the dead letter space, <code>null</code> if failure isolation
+     * is disabled.
+     */
+    public Long getQuarantinedEvents() {
+        return (Long) getMonitors().get(Attributes.QUARANTINED_EVENTS);
+    }
+
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
         super.writeExternal(out);
@@ -24,7 +24,9 @@ import org.openspaces.events.adapter.AnnotationDynamicEventTemplateProviderAdapt
 import org.openspaces.events.adapter.AnnotationEventListenerAdapter;
 import org.openspaces.events.adapter.MethodEventListenerAdapter;
 import org.openspaces.events.adapter.MethodDynamicEventTemplateProviderAdapter;
+import org.openspaces.events.polling.parallel.OrderingKeyExtractor;
 import org.openspaces.events.polling.receive.ReceiveOperationHandler;
+import org.openspaces.events.polling.scaling.ConsumerScalingPolicy;
 import org.openspaces.events.polling.trigger.TriggerOperationHandler;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -116,6 +118,94 @@ public class SimplePollingContainerConfigurer {
         return this;
     }
 
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setScalingPolicy(org.openspaces.events.polling.scaling.ConsumerScalingPolicy)
+     */
+    public SimplePollingContainerConfigurer scalingPolicy(ConsumerScalingPolicy scalingPolicy) {
+        pollingEventListenerContainer.setScalingPolicy(scalingPolicy);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setScalingInterval(long)
+     */
+    public SimplePollingContainerConfigurer scalingInterval(long scalingInterval) {
+        pollingEventListenerContainer.setScalingInterval(scalingInterval);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setSampleBacklog(boolean)
+     */
+    public SimplePollingContainerConfigurer sampleBacklog(boolean sampleBacklog) {
+        pollingEventListenerContainer.setSampleBacklog(sampleBacklog);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setMaxBatchSize(int)
+     */
+    public SimplePollingContainerConfigurer maxBatchSize(int maxBatchSize) {
+        pollingEventListenerContainer.setMaxBatchSize(maxBatchSize);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setMaxBatchDelay(long)
+     */
+    public SimplePollingContainerConfigurer maxBatchDelay(long maxBatchDelay) {
+        pollingEventListenerContainer.setMaxBatchDelay(maxBatchDelay);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setBatchWorkers(int)
+     */
+    public SimplePollingContainerConfigurer batchWorkers(int batchWorkers) {
+        pollingEventListenerContainer.setBatchWorkers(batchWorkers);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setOrderingKeyExtractor(org.openspaces.events.polling.parallel.OrderingKeyExtractor)
+     */
+    public SimplePollingContainerConfigurer orderingKeyExtractor(OrderingKeyExtractor orderingKeyExtractor) {
+        pollingEventListenerContainer.setOrderingKeyExtractor(orderingKeyExtractor);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setFailureIsolation(boolean)
+     */
+    public SimplePollingContainerConfigurer failureIsolation(boolean failureIsolation) {
+        pollingEventListenerContainer.setFailureIsolation(failureIsolation);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setMaxFailures(int)
+     */
+    public SimplePollingContainerConfigurer maxFailures(int maxFailures) {
+        pollingEventListenerContainer.setMaxFailures(maxFailures);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setDeadLetterSpace(org.openspaces.core.GigaSpace)
+     */
+    public SimplePollingContainerConfigurer deadLetterSpace(GigaSpace deadLetterSpace) {
+        pollingEventListenerContainer.setDeadLetterSpace(deadLetterSpace);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setWrapDeadLetters(boolean)
+     */
+    public SimplePollingContainerConfigurer wrapDeadLetters(boolean wrapDeadLetters) {
+        pollingEventListenerContainer.setWrapDeadLetters(wrapDeadLetters);
+        return this;
+    }
+
     /**
      * @see org.openspaces.events.polling.SimplePollingEventListenerContainer#setPassArrayAsIs(boolean)
      */
@@ -20,19 +20,43 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.openspaces.core.GigaSpace;
 import org.openspaces.core.SpaceInterruptedException;
+import org.openspaces.core.transaction.manager.ExistingJiniTransactionManager;
+import org.openspaces.core.util.ConcurrentHistogram;
 import org.openspaces.events.AbstractEventListenerContainer;
 import org.openspaces.events.SpaceDataEventListener;
+import org.openspaces.events.polling.isolation.DeadLetterEntry;
+import org.openspaces.events.polling.parallel.DefaultOrderingKeyExtractor;
+import org.openspaces.events.polling.parallel.OrderingKeyExtractor;
 import org.openspaces.events.polling.receive.ReceiveOperationHandler;
 import org.openspaces.events.polling.receive.SingleTakeReceiveOperationHandler;
+import org.openspaces.events.polling.scaling.ConsumerScalingPolicy;
+import org.openspaces.events.polling.scaling.ConsumerScalingStatistics;
+import org.openspaces.events.polling.scaling.DefaultConsumerScalingPolicy;
 import org.openspaces.events.polling.trigger.TriggerOperationHandler;
 import org.openspaces.pu.service.ServiceDetails;
 import org.openspaces.pu.service.ServiceMonitors;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.dao.DataAccessException;
@@ -41,11 +65,21 @@ import org.springframework.scheduling.SchedulingTaskExecutor;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 
 import org.springframework.util.ReflectionUtils;
 
+import com.gigaspaces.document.SpaceDocument;
+import com.gigaspaces.metadata.SpaceTypeDescriptor;
+import com.gigaspaces.metrics.BeanMetricManager;
+import com.gigaspaces.metrics.Gauge;
+import com.gigaspaces.metrics.LongCounter;
+import com.gigaspaces.query.IdQuery;
+import com.j_spaces.kernel.threadpool.DynamicExecutors;
+import net.jini.core.transaction.Transaction;
+
 /**
  * Event listener container variant that uses plain Space take API, specifically a loop of
  * {@link org.openspaces.core.GigaSpace#take(Object,long)} calls that also allow for transactional
@@ -72,12 +106,35 @@ import org.springframework.util.ReflectionUtils;
  * {@link #setConcurrentConsumers "concurrentConsumers"} value. Since the latter's default is 1, you
  * can also simply specify a "maxConcurrentConsumers" of e.g. 5, which will lead to dynamic scaling
  * up to 5 concurrent consumers in case of increasing event load, as well as dynamic shrinking back
- * to the standard number of consumers once the load decreases. Consider adapting the
- * {@link #setIdleTaskExecutionLimit "idleTaskExecutionLimit"} setting to control the lifespan of
- * each new task, to avoid frequent scaling up and down. Note that using more than one consumer
+ * to the standard number of consumers once the load decreases. The number of consumers is driven by
+ * a pluggable {@link #setScalingPolicy "scalingPolicy"} which is evaluated every
+ * {@link #setScalingInterval "scalingInterval"} based on the sampled backlog, listener latency and
+ * consumer utilization (see {@link org.openspaces.events.polling.scaling.DefaultConsumerScalingPolicy}).
+ * Consider adapting the {@link #setIdleTaskExecutionLimit "idleTaskExecutionLimit"} setting to control
+ * how long a consumer above the policy target is kept once it became idle. Note that using more than one consumer
  * might break fifo behavior if fifo is configured by the space or the specific class type, however, this is not
  * the case when using fifo grouping.
  *
+ * <p>
+ * Micro batching can be activated through specifying a {@link #setMaxBatchSize "maxBatchSize"}. Each
+ * consumer then keeps receiving events until the batch is full or the
+ * {@link #setMaxBatchDelay "maxBatchDelay"} elapsed since its first event, and invokes the listener
+ * once with an array of the whole batch. When a transaction manager is configured, the batch is
+ * received and processed within a single transaction.
+ *
+ * <p>
+ * When a receive operation handler returns several events and they are not passed as is to the
+ * listener, the events can be processed in parallel by specifying
+ * {@link #setBatchWorkers "batchWorkers"}. Events sharing the same ordering key (by default their
+ * fifo grouping or routing value) are still processed sequentially in the order they were received.
+ *
+ * <p>
+ * When working with transactions, a single failing event causes all the events received within
+ * the transaction to be rolled back and redelivered. Enabling {@link #setFailureIsolation
+ * "failureIsolation"} retries the failed events in smaller transactions (splitting them in halves
+ * until the failing ones are found), and moves events failing {@link #setMaxFailures "maxFailures"}
+ * times on their own to the {@link #setDeadLetterSpace "deadLetterSpace"}.
+ *
  * @author kimchy
  */
 public class SimplePollingEventListenerContainer extends AbstractEventListenerContainer {
@@ -98,6 +155,21 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
      */
     public static final long DEFAULT_RECEIVE_TIMEOUT = 60000;
 
+    /**
+     * The default scaling interval: 1000 ms = 1 second.
+     */
+    public static final long DEFAULT_SCALING_INTERVAL = 1000;
+
+    /**
+     * The default max batch delay: 100 ms.
+     */
+    public static final long DEFAULT_MAX_BATCH_DELAY = 100;
+
+    /**
+     * The default number of times an isolated event may fail before it is quarantined: 3.
+     */
+    public static final int DEFAULT_MAX_FAILURES = 3;
+
     private boolean passArrayAsIs = false;
     private long receiveTimeout = DEFAULT_RECEIVE_TIMEOUT;
     private ReceiveOperationHandler receiveOperationHandler;
@@ -107,20 +179,80 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
 
     private long recoveryInterval = DEFAULT_RECOVERY_INTERVAL;
 
-    private int concurrentConsumers = 1;
+    private volatile int concurrentConsumers = 1;
+
+    private volatile int maxConcurrentConsumers = 1;
+
+    private volatile int maxEventsPerTask = Integer.MIN_VALUE;
+
+    private volatile int idleTaskExecutionLimit = 1;
+
+    private ConsumerScalingPolicy scalingPolicy;
+
+    private long scalingInterval = DEFAULT_SCALING_INTERVAL;
+
+    private boolean sampleBacklog = true;
+
+    private int maxBatchSize = 0;
 
-    private int maxConcurrentConsumers = 1;
+    private long maxBatchDelay = DEFAULT_MAX_BATCH_DELAY;
 
-    private int maxEventsPerTask = Integer.MIN_VALUE;
+    private final LongCounter batches = new LongCounter();
 
-    private int idleTaskExecutionLimit = 1;
+    // batch sizes and fill times (in microseconds) cover the last one to two minutes
+    private final ConcurrentHistogram batchSizes = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
 
-    private final Set<AsyncEventListenerInvoker> scheduledInvokers = new HashSet<AsyncEventListenerInvoker>();
+    private final ConcurrentHistogram batchFillTimes = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
 
-    private int activeInvokerCount = 0;
+    private int batchWorkers = 0;
 
+    private OrderingKeyExtractor orderingKeyExtractor;
+
+    private ThreadPoolExecutor batchExecutor;
+
+    private boolean failureIsolation = false;
+
+    private int maxFailures = DEFAULT_MAX_FAILURES;
+
+    private GigaSpace deadLetterSpace;
+
+    private boolean wrapDeadLetters = true;
+
+    // the events received within a transaction that failed, to be isolated once it is rolled back
+    private final ThreadLocal<List<Object>> isolationCandidates = new ThreadLocal<List<Object>>();
+
+    private final LongCounter isolationRetries = new LongCounter();
+
+    private final LongCounter quarantinedEvents = new LongCounter();
+
+    private final Set<AsyncEventListenerInvoker> scheduledInvokers = Collections.newSetFromMap(new ConcurrentHashMap<AsyncEventListenerInvoker, Boolean>());
+
+    private final AtomicInteger scheduledInvokerCount = new AtomicInteger();
+
+    private final AtomicInteger idleInvokerCount = new AtomicInteger();
+
+    private final AtomicInteger activeInvokerCount = new AtomicInteger();
+
+    // guards configuration changes and is used to wait for the invokers on shutdown
     private final Object activeInvokerMonitor = new Object();
 
+    private volatile int targetConsumers = 1;
+
+    private final AtomicLong nextScalingEvaluation = new AtomicLong();
+
+    // only accessed by the invoker that won the nextScalingEvaluation race
+    private long lastScalingEvaluation;
+
+    private long lastListenerInvocations;
+
+    private long lastListenerBusyTime;
+
+    private volatile ConsumerScalingStatistics lastScalingStatistics;
+
+    private final AtomicLong scaleUps = new AtomicLong();
+
+    private final AtomicLong scaleDowns = new AtomicLong();
+
     private Object currentRecoveryMarker = new Object();
 
     private final Object recoveryMonitor = new Object();
@@ -136,6 +268,8 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
             int timeout = getTransactionDefinition().getTimeout();
             if (timeout != TransactionDefinition.TIMEOUT_DEFAULT && (timeout * 1000)<= getReceiveTimeout())
                 throw new IllegalStateException("Receive timeout [" + getReceiveTimeout() + "ms] must be lower than the transaction timeout [" + getTransactionDefinition().getTimeout() * 1000 + "ms]");
+            if (timeout != TransactionDefinition.TIMEOUT_DEFAULT && isBatching() && (timeout * 1000) <= getReceiveTimeout() + getMaxBatchDelay())
+                throw new IllegalStateException("Receive timeout [" + getReceiveTimeout() + "ms] plus max batch delay [" + getMaxBatchDelay() + "ms] must be lower than the transaction timeout [" + getTransactionDefinition().getTimeout() * 1000 + "ms]");
         }
     }
 
@@ -272,9 +406,7 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
      * @see #getActiveConsumerCount()
      */
     public final int getConcurrentConsumers() {
-        synchronized (this.activeInvokerMonitor) {
-            return this.concurrentConsumers;
-        }
+        return this.concurrentConsumers;
     }
 
     /**
@@ -314,9 +446,7 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
      * @see #getActiveConsumerCount()
      */
     public final int getMaxConcurrentConsumers() {
-        synchronized (this.activeInvokerMonitor) {
-            return this.maxConcurrentConsumers;
-        }
+        return this.maxConcurrentConsumers;
     }
 
     /**
@@ -350,9 +480,7 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
      * Return the maximum number of messages to process in one task.
      */
     public int getMaxEventsPerTask() {
-        synchronized (this.activeInvokerMonitor) {
-            return this.maxEventsPerTask;
-        }
+        return this.maxEventsPerTask;
     }
 
     /**
@@ -390,9 +518,185 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
      * Return the limit for idle executions of a receive task.
      */
     public int getIdleTaskExecutionLimit() {
-        synchronized (this.activeInvokerMonitor) {
-            return this.idleTaskExecutionLimit;
-        }
+        return this.idleTaskExecutionLimit;
+    }
+
+    /**
+     * Sets the policy deciding how many consumers should run, between "concurrentConsumers" and
+     * "maxConcurrentConsumers". Only used when dynamic scaling is enabled (see
+     * {@link #setMaxConcurrentConsumers(int)}). Defaults to
+     * {@link org.openspaces.events.polling.scaling.DefaultConsumerScalingPolicy}.
+     */
+    public void setScalingPolicy(ConsumerScalingPolicy scalingPolicy) {
+        this.scalingPolicy = scalingPolicy;
+    }
+
+    protected ConsumerScalingPolicy getScalingPolicy() {
+        return this.scalingPolicy;
+    }
+
+    /**
+     * Sets the interval, in <b>milliseconds</b>, in which the load of the container is sampled and
+     * the scaling policy is evaluated. Defaults to 1000 ms, that is, 1 second.
+     */
+    public void setScalingInterval(long scalingInterval) {
+        Assert.isTrue(scalingInterval > 0, "'scalingInterval' must be positive");
+        this.scalingInterval = scalingInterval;
+    }
+
+    public long getScalingInterval() {
+        return this.scalingInterval;
+    }
+
+    /**
+     * Should the backlog (the number of entries matching the template) be counted on the space
+     * each scaling interval. Defaults to <code>true</code>. Set it to <code>false</code> when
+     * counting the template is expensive, in which case scaling is based on utilization only.
+     */
+    public void setSampleBacklog(boolean sampleBacklog) {
+        this.sampleBacklog = sampleBacklog;
+    }
+
+    public boolean isSampleBacklog() {
+        return this.sampleBacklog;
+    }
+
+    /**
+     * Sets the maximum number of events accumulated into a single batch before invoking the
+     * listener. The listener is then invoked with an array of the received events, regardless of
+     * the {@link #setPassArrayAsIs(boolean) passArrayAsIs} setting. Defaults to <code>0</code>,
+     * meaning no batching.
+     *
+     * <p>Note, a batch might exceed this size by the number of entries the last receive operation
+     * returned (when using a multiple receive operation handler).
+     *
+     * @see #setMaxBatchDelay(long)
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        Assert.isTrue(maxBatchSize >= 0, "'maxBatchSize' must not be negative");
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return this.maxBatchSize;
+    }
+
+    /**
+     * Sets the maximum time, in <b>milliseconds</b>, to wait for a batch to fill up since its first
+     * event was received. Defaults to 100 ms.
+     *
+     * <p><b>NOTE:</b> When working with transactions, the receive timeout plus this value needs to be
+     * smaller than the transaction timeout.
+     *
+     * @see #setMaxBatchSize(int)
+     */
+    public void setMaxBatchDelay(long maxBatchDelay) {
+        Assert.isTrue(maxBatchDelay >= 0, "'maxBatchDelay' must not be negative");
+        this.maxBatchDelay = maxBatchDelay;
+    }
+
+    public long getMaxBatchDelay() {
+        return this.maxBatchDelay;
+    }
+
+    protected boolean isBatching() {
+        return this.maxBatchSize > 0;
+    }
+
+    /**
+     * Sets the number of worker threads used to process the events of a received array in
+     * parallel. Events with the same ordering key (see
+     * {@link #setOrderingKeyExtractor(org.openspaces.events.polling.parallel.OrderingKeyExtractor)})
+     * are processed by the same worker in the order they were received. Defaults to <code>0</code>,
+     * meaning the events are processed sequentially by the consumer that received them. A single
+     * worker would process the events sequentially as well, so it is rejected.
+     *
+     * <p>Only applies when the listener is invoked per event (<code>passArrayAsIs</code> is
+     * <code>false</code> and no micro batching is configured). The listener must be thread safe.
+     * When working with transactions, the Jini transaction of the consumer is joined by the
+     * workers, and the whole array is rolled back if the listener fails (or marks its transaction
+     * status rollback only) for any of its events. Each worker hands the listener a transaction
+     * status of its own, which is applied to the consumer transaction once all the workers are
+     * done. Parallel processing within a transaction requires a Jini transaction manager, other
+     * transaction managers fall back to sequential processing.
+     */
+    public void setBatchWorkers(int batchWorkers) {
+        Assert.isTrue(batchWorkers >= 0, "'batchWorkers' must not be negative");
+        Assert.isTrue(batchWorkers != 1, "'batchWorkers' must be 0 (sequential processing) or at least 2");
+        this.batchWorkers = batchWorkers;
+    }
+
+    public int getBatchWorkers() {
+        return this.batchWorkers;
+    }
+
+    /**
+     * Sets the extractor of the ordering key used when processing events in parallel. Defaults to
+     * {@link org.openspaces.events.polling.parallel.DefaultOrderingKeyExtractor}, using the fifo
+     * grouping property of the event type, or its routing property.
+     *
+     * @see #setBatchWorkers(int)
+     */
+    public void setOrderingKeyExtractor(OrderingKeyExtractor orderingKeyExtractor) {
+        this.orderingKeyExtractor = orderingKeyExtractor;
+    }
+
+    /**
+     * Enables isolation of failing events when working with transactions. Once the listener fails
+     * within a transaction and the transaction is rolled back, the consumer retakes the received
+     * events by id and processes them again in separate transactions, splitting them in halves on
+     * each failure. An event failing {@link #setMaxFailures(int) maxFailures} times on its own is
+     * moved to the {@link #setDeadLetterSpace(org.openspaces.core.GigaSpace) dead letter space}.
+     * Defaults to <code>false</code>.
+     *
+     * <p>Events taken by other consumers in the meantime are not retried by this consumer.
+     */
+    public void setFailureIsolation(boolean failureIsolation) {
+        this.failureIsolation = failureIsolation;
+    }
+
+    public boolean isFailureIsolation() {
+        return this.failureIsolation;
+    }
+
+    /**
+     * Sets the number of times an isolated event may fail on its own before it is quarantined.
+     * Defaults to 3.
+     *
+     * @see #setFailureIsolation(boolean)
+     */
+    public void setMaxFailures(int maxFailures) {
+        Assert.isTrue(maxFailures > 0, "'maxFailures' must be 1 or higher");
+        this.maxFailures = maxFailures;
+    }
+
+    public int getMaxFailures() {
+        return this.maxFailures;
+    }
+
+    /**
+     * Sets the space quarantined events are written to. Defaults to the space of the container.
+     *
+     * @see #setFailureIsolation(boolean)
+     * @see #setWrapDeadLetters(boolean)
+     */
+    public void setDeadLetterSpace(GigaSpace deadLetterSpace) {
+        this.deadLetterSpace = deadLetterSpace;
+    }
+
+    /**
+     * Should quarantined events be wrapped in a
+     * {@link org.openspaces.events.polling.isolation.DeadLetterEntry} (holding the failure details)
+     * or written to the dead letter space as is. Defaults to <code>true</code>. Writing as is only
+     * makes sense when the dead letter space is not the space of the container, or the container
+     * template does not match quarantined events.
+     */
+    public void setWrapDeadLetters(boolean wrapDeadLetters) {
+        this.wrapDeadLetters = wrapDeadLetters;
+    }
+
+    public boolean isWrapDeadLetters() {
+        return this.wrapDeadLetters;
     }
 
     @Override
@@ -411,16 +715,32 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
             }
         }
 
+        if (scalingPolicy == null) {
+            scalingPolicy = new DefaultConsumerScalingPolicy();
+        }
         initReceiveOperationHandler();
         initTriggerOperationHandler();
         // Proceed with actual listener initialization.
         super.initialize();
 
-        // now, start the scheduled threads
-        synchronized (this.activeInvokerMonitor) {
-            for (int i = 0; i < this.concurrentConsumers; i++) {
-                scheduleNewInvoker();
+        if (this.batchWorkers > 1) {
+            if (this.orderingKeyExtractor == null) {
+                this.orderingKeyExtractor = new DefaultOrderingKeyExtractor(getGigaSpace());
             }
+            String beanName = getBeanName();
+            this.batchExecutor = new ThreadPoolExecutor(batchWorkers, batchWorkers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    DynamicExecutors.daemonThreadFactory("GS-" + (beanName != null ? beanName : ClassUtils.getShortName(getClass())) + "-batch"));
+            this.batchExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        this.targetConsumers = this.concurrentConsumers;
+        this.lastScalingEvaluation = System.nanoTime();
+        this.nextScalingEvaluation.set(this.lastScalingEvaluation + scalingInterval * 1000000L);
+
+        // now, start the scheduled threads
+        for (int i = 0; i < this.concurrentConsumers; i++) {
+            scheduledInvokerCount.incrementAndGet();
+            scheduleNewInvoker();
         }
     }
 
@@ -483,6 +803,9 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
             }
             sb.append(" polling event container");
             sb.append(" with receiveTimeout [").append(getReceiveTimeout()).append("]");
+            if (isBatching()) {
+                sb.append(", maxBatchSize [").append(maxBatchSize).append("], maxBatchDelay [").append(maxBatchDelay).append("]");
+            }
             if (getTemplate() != null) {
                 sb.append(", template ").append(ClassUtils.getShortName(getTemplate().getClass())).append("[").append(getTemplate()).append("]");
             } else {
@@ -491,6 +814,7 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
             sb.append(", concurrentConsumers [").append(concurrentConsumers).append("]");
             if (maxConcurrentConsumers != concurrentConsumers) {
                 sb.append(", maxConcurrentConsumers [").append(maxConcurrentConsumers).append("]");
+                sb.append(", scalingPolicy [").append(scalingPolicy).append("]");
             }
             logger.debug(sb.toString());
         }
@@ -541,65 +865,165 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
 
     /**
      * Schedule a new invoker, increasing the total number of scheduled invokers for this listener
-     * container, but only if the specified "maxConcurrentConsumers" limit has not been reached yet,
-     * and only if this listener container does not currently have idle invokers that are waiting
-     * for new messages already.
+     * container, but only if the current scaling target has not been reached yet, and only if this
+     * listener container does not currently have idle invokers that are waiting for new messages
+     * already.
      *
      * <p>
      * Called once an event has been received, to scale up while processing the event in the invoker
      * that originally received it.
      *
      * @see #setTaskExecutor
-     * @see #getMaxConcurrentConsumers()
+     * @see #getTargetConsumerCount()
      */
     protected void scheduleNewInvokerIfAppropriate() {
-        if (isRunning()) {
-            synchronized (this.activeInvokerMonitor) {
-                if (this.scheduledInvokers.size() < this.maxConcurrentConsumers && !hasIdleInvokers()) {
-                    scheduleNewInvoker();
-                    if (logger.isDebugEnabled()) {
-                        logger.debug(message("Raised scheduled invoker count [" + scheduledInvokers.size() + "]"));
-                    }
-                }
+        if (isRunning() && this.idleInvokerCount.get() == 0 && scheduleNewInvokerIfBelow(getTargetConsumerCount())) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(message("Raised scheduled invoker count [" + scheduledInvokerCount.get() + "]"));
             }
         }
     }
 
     /**
-     * Schedule a new invoker, increasing the total number of scheduled invokers for this listener
-     * container.
+     * Schedule a new invoker if the number of scheduled invokers is below the given limit.
+     */
+    private boolean scheduleNewInvokerIfBelow(int limit) {
+        while (true) {
+            int count = this.scheduledInvokerCount.get();
+            if (count >= limit) {
+                return false;
+            }
+            if (this.scheduledInvokerCount.compareAndSet(count, count + 1)) {
+                scheduleNewInvoker();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Schedule a new invoker. The scheduled invoker count must already account for it.
      */
     private void scheduleNewInvoker() {
         AsyncEventListenerInvoker invoker = new AsyncEventListenerInvoker();
-        this.taskExecutor.execute(invoker);
         this.scheduledInvokers.add(invoker);
-        this.activeInvokerMonitor.notifyAll();
+        this.idleInvokerCount.incrementAndGet();
+        this.taskExecutor.execute(invoker);
     }
 
     /**
-     * Determine whether this listener container currently has any idle instances among its
-     * scheduled invokers.
+     * Determine whether the current invoker should be rescheduled, given that it might not have
+     * received a message in a while. If not, the scheduled invoker count is decremented on its
+     * behalf.
+     *
+     * @param idleTaskExecutionCount the number of idle executions that this invoker task has already accumulated (in a
+     *                               row)
      */
-    private boolean hasIdleInvokers() {
-        for (AsyncEventListenerInvoker invoker : this.scheduledInvokers) {
-            if (invoker.isIdle()) {
+    private boolean shouldRescheduleInvoker(int idleTaskExecutionCount) {
+        boolean idle = (idleTaskExecutionCount >= this.idleTaskExecutionLimit);
+        int limit = idle ? getTargetConsumerCount() : this.maxConcurrentConsumers;
+        while (true) {
+            int count = this.scheduledInvokerCount.get();
+            if (count <= limit) {
                 return true;
             }
+            if (this.scheduledInvokerCount.compareAndSet(count, count - 1)) {
+                return false;
+            }
         }
-        return false;
     }
 
     /**
-     * Determine whether the current invoker should be rescheduled, given that it might not have
-     * received a message in a while.
-     *
-     * @param idleTaskExecutionCount the number of idle executions that this invoker task has already accumulated (in a
-     *                               row)
+     * Returns the number of consumers the scaling policy decided on, bounded by the current
+     * "concurrentConsumers" and "maxConcurrentConsumers" settings.
      */
-    private boolean shouldRescheduleInvoker(int idleTaskExecutionCount) {
-        synchronized (this.activeInvokerMonitor) {
-            boolean idle = (idleTaskExecutionCount >= this.idleTaskExecutionLimit);
-            return (this.scheduledInvokers.size() <= (idle ? this.concurrentConsumers : this.maxConcurrentConsumers));
+    public final int getTargetConsumerCount() {
+        int min = this.concurrentConsumers;
+        int max = this.maxConcurrentConsumers;
+        return Math.max(min, Math.min(max, this.targetConsumers));
+    }
+
+    /**
+     * Returns the statistics the last scaling decision was based on, <code>null</code> if none
+     * was taken yet.
+     */
+    public ConsumerScalingStatistics getLastScalingStatistics() {
+        return this.lastScalingStatistics;
+    }
+
+    /**
+     * Evaluates the scaling policy if the scaling interval has elapsed since the last evaluation.
+     * Only one invoker wins the evaluation of a given interval.
+     */
+    private void evaluateScalingIfNecessary() {
+        long now = System.nanoTime();
+        long next = this.nextScalingEvaluation.get();
+        if (now - next < 0 || !this.nextScalingEvaluation.compareAndSet(next, now + this.scalingInterval * 1000000L)) {
+            return;
+        }
+        long invocations = getListenerInvocations();
+        long busyTime = getListenerBusyTime();
+        long interval = now - this.lastScalingEvaluation;
+        long processed = invocations - this.lastListenerInvocations;
+        long busy = busyTime - this.lastListenerBusyTime;
+        this.lastScalingEvaluation = now;
+        this.lastListenerInvocations = invocations;
+        this.lastListenerBusyTime = busyTime;
+
+        int min = this.concurrentConsumers;
+        int max = this.maxConcurrentConsumers;
+        if (max <= min || !isRunning()) {
+            return;
+        }
+        int scheduled = this.scheduledInvokerCount.get();
+        // the listener runs on the consumers, and on the batch workers when processing in parallel
+        int workers = this.batchExecutor != null ? Math.max(scheduled, this.batchWorkers) : scheduled;
+        double utilization = (interval > 0 && workers > 0) ? Math.min(1d, (double) busy / ((double) interval * workers)) : 0d;
+        ConsumerScalingStatistics statistics = new ConsumerScalingStatistics(min, max, scheduled, sampleBacklog(),
+                processed, processed > 0 ? busy / processed : 0, utilization, interval);
+        int target;
+        try {
+            target = this.scalingPolicy.calculateTargetConsumers(statistics);
+        } catch (RuntimeException e) {
+            logger.warn(message("Consumer scaling policy [" + this.scalingPolicy + "] failed, keeping target [" + this.targetConsumers + "]"), e);
+            return;
+        }
+        target = Math.max(min, Math.min(max, target));
+        int previous = this.targetConsumers;
+        this.targetConsumers = target;
+        this.lastScalingStatistics = statistics;
+        if (target != previous) {
+            if (target > previous) {
+                this.scaleUps.incrementAndGet();
+            } else {
+                this.scaleDowns.incrementAndGet();
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug(message("Changed consumers target from [" + previous + "] to [" + target + "] based on " + statistics));
+            }
+        }
+        // consumers above the target retire once they become idle, missing ones are started right away
+        while (isRunning() && scheduleNewInvokerIfBelow(target)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(message("Raised scheduled invoker count [" + scheduledInvokerCount.get() + "]"));
+            }
+        }
+    }
+
+    /**
+     * Counts the entries matching the receive template, returning
+     * {@link ConsumerScalingStatistics#UNKNOWN_BACKLOG} if disabled or the count failed.
+     */
+    private long sampleBacklog() {
+        if (!this.sampleBacklog) {
+            return ConsumerScalingStatistics.UNKNOWN_BACKLOG;
+        }
+        try {
+            return getGigaSpace().count(getReceiveTemplate());
+        } catch (Exception e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(message("Failed to sample backlog"), e);
+            }
+            return ConsumerScalingStatistics.UNKNOWN_BACKLOG;
         }
     }
 
@@ -616,9 +1040,7 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
      * @see #getActiveConsumerCount()
      */
     public final int getScheduledConsumerCount() {
-        synchronized (this.activeInvokerMonitor) {
-            return this.scheduledInvokers.size();
-        }
+        return this.scheduledInvokerCount.get();
     }
 
     /**
@@ -634,9 +1056,7 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
      * @see #getActiveConsumerCount()
      */
     public final int getActiveConsumerCount() {
-        synchronized (this.activeInvokerMonitor) {
-            return this.activeInvokerCount;
-        }
+        return this.activeInvokerCount.get();
     }
 
     /**
@@ -714,13 +1134,13 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
     @Override
     protected void doShutdown() throws DataAccessException {
         logger.debug(message("Waiting for shutdown of event listener invokers"));
+        for (AsyncEventListenerInvoker invoker : scheduledInvokers) {
+            invoker.interrupt();
+        }
         synchronized (this.activeInvokerMonitor) {
-            for (AsyncEventListenerInvoker invoker : scheduledInvokers) {
-                invoker.interrupt();
-            }
-            while (this.activeInvokerCount > 0) {
+            while (this.activeInvokerCount.get() > 0) {
                 if (logger.isDebugEnabled()) {
-                    logger.debug(message("Still waiting for shutdown of [" + this.activeInvokerCount + "] event listener invokers"));
+                    logger.debug(message("Still waiting for shutdown of [" + this.activeInvokerCount.get() + "] event listener invokers"));
                 }
                 try {
                     this.activeInvokerMonitor.wait();
@@ -730,6 +1150,9 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
                 }
             }
         }
+        if (this.batchExecutor != null) {
+            this.batchExecutor.shutdownNow();
+        }
     }
 
     public ServiceDetails[] getServicesDetails() {
@@ -743,13 +1166,61 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
     }
 
     public ServiceMonitors[] getServicesMonitors() {
-        return new ServiceMonitors[] {new PollingEventContainerServiceMonitors(beanName, getProcessedEvents(), getFailedEvents(), getStatus(), getConcurrentConsumers())};
+        PollingEventContainerServiceMonitors monitors = new PollingEventContainerServiceMonitors(beanName, getProcessedEvents(), getFailedEvents(), getStatus(), getConcurrentConsumers());
+        monitors.setScalingStats(getScheduledConsumerCount(), getActiveConsumerCount(), getTargetConsumerCount(),
+                getLastScalingStatistics(), scaleUps.get(), scaleDowns.get());
+        if (failureIsolation) {
+            monitors.setIsolationStats(isolationRetries.getCount(), quarantinedEvents.getCount());
+        }
+        if (isBatching()) {
+            monitors.setBatchStats(batches.getCount(), batchSizes.getMean(), batchSizes.getPercentile(99),
+                    batchFillTimes.getPercentile(50), batchFillTimes.getPercentile(99));
+        }
+        addLatencyMonitors(monitors);
+        return new ServiceMonitors[] {monitors};
     }
 
     public String getName() {
         return beanName;
     }
 
+    @Override
+    protected void registerMetrics() {
+        super.registerMetrics();
+        BeanMetricManager metricManager = getBeanMetricManager();
+        if (metricManager != null && failureIsolation) {
+            metricManager.register("isolation-retries", isolationRetries);
+            metricManager.register("quarantined-events", quarantinedEvents);
+        }
+        if (metricManager != null && isBatching()) {
+            metricManager.register("batches", batches);
+            metricManager.register("batch-size-mean", new Gauge<Double>() {
+                @Override
+                public Double getValue() throws Exception {
+                    return batchSizes.getMean();
+                }
+            });
+            metricManager.register("batch-size-p99", new Gauge<Long>() {
+                @Override
+                public Long getValue() throws Exception {
+                    return batchSizes.getPercentile(99);
+                }
+            });
+            metricManager.register("batch-fill-time-p50", new Gauge<Long>() {
+                @Override
+                public Long getValue() throws Exception {
+                    return batchFillTimes.getPercentile(50);
+                }
+            });
+            metricManager.register("batch-fill-time-p99", new Gauge<Long>() {
+                @Override
+                public Long getValue() throws Exception {
+                    return batchFillTimes.getPercentile(99);
+                }
+            });
+        }
+    }
+
     @Override
     protected String getEventListenerContainerType() {
         return "Polling Container";
@@ -765,7 +1236,25 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
         }
         writer.println("Consumers             : [" + getConcurrentConsumers() + "]");
         writer.println("Max Consumers         : [" + getMaxConcurrentConsumers() + "]");
+        writer.println("Scheduled Consumers   : [" + getScheduledConsumerCount() + "]");
+        writer.println("Target Consumers      : [" + getTargetConsumerCount() + "]");
+        writer.println("Scaling Policy        : [" + getScalingPolicy() + "]");
+        writer.println("Last Scaling Stats    : [" + getLastScalingStatistics() + "]");
         writer.println("Pass Array            : [" + isPassArrayAsIs() + "]");
+        if (batchExecutor != null) {
+            writer.println("Batch Workers         : [" + getBatchWorkers() + "]");
+        }
+        if (failureIsolation) {
+            writer.println("Max Failures          : [" + getMaxFailures() + "]");
+            writer.println("Isolation Retries     : [" + isolationRetries.getCount() + "]");
+            writer.println("Quarantined Events    : [" + quarantinedEvents.getCount() + "]");
+        }
+        if (isBatching()) {
+            writer.println("Max Batch Size        : [" + getMaxBatchSize() + "]");
+            writer.println("Max Batch Delay       : [" + getMaxBatchDelay() + "]");
+            writer.println("Batches               : [" + batches.getCount() + "], mean size [" + batchSizes.getMean()
+                    + "], p99 fill time [" + batchFillTimes.getPercentile(99) + "us]");
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -783,19 +1272,17 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
 
         private int idleTaskExecutionCount = 0;
 
+        // accounted in idleInvokerCount while true, only changed by the thread running the invoker
         private volatile boolean idle = true;
 
-        private Thread invokerThread;
+        private volatile Thread invokerThread;
 
         // use the getEventListener to possibly get a proptotyped listener per thread
         private SpaceDataEventListener eventListener;
 
         public void run() {
-            synchronized (activeInvokerMonitor) {
-                invokerThread = Thread.currentThread();
-                activeInvokerCount++;
-                activeInvokerMonitor.notifyAll();
-            }
+            invokerThread = Thread.currentThread();
+            activeInvokerCount.incrementAndGet();
             boolean eventReceived = false;
             try {
                 if (maxEventsPerTask < 0) {
@@ -834,23 +1321,27 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
                     handleListenerSetupFailure(ex, true);
                 }
             }
-            synchronized (activeInvokerMonitor) {
-                activeInvokerCount--;
-                activeInvokerMonitor.notifyAll();
+            if (activeInvokerCount.decrementAndGet() == 0) {
+                synchronized (activeInvokerMonitor) {
+                    activeInvokerMonitor.notifyAll();
+                }
             }
             if (!eventReceived) {
                 this.idleTaskExecutionCount++;
             } else {
                 this.idleTaskExecutionCount = 0;
             }
-            if (!shouldRescheduleInvoker(this.idleTaskExecutionCount) || !rescheduleTaskIfNecessary(this)) {
+            boolean retired = !shouldRescheduleInvoker(this.idleTaskExecutionCount);
+            if (!retired && !rescheduleTaskIfNecessary(this)) {
                 // We're shutting down completely.
-                synchronized (activeInvokerMonitor) {
-                    scheduledInvokers.remove(this);
-                    if (logger.isDebugEnabled()) {
-                        logger.debug(message("Lowered scheduled invoker count [" + scheduledInvokers.size() + "]"));
-                    }
-                    activeInvokerMonitor.notifyAll();
+                scheduledInvokerCount.decrementAndGet();
+                retired = true;
+            }
+            if (retired) {
+                scheduledInvokers.remove(this);
+                setIdle(false);
+                if (logger.isDebugEnabled()) {
+                    logger.debug(message("Lowered scheduled invoker count [" + scheduledInvokerCount.get() + "]"));
                 }
                 clearResources();
             }
@@ -863,10 +1354,22 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
             }
             boolean eventReceived = receiveAndExecute(eventListener);
             this.lastEventSucceeded = true;
-            this.idle = !eventReceived;
+            setIdle(!eventReceived);
+            evaluateScalingIfNecessary();
             return eventReceived;
         }
 
+        private void setIdle(boolean idle) {
+            if (this.idle != idle) {
+                this.idle = idle;
+                if (idle) {
+                    idleInvokerCount.incrementAndGet();
+                } else {
+                    idleInvokerCount.decrementAndGet();
+                }
+            }
+        }
+
         private void initResourcesIfNecessary() {
             updateRecoveryMarker();
         }
@@ -929,20 +1432,28 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
             try {
                 messageReceived = doReceiveAndExecute(eventListener, template, status);
             } catch (RuntimeException ex) {
+                isolationCandidates.remove();
                 rollbackOnException(status, ex);
                 throw ex;
             } catch (Error err) {
+                isolationCandidates.remove();
                 rollbackOnException(status, err);
                 throw err;
             }
+            List<Object> failedEvents = isolationCandidates.get();
+            isolationCandidates.remove();
             // if no message is received, rollback the transaction (for better performance).
             if (!status.isCompleted()) {
                 if (!messageReceived || status.isRollbackOnly()) {
-                    this.getTransactionManager().rollback(status);
+                    rollbackTransaction(status);
                 } else {
-                    this.getTransactionManager().commit(status);
+                    commitTransaction(status);
+                    failedEvents = null;
                 }
             }
+            if (failedEvents != null) {
+                isolateFailures(eventListener, failedEvents);
+            }
             return messageReceived;
         }
 
@@ -950,10 +1461,16 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
     }
 
     protected boolean doReceiveAndExecute(SpaceDataEventListener eventListener, Object template, TransactionStatus status) {
+        if (isBatching()) {
+            return doReceiveBatchAndExecute(eventListener, template, status);
+        }
         Object dataEvent = receiveEvent(template);
         if (dataEvent != null) {
             if (dataEvent instanceof Object[] && !passArrayAsIs) {
                 Object[] dataEvents = (Object[]) dataEvent;
+                if (batchExecutor != null && dataEvents.length > 1 && invokeListenerInParallel(eventListener, dataEvents, status)) {
+                    return true;
+                }
                 for (Object dataEvent1 : dataEvents) {
                     if (logger.isTraceEnabled()) {
                         logger.trace(message("Received event [" + dataEvent + "]"));
@@ -969,6 +1486,7 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
                                 logger.trace(message("Rolling back transaction because of listener exception thrown: " + ex));
                             }
                             status.setRollbackOnly();
+                            isolateAfterRollback(dataEvents, status);
                             handleListenerException(ex);
                             return true;
                         }
@@ -995,6 +1513,7 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
                             logger.trace(message("Rolling back transaction because of listener exception thrown: " + ex));
                         }
                         status.setRollbackOnly();
+                        isolateAfterRollback(dataEvent, status);
                     }
                     handleListenerException(ex);
                 }
@@ -1004,6 +1523,341 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
         return false;
     }
 
+    /**
+     * Receives events until the batch is full or the max batch delay elapsed since the first event,
+     * and invokes the listener once with an array of the batch.
+     */
+    protected boolean doReceiveBatchAndExecute(SpaceDataEventListener eventListener, Object template, TransactionStatus status) {
+        Object dataEvent = receiveEvent(template);
+        if (dataEvent == null) {
+            return false;
+        }
+        long fillStart = System.nanoTime();
+        long deadline = fillStart + maxBatchDelay * 1000000L;
+        List<Object> batch = new ArrayList<Object>(maxBatchSize);
+        addToBatch(batch, dataEvent);
+        while (batch.size() < maxBatchSize) {
+            long remaining = (deadline - System.nanoTime()) / 1000000L;
+            if (remaining <= 0) {
+                break;
+            }
+            dataEvent = receiveEvent(template, remaining);
+            if (dataEvent == null) {
+                break;
+            }
+            addToBatch(batch, dataEvent);
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+        batchFillTimes.record((System.nanoTime() - fillStart) / 1000);
+        batchSizes.record(batch.size());
+        batches.inc();
+
+        Object dataEvents = toEventArray(batch);
+        if (logger.isTraceEnabled()) {
+            logger.trace(message("Received batch of [" + batch.size() + "] events"));
+        }
+        eventReceived(dataEvents);
+        try {
+            invokeListener(eventListener, dataEvents, status, null);
+        } catch (Throwable ex) {
+            if (status != null) {
+                if (logger.isTraceEnabled()) {
+                    logger.trace(message("Rolling back transaction because of listener exception thrown: " + ex));
+                }
+                status.setRollbackOnly();
+                isolateAfterRollback(dataEvents, status);
+            }
+            handleListenerException(ex);
+        }
+        return true;
+    }
+
+    /**
+     * Invokes the listener for each of the events using the batch workers, keeping the order of
+     * events sharing the same ordering key. Returns <code>false</code> (without invoking the
+     * listener) if the events can not be processed in parallel.
+     */
+    protected boolean invokeListenerInParallel(final SpaceDataEventListener eventListener, Object[] dataEvents, final TransactionStatus status) {
+        final Transaction transaction;
+        if (status != null) {
+            transaction = getGigaSpace().getCurrentTransaction();
+            if (transaction == null) {
+                // not a Jini transaction, it can not be propagated to the workers
+                return false;
+            }
+        } else {
+            transaction = null;
+        }
+        Map<Object, List<Object>> groups = new LinkedHashMap<Object, List<Object>>();
+        for (Object dataEvent : dataEvents) {
+            Object key = orderingKeyExtractor.extractKey(dataEvent);
+            List<Object> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<Object>();
+                groups.put(key, group);
+            }
+            group.add(dataEvent);
+        }
+        if (groups.size() == 1) {
+            return false;
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace(message("Processing [" + dataEvents.length + "] events in [" + groups.size() + "] ordering groups"));
+        }
+        eventReceived(dataEvents);
+
+        final AtomicBoolean failed = new AtomicBoolean();
+        final AtomicBoolean rollbackOnly = new AtomicBoolean();
+        final CountDownLatch latch = new CountDownLatch(groups.size());
+        for (final List<Object> group : groups.values()) {
+            // the consumer status is not thread safe, each worker marks its own one rollback only
+            final TransactionStatus workerStatus = status != null ? new SimpleTransactionStatus(false) : null;
+            Runnable task = new Runnable() {
+                public void run() {
+                    if (transaction != null) {
+                        ExistingJiniTransactionManager.bindExistingTransaction(transaction, true, true);
+                    }
+                    try {
+                        for (Object dataEvent : group) {
+                            if (failed.get() || rollbackOnly.get()) {
+                                // the transaction is going to be rolled back, no point in going on
+                                break;
+                            }
+                            if (logger.isTraceEnabled()) {
+                                logger.trace(message("Received event [" + dataEvent + "]"));
+                            }
+                            try {
+                                invokeListener(eventListener, dataEvent, workerStatus, null);
+                                if (workerStatus != null && workerStatus.isRollbackOnly()) {
+                                    rollbackOnly.set(true);
+                                }
+                            } catch (Throwable ex) {
+                                if (status != null) {
+                                    failed.set(true);
+                                }
+                                handleListenerException(ex);
+                            }
+                        }
+                    } finally {
+                        if (transaction != null) {
+                            ExistingJiniTransactionManager.unbindExistingTransaction();
+                        }
+                        latch.countDown();
+                    }
+                }
+            };
+            try {
+                batchExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // shutting down, process on the consumer thread
+                task.run();
+            }
+        }
+
+        // the transaction must not complete before all the workers are done with it
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failed.get()) {
+            if (logger.isTraceEnabled()) {
+                logger.trace(message("Rolling back transaction because of listener exception thrown"));
+            }
+            status.setRollbackOnly();
+            isolateAfterRollback(dataEvents, status);
+        } else if (rollbackOnly.get()) {
+            status.setRollbackOnly();
+        }
+        return true;
+    }
+
+    /**
+     * Marks the given events (a single event or an array) to be isolated once the transaction
+     * they were received in is rolled back.
+     */
+    private void isolateAfterRollback(Object dataEvent, TransactionStatus status) {
+        if (failureIsolation && status != null) {
+            List<Object> events = new ArrayList<Object>();
+            addToBatch(events, dataEvent);
+            isolationCandidates.set(events);
+        }
+    }
+
+    /**
+     * Retries the given events, which failed within a (rolled back) transaction, in separate
+     * transactions. A failing group of events is split in halves and each half is retried on its
+     * own, until single failing events are found. These are retried up to "maxFailures" times and
+     * then quarantined.
+     */
+    protected void isolateFailures(SpaceDataEventListener eventListener, List<Object> events) {
+        LinkedList<List<Object>> groups = new LinkedList<List<Object>>();
+        groups.add(events);
+        if (events.size() > 1) {
+            // the group as a whole already failed
+            splitFirst(groups);
+        }
+        while (!groups.isEmpty() && isRunning()) {
+            List<Object> group = groups.getFirst();
+            int failures = 0;
+            while (true) {
+                Throwable failure = retryInTransaction(eventListener, group);
+                if (failure == null) {
+                    groups.removeFirst();
+                    break;
+                }
+                isolationRetries.inc();
+                if (group.size() > 1) {
+                    splitFirst(groups);
+                    break;
+                }
+                if (++failures >= maxFailures) {
+                    groups.removeFirst();
+                    quarantine(group.get(0), failure, failures);
+                    break;
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug(message("Isolated event failed [" + failures + "] times, retrying"), failure);
+                }
+            }
+        }
+    }
+
+    private static void splitFirst(LinkedList<List<Object>> groups) {
+        List<Object> group = groups.removeFirst();
+        int half = group.size() / 2;
+        groups.addFirst(new ArrayList<Object>(group.subList(half, group.size())));
+        groups.addFirst(new ArrayList<Object>(group.subList(0, half)));
+    }
+
+    /**
+     * Retakes the given events by id within a new transaction and invokes the listener on the
+     * ones still available (the group is updated with them). Returns the listener failure, or
+     * <code>null</code> if it succeeded.
+     */
+    private Throwable retryInTransaction(SpaceDataEventListener eventListener, List<Object> group) {
+        TransactionStatus status = getTransactionManager().getTransaction(getTransactionDefinition());
+        Throwable failure = null;
+        try {
+            List<Object> retaken = new ArrayList<Object>(group.size());
+            for (Object event : group) {
+                Object retakenEvent = retake(event);
+                if (retakenEvent != null) {
+                    retaken.add(retakenEvent);
+                }
+            }
+            group.clear();
+            group.addAll(retaken);
+            if (!retaken.isEmpty()) {
+                try {
+                    if (passArrayAsIs || isBatching()) {
+                        invokeListener(eventListener, toEventArray(retaken), status, null);
+                    } else {
+                        for (Object event : retaken) {
+                            invokeListener(eventListener, event, status, null);
+                        }
+                    }
+                } catch (Throwable ex) {
+                    failure = ex;
+                }
+            }
+        } catch (RuntimeException ex) {
+            rollbackOnException(status, ex);
+            throw ex;
+        }
+        if (!status.isCompleted()) {
+            if (failure != null || status.isRollbackOnly()) {
+                rollbackTransaction(status);
+            } else {
+                commitTransaction(status);
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * Moves the event to the dead letter space, taking it from the space within a transaction.
+     */
+    private void quarantine(Object event, Throwable failure, int failures) {
+        TransactionStatus status = getTransactionManager().getTransaction(getTransactionDefinition());
+        try {
+            Object retakenEvent = retake(event);
+            if (retakenEvent != null) {
+                GigaSpace targetSpace = deadLetterSpace != null ? deadLetterSpace : getGigaSpace();
+                if (wrapDeadLetters) {
+                    targetSpace.write(new DeadLetterEntry(getBeanName(), getTypeName(retakenEvent), retakenEvent, failure.toString(), failures));
+                } else {
+                    targetSpace.write(retakenEvent);
+                }
+                quarantinedEvents.inc();
+            }
+        } catch (RuntimeException ex) {
+            rollbackOnException(status, ex);
+            throw ex;
+        }
+        commitTransaction(status);
+        logger.warn(message("Event failed [" + failures + "] times on its own and was moved to the dead letter space"));
+        handleListenerException(failure);
+    }
+
+    /**
+     * Takes the given event from the space by its id (without waiting), returning
+     * <code>null</code> if it is no longer available or has no id.
+     */
+    private Object retake(Object event) {
+        String typeName = getTypeName(event);
+        SpaceTypeDescriptor typeDescriptor = getGigaSpace().getTypeManager().getTypeDescriptor(typeName);
+        if (typeDescriptor == null || typeDescriptor.getIdPropertyName() == null) {
+            return null;
+        }
+        if (event instanceof SpaceDocument) {
+            Object id = ((SpaceDocument) event).getProperty(typeDescriptor.getIdPropertyName());
+            return id == null ? null : getGigaSpace().takeById(new IdQuery<SpaceDocument>(typeName, id), 0);
+        }
+        Object id = new BeanWrapperImpl(event).getPropertyValue(typeDescriptor.getIdPropertyName());
+        return id == null ? null : getGigaSpace().takeById(new IdQuery<Object>(typeName, id), 0);
+    }
+
+    private static String getTypeName(Object event) {
+        return (event instanceof SpaceDocument) ? ((SpaceDocument) event).getTypeName() : event.getClass().getName();
+    }
+
+    private static void addToBatch(List<Object> batch, Object dataEvent) {
+        if (dataEvent instanceof Object[]) {
+            for (Object event : (Object[]) dataEvent) {
+                if (event != null) {
+                    batch.add(event);
+                }
+            }
+        } else {
+            batch.add(dataEvent);
+        }
+    }
+
+    /**
+     * Creates an array of the most specific common type of the batch (the type of its first event,
+     * or <code>Object</code> if the batch is mixed).
+     */
+    private static Object[] toEventArray(List<Object> batch) {
+        Class<?> type = batch.get(0).getClass();
+        for (Object event : batch) {
+            if (!type.isInstance(event)) {
+                type = Object.class;
+                break;
+            }
+        }
+        return batch.toArray((Object[]) Array.newInstance(type, batch.size()));
+    }
+
     /**
      * Perform a rollback, handling rollback exceptions properly.
      *
@@ -1013,7 +1867,7 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
     private void rollbackOnException(TransactionStatus status, Throwable ex) {
         logger.trace(message("Initiating transaction rollback on application exception"), ex);
         try {
-            this.getTransactionManager().rollback(status);
+            rollbackTransaction(status);
         } catch (RuntimeException ex2) {
             logger.error(message("Application exception overridden by rollback exception"), ex);
             throw ex2;
@@ -1027,8 +1881,20 @@ public class SimplePollingEventListenerContainer extends AbstractEventListenerCo
      * Receive an event
      */
     protected Object receiveEvent(Object template) throws DataAccessException {
+        return receiveEvent(template, getReceiveTimeout());
+    }
+
+    /**
+     * Receive an event, waiting up to the given timeout (in <b>milliseconds</b>).
+     */
+    protected Object receiveEvent(Object template, long receiveTimeout) throws DataAccessException {
+        long start = System.nanoTime();
         try {
-            return receiveOperationHandler.receive(template, getGigaSpace(), getReceiveTimeout());
+            Object event = receiveOperationHandler.receive(template, getGigaSpace(), receiveTimeout);
+            if (event != null) {
+                recordReceiveWaitTime(System.nanoTime() - start);
+            }
+            return event;
         } catch (SpaceInterruptedException e) {
             // we got an interrupted exception, it means no receive operation so return null.
             return null;
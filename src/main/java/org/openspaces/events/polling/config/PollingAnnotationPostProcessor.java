@@ -107,6 +107,11 @@ public class PollingAnnotationPostProcessor implements BeanPostProcessor, Applic
         pollingContainerConfigurer.performSnapshot(polling.performSnapshot());
         pollingContainerConfigurer.passArrayAsIs(polling.passArrayAsIs());
         pollingContainerConfigurer.recoveryInterval(polling.recoveryInterval());
+        pollingContainerConfigurer.maxBatchSize(polling.maxBatchSize());
+        pollingContainerConfigurer.maxBatchDelay(polling.maxBatchDelay());
+        pollingContainerConfigurer.batchWorkers(polling.batchWorkers());
+        pollingContainerConfigurer.failureIsolation(polling.failureIsolation());
+        pollingContainerConfigurer.maxFailures(polling.maxFailures());
         pollingContainerConfigurer.autoStart(polling.autoStart());
 
         // handle transactions (we support using either @Transactional or @TransactionalEvent or both)
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.events.polling.isolation;
+
+import com.gigaspaces.annotation.pojo.SpaceClass;
+import com.gigaspaces.annotation.pojo.SpaceId;
+
+/**
+ * Wraps an event that repeatedly failed to be processed by a polling container with failure
+ * isolation enabled (see
+ * {@link org.openspaces.events.polling.SimplePollingEventListenerContainer#setFailureIsolation(boolean)}).
+ * Dead letters are written to the configured dead letter space, and can be inspected, fixed and
+ * written back by the application.
+ */
+@SpaceClass
+public class DeadLetterEntry {
+
+    private String id;
+
+    private String containerName;
+
+    private String eventType;
+
+    private Object event;
+
+    private String failure;
+
+    private Integer failures;
+
+    private Long timestamp;
+
+    public DeadLetterEntry() {
+    }
+
+    public DeadLetterEntry(String containerName, String eventType, Object event, String failure, int failures) {
+        this.containerName = containerName;
+        this.eventType = eventType;
+        this.event = event;
+        this.failure = failure;
+        this.failures = failures;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    @SpaceId(autoGenerate = true)
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * The name of the container that failed to process the event.
+     */
+    public String getContainerName() {
+        return containerName;
+    }
+
+    public void setContainerName(String containerName) {
+        this.containerName = containerName;
+    }
+
+    /**
+     * The space type name of the event.
+     */
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    /**
+     * The event that failed to be processed.
+     */
+    public Object getEvent() {
+        return event;
+    }
+
+    public void setEvent(Object event) {
+        this.event = event;
+    }
+
+    /**
+     * The last failure of the listener.
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    public void setFailure(String failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * The number of times the event failed on its own before it was quarantined.
+     */
+    public Integer getFailures() {
+        return failures;
+    }
+
+    public void setFailures(Integer failures) {
+        this.failures = failures;
+    }
+
+    /**
+     * The time the event was quarantined.
+     */
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.events.polling.parallel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openspaces.core.GigaSpace;
+import org.springframework.beans.BeanWrapperImpl;
+
+import com.gigaspaces.document.SpaceDocument;
+import com.gigaspaces.metadata.SpaceTypeDescriptor;
+
+/**
+ * An {@link OrderingKeyExtractor} using the fifo grouping property of the event type if it has one
+ * (keeping the order guaranteed by
+ * {@link org.openspaces.events.polling.receive.AbstractFifoGroupingReceiveOperationHandler fifo grouping}
+ * receive handlers), and its routing property otherwise.
+ *
+ * <p>Works with both POJOs (using their getters) and {@link SpaceDocument}s. The key property of
+ * each type is resolved once from the space type descriptor.
+ */
+public class DefaultOrderingKeyExtractor implements OrderingKeyExtractor {
+
+    private static final String NO_PROPERTY = "";
+
+    private final GigaSpace gigaSpace;
+
+    private final ConcurrentMap<String, String> keyProperties = new ConcurrentHashMap<String, String>();
+
+    public DefaultOrderingKeyExtractor(GigaSpace gigaSpace) {
+        this.gigaSpace = gigaSpace;
+    }
+
+    public Object extractKey(Object event) {
+        if (event == null) {
+            return null;
+        }
+        String typeName = (event instanceof SpaceDocument) ? ((SpaceDocument) event).getTypeName() : event.getClass().getName();
+        String property = keyProperties.get(typeName);
+        if (property == null) {
+            property = resolveKeyProperty(typeName);
+            keyProperties.put(typeName, property);
+        }
+        if (property.length() == 0) {
+            return null;
+        }
+        if (event instanceof SpaceDocument) {
+            return getDocumentPath((SpaceDocument) event, property);
+        }
+        return new BeanWrapperImpl(event).getPropertyValue(property);
+    }
+
+    private String resolveKeyProperty(String typeName) {
+        SpaceTypeDescriptor typeDescriptor = gigaSpace.getTypeManager().getTypeDescriptor(typeName);
+        if (typeDescriptor == null) {
+            return NO_PROPERTY;
+        }
+        if (typeDescriptor.getFifoGroupingPropertyPath() != null) {
+            return typeDescriptor.getFifoGroupingPropertyPath();
+        }
+        if (typeDescriptor.getRoutingPropertyName() != null) {
+            return typeDescriptor.getRoutingPropertyName();
+        }
+        return NO_PROPERTY;
+    }
+
+    private static Object getDocumentPath(SpaceDocument document, String path) {
+        int index = path.indexOf('.');
+        if (index == -1) {
+            return document.getProperty(path);
+        }
+        Object value = document.getProperty(path.substring(0, index));
+        for (String token : path.substring(index + 1).split("\\.")) {
+            if (value instanceof SpaceDocument) {
+                value = ((SpaceDocument) value).getProperty(token);
+            } else if (value instanceof Map) {
+                value = ((Map<?, ?>) value).get(token);
+            } else if (value != null) {
+                value = new BeanWrapperImpl(value).getPropertyValue(token);
+            } else {
+                return null;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.events.polling.parallel;
+
+/**
+ * Extracts the ordering key of an event. When a polling container processes a received batch in
+ * parallel (see
+ * {@link org.openspaces.events.polling.SimplePollingEventListenerContainer#setBatchWorkers(int)}),
+ * events with equal keys are processed sequentially in the order they were received, while events
+ * with different keys might be processed concurrently. The same applies to notifications handed to
+ * the dispatch workers of a notify container (see
+ * {@link org.openspaces.events.notify.SimpleNotifyEventListenerContainer#setDispatchWorkers(int)}).
+ *
+ * @see DefaultOrderingKeyExtractor
+ */
+public interface OrderingKeyExtractor {
+
+    /**
+     * Returns the ordering key of the given event. <code>null</code> is a valid key, grouping all
+     * the events without a key together.
+     */
+    Object extractKey(Object event);
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.events.polling.scaling;
+
+/**
+ * A policy that decides how many concurrent consumers a
+ * {@link org.openspaces.events.polling.SimplePollingEventListenerContainer} should run.
+ *
+ * <p>The container periodically samples its load (see
+ * {@link org.openspaces.events.polling.SimplePollingEventListenerContainer#setScalingInterval(long)})
+ * and asks the policy for a new target. The returned value is clamped between the
+ * "concurrentConsumers" and "maxConcurrentConsumers" settings of the container. Consumers are
+ * added right away when the target is raised, and are retired once they become idle when it is
+ * lowered.
+ *
+ * <p>Implementations are called by a single consumer thread at a time, but not always by the same
+ * one.
+ *
+ * @see DefaultConsumerScalingPolicy
+ */
+public interface ConsumerScalingPolicy {
+
+    /**
+     * Returns the number of consumers the container should run given the sampled statistics.
+     */
+    int calculateTargetConsumers(ConsumerScalingStatistics statistics);
+}
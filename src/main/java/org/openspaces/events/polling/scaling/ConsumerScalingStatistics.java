@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.events.polling.scaling;
+
+import java.io.Serializable;
+
+/**
+ * A snapshot of the load of a polling container over a single scaling interval, handed to a
+ * {@link ConsumerScalingPolicy}.
+ */
+public class ConsumerScalingStatistics implements Serializable {
+
+    private static final long serialVersionUID = -3370346342937453627L;
+
+    /**
+     * The backlog value used when the backlog could not be (or was not) sampled.
+     */
+    public static final long UNKNOWN_BACKLOG = -1;
+
+    private final int minConsumers;
+
+    private final int maxConsumers;
+
+    private final int scheduledConsumers;
+
+    private final long backlog;
+
+    private final long processedEvents;
+
+    private final long averageLatency;
+
+    private final double utilization;
+
+    private final long interval;
+
+    public ConsumerScalingStatistics(int minConsumers, int maxConsumers, int scheduledConsumers, long backlog,
+                                     long processedEvents, long averageLatency, double utilization, long interval) {
+        this.minConsumers = minConsumers;
+        this.maxConsumers = maxConsumers;
+        this.scheduledConsumers = scheduledConsumers;
+        this.backlog = backlog;
+        this.processedEvents = processedEvents;
+        this.averageLatency = averageLatency;
+        this.utilization = utilization;
+        this.interval = interval;
+    }
+
+    /**
+     * The "concurrentConsumers" setting of the container, the lowest target allowed.
+     */
+    public int getMinConsumers() {
+        return minConsumers;
+    }
+
+    /**
+     * The "maxConcurrentConsumers" setting of the container, the highest target allowed.
+     */
+    public int getMaxConsumers() {
+        return maxConsumers;
+    }
+
+    /**
+     * The number of consumers scheduled when the statistics were sampled.
+     */
+    public int getScheduledConsumers() {
+        return scheduledConsumers;
+    }
+
+    /**
+     * The number of entries matching the container template, or {@link #UNKNOWN_BACKLOG}.
+     */
+    public long getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * The number of listener invocations during the interval.
+     */
+    public long getProcessedEvents() {
+        return processedEvents;
+    }
+
+    /**
+     * The average listener invocation time during the interval, in <b>nanoseconds</b>. 0 if no
+     * event was processed.
+     */
+    public long getAverageLatency() {
+        return averageLatency;
+    }
+
+    /**
+     * The fraction (0 to 1) of the scheduled consumers time spent invoking the listener during the
+     * interval. When the container processes received arrays in parallel, the time of the batch
+     * workers (or of the consumers, if there are more of them) is considered instead.
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * The length of the sampled interval, in <b>nanoseconds</b>.
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    @Override
+    public String toString() {
+        return "scheduled[" + scheduledConsumers + "] backlog[" + backlog + "] processed[" + processedEvents
+                + "] latency[" + averageLatency + "ns] utilization[" + utilization + "]";
+    }
+}
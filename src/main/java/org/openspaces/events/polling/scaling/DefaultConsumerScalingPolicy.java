@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.events.polling.scaling;
+
+/**
+ * The default load driven {@link ConsumerScalingPolicy}.
+ *
+ * <p>Two estimates are computed and the larger one wins:
+ * <ul>
+ * <li>Backlog: the number of consumers needed to drain the sampled backlog within the
+ * {@link #setTargetDrainTime(long) targetDrainTime}, given the average listener latency. If the
+ * latency is not known yet (nothing was processed), a non empty backlog adds a single consumer.</li>
+ * <li>Utilization: when the consumers are busy more than
+ * {@link #setScaleUpUtilization(double) scaleUpUtilization} of the time, the consumer count is
+ * raised by half (at least one). When they are busy less than
+ * {@link #setScaleDownUtilization(double) scaleDownUtilization} of the time and the backlog
+ * can be drained by fewer consumers, it is lowered by one.</li>
+ * </ul>
+ *
+ * <p>Scaling up may jump several consumers at once in order to absorb bursts, while scaling down
+ * is always done one consumer per interval to avoid oscillation.
+ */
+public class DefaultConsumerScalingPolicy implements ConsumerScalingPolicy {
+
+    public static final long DEFAULT_TARGET_DRAIN_TIME = 1000;
+
+    public static final double DEFAULT_SCALE_UP_UTILIZATION = 0.75;
+
+    public static final double DEFAULT_SCALE_DOWN_UTILIZATION = 0.25;
+
+    private long targetDrainTime = DEFAULT_TARGET_DRAIN_TIME;
+
+    private double scaleUpUtilization = DEFAULT_SCALE_UP_UTILIZATION;
+
+    private double scaleDownUtilization = DEFAULT_SCALE_DOWN_UTILIZATION;
+
+    /**
+     * The time, in <b>milliseconds</b>, in which the sampled backlog should be drained. Defaults
+     * to 1000 ms.
+     */
+    public void setTargetDrainTime(long targetDrainTime) {
+        if (targetDrainTime <= 0) {
+            throw new IllegalArgumentException("targetDrainTime must be positive");
+        }
+        this.targetDrainTime = targetDrainTime;
+    }
+
+    public long getTargetDrainTime() {
+        return targetDrainTime;
+    }
+
+    /**
+     * The utilization above which consumers are added. Defaults to 0.75.
+     */
+    public void setScaleUpUtilization(double scaleUpUtilization) {
+        this.scaleUpUtilization = scaleUpUtilization;
+    }
+
+    public double getScaleUpUtilization() {
+        return scaleUpUtilization;
+    }
+
+    /**
+     * The utilization below which (if the backlog allows it) consumers are retired. Defaults to 0.25.
+     */
+    public void setScaleDownUtilization(double scaleDownUtilization) {
+        this.scaleDownUtilization = scaleDownUtilization;
+    }
+
+    public double getScaleDownUtilization() {
+        return scaleDownUtilization;
+    }
+
+    public int calculateTargetConsumers(ConsumerScalingStatistics statistics) {
+        int current = statistics.getScheduledConsumers();
+        long backlog = statistics.getBacklog();
+
+        long byBacklog = 0;
+        if (backlog > 0) {
+            long latency = statistics.getAverageLatency();
+            if (latency > 0) {
+                long drainTime = targetDrainTime * 1000000L;
+                // guard against overflow of backlog * latency for huge backlogs
+                if (backlog > Long.MAX_VALUE / latency) {
+                    byBacklog = statistics.getMaxConsumers();
+                } else {
+                    byBacklog = (backlog * latency + drainTime - 1) / drainTime;
+                }
+            } else {
+                byBacklog = current + 1;
+            }
+        }
+
+        long byUtilization = current;
+        double utilization = statistics.getUtilization();
+        if (utilization >= scaleUpUtilization) {
+            byUtilization = current + Math.max(1, current / 2);
+        } else if (utilization <= scaleDownUtilization && byBacklog < current) {
+            byUtilization = current - 1;
+        }
+
+        long target = Math.max(byBacklog, byUtilization);
+        if (target < current) {
+            target = current - 1;
+        }
+        return (int) Math.max(statistics.getMinConsumers(), Math.min(statistics.getMaxConsumers(), target));
+    }
+
+    @Override
+    public String toString() {
+        return "Default[targetDrainTime=" + targetDrainTime + ", scaleUpUtilization=" + scaleUpUtilization
+                + ", scaleDownUtilization=" + scaleDownUtilization + "]";
+    }
+}
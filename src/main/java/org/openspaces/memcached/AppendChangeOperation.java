@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.memcached;
+
+import com.gigaspaces.client.CustomChangeOperation;
+import com.gigaspaces.server.MutableServerEntry;
+
+/**
+ * A change operation that appends (or prepends) bytes to the value of a {@link MemcachedEntry}
+ * within the space, so the current value never has to travel to the client and back.
+ */
+public class AppendChangeOperation extends CustomChangeOperation {
+
+    private static final long serialVersionUID = 2873490785134262014L;
+
+    private final byte[] data;
+
+    private final boolean prepend;
+
+    public AppendChangeOperation(byte[] data, boolean prepend) {
+        this.data = data;
+        this.prepend = prepend;
+    }
+
+    @Override
+    public String getName() {
+        return prepend ? "memcached-prepend" : "memcached-append";
+    }
+
+    @Override
+    public Object change(MutableServerEntry entry) {
+        byte[] value = (byte[]) entry.getPathValue(MemcachedEntry.VALUE_PROPERTY);
+        if (value == null) {
+            value = new byte[0];
+        } else if (Boolean.TRUE.equals(entry.getPathValue(MemcachedEntry.COMPRESSED_PROPERTY))) {
+            // the concatenated value is kept uncompressed
+            value = ValueCompressor.decompress(value);
+            entry.setPathValue(MemcachedEntry.COMPRESSED_PROPERTY, false);
+        }
+        byte[] newData = new byte[value.length + data.length];
+        if (prepend) {
+            System.arraycopy(data, 0, newData, 0, data.length);
+            System.arraycopy(value, 0, newData, data.length, value.length);
+        } else {
+            System.arraycopy(value, 0, newData, 0, value.length);
+            System.arraycopy(data, 0, newData, value.length, data.length);
+        }
+        entry.setPathValue(MemcachedEntry.VALUE_PROPERTY, newData);
+        return null;
+    }
+}
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.memcached;
+
+import com.gigaspaces.client.ReadByIdsResult;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openspaces.core.GigaSpace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces single key gets arriving concurrently (from all the connections of a daemon) into a single
+ * {@link GigaSpace#readByIds(Class, Object[])} call, which the clustered proxy executes as one remote call per
+ * partition.
+ * <p/>
+ * A get waits at most <code>maxDelayMicros</code> for other gets to join its batch, and a batch is executed once
+ * it holds <code>maxBatchSize</code> gets. Batches are collected and executed by <code>threads</code> dedicated
+ * threads, so one batch can be executed while the next one is being collected. A get waits at most
+ * <code>getTimeoutMillis</code> for its batch to be executed.
+ */
+public class GetBatcher {
+
+    public static final long DEFAULT_GET_TIMEOUT_MILLIS = 60000;
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final GigaSpace space;
+
+    private final int maxBatchSize;
+
+    private final long maxDelayNanos;
+
+    private final long getTimeoutMillis;
+
+    private final BlockingQueue<PendingGet> queue = new LinkedBlockingQueue<PendingGet>();
+
+    private final Thread[] threads;
+
+    private volatile boolean closed;
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final AtomicLong batchedGets = new AtomicLong();
+
+    public GetBatcher(GigaSpace space, int maxBatchSize, long maxDelayMicros, int threads) {
+        this(space, maxBatchSize, maxDelayMicros, threads, DEFAULT_GET_TIMEOUT_MILLIS);
+    }
+
+    public GetBatcher(GigaSpace space, int maxBatchSize, long maxDelayMicros, int threads, long getTimeoutMillis) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        if (getTimeoutMillis < 1) {
+            throw new IllegalArgumentException("getTimeoutMillis must be positive");
+        }
+        this.space = space;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.getTimeoutMillis = getTimeoutMillis;
+        this.threads = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < this.threads.length; i++) {
+            this.threads[i] = new Thread(new Batcher(), "memcached-get-batcher-" + i);
+            this.threads[i].setDaemon(true);
+            this.threads[i].start();
+        }
+    }
+
+    /**
+     * Reads the entry for the given key as part of a batch, blocking until the batch is executed.
+     *
+     * @return the entry, or <code>null</code> if it does not exist
+     */
+    public MemcachedEntry get(Key key) {
+        if (closed) {
+            throw new IllegalStateException("Get batcher is closed");
+        }
+        PendingGet pending = new PendingGet(key);
+        queue.add(pending);
+        // close() might have drained the queue before the get was added
+        if (closed && queue.remove(pending)) {
+            throw new IllegalStateException("Get batcher is closed");
+        }
+        return pending.await(getTimeoutMillis);
+    }
+
+    public void close() {
+        closed = true;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        List<PendingGet> remaining = new ArrayList<PendingGet>();
+        queue.drainTo(remaining);
+        IllegalStateException e = new IllegalStateException("Get batcher is closed");
+        for (PendingGet pending : remaining) {
+            pending.fail(e);
+        }
+    }
+
+    /**
+     * Returns the number of batches (remote <code>readByIds</code> calls) executed successfully.
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Returns the number of gets executed as part of successful batches.
+     */
+    public long getBatchedGets() {
+        return batchedGets.get();
+    }
+
+    private void execute(List<PendingGet> batch) {
+        // the same key might be requested by several connections
+        Map<Key, Integer> positions = new HashMap<Key, Integer>();
+        List<Key> keys = new ArrayList<Key>(batch.size());
+        for (PendingGet pending : batch) {
+            if (!positions.containsKey(pending.key)) {
+                positions.put(pending.key, keys.size());
+                keys.add(pending.key);
+            }
+        }
+        try {
+            ReadByIdsResult<MemcachedEntry> result = space.readByIds(MemcachedEntry.class, keys.toArray());
+            MemcachedEntry[] entries = result.getResultsArray();
+            batches.incrementAndGet();
+            batchedGets.addAndGet(batch.size());
+            for (PendingGet pending : batch) {
+                pending.complete(entries[positions.get(pending.key)]);
+            }
+        } catch (RuntimeException e) {
+            for (PendingGet pending : batch) {
+                pending.fail(e);
+            }
+        }
+    }
+
+    private class Batcher implements Runnable {
+
+        public void run() {
+            List<PendingGet> batch = new ArrayList<PendingGet>(maxBatchSize);
+            while (!closed) {
+                try {
+                    PendingGet first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    long deadline = System.nanoTime() + maxDelayNanos;
+                    while (batch.size() < maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            queue.drainTo(batch, maxBatchSize - batch.size());
+                            break;
+                        }
+                        PendingGet next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    execute(batch);
+                } catch (InterruptedException e) {
+                    for (PendingGet pending : batch) {
+                        pending.fail(new IllegalStateException("Get batcher is closed"));
+                    }
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Throwable t) {
+                    logger.error("Failed to execute batched memcached gets", t);
+                    for (PendingGet pending : batch) {
+                        pending.fail(new IllegalStateException("Failed to execute batched get", t));
+                    }
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private static final class PendingGet {
+
+        final Key key;
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private volatile MemcachedEntry entry;
+
+        private volatile RuntimeException error;
+
+        PendingGet(Key key) {
+            this.key = key;
+        }
+
+        void complete(MemcachedEntry entry) {
+            this.entry = entry;
+            latch.countDown();
+        }
+
+        void fail(RuntimeException error) {
+            this.error = error;
+            latch.countDown();
+        }
+
+        MemcachedEntry await(long timeoutMillis) {
+            try {
+                if (!latch.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("Timed out after [" + timeoutMillis + "ms] waiting for a batched get");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a batched get", e);
+            }
+            if (error != null) {
+                throw error;
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.memcached;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded approximation of the most frequently accessed keys, based on the Space-Saving algorithm.
+ * <p/>
+ * At most <code>capacity</code> keys are tracked. When a key which is not tracked is offered and the sketch is
+ * full, the least frequent key is evicted and the new key inherits its count (so counts are upper bounds). In order
+ * to keep the cost off the hot path only one out of <code>sampleRate</code> accesses is actually recorded, the
+ * reported counts are scaled back accordingly.
+ */
+public class HotKeySketch {
+
+    private final int capacity;
+
+    private final int sampleMask;
+
+    private final AtomicLong accesses = new AtomicLong();
+
+    private final Map<Key, Counter> counters;
+
+    /**
+     * @param capacity   the maximum number of tracked keys
+     * @param sampleRate record one out of <code>sampleRate</code> accesses, rounded up to a power of two
+     */
+    public HotKeySketch(int capacity, int sampleRate) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive, got [" + capacity + "]");
+        }
+        this.capacity = capacity;
+        int rate = 1;
+        while (rate < sampleRate) {
+            rate <<= 1;
+        }
+        this.sampleMask = rate - 1;
+        this.counters = new HashMap<Key, Counter>(capacity * 2);
+    }
+
+    /**
+     * Records an access to the given key.
+     */
+    public void offer(Key key) {
+        if ((accesses.incrementAndGet() & sampleMask) != 0) {
+            return;
+        }
+        synchronized (counters) {
+            Counter counter = counters.get(key);
+            if (counter != null) {
+                counter.count++;
+                return;
+            }
+            if (counters.size() < capacity) {
+                counters.put(key, new Counter(key, 1, 0));
+                return;
+            }
+            Counter min = null;
+            for (Counter c : counters.values()) {
+                if (min == null || c.count < min.count) {
+                    min = c;
+                }
+            }
+            counters.remove(min.key);
+            counters.put(key, new Counter(key, min.count + 1, min.count));
+        }
+    }
+
+    /**
+     * Returns up to <code>n</code> of the hottest keys, hottest first.
+     */
+    public List<HotKey> top(int n) {
+        List<Counter> snapshot;
+        synchronized (counters) {
+            snapshot = new ArrayList<Counter>(counters.size());
+            for (Counter c : counters.values()) {
+                snapshot.add(new Counter(c.key, c.count, c.error));
+            }
+        }
+        Collections.sort(snapshot, new Comparator<Counter>() {
+            public int compare(Counter o1, Counter o2) {
+                return o1.count < o2.count ? 1 : (o1.count == o2.count ? 0 : -1);
+            }
+        });
+        int size = Math.min(n, snapshot.size());
+        List<HotKey> result = new ArrayList<HotKey>(size);
+        long scale = sampleMask + 1;
+        for (int i = 0; i < size; i++) {
+            Counter c = snapshot.get(i);
+            result.add(new HotKey(c.key, c.count * scale, c.error * scale));
+        }
+        return result;
+    }
+
+    public void clear() {
+        synchronized (counters) {
+            counters.clear();
+        }
+    }
+
+    /**
+     * A hot key along with its (estimated) number of accesses.
+     */
+    public static class HotKey {
+
+        private final Key key;
+
+        private final long count;
+
+        private final long error;
+
+        HotKey(Key key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public Key getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the estimated number of accesses of the key. Might over estimate by up to {@link #getError()}.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return new String(key.bytes) + "=" + count;
+        }
+    }
+
+    private static final class Counter {
+
+        final Key key;
+
+        long count;
+
+        final long error;
+
+        Counter(Key key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.memcached;
+
+import com.gigaspaces.client.CustomChangeOperation;
+import com.gigaspaces.server.MutableServerEntry;
+import org.openspaces.memcached.util.BufferUtils;
+
+/**
+ * A change operation that adds a delta to the decimal value of a {@link MemcachedEntry} within the
+ * space (memcached <code>incr</code>/<code>decr</code>). Underflow is capped at <code>0</code>, and the
+ * new value is returned as the operation result.
+ */
+public class IncrDecrChangeOperation extends CustomChangeOperation {
+
+    private static final long serialVersionUID = -6187293516702380349L;
+
+    private final int delta;
+
+    public IncrDecrChangeOperation(int delta) {
+        this.delta = delta;
+    }
+
+    @Override
+    public String getName() {
+        return "memcached-incr-decr";
+    }
+
+    @Override
+    public Object change(MutableServerEntry entry) {
+        byte[] value = (byte[]) entry.getPathValue(MemcachedEntry.VALUE_PROPERTY);
+        if (Boolean.TRUE.equals(entry.getPathValue(MemcachedEntry.COMPRESSED_PROPERTY))) {
+            value = ValueCompressor.decompress(value);
+            entry.setPathValue(MemcachedEntry.COMPRESSED_PROPERTY, false);
+        }
+        int val = BufferUtils.atoi(value) + delta;
+        if (val < 0) {
+            val = 0;
+        } // check for underflow
+        entry.setPathValue(MemcachedEntry.VALUE_PROPERTY, BufferUtils.itoa(val));
+        return val;
+    }
+}
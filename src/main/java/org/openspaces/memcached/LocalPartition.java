@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.memcached;
+
+import org.openspaces.core.GigaSpace;
+
+/**
+ * The space partition co-located with a memcached daemon, allowing {@link SpaceCache} to execute operations on
+ * keys owned by it directly against the embedded (non clustered) partition proxy.
+ * <p/>
+ * A key is owned by the partition computed the same way the space routes entries by their routing value (the
+ * {@link Key}): <code>abs(hashCode) % numberOfPartitions</code>, where the hash code is the Java
+ * <code>Arrays.hashCode</code> of the key bytes. Clients can use the same function, along with the routing map,
+ * to send each key to the daemon co-located with its primary partition.
+ */
+public class LocalPartition {
+
+    private final GigaSpace space;
+
+    private final int partitionId;
+
+    private final int numberOfPartitions;
+
+    private volatile boolean primary;
+
+    /**
+     * @param space              a non clustered proxy of the embedded partition
+     * @param partitionId        the zero based id of the partition
+     * @param numberOfPartitions the number of partitions of the space
+     */
+    public LocalPartition(GigaSpace space, int partitionId, int numberOfPartitions) {
+        this.space = space;
+        this.partitionId = partitionId;
+        this.numberOfPartitions = numberOfPartitions;
+    }
+
+    /**
+     * Returns the zero based id of the partition owning the given key.
+     */
+    public static int partitionOf(Key key, int numberOfPartitions) {
+        int hashCode = key.hashCode();
+        return (hashCode == Integer.MIN_VALUE ? Integer.MAX_VALUE : Math.abs(hashCode)) % numberOfPartitions;
+    }
+
+    /**
+     * Returns <code>true</code> if the key is owned by this partition, and the partition is currently primary.
+     */
+    public boolean owns(Key key) {
+        return primary && partitionOf(key, numberOfPartitions) == partitionId;
+    }
+
+    public GigaSpace getSpace() {
+        return space;
+    }
+
+    public int getPartitionId() {
+        return partitionId;
+    }
+
+    public int getNumberOfPartitions() {
+        return numberOfPartitions;
+    }
+
+    public boolean isPrimary() {
+        return primary;
+    }
+
+    public void setPrimary(boolean primary) {
+        this.primary = primary;
+    }
+}
@@ -28,7 +28,14 @@ import org.jboss.netty.channel.group.ChannelGroupFuture;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
 import org.jboss.netty.channel.socket.ServerSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.execution.ExecutionHandler;
 import org.openspaces.core.GigaSpace;
+import org.openspaces.core.cluster.ClusterInfo;
+import org.openspaces.core.cluster.ClusterInfoAware;
+import org.openspaces.core.space.mode.AfterSpaceModeChangeEvent;
+import org.openspaces.core.util.ConcurrentHistogram;
+import org.openspaces.core.util.SpaceUtils;
+import org.openspaces.memcached.protocol.OrderedChannelExecutor;
 import org.openspaces.memcached.protocol.UnifiedProtocolDecoder;
 import org.openspaces.memcached.protocol.binary.MemcachedBinaryPipelineFactory;
 import org.openspaces.memcached.protocol.text.MemcachedPipelineFactory;
@@ -39,23 +46,34 @@ import org.openspaces.pu.service.ServiceMonitorsProvider;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
 
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
 
 /**
  * @author kimchy (shay.banon)
  */
-public class MemCacheDaemon implements InitializingBean, DisposableBean, BeanNameAware, ServiceDetailsProvider, ServiceMonitorsProvider {
+public class MemCacheDaemon implements InitializingBean, DisposableBean, BeanNameAware, ClusterInfoAware, ApplicationListener,
+        ServiceDetailsProvider, ServiceMonitorsProvider {
 
     protected final Log logger = LogFactory.getLog(getClass());
 
     public final static String memcachedVersion = "0.9";
 
+    private final static int HOT_KEYS_MONITORS_SIZE = 10;
+
     private GigaSpace space;
 
+    private GigaSpace localSpace;
+
+    private ClusterInfo clusterInfo;
+
     private String beanName = "memcached";
 
     private String protocol = "dual";
@@ -68,18 +86,64 @@ public class MemCacheDaemon implements InitializingBean, DisposableBean, BeanNam
 
     private boolean threaded = true;
 
+    private int workerCoreThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+    private int workerMaxThreads = 64;
+
+    private int workerQueueSize = 10000;
+
+    private OrderedChannelExecutor.RejectionPolicy workerRejectionPolicy = OrderedChannelExecutor.RejectionPolicy.CALLER_RUNS;
+
+    private boolean nearCache = false;
+
+    private int nearCacheMaxEntries = 10000;
+
+    private long nearCacheMaxBytes = 64 * 1024 * 1024;
+
+    private long nearCacheTimeToLive = 60000;
+
+    private boolean batchGets = false;
+
+    private int getBatchMaxSize = 128;
+
+    private long getBatchMaxDelayMicros = 200;
+
+    private int getBatchThreads = 2;
+
+    private int compressionThreshold = 0;
+
+    private int compressionLevel = Deflater.BEST_SPEED;
+
     private int frameSize = 32768 * 1024;
     private int idleTime;
 
     private int boundedPort;
+    private String boundedHost;
+    private volatile boolean primary;
+    private LocalPartition localPartition;
     private ServerSocketChannelFactory channelFactory;
     private DefaultChannelGroup allChannels;
     private SpaceCache cache;
+    private OrderedChannelExecutor workerExecutor;
+    private ExecutionHandler executionHandler;
 
     public void setSpace(GigaSpace space) {
         this.space = space;
     }
 
+    /**
+     * The non clustered proxy of the space partition co-located with this daemon. When set (and the processing
+     * unit is partitioned), operations on keys owned by the partition are executed directly against it while
+     * it is primary.
+     */
+    public void setLocalSpace(GigaSpace localSpace) {
+        this.localSpace = localSpace;
+    }
+
+    public void setClusterInfo(ClusterInfo clusterInfo) {
+        this.clusterInfo = clusterInfo;
+    }
+
     public void setHost(String host) {
         this.host = host;
     }
@@ -104,23 +168,149 @@ public class MemCacheDaemon implements InitializingBean, DisposableBean, BeanNam
         this.threaded = threaded;
     }
 
+    /**
+     * The number of worker threads kept alive by the pool shared by all the connections
+     * (when running <code>threaded</code>). Defaults to twice the number of available processors.
+     */
+    public void setWorkerCoreThreads(int workerCoreThreads) {
+        this.workerCoreThreads = workerCoreThreads;
+    }
+
+    /**
+     * The maximum number of worker threads, only reached once the worker queue is full. Defaults to <code>64</code>.
+     */
+    public void setWorkerMaxThreads(int workerMaxThreads) {
+        this.workerMaxThreads = workerMaxThreads;
+    }
+
+    /**
+     * The number of connections that can wait for a worker thread. Defaults to <code>10000</code>.
+     */
+    public void setWorkerQueueSize(int workerQueueSize) {
+        this.workerQueueSize = workerQueueSize;
+    }
+
+    /**
+     * What to do when the worker pool is saturated. Defaults to
+     * {@link org.openspaces.memcached.protocol.OrderedChannelExecutor.RejectionPolicy#CALLER_RUNS}.
+     */
+    public void setWorkerRejectionPolicy(OrderedChannelExecutor.RejectionPolicy workerRejectionPolicy) {
+        this.workerRejectionPolicy = workerRejectionPolicy;
+    }
+
+    /**
+     * Enables an in process cache of hot entries in front of the space. Defaults to <code>false</code>.
+     */
+    public void setNearCache(boolean nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    /**
+     * The maximum number of entries held by the near cache. Defaults to <code>10000</code>.
+     */
+    public void setNearCacheMaxEntries(int nearCacheMaxEntries) {
+        this.nearCacheMaxEntries = nearCacheMaxEntries;
+    }
+
+    /**
+     * The maximum total size (in bytes) of the values held by the near cache. Defaults to <code>64MB</code>.
+     */
+    public void setNearCacheMaxBytes(long nearCacheMaxBytes) {
+        this.nearCacheMaxBytes = nearCacheMaxBytes;
+    }
+
+    /**
+     * The maximum time (in milliseconds) a value is served from the near cache, regardless of invalidation
+     * notifications. Defaults to <code>60000</code>.
+     */
+    public void setNearCacheTimeToLive(long nearCacheTimeToLive) {
+        this.nearCacheTimeToLive = nearCacheTimeToLive;
+    }
+
+    /**
+     * Coalesces single key gets arriving concurrently from all connections into batched reads.
+     * Defaults to <code>false</code>.
+     */
+    public void setBatchGets(boolean batchGets) {
+        this.batchGets = batchGets;
+    }
+
+    /**
+     * The maximum number of gets coalesced into a single batched read. Defaults to <code>128</code>.
+     */
+    public void setGetBatchMaxSize(int getBatchMaxSize) {
+        this.getBatchMaxSize = getBatchMaxSize;
+    }
+
+    /**
+     * The maximum time (in microseconds) a get waits for other gets to join its batch. Defaults to <code>200</code>.
+     */
+    public void setGetBatchMaxDelayMicros(long getBatchMaxDelayMicros) {
+        this.getBatchMaxDelayMicros = getBatchMaxDelayMicros;
+    }
+
+    /**
+     * The number of threads collecting and executing batched gets. Defaults to <code>2</code>.
+     */
+    public void setGetBatchThreads(int getBatchThreads) {
+        this.getBatchThreads = getBatchThreads;
+    }
+
+    /**
+     * Values of at least this size (in bytes) are stored compressed in the space, and inflated when read.
+     * Defaults to <code>0</code>, which disables compression.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * The deflate level (<code>1</code>-<code>9</code>) used to compress values. Defaults to <code>1</code>
+     * (best speed).
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
     public void afterPropertiesSet() throws Exception {
-        cache = new SpaceCache(space);
+        NearCache localNearCache = null;
+        if (nearCache) {
+            localNearCache = new NearCache(nearCacheMaxEntries, nearCacheMaxBytes, nearCacheTimeToLive);
+        }
+        GetBatcher getBatcher = null;
+        if (batchGets) {
+            getBatcher = new GetBatcher(space, getBatchMaxSize, getBatchMaxDelayMicros, getBatchThreads);
+        }
+        ValueCompressor compressor = null;
+        if (compressionThreshold > 0) {
+            compressor = new ValueCompressor(compressionThreshold, compressionLevel);
+        }
+        cache = new SpaceCache(space, localNearCache, getBatcher, compressor);
+        if (localSpace != null && isPartitioned()) {
+            localPartition = new LocalPartition(localSpace, getPartitionId(), clusterInfo.getNumberOfInstances());
+            localPartition.setPrimary(primary);
+            cache.setLocalPartition(localPartition);
+        }
         channelFactory = new NioServerSocketChannelFactory(Executors.newCachedThreadPool(), Executors.newCachedThreadPool());
 
         allChannels = new DefaultChannelGroup("memcachedChannelGroup");
 
+        if (threaded) {
+            workerExecutor = new OrderedChannelExecutor(workerCoreThreads, workerMaxThreads, workerQueueSize, workerRejectionPolicy);
+            executionHandler = new ExecutionHandler(workerExecutor);
+        }
+
         ServerBootstrap bootstrap = new ServerBootstrap(channelFactory);
 
         ChannelPipelineFactory pipelineFactory = new ChannelPipelineFactory() {
             public ChannelPipeline getPipeline() throws Exception {
-                return Channels.pipeline(new UnifiedProtocolDecoder(cache, allChannels, memcachedVersion, idleTime, false, threaded));
+                return Channels.pipeline(new UnifiedProtocolDecoder(cache, allChannels, memcachedVersion, idleTime, false, executionHandler));
             }
         };
         if ("binary".equalsIgnoreCase(protocol)) {
-            pipelineFactory = createMemcachedBinaryPipelineFactory(cache, memcachedVersion, false, idleTime, allChannels);
+            pipelineFactory = createMemcachedBinaryPipelineFactory(cache, memcachedVersion, false, idleTime, allChannels, executionHandler);
         } else if ("text".equalsIgnoreCase(protocol)) {
-            pipelineFactory = createMemcachedPipelineFactory(cache, memcachedVersion, false, idleTime, frameSize, allChannels);
+            pipelineFactory = createMemcachedPipelineFactory(cache, memcachedVersion, false, idleTime, frameSize, allChannels, executionHandler);
         }
 
         bootstrap.setPipelineFactory(pipelineFactory);
@@ -149,17 +339,67 @@ public class MemCacheDaemon implements InitializingBean, DisposableBean, BeanNam
             throw lastException;
         }
         boundedPort = port + i;
+        boundedHost = host != null ? host : InetAddress.getLocalHost().getHostAddress();
         logger.info("memcached started on port [" + boundedPort + "]");
+        if (primary) {
+            publishEndpoint();
+        }
+    }
+
+    /**
+     * Tracks the mode of the co-located space: once primary, the local fast path is enabled and the endpoint of
+     * this daemon is published to the routing map.
+     */
+    public void onApplicationEvent(ApplicationEvent applicationEvent) {
+        if (!(applicationEvent instanceof AfterSpaceModeChangeEvent)) {
+            return;
+        }
+        AfterSpaceModeChangeEvent event = (AfterSpaceModeChangeEvent) applicationEvent;
+        if (localSpace != null && !SpaceUtils.isSameSpace(event.getSpace(), localSpace.getSpace())) {
+            return;
+        }
+        primary = event.isPrimary();
+        if (localPartition != null) {
+            localPartition.setPrimary(primary);
+        }
+        if (primary && boundedPort != 0) {
+            publishEndpoint();
+        }
+    }
+
+    private void publishEndpoint() {
+        if (!isPartitioned()) {
+            return;
+        }
+        MemcachedEndpoint endpoint = new MemcachedEndpoint(getPartitionId(), clusterInfo.getNumberOfInstances(), boundedHost, boundedPort);
+        try {
+            (localSpace != null ? localSpace : space).write(endpoint);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Published memcached endpoint [" + boundedHost + ":" + boundedPort + "] for partition [" + endpoint.getPartitionId() + "]");
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to publish memcached endpoint of partition [" + endpoint.getPartitionId() + "]", e);
+        }
+    }
+
+    private boolean isPartitioned() {
+        return clusterInfo != null && clusterInfo.getNumberOfInstances() != null && clusterInfo.getInstanceId() != null;
+    }
+
+    private int getPartitionId() {
+        return clusterInfo.getInstanceId() - 1;
     }
 
     protected ChannelPipelineFactory createMemcachedBinaryPipelineFactory(
-            SpaceCache cache, String memcachedVersion, boolean verbose, int idleTime, DefaultChannelGroup allChannels) {
-        return new MemcachedBinaryPipelineFactory(cache, memcachedVersion, verbose, idleTime, allChannels);
+            SpaceCache cache, String memcachedVersion, boolean verbose, int idleTime, DefaultChannelGroup allChannels,
+            ExecutionHandler executionHandler) {
+        return new MemcachedBinaryPipelineFactory(cache, memcachedVersion, verbose, idleTime, allChannels, executionHandler);
     }
 
     protected ChannelPipelineFactory createMemcachedPipelineFactory(
-            SpaceCache cache, String memcachedVersion, boolean verbose, int idleTime, int receiveBufferSize, DefaultChannelGroup allChannels) {
-        return new MemcachedPipelineFactory(cache, memcachedVersion, verbose, idleTime, receiveBufferSize, allChannels);
+            SpaceCache cache, String memcachedVersion, boolean verbose, int idleTime, int receiveBufferSize, DefaultChannelGroup allChannels,
+            ExecutionHandler executionHandler) {
+        return new MemcachedPipelineFactory(cache, memcachedVersion, verbose, idleTime, receiveBufferSize, allChannels, executionHandler);
     }
 
     public void destroy() throws Exception {
@@ -174,14 +414,56 @@ public class MemCacheDaemon implements InitializingBean, DisposableBean, BeanNam
             throw new RuntimeException("exception while closing storage", e);
         }
         channelFactory.releaseExternalResources();
+        if (workerExecutor != null) {
+            workerExecutor.shutdown();
+        }
         logger.info("memcached destroyed");
     }
 
     public ServiceDetails[] getServicesDetails() {
+        if (isPartitioned()) {
+            return new ServiceDetails[]{new MemcachedServiceDetails(beanName, space.getName(), boundedPort, boundedHost,
+                    getPartitionId(), clusterInfo.getNumberOfInstances(), primary)};
+        }
         return new ServiceDetails[]{new MemcachedServiceDetails(beanName, space.getName(), boundedPort)};
     }
 
     public ServiceMonitors[] getServicesMonitors() {
-        return new ServiceMonitors[]{new MemcachedServiceMonitors(beanName, cache.getGetCmds(), cache.getSetCmds(), cache.getGetHits(), cache.getGetMisses())};
+        int workerQueueSize = 0;
+        int workerActiveThreads = 0;
+        if (workerExecutor != null) {
+            workerQueueSize = workerExecutor.getQueueSize();
+            workerActiveThreads = workerExecutor.getActiveCount();
+        }
+        MemcachedServiceMonitors monitors = new MemcachedServiceMonitors(beanName, cache.getGetCmds(), cache.getSetCmds(), cache.getGetHits(), cache.getGetMisses(),
+                workerQueueSize, workerActiveThreads);
+        NearCache localNearCache = cache.getNearCache();
+        if (localNearCache != null) {
+            monitors.setNearCacheStats(localNearCache.getHits(), localNearCache.getMisses(), localNearCache.getSize());
+        }
+        GetBatcher getBatcher = cache.getGetBatcher();
+        if (getBatcher != null) {
+            monitors.setGetBatchStats(getBatcher.getBatches(), getBatcher.getBatchedGets());
+        }
+        ValueCompressor compressor = cache.getCompressor();
+        if (compressor != null) {
+            monitors.setCompressionStats(compressor.getCompressedValues(), compressor.getCompressionRatio(),
+                    compressor.getCompressTime(), compressor.getDecompressTime());
+        }
+        MemcachedStatistics statistics = cache.getStatistics();
+        for (String category : MemcachedStatistics.CATEGORIES) {
+            ConcurrentHistogram latency = statistics.getLatency(category);
+            monitors.setCommandStats(category, latency.getCount(), latency.getPercentile(50),
+                    latency.getPercentile(99), latency.getPercentile(99.9));
+        }
+        ConcurrentHistogram valueSizes = statistics.getValueSizes();
+        monitors.setValueSizeStats(valueSizes.getPercentile(50), valueSizes.getPercentile(99), valueSizes.getMax());
+        List<HotKeySketch.HotKey> hotKeys = statistics.getHotKeys(HOT_KEYS_MONITORS_SIZE);
+        String[] hotKeysDescription = new String[hotKeys.size()];
+        for (int i = 0; i < hotKeysDescription.length; i++) {
+            hotKeysDescription[i] = hotKeys.get(i).toString();
+        }
+        monitors.setHotKeys(hotKeysDescription);
+        return new ServiceMonitors[]{monitors};
     }
 }
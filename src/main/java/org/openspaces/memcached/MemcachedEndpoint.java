@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.memcached;
+
+import com.gigaspaces.annotation.pojo.SpaceClass;
+import com.gigaspaces.annotation.pojo.SpaceId;
+import com.gigaspaces.annotation.pojo.SpaceRouting;
+
+/**
+ * The memcached endpoint (host and port) of the daemon co-located with the primary of a space partition. Each
+ * daemon writes its endpoint to its own partition once it becomes primary, so the entries of all the partitions
+ * form the routing map returned by the <code>stats routing</code> command.
+ */
+@SpaceClass
+public class MemcachedEndpoint {
+
+    private Integer partitionId;
+
+    private Integer numberOfPartitions;
+
+    private String host;
+
+    private Integer port;
+
+    public MemcachedEndpoint() {
+    }
+
+    public MemcachedEndpoint(int partitionId, int numberOfPartitions, String host, int port) {
+        this.partitionId = partitionId;
+        this.numberOfPartitions = numberOfPartitions;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * The zero based partition id. Also used as the routing value, since a partition id (below the number of
+     * partitions) is routed to the partition with the same id.
+     */
+    @SpaceId(autoGenerate = false)
+    @SpaceRouting
+    public Integer getPartitionId() {
+        return partitionId;
+    }
+
+    public void setPartitionId(Integer partitionId) {
+        this.partitionId = partitionId;
+    }
+
+    public Integer getNumberOfPartitions() {
+        return numberOfPartitions;
+    }
+
+    public void setNumberOfPartitions(Integer numberOfPartitions) {
+        this.numberOfPartitions = numberOfPartitions;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public Integer getPort() {
+        return port;
+    }
+
+    public void setPort(Integer port) {
+        this.port = port;
+    }
+}
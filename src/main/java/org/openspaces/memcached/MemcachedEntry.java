@@ -21,6 +21,8 @@ import com.gigaspaces.annotation.pojo.SpaceClass;
 import com.gigaspaces.annotation.pojo.SpaceId;
 import com.gigaspaces.annotation.pojo.SpaceRouting;
 import com.gigaspaces.annotation.pojo.SpaceVersion;
+import com.gigaspaces.internal.version.PlatformLogicalVersion;
+import com.gigaspaces.lrmi.LRMIInvocationContext;
 
 import java.io.Externalizable;
 import java.io.IOException;
@@ -34,7 +36,17 @@ import java.io.ObjectOutput;
 public class MemcachedEntry implements Externalizable {
 
     private static final long serialVersionUID = 7080552232191270155L;
-    
+
+    /**
+     * The name of the value property, used when changing the value within the space.
+     */
+    public static final String VALUE_PROPERTY = "value";
+
+    /**
+     * The name of the compressed marker property, used when changing the value within the space.
+     */
+    public static final String COMPRESSED_PROPERTY = "compressed";
+
     private Key key;
 
     private byte[] value;
@@ -43,6 +55,8 @@ public class MemcachedEntry implements Externalizable {
 
     private int version;
 
+    private boolean compressed;
+
     public MemcachedEntry() {
     }
 
@@ -86,6 +100,21 @@ public class MemcachedEntry implements Externalizable {
         this.flags = flags;
     }
 
+    /**
+     * Returns <code>true</code> if the value is held compressed (see {@link ValueCompressor}). Kept apart from the
+     * memcached {@link #getFlags() flags}, which belong to the client.
+     * <p/>
+     * The marker is serialized only to peers of version 11.0 and up, older peers seeing compressed values as is.
+     * Compression should therefore be enabled only once all the daemons and spaces were upgraded.
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
     public void writeExternal(ObjectOutput out) throws IOException {
         if (key == null) {
             out.writeBoolean(false);
@@ -102,6 +131,9 @@ public class MemcachedEntry implements Externalizable {
         }
         out.writeInt(flags);
         out.writeInt(version);
+        if (LRMIInvocationContext.getEndpointLogicalVersion().greaterOrEquals(PlatformLogicalVersion.v11_0_0)) {
+            out.writeBoolean(compressed);
+        }
     }
 
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
@@ -115,5 +147,8 @@ public class MemcachedEntry implements Externalizable {
         }
         flags = in.readInt();
         version = in.readInt();
+        if (LRMIInvocationContext.getEndpointLogicalVersion().greaterOrEquals(PlatformLogicalVersion.v11_0_0)) {
+            compressed = in.readBoolean();
+        }
     }
 }
@@ -31,6 +31,10 @@ public class MemcachedServiceDetails extends PlainServiceDetails {
     public static class Attributes {
         public static final String SPACE = "space";
         public static final String PORT = "template";
+        public static final String HOST = "host";
+        public static final String PARTITION_ID = "partition-id";
+        public static final String NUMBER_OF_PARTITIONS = "number-of-partitions";
+        public static final String PRIMARY = "primary";
     }
 
     public MemcachedServiceDetails() {
@@ -42,6 +46,19 @@ public class MemcachedServiceDetails extends PlainServiceDetails {
         getAttributes().put(Attributes.PORT, port);
     }
 
+    /**
+     * Creates the details of a daemon co-located with a space partition. Clients can build the routing map from
+     * the details of the daemons co-located with primaries, see {@link LocalPartition#partitionOf(Key, int)}.
+     */
+    public MemcachedServiceDetails(String id, String space, int port, String host, int partitionId, int numberOfPartitions,
+                                   boolean primary) {
+        this(id, space, port);
+        getAttributes().put(Attributes.HOST, host);
+        getAttributes().put(Attributes.PARTITION_ID, partitionId);
+        getAttributes().put(Attributes.NUMBER_OF_PARTITIONS, numberOfPartitions);
+        getAttributes().put(Attributes.PRIMARY, primary);
+    }
+
     public String getSpace() {
         return (String) getAttributes().get(Attributes.SPACE);
     }
@@ -49,4 +66,27 @@ public class MemcachedServiceDetails extends PlainServiceDetails {
     public Integer getPort() {
         return (Integer) getAttributes().get(Attributes.PORT);
     }
+
+    public String getHost() {
+        return (String) getAttributes().get(Attributes.HOST);
+    }
+
+    /**
+     * Returns the zero based id of the co-located partition, or <code>null</code> if the space is not partitioned.
+     */
+    public Integer getPartitionId() {
+        return (Integer) getAttributes().get(Attributes.PARTITION_ID);
+    }
+
+    public Integer getNumberOfPartitions() {
+        return (Integer) getAttributes().get(Attributes.NUMBER_OF_PARTITIONS);
+    }
+
+    /**
+     * Returns <code>true</code> if the co-located partition was primary when the details were taken.
+     */
+    public boolean isPrimary() {
+        Boolean primary = (Boolean) getAttributes().get(Attributes.PRIMARY);
+        return primary != null && primary;
+    }
 }
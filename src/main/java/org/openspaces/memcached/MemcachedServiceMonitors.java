@@ -31,6 +31,37 @@ public class MemcachedServiceMonitors extends PlainServiceMonitors {
         public static final String SET_CMDS = "set-cmds";
         public static final String GET_HITS = "get-hits";
         public static final String GET_MISSES = "get-misses";
+        public static final String WORKER_QUEUE_SIZE = "worker-queue-size";
+        public static final String WORKER_ACTIVE_THREADS = "worker-active-threads";
+        public static final String NEAR_CACHE_HITS = "near-cache-hits";
+        public static final String NEAR_CACHE_MISSES = "near-cache-misses";
+        public static final String NEAR_CACHE_SIZE = "near-cache-size";
+        public static final String GET_BATCHES = "get-batches";
+        public static final String BATCHED_GETS = "batched-gets";
+        public static final String VALUE_SIZE_P50 = "value-size-p50";
+        public static final String VALUE_SIZE_P99 = "value-size-p99";
+        public static final String VALUE_SIZE_MAX = "value-size-max";
+        public static final String HOT_KEYS = "hot-keys";
+        public static final String COMPRESSED_VALUES = "compressed-values";
+        public static final String COMPRESSION_RATIO = "compression-ratio";
+        public static final String COMPRESS_TIME = "compress-time";
+        public static final String DECOMPRESS_TIME = "decompress-time";
+
+        /**
+         * Returns the attribute holding the number of commands of the given category (one of
+         * {@link MemcachedStatistics#CATEGORIES}), for example <code>get-count</code>.
+         */
+        public static String commandCount(String category) {
+            return category + "-count";
+        }
+
+        /**
+         * Returns the attribute holding the latency percentile (in microseconds) of the given command category,
+         * for example <code>get-latency-p99</code>.
+         */
+        public static String commandLatency(String category, String percentile) {
+            return category + "-latency-" + percentile;
+        }
     }
 
     public MemcachedServiceMonitors() {
@@ -45,6 +76,57 @@ public class MemcachedServiceMonitors extends PlainServiceMonitors {
         getMonitors().put(Attributes.GET_MISSES, getMisses);
     }
 
+    public MemcachedServiceMonitors(String id, long getCmds, long setCmds, long getHits, long getMisses,
+                                    long workerQueueSize, long workerActiveThreads) {
+        this(id, getCmds, setCmds, getHits, getMisses);
+        getMonitors().put(Attributes.WORKER_QUEUE_SIZE, workerQueueSize);
+        getMonitors().put(Attributes.WORKER_ACTIVE_THREADS, workerActiveThreads);
+    }
+
+    public void setNearCacheStats(long hits, long misses, long size) {
+        getMonitors().put(Attributes.NEAR_CACHE_HITS, hits);
+        getMonitors().put(Attributes.NEAR_CACHE_MISSES, misses);
+        getMonitors().put(Attributes.NEAR_CACHE_SIZE, size);
+    }
+
+    public void setGetBatchStats(long batches, long batchedGets) {
+        getMonitors().put(Attributes.GET_BATCHES, batches);
+        getMonitors().put(Attributes.BATCHED_GETS, batchedGets);
+    }
+
+    /**
+     * Sets the latency statistics (in microseconds) of the given command category.
+     */
+    public void setCommandStats(String category, long count, long p50, long p99, long p999) {
+        getMonitors().put(Attributes.commandCount(category), count);
+        getMonitors().put(Attributes.commandLatency(category, "p50"), p50);
+        getMonitors().put(Attributes.commandLatency(category, "p99"), p99);
+        getMonitors().put(Attributes.commandLatency(category, "p999"), p999);
+    }
+
+    public void setValueSizeStats(long p50, long p99, long max) {
+        getMonitors().put(Attributes.VALUE_SIZE_P50, p50);
+        getMonitors().put(Attributes.VALUE_SIZE_P99, p99);
+        getMonitors().put(Attributes.VALUE_SIZE_MAX, max);
+    }
+
+    /**
+     * Sets the hottest keys, hottest first, each formatted as <code>key=count</code>.
+     */
+    public void setHotKeys(String[] hotKeys) {
+        getMonitors().put(Attributes.HOT_KEYS, hotKeys);
+    }
+
+    /**
+     * Sets the compression statistics, times are in nanoseconds.
+     */
+    public void setCompressionStats(long compressedValues, double compressionRatio, long compressTime, long decompressTime) {
+        getMonitors().put(Attributes.COMPRESSED_VALUES, compressedValues);
+        getMonitors().put(Attributes.COMPRESSION_RATIO, compressionRatio);
+        getMonitors().put(Attributes.COMPRESS_TIME, compressTime);
+        getMonitors().put(Attributes.DECOMPRESS_TIME, decompressTime);
+    }
+
     public long getGetCmds() {
         return (Long) getMonitors().get(Attributes.GET_CMDS);
     }
@@ -60,4 +142,136 @@ public class MemcachedServiceMonitors extends PlainServiceMonitors {
     public long getGetMisses() {
         return (Long) getMonitors().get(Attributes.GET_MISSES);
     }
+
+    /**
+     * Returns the number of connections waiting for a worker thread.
+     */
+    public long getWorkerQueueSize() {
+        return getLong(Attributes.WORKER_QUEUE_SIZE);
+    }
+
+    /**
+     * Returns the number of worker threads currently processing commands.
+     */
+    public long getWorkerActiveThreads() {
+        return getLong(Attributes.WORKER_ACTIVE_THREADS);
+    }
+
+    /**
+     * Returns the number of gets served by the near cache (<code>0</code> if the near cache is disabled).
+     */
+    public long getNearCacheHits() {
+        return getLong(Attributes.NEAR_CACHE_HITS);
+    }
+
+    /**
+     * Returns the number of gets that missed the near cache (<code>0</code> if the near cache is disabled).
+     */
+    public long getNearCacheMisses() {
+        return getLong(Attributes.NEAR_CACHE_MISSES);
+    }
+
+    /**
+     * Returns the number of entries held by the near cache (<code>0</code> if the near cache is disabled).
+     */
+    public long getNearCacheSize() {
+        return getLong(Attributes.NEAR_CACHE_SIZE);
+    }
+
+    /**
+     * Returns the number of batched reads executed for coalesced gets (<code>0</code> if gets are not batched).
+     */
+    public long getGetBatches() {
+        return getLong(Attributes.GET_BATCHES);
+    }
+
+    /**
+     * Returns the number of gets executed as part of batched reads (<code>0</code> if gets are not batched).
+     */
+    public long getBatchedGets() {
+        return getLong(Attributes.BATCHED_GETS);
+    }
+
+    /**
+     * Returns the number of commands served of the given category (one of {@link MemcachedStatistics#CATEGORIES}).
+     */
+    public long getCommandCount(String category) {
+        return getLong(Attributes.commandCount(category));
+    }
+
+    /**
+     * Returns the median latency, in microseconds, of the given command category.
+     */
+    public long getCommandLatencyP50(String category) {
+        return getLong(Attributes.commandLatency(category, "p50"));
+    }
+
+    /**
+     * Returns the 99th percentile latency, in microseconds, of the given command category.
+     */
+    public long getCommandLatencyP99(String category) {
+        return getLong(Attributes.commandLatency(category, "p99"));
+    }
+
+    /**
+     * Returns the 99.9th percentile latency, in microseconds, of the given command category.
+     */
+    public long getCommandLatencyP999(String category) {
+        return getLong(Attributes.commandLatency(category, "p999"));
+    }
+
+    public long getValueSizeP50() {
+        return getLong(Attributes.VALUE_SIZE_P50);
+    }
+
+    public long getValueSizeP99() {
+        return getLong(Attributes.VALUE_SIZE_P99);
+    }
+
+    public long getValueSizeMax() {
+        return getLong(Attributes.VALUE_SIZE_MAX);
+    }
+
+    /**
+     * Returns the hottest keys, hottest first, each formatted as <code>key=count</code>.
+     */
+    public String[] getHotKeys() {
+        String[] hotKeys = (String[]) getMonitors().get(Attributes.HOT_KEYS);
+        return hotKeys == null ? new String[0] : hotKeys;
+    }
+
+    /**
+     * Returns the number of values stored compressed (<code>0</code> if compression is disabled).
+     */
+    public long getCompressedValues() {
+        return getLong(Attributes.COMPRESSED_VALUES);
+    }
+
+    /**
+     * Returns the compressed to uncompressed size ratio of compressed values (<code>1</code> if compression is
+     * disabled).
+     */
+    public double getCompressionRatio() {
+        Double value = (Double) getMonitors().get(Attributes.COMPRESSION_RATIO);
+        return value == null ? 1 : value;
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, spent compressing values.
+     */
+    public long getCompressTime() {
+        return getLong(Attributes.COMPRESS_TIME);
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, spent inflating values.
+     */
+    public long getDecompressTime() {
+        return getLong(Attributes.DECOMPRESS_TIME);
+    }
+
+    private long getLong(String attribute) {
+        Long value = (Long) getMonitors().get(attribute);
+        return value == null ? 0 : value;
+    }
 }
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.memcached;
+
+import org.openspaces.core.util.ConcurrentHistogram;
+import org.openspaces.memcached.protocol.Op;
+
+import java.util.List;
+
+/**
+ * Latency and size distributions of the commands served by a memcached daemon, along with the hottest keys.
+ * <p/>
+ * Commands are grouped into categories: <code>get</code> (get/gets), <code>set</code> (set/add/replace),
+ * <code>cas</code>, <code>incr</code> (incr/decr), <code>delete</code> and <code>append</code> (append/prepend).
+ * Latencies are recorded in microseconds and cover the last one to two minutes, value sizes are recorded in bytes.
+ */
+public class MemcachedStatistics {
+
+    public static final String[] CATEGORIES = {"get", "set", "cas", "incr", "delete", "append"};
+
+    private static final int GET = 0;
+    private static final int SET = 1;
+    private static final int CAS = 2;
+    private static final int INCR = 3;
+    private static final int DELETE = 4;
+    private static final int APPEND = 5;
+
+    private static final long LATENCY_WINDOW_MILLIS = 60000;
+
+    private final ConcurrentHistogram[] latencies = new ConcurrentHistogram[CATEGORIES.length];
+
+    private final ConcurrentHistogram valueSizes = new ConcurrentHistogram();
+
+    private final HotKeySketch hotKeys;
+
+    public MemcachedStatistics() {
+        this(64, 16);
+    }
+
+    /**
+     * @param hotKeysCapacity   the number of keys tracked by the hot keys sketch
+     * @param hotKeysSampleRate track one out of <code>hotKeysSampleRate</code> key accesses
+     */
+    public MemcachedStatistics(int hotKeysCapacity, int hotKeysSampleRate) {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+        }
+        this.hotKeys = new HotKeySketch(hotKeysCapacity, hotKeysSampleRate);
+    }
+
+    /**
+     * Records the time it took to serve the given command. Commands that do not fall into one of the
+     * {@link #CATEGORIES} are ignored.
+     */
+    public void recordCommand(Op op, long durationNanos) {
+        int category = category(op);
+        if (category >= 0) {
+            latencies[category].record(durationNanos / 1000);
+        }
+    }
+
+    public void recordValueSize(int size) {
+        valueSizes.record(size);
+    }
+
+    public void recordKeyAccess(Key key) {
+        hotKeys.offer(key);
+    }
+
+    /**
+     * Returns the latency histogram (in microseconds, over the last one to two minutes) of the given category, one
+     * of {@link #CATEGORIES}.
+     */
+    public ConcurrentHistogram getLatency(String category) {
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (CATEGORIES[i].equals(category)) {
+                return latencies[i];
+            }
+        }
+        throw new IllegalArgumentException("Unknown command category [" + category + "]");
+    }
+
+    public ConcurrentHistogram getValueSizes() {
+        return valueSizes;
+    }
+
+    public List<HotKeySketch.HotKey> getHotKeys(int n) {
+        return hotKeys.top(n);
+    }
+
+    private static int category(Op op) {
+        if (op == null) {
+            return -1;
+        }
+        switch (op) {
+            case GET:
+            case GETS:
+                return GET;
+            case SET:
+            case ADD:
+            case REPLACE:
+                return SET;
+            case CAS:
+                return CAS;
+            case INCR:
+            case DECR:
+                return INCR;
+            case DELETE:
+                return DELETE;
+            case APPEND:
+            case PREPEND:
+                return APPEND;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.memcached;
+
+import org.openspaces.core.GigaSpace;
+import org.openspaces.events.SpaceDataEventListener;
+import org.openspaces.events.notify.SimpleNotifyContainerConfigurer;
+import org.openspaces.events.notify.SimpleNotifyEventListenerContainer;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in process cache of hot {@link MemcachedEntry} values, placed in front of the space by {@link SpaceCache}.
+ * <p/>
+ * The cache is bounded both by number of entries and by total value size, evicting the least recently used
+ * entries (per segment) when exceeded. Cached values are invalidated by a notify container registered for writes,
+ * updates, takes and lease expirations of memcached entries (so memcached expiry is honored), and in any case
+ * live at most <code>timeToLive</code> milliseconds.
+ * <p/>
+ * In order not to cache a value that was changed while being read from the space, a value is only cached if no
+ * invalidation occurred in its segment since the read started (see {@link #getInvalidationStamp(Key)}).
+ */
+public class NearCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    private final long timeToLive;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private SimpleNotifyEventListenerContainer notifyContainer;
+
+    /**
+     * @param maxEntries the maximum number of entries held by the cache
+     * @param maxBytes   the maximum total size of the cached values
+     * @param timeToLive the maximum time (in milliseconds) a value is served from the cache
+     */
+    public NearCache(int maxEntries, long maxBytes, long timeToLive) {
+        this.timeToLive = timeToLive;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(Math.max(1, maxEntries / SEGMENTS), Math.max(1, maxBytes / SEGMENTS));
+        }
+    }
+
+    /**
+     * Registers the invalidation notifications against the given space.
+     */
+    public void start(GigaSpace space) {
+        notifyContainer = new SimpleNotifyContainerConfigurer(space)
+                .name("memcachedNearCache")
+                .template(new MemcachedEntry())
+                .notifyWrite(true)
+                .notifyUpdate(true)
+                .notifyTake(true)
+                .notifyLeaseExpire(true)
+                .activeWhenPrimary(false)
+                .eventListener(new SpaceDataEventListener<MemcachedEntry>() {
+                    public void onEvent(MemcachedEntry data, GigaSpace gigaSpace, TransactionStatus txStatus, Object source) {
+                        invalidate(data.getKey());
+                    }
+                }).notifyContainer();
+    }
+
+    public void close() {
+        if (notifyContainer != null) {
+            notifyContainer.destroy();
+            notifyContainer = null;
+        }
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the cached element for the given key, or <code>null</code> if it is not cached (or expired).
+     */
+    public LocalCacheElement get(Key key) {
+        CachedValue value = segmentFor(key).get(key);
+        if (value == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        LocalCacheElement element = new LocalCacheElement(key, value.flags, -1 /* not relevant, not sent back */, value.version);
+        element.setData(value.data);
+        return element;
+    }
+
+    /**
+     * Returns a stamp that should be taken before reading the entry of the given key from the space, and passed to
+     * {@link #put(MemcachedEntry, long)} once the entry was read.
+     */
+    public long getInvalidationStamp(Key key) {
+        return segmentFor(key).invalidations;
+    }
+
+    /**
+     * Caches the given entry, unless an invalidation happened since the given stamp was taken.
+     */
+    public void put(MemcachedEntry entry, long invalidationStamp) {
+        if (entry.getValue() == null) {
+            return;
+        }
+        CachedValue value = new CachedValue(entry.getFlags(), entry.getVersion(), entry.getValue(), System.currentTimeMillis() + timeToLive);
+        segmentFor(entry.getKey()).put(entry.getKey(), value, invalidationStamp);
+    }
+
+    public void invalidate(Key key) {
+        segmentFor(key).invalidate(key);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getSize() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segmentFor(Key key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (SEGMENTS - 1)];
+    }
+
+    private static final class CachedValue {
+        final int flags;
+        final int version;
+        final byte[] data;
+        final long expiresAt;
+
+        CachedValue(int flags, int version, byte[] data, long expiresAt) {
+            this.flags = flags;
+            this.version = version;
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment {
+
+        private final int maxEntries;
+
+        private final long maxBytes;
+
+        private final LinkedHashMap<Key, CachedValue> map = new LinkedHashMap<Key, CachedValue>(16, 0.75f, true);
+
+        private long bytes;
+
+        // incremented under the segment lock, read without it when taking a stamp
+        private volatile long invalidations;
+
+        Segment(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized CachedValue get(Key key) {
+            CachedValue value = map.get(key);
+            if (value == null) {
+                return null;
+            }
+            if (value.expiresAt < System.currentTimeMillis()) {
+                remove(key);
+                return null;
+            }
+            return value;
+        }
+
+        synchronized void put(Key key, CachedValue value, long invalidationStamp) {
+            // checked under the segment lock, invalidations of this key are done under it as well
+            if (invalidationStamp != invalidations || value.data.length > maxBytes) {
+                return;
+            }
+            remove(key);
+            map.put(key, value);
+            bytes += value.data.length;
+            Iterator<Map.Entry<Key, CachedValue>> it = map.entrySet().iterator();
+            while ((map.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+                CachedValue eldest = it.next().getValue();
+                bytes -= eldest.data.length;
+                it.remove();
+            }
+        }
+
+        synchronized void invalidate(Key key) {
+            invalidations++;
+            remove(key);
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized void clear() {
+            map.clear();
+            bytes = 0;
+        }
+
+        private void remove(Key key) {
+            CachedValue removed = map.remove(key);
+            if (removed != null) {
+                bytes -= removed.data.length;
+            }
+        }
+    }
+}
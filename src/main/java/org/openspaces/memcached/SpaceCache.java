@@ -17,18 +17,26 @@
  ******************************************************************************/
 package org.openspaces.memcached;
 
+import com.gigaspaces.client.ChangeModifiers;
+import com.gigaspaces.client.ChangeResult;
+import com.gigaspaces.client.ChangeSet;
 import com.gigaspaces.client.ReadByIdsResult;
+import com.gigaspaces.client.WriteModifiers;
+import com.gigaspaces.query.IdQuery;
 import com.j_spaces.core.client.UpdateModifiers;
 import org.openspaces.core.EntryAlreadyInSpaceException;
 import org.openspaces.core.EntryNotInSpaceException;
 import org.openspaces.core.GigaSpace;
 import org.openspaces.core.SpaceOptimisticLockingFailureException;
-import org.openspaces.memcached.util.BufferUtils;
+import org.openspaces.core.util.ConcurrentHistogram;
+import org.openspaces.extensions.ChangeExtension;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
@@ -41,6 +49,8 @@ import static java.lang.String.valueOf;
 public class SpaceCache {
 
     public final static int THIRTY_DAYS = 2592000;
+
+    private final static int HOT_KEYS_STATS_SIZE = 20;
     
     /**
      * Enum defining response statuses from set/add type commands
@@ -59,166 +69,273 @@ public class SpaceCache {
 
     private final GigaSpace space;
 
+    private final NearCache nearCache;
+
+    private final GetBatcher getBatcher;
+
+    private final ValueCompressor compressor;
+
+    private volatile LocalPartition localPartition;
+
+    private final MemcachedStatistics statistics = new MemcachedStatistics();
+
     protected final AtomicLong started = new AtomicLong();
     protected final AtomicLong getCmds = new AtomicLong();
     protected final AtomicLong setCmds = new AtomicLong();
     protected final AtomicLong getHits = new AtomicLong();
     protected final AtomicLong getMisses = new AtomicLong();
+    protected final AtomicLong localOps = new AtomicLong();
 
     public SpaceCache(GigaSpace space) {
+        this(space, null, null, null);
+    }
+
+    public SpaceCache(GigaSpace space, NearCache nearCache, GetBatcher getBatcher) {
+        this(space, nearCache, getBatcher, null);
+    }
+
+    /**
+     * @param space      the space holding the memcached entries
+     * @param nearCache  an optional (can be <code>null</code>) in process cache of hot entries, started by this cache
+     * @param getBatcher an optional (can be <code>null</code>) batcher used to coalesce single key gets
+     * @param compressor an optional (can be <code>null</code>) compressor of large values
+     */
+    public SpaceCache(GigaSpace space, NearCache nearCache, GetBatcher getBatcher, ValueCompressor compressor) {
         this.space = space;
+        this.nearCache = nearCache;
+        this.getBatcher = getBatcher;
+        this.compressor = compressor;
+        if (nearCache != null) {
+            nearCache.start(space);
+        }
         started.set(System.currentTimeMillis());
     }
 
     public DeleteResponse delete(Key key, int time) {
-        if (time > 0) {
-            // expire it later, removed from memcached, buts lets do it anyhow (but we do not block it!)
-            MemcachedEntry entry = space.readById(MemcachedEntry.class, key);
-            if (entry == null) {
-                return DeleteResponse.NOT_FOUND;
+        invalidate(key);
+        try {
+            if (time > 0) {
+                // expire it later, removed from memcached, buts lets do it anyhow (but we do not block it!)
+                GigaSpace target = spaceFor(key);
+                MemcachedEntry entry = target.readById(MemcachedEntry.class, key);
+                if (entry == null) {
+                    return DeleteResponse.NOT_FOUND;
+                }
+                target.write(entry, time);
+                return DeleteResponse.DELETED;
             }
-            space.write(entry, time);
-            return DeleteResponse.DELETED;
-        } 
-        MemcachedEntry entry = space.takeById(MemcachedEntry.class, key);
-        return entry == null ? DeleteResponse.NOT_FOUND : DeleteResponse.DELETED;
+            MemcachedEntry entry = spaceFor(key).takeById(MemcachedEntry.class, key);
+            return entry == null ? DeleteResponse.NOT_FOUND : DeleteResponse.DELETED;
+        } finally {
+            invalidate(key);
+        }
     }
 
     public StoreResponse add(LocalCacheElement e) {
         try {
-            MemcachedEntry entry = new MemcachedEntry(e.getKey(), e.getData());
-            entry.setFlags(e.getFlags());
-            space.write(entry, e.getExpire(), 0, UpdateModifiers.WRITE_ONLY);
+            invalidate(e.getKey());
+            statistics.recordValueSize(e.size());
+            MemcachedEntry entry = createEntry(e);
+            spaceFor(e.getKey()).write(entry, e.getExpire(), 0, UpdateModifiers.WRITE_ONLY);
             return StoreResponse.STORED;
         } catch (EntryAlreadyInSpaceException e1) {
             return StoreResponse.EXISTS;
+        } finally {
+            invalidate(e.getKey());
         }
     }
 
     public StoreResponse replace(LocalCacheElement e) {
         try {
-            MemcachedEntry entry = new MemcachedEntry(e.getKey(), e.getData());
-            entry.setFlags(e.getFlags());
-            space.write(entry, e.getExpire(), 0, UpdateModifiers.UPDATE_ONLY);
+            invalidate(e.getKey());
+            statistics.recordValueSize(e.size());
+            MemcachedEntry entry = createEntry(e);
+            spaceFor(e.getKey()).write(entry, e.getExpire(), 0, UpdateModifiers.UPDATE_ONLY);
             return StoreResponse.STORED;
         } catch (EntryNotInSpaceException e1) {
             return StoreResponse.NOT_FOUND;
+        } finally {
+            invalidate(e.getKey());
         }
     }
 
     public StoreResponse append(LocalCacheElement cacheElement) {
         // binary protocol allows to pass cas value, take it into account?
-        while (true) {
-            MemcachedEntry entry = space.readById(MemcachedEntry.class, cacheElement.getKey());
-            if (entry == null) {
-                getMisses.incrementAndGet();
-                return StoreResponse.NOT_FOUND;
-            }
-            byte[] newData = new byte[entry.getValue().length + cacheElement.getData().length];
-            System.arraycopy(entry.getValue(), 0, newData, 0, entry.getValue().length);
-            System.arraycopy(cacheElement.getData(), 0, newData, entry.getValue().length, cacheElement.getData().length);
-            entry.setValue(newData);
-            try {
-                space.write(entry);
-            } catch (SpaceOptimisticLockingFailureException e) {
-                continue;
-            }
-            return StoreResponse.STORED;
-        }
+        return concat(cacheElement, false);
     }
 
     public StoreResponse prepend(LocalCacheElement cacheElement) {
         // binary protocol allows to pass cas value, take it into account?
-        while (true) {
-            MemcachedEntry entry = space.readById(MemcachedEntry.class, cacheElement.getKey());
-            if (entry == null) {
-                getMisses.incrementAndGet();
-                return StoreResponse.NOT_FOUND;
-            }
-            byte[] newData = new byte[entry.getValue().length + cacheElement.getData().length];
-            System.arraycopy(cacheElement.getData(), 0, newData, 0, cacheElement.getData().length);
-            System.arraycopy(entry.getValue(), 0, newData, cacheElement.getData().length, entry.getValue().length);
-            entry.setValue(newData);
-            try {
-                space.write(entry);
-            } catch (SpaceOptimisticLockingFailureException e) {
-                continue;
-            }
-            return StoreResponse.STORED;
+        return concat(cacheElement, true);
+    }
+
+    /**
+     * Appends/prepends the data within the space partition owning the key, in a single atomic change.
+     */
+    private StoreResponse concat(LocalCacheElement cacheElement, boolean prepend) {
+        invalidate(cacheElement.getKey());
+        statistics.recordValueSize(cacheElement.size());
+        ChangeResult<MemcachedEntry> result;
+        try {
+            result = spaceFor(cacheElement.getKey()).change(idQuery(cacheElement.getKey()),
+                    new ChangeSet().custom(new AppendChangeOperation(cacheElement.getData(), prepend)));
+        } finally {
+            invalidate(cacheElement.getKey());
         }
+        if (result.getNumberOfChangedEntries() == 0) {
+            getMisses.incrementAndGet();
+            return StoreResponse.NOT_FOUND;
+        }
+        return StoreResponse.STORED;
     }
 
     public StoreResponse set(LocalCacheElement e) {
         setCmds.incrementAndGet();//update stats
-        MemcachedEntry entry = new MemcachedEntry(e.getKey(), e.getData());
-        entry.setFlags(e.getFlags());
-        space.write(entry, e.getExpire());
+        invalidate(e.getKey());
+        statistics.recordValueSize(e.size());
+        MemcachedEntry entry = createEntry(e);
+        try {
+            spaceFor(e.getKey()).write(entry, e.getExpire());
+        } finally {
+            invalidate(e.getKey());
+        }
         return StoreResponse.STORED;
     }
 
+    /**
+     * Stores all the given elements using a single bulk write. The elements must have distinct keys.
+     */
+    public StoreResponse[] setMultiple(LocalCacheElement[] elements) {
+        setCmds.addAndGet(elements.length);//update stats
+        MemcachedEntry[] entries = new MemcachedEntry[elements.length];
+        long[] leases = new long[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            LocalCacheElement e = elements[i];
+            invalidate(e.getKey());
+            statistics.recordValueSize(e.size());
+            entries[i] = createEntry(e);
+            leases[i] = e.getExpire();
+        }
+        try {
+            space.writeMultiple(entries, leases, WriteModifiers.UPDATE_OR_WRITE);
+        } finally {
+            for (LocalCacheElement e : elements) {
+                invalidate(e.getKey());
+            }
+        }
+        StoreResponse[] responses = new StoreResponse[elements.length];
+        Arrays.fill(responses, StoreResponse.STORED);
+        return responses;
+    }
+
     public StoreResponse cas(Long cas_key, LocalCacheElement e) {
         try {
-            MemcachedEntry entry = new MemcachedEntry(e.getKey(), e.getData());
-            entry.setFlags(e.getFlags());
+            invalidate(e.getKey());
+            statistics.recordValueSize(e.size());
+            MemcachedEntry entry = createEntry(e);
             entry.setVersion(cas_key.intValue());
-            space.write(entry, e.getExpire(), 0, UpdateModifiers.UPDATE_ONLY);
+            spaceFor(e.getKey()).write(entry, e.getExpire(), 0, UpdateModifiers.UPDATE_ONLY);
             return StoreResponse.STORED;
         } catch (SpaceOptimisticLockingFailureException e1) {
             return StoreResponse.EXISTS;
         } catch (EntryNotInSpaceException e1) {
             getMisses.incrementAndGet();
             return StoreResponse.NOT_FOUND;
+        } finally {
+            invalidate(e.getKey());
         }
     }
 
     public Integer get_add(Key key, int mod) {
-        while (true) {
-            MemcachedEntry entry = space.readById(MemcachedEntry.class, key);
-            if (entry == null) {
-                getMisses.incrementAndGet();
-                return null;
-            }
-            int val = BufferUtils.atoi(entry.getValue()) + mod; // change value
-            if (val < 0) {
-                val = 0;
-
-            } // check for underflow
-
-            entry.setValue(BufferUtils.itoa(val));
-
-            try {
-                space.write(entry);
-            } catch (SpaceOptimisticLockingFailureException e) {
-                continue;
-            }
-            return val;
+        invalidate(key);
+        ChangeResult<MemcachedEntry> result;
+        try {
+            result = spaceFor(key).change(idQuery(key),
+                    new ChangeSet().custom(new IncrDecrChangeOperation(mod)), ChangeModifiers.RETURN_DETAILED_RESULTS);
+        } finally {
+            invalidate(key);
+        }
+        Integer val = ChangeExtension.getSingleChangeOperationResult(result);
+        if (val == null) {
+            getMisses.incrementAndGet();
         }
+        return val;
     }
 
     public LocalCacheElement[] get(Key... keys) {
         getCmds.incrementAndGet();//updates stats
+        for (Key key : keys) {
+            statistics.recordKeyAccess(key);
+        }
         try {
             if (keys.length == 1) {
-                MemcachedEntry entry = space.readById(MemcachedEntry.class, keys[0]);
+                LocalCacheElement element = nearCache != null ? nearCache.get(keys[0]) : null;
+                if (element != null) {
+                    getHits.incrementAndGet();
+                    return new LocalCacheElement[]{element};
+                }
+                long invalidationStamp = nearCache != null ? nearCache.getInvalidationStamp(keys[0]) : 0;
+                MemcachedEntry entry;
+                GigaSpace target = spaceFor(keys[0]);
+                if (getBatcher != null && target == space) {
+                    entry = getBatcher.get(keys[0]);
+                } else {
+                    entry = target.readById(MemcachedEntry.class, keys[0]);
+                }
                 if (entry == null) {
                     getMisses.incrementAndGet();
                     return new LocalCacheElement[]{null};
                 }
+                entry = inflate(entry);
+                if (nearCache != null) {
+                    nearCache.put(entry, invalidationStamp);
+                }
                 getHits.incrementAndGet();
                 return new LocalCacheElement[]{convert(entry)};
             } 
             int hits = 0;
             int misses = 0;
             LocalCacheElement[] retVal = new LocalCacheElement[keys.length];
-            ReadByIdsResult<MemcachedEntry> result = space.readByIds(MemcachedEntry.class, keys);
-            for (int i = 0; i < result.getResultsArray().length; i++) {
-                MemcachedEntry entry = result.getResultsArray()[i];
-                if (entry == null) {
-                    misses++;
-                    retVal[i] = null;
-                } else {
+            // the positions (within keys) of the keys that need to be read from the space
+            int[] remoteIndexes = new int[keys.length];
+            int remoteCount = 0;
+            for (int i = 0; i < keys.length; i++) {
+                LocalCacheElement element = nearCache != null ? nearCache.get(keys[i]) : null;
+                if (element != null) {
                     hits++;
-                    retVal[i] = convert(entry);
+                    retVal[i] = element;
+                } else {
+                    remoteIndexes[remoteCount++] = i;
+                }
+            }
+            if (remoteCount > 0) {
+                Key[] remoteKeys = keys;
+                if (remoteCount != keys.length) {
+                    remoteKeys = new Key[remoteCount];
+                    for (int i = 0; i < remoteCount; i++) {
+                        remoteKeys[i] = keys[remoteIndexes[i]];
+                    }
+                }
+                long[] invalidationStamps = new long[remoteCount];
+                if (nearCache != null) {
+                    for (int i = 0; i < remoteCount; i++) {
+                        invalidationStamps[i] = nearCache.getInvalidationStamp(remoteKeys[i]);
+                    }
+                }
+                ReadByIdsResult<MemcachedEntry> result = space.readByIds(MemcachedEntry.class, remoteKeys);
+                for (int i = 0; i < result.getResultsArray().length; i++) {
+                    MemcachedEntry entry = result.getResultsArray()[i];
+                    if (entry == null) {
+                        misses++;
+                        retVal[remoteIndexes[i]] = null;
+                    } else {
+                        hits++;
+                        entry = inflate(entry);
+                        if (nearCache != null) {
+                            nearCache.put(entry, invalidationStamps[i]);
+                        }
+                        retVal[remoteIndexes[i]] = convert(entry);
+                    }
                 }
             }
             getMisses.addAndGet(misses);
@@ -238,6 +355,12 @@ public class SpaceCache {
     }
 
     public void close() throws IOException {
+        if (getBatcher != null) {
+            getBatcher.close();
+        }
+        if (nearCache != null) {
+            nearCache.close();
+        }
     }
 
     public long getCurrentItems() {
@@ -268,15 +391,110 @@ public class SpaceCache {
         return getMisses.get();
     }
 
+    /**
+     * Returns the get batcher, or <code>null</code> if gets are not batched.
+     */
+    public GetBatcher getGetBatcher() {
+        return getBatcher;
+    }
+
+    /**
+     * Returns the latency, value size and hot keys statistics of this cache.
+     */
+    public MemcachedStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets the partition co-located with this cache. Operations on keys owned by it (while it is primary) are
+     * executed directly against it.
+     */
+    public void setLocalPartition(LocalPartition localPartition) {
+        this.localPartition = localPartition;
+    }
+
+    public LocalPartition getLocalPartition() {
+        return localPartition;
+    }
+
+    /**
+     * Returns the number of single key operations executed directly against the co-located partition.
+     */
+    public long getLocalOps() {
+        return localOps.get();
+    }
+
+    /**
+     * Returns the value compressor, or <code>null</code> if values are not compressed.
+     */
+    public ValueCompressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * Returns the in process near cache, or <code>null</code> if not enabled.
+     */
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
     public Map<String, Set<String>> stat(String arg) {
         Map<String, Set<String>> result = new HashMap<String, Set<String>>();
 
+        if ("routing".equals(arg)) {
+            MemcachedEndpoint[] endpoints = space.readMultiple(new MemcachedEndpoint(), Integer.MAX_VALUE);
+            int numberOfPartitions = 0;
+            for (MemcachedEndpoint endpoint : endpoints) {
+                numberOfPartitions = endpoint.getNumberOfPartitions();
+                multiSet(result, "partition_" + endpoint.getPartitionId(), endpoint.getHost() + ":" + endpoint.getPort());
+            }
+            multiSet(result, "partitions", valueOf(numberOfPartitions));
+            return result;
+        }
+        if ("hotkeys".equals(arg)) {
+            List<HotKeySketch.HotKey> hotKeys = statistics.getHotKeys(HOT_KEYS_STATS_SIZE);
+            for (int i = 0; i < hotKeys.size(); i++) {
+                multiSet(result, "hotkey_" + i, hotKeys.get(i).toString());
+            }
+            return result;
+        }
+
         // stats we know
         multiSet(result, "version", MemCacheDaemon.memcachedVersion);
         multiSet(result, "cmd_gets", valueOf(getGetCmds()));
         multiSet(result, "cmd_sets", valueOf(getSetCmds()));
         multiSet(result, "get_hits", valueOf(getGetHits()));
         multiSet(result, "get_misses", valueOf(getGetMisses()));
+        if (getBatcher != null) {
+            multiSet(result, "get_batches", valueOf(getBatcher.getBatches()));
+            multiSet(result, "batched_gets", valueOf(getBatcher.getBatchedGets()));
+        }
+        if (localPartition != null) {
+            multiSet(result, "local_ops", valueOf(getLocalOps()));
+        }
+        if (compressor != null) {
+            multiSet(result, "compressed_values", valueOf(compressor.getCompressedValues()));
+            multiSet(result, "compression_ratio", valueOf(compressor.getCompressionRatio()));
+            multiSet(result, "compress_time_us", valueOf(compressor.getCompressTime() / 1000));
+            multiSet(result, "decompress_time_us", valueOf(compressor.getDecompressTime() / 1000));
+        }
+        if (nearCache != null) {
+            multiSet(result, "near_cache_hits", valueOf(nearCache.getHits()));
+            multiSet(result, "near_cache_misses", valueOf(nearCache.getMisses()));
+            multiSet(result, "near_cache_items", valueOf(nearCache.getSize()));
+        }
+        for (String category : MemcachedStatistics.CATEGORIES) {
+            ConcurrentHistogram latency = statistics.getLatency(category);
+            multiSet(result, category + "_count", valueOf(latency.getCount()));
+            multiSet(result, category + "_latency_p50_us", valueOf(latency.getPercentile(50)));
+            multiSet(result, category + "_latency_p99_us", valueOf(latency.getPercentile(99)));
+            multiSet(result, category + "_latency_p999_us", valueOf(latency.getPercentile(99.9)));
+            multiSet(result, category + "_latency_max_us", valueOf(latency.getMax()));
+        }
+        ConcurrentHistogram valueSizes = statistics.getValueSizes();
+        multiSet(result, "value_size_p50", valueOf(valueSizes.getPercentile(50)));
+        multiSet(result, "value_size_p99", valueOf(valueSizes.getPercentile(99)));
+        multiSet(result, "value_size_max", valueOf(valueSizes.getMax()));
         multiSet(result, "time", valueOf(valueOf(System.currentTimeMillis())));
         multiSet(result, "uptime", valueOf(System.currentTimeMillis() - this.started.longValue()));
         multiSet(result, "cur_items", valueOf(this.getCurrentItems()));
@@ -312,6 +530,45 @@ public class SpaceCache {
         // nothing to do here
     }
 
+    /**
+     * Invalidates the near cached value of the given key. Called both before and after changing the entry in the
+     * space, so a value read concurrently with the change is not left cached.
+     */
+    private void invalidate(Key key) {
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+    }
+
+    /**
+     * Returns the co-located partition proxy if it owns the key, or the (clustered) space otherwise.
+     */
+    private GigaSpace spaceFor(Key key) {
+        LocalPartition partition = localPartition;
+        if (partition != null && partition.owns(key)) {
+            localOps.incrementAndGet();
+            return partition.getSpace();
+        }
+        return space;
+    }
+
+    private MemcachedEntry createEntry(LocalCacheElement e) {
+        if (compressor != null) {
+            return compressor.createEntry(e);
+        }
+        MemcachedEntry entry = new MemcachedEntry(e.getKey(), e.getData());
+        entry.setFlags(e.getFlags());
+        return entry;
+    }
+
+    private MemcachedEntry inflate(MemcachedEntry entry) {
+        return compressor != null ? compressor.inflate(entry) : entry;
+    }
+
+    private IdQuery<MemcachedEntry> idQuery(Key key) {
+        return new IdQuery<MemcachedEntry>(MemcachedEntry.class, key);
+    }
+
     private LocalCacheElement convert(MemcachedEntry entry) throws UnsupportedEncodingException {
         LocalCacheElement element = new LocalCacheElement(entry.getKey(), entry.getFlags(), -1 /* not relevant, not sent back */, entry.getVersion());
         element.setData(entry.getValue());
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.memcached;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses large {@link MemcachedEntry} values before they are written to the space, so they are held and
+ * replicated compressed, and inflates them back when read.
+ * <p/>
+ * Values smaller than the threshold, or that do not shrink, are stored as is. Whether a value is compressed is
+ * marked by {@link MemcachedEntry#isCompressed()}, leaving the memcached flags of the client untouched.
+ * <p/>
+ * The compressed format is the uncompressed length (4 bytes, big endian) followed by raw deflate data.
+ */
+public class ValueCompressor {
+
+    private final int threshold;
+
+    private final int level;
+
+    private final AtomicLong compressedValues = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressTime = new AtomicLong();
+    private final AtomicLong decompressTime = new AtomicLong();
+
+    /**
+     * @param threshold the minimum size, in bytes, of values that are compressed
+     * @param level     the deflate compression level, see {@link Deflater}
+     */
+    public ValueCompressor(int threshold, int level) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("compression threshold must be positive, got [" + threshold + "]");
+        }
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    /**
+     * Creates a space entry for the given element, compressing its value if needed.
+     */
+    public MemcachedEntry createEntry(LocalCacheElement element) {
+        MemcachedEntry entry = new MemcachedEntry(element.getKey(), element.getData());
+        entry.setFlags(element.getFlags());
+        byte[] value = element.getData();
+        if (value != null && value.length >= threshold) {
+            byte[] compressed = compress(value);
+            if (compressed != null) {
+                entry.setValue(compressed);
+                entry.setCompressed(true);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the given entry (read from the space) if its value is not compressed, or a copy of it holding the
+     * inflated value. The read entry itself is not changed, as it might be shared (for example by a local cache).
+     */
+    public MemcachedEntry inflate(MemcachedEntry entry) {
+        if (!entry.isCompressed() || entry.getValue() == null) {
+            return entry;
+        }
+        long start = System.nanoTime();
+        MemcachedEntry inflated = new MemcachedEntry(entry.getKey(), decompress(entry.getValue()));
+        inflated.setFlags(entry.getFlags());
+        inflated.setVersion(entry.getVersion());
+        decompressTime.addAndGet(System.nanoTime() - start);
+        return inflated;
+    }
+
+    /**
+     * Returns the compressed value, or <code>null</code> if compressing it does not save space.
+     */
+    byte[] compress(byte[] value) {
+        if (value.length <= 4) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            // no point in keeping a compressed value that does not save anything
+            byte[] buffer = new byte[value.length];
+            buffer[0] = (byte) (value.length >>> 24);
+            buffer[1] = (byte) (value.length >>> 16);
+            buffer[2] = (byte) (value.length >>> 8);
+            buffer[3] = (byte) value.length;
+            int length = 4;
+            while (!deflater.finished() && length < buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            byte[] compressed = new byte[length];
+            System.arraycopy(buffer, 0, compressed, 0, length);
+            compressedValues.incrementAndGet();
+            uncompressedBytes.addAndGet(value.length);
+            compressedBytes.addAndGet(length);
+            return compressed;
+        } finally {
+            deflater.end();
+            compressTime.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Inflates a value compressed by this class. Stateless, so it can also be used within the space (for example
+     * by change operations).
+     */
+    public static byte[] decompress(byte[] compressed) {
+        int length = ((compressed[0] & 0xFF) << 24) | ((compressed[1] & 0xFF) << 16)
+                | ((compressed[2] & 0xFF) << 8) | (compressed[3] & 0xFF);
+        byte[] value = new byte[length];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed, 4, compressed.length - 4);
+            int offset = 0;
+            while (offset < length) {
+                int read = inflater.inflate(value, offset, length - offset);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += read;
+            }
+            if (offset != length) {
+                throw new IllegalStateException("Corrupted compressed memcached value, expected [" + length + "] bytes, inflated [" + offset + "]");
+            }
+            return value;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed memcached value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns the number of values stored compressed.
+     */
+    public long getCompressedValues() {
+        return compressedValues.get();
+    }
+
+    /**
+     * Returns the ratio between the compressed and the uncompressed size of the values stored compressed
+     * (<code>1</code> if none were compressed).
+     */
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.get();
+        return uncompressed == 0 ? 1 : (double) compressedBytes.get() / uncompressed;
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, spent compressing values (including values that did not compress).
+     */
+    public long getCompressTime() {
+        return compressTime.get();
+    }
+
+    /**
+     * Returns the total time, in nanoseconds, spent inflating values.
+     */
+    public long getDecompressTime() {
+        return decompressTime.get();
+    }
+}
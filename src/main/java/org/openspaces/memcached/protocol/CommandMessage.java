@@ -20,6 +20,7 @@ import org.openspaces.memcached.LocalCacheElement;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -51,12 +52,16 @@ public final class CommandMessage implements Serializable {
     private CommandMessage(Op op) {
         this.op = op;
         element = null;
-        keys = new ArrayList<Key>();
+        keys = Collections.emptyList();
     }
 
     public void setKey(byte[] key) {
-        this.keys = new ArrayList<Key>();
-        this.keys.add(new Key(key));
+        setKey(new Key(key));
+    }
+
+    public void setKey(Key key) {
+        this.keys = new ArrayList<Key>(1);
+        this.keys.add(key);
     }
 
     public void setKeys(Iterable<byte[]> keys) {
@@ -23,6 +23,7 @@ import org.jboss.netty.channel.group.DefaultChannelGroup;
 import org.openspaces.memcached.*;
 import org.openspaces.memcached.protocol.exceptions.UnknownCommandException;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 // TODO implement flush_all delay
@@ -124,6 +125,10 @@ public final class MemcachedCommandHandler extends SimpleChannelUpstreamHandler
 
     @Override
     public void messageReceived(ChannelHandlerContext channelHandlerContext, MessageEvent messageEvent) throws Exception {
+        if (messageEvent.getMessage() instanceof QuietCommandBatch) {
+            handleQuietBatch(channelHandlerContext, (QuietCommandBatch) messageEvent.getMessage(), messageEvent.getChannel());
+            return;
+        }
         if (!(messageEvent.getMessage() instanceof CommandMessage)) {
             // Ignore what this encoder can't encode.
             channelHandlerContext.sendUpstream(messageEvent);
@@ -151,6 +156,15 @@ public final class MemcachedCommandHandler extends SimpleChannelUpstreamHandler
         }
 
         Channel channel = messageEvent.getChannel();
+        long startTime = System.nanoTime();
+        try {
+            dispatch(channelHandlerContext, command, cmd, cmdKeysSize, channel);
+        } finally {
+            cache.getStatistics().recordCommand(cmd, System.nanoTime() - startTime);
+        }
+    }
+
+    private void dispatch(ChannelHandlerContext channelHandlerContext, CommandMessage command, Op cmd, int cmdKeysSize, Channel channel) throws Exception {
         if (cmd == Op.GET || cmd == Op.GETS) {
             handleGets(channelHandlerContext, command, channel);
         } else if (cmd == Op.SET) {
@@ -189,7 +203,47 @@ public final class MemcachedCommandHandler extends SimpleChannelUpstreamHandler
             throw new UnknownCommandException("unknown command:" + cmd);
 
         }
+    }
 
+    /**
+     * Executes a run of quiet gets or sets as a single bulk read or write, and produces a response per command,
+     * in order.
+     */
+    protected void handleQuietBatch(ChannelHandlerContext channelHandlerContext, QuietCommandBatch batch, Channel channel) throws Exception {
+        cache.asyncEventPing();
+        List<CommandMessage> commands = batch.getCommands();
+        int size = commands.size();
+        if (this.verbose) {
+            logger.info(batch.getOp() + " batch of " + size + " quiet commands");
+        }
+        long startTime = System.nanoTime();
+        ResponseMessage[] responses = new ResponseMessage[size];
+        if (batch.getOp() == Op.GET) {
+            Key[] keys = new Key[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = commands.get(i).keys.get(0);
+            }
+            LocalCacheElement[] results = cache.get(keys);
+            for (int i = 0; i < size; i++) {
+                responses[i] = new ResponseMessage(commands.get(i)).withElements(new LocalCacheElement[]{results[i]});
+            }
+        } else if (batch.getOp() == Op.SET) {
+            LocalCacheElement[] elements = new LocalCacheElement[size];
+            for (int i = 0; i < size; i++) {
+                elements[i] = commands.get(i).element;
+            }
+            SpaceCache.StoreResponse[] results = cache.setMultiple(elements);
+            for (int i = 0; i < size; i++) {
+                responses[i] = new ResponseMessage(commands.get(i)).withResponse(results[i]);
+            }
+        } else {
+            throw new UnknownCommandException("unsupported quiet batch command:" + batch.getOp());
+        }
+        long averageTime = (System.nanoTime() - startTime) / size;
+        for (int i = 0; i < size; i++) {
+            cache.getStatistics().recordCommand(batch.getOp(), averageTime);
+            Channels.fireMessageReceived(channelHandlerContext, responses[i], channel.getRemoteAddress());
+        }
     }
 
     protected void handleNoOp(ChannelHandlerContext channelHandlerContext, CommandMessage command) {
@@ -15,6 +15,9 @@
  */
 package org.openspaces.memcached.protocol;
 
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.openspaces.memcached.util.BufferUtils;
+
 import java.util.Arrays;
 
 /**
@@ -24,7 +27,9 @@ public enum Op {
     INCR, REPLACE, ADD, SET, CAS, STATS, VERSION,
     QUIT, FLUSH_ALL, VERBOSITY;
 
-    private static byte[][] ops = new byte[Op.values().length][];
+    private static final Op[] VALUES = Op.values();
+
+    private static byte[][] ops = new byte[VALUES.length][];
 
     static {
         for (int x = 0 ; x < Op.values().length; x++)
@@ -33,8 +38,18 @@ public enum Op {
 
     public static Op findOp(byte[] cmd) {
         for (int x = 0 ; x < ops.length; x++) {
-            if (Arrays.equals(cmd, ops[x])) return Op.values()[x];
+            if (Arrays.equals(cmd, ops[x])) return VALUES[x];
+        }
+        return null;
+    }
+
+    /**
+     * Same as {@link #findOp(byte[])}, matching the command name in place within the given buffer region.
+     */
+    public static Op findOp(ChannelBuffer buffer, int index, int length) {
+        for (int x = 0 ; x < ops.length; x++) {
+            if (BufferUtils.equals(buffer, index, length, ops[x])) return VALUES[x];
         }
         return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ *
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.openspaces.memcached.protocol;
+
+import com.j_spaces.kernel.threadpool.DynamicExecutors;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.handler.execution.ChannelEventRunnable;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A bounded executor shared by all the memcached pipelines of a single daemon.
+ * <p/>
+ * Events are executed in order per channel: each channel holds its own pending events, and at most one
+ * task per channel is handed to the underlying bounded thread pool at any given time. When the pool and
+ * its queue are exhausted the configured {@link RejectionPolicy} is applied.
+ */
+public class OrderedChannelExecutor implements Executor {
+
+    protected final static Log logger = LogFactory.getLog(OrderedChannelExecutor.class);
+
+    /**
+     * Controls what happens when the worker pool is saturated.
+     */
+    public static enum RejectionPolicy {
+        /**
+         * Run the channel events on the I/O thread that received them, slowing down reads (back pressure).
+         */
+        CALLER_RUNS,
+        /**
+         * Drop the pending events of the channel and close it.
+         */
+        ABORT
+    }
+
+    private final ThreadPoolExecutor pool;
+
+    private final RejectionPolicy rejectionPolicy;
+
+    private final ConcurrentMap<Channel, ChildExecutor> childExecutors = new ConcurrentHashMap<Channel, ChildExecutor>();
+
+    public OrderedChannelExecutor(int coreThreads, int maxThreads, int queueSize, RejectionPolicy rejectionPolicy) {
+        if (coreThreads < 0 || maxThreads <= 0 || maxThreads < coreThreads) {
+            throw new IllegalArgumentException("Illegal worker threads configuration, core [" + coreThreads + "] max [" + maxThreads + "]");
+        }
+        BlockingQueue<Runnable> queue;
+        if (queueSize > 0) {
+            queue = new ArrayBlockingQueue<Runnable>(queueSize);
+        } else {
+            queue = new SynchronousQueue<Runnable>();
+        }
+        this.pool = new ThreadPoolExecutor(coreThreads, maxThreads, 60, TimeUnit.SECONDS, queue,
+                DynamicExecutors.daemonThreadFactory("memcached"), new ThreadPoolExecutor.AbortPolicy());
+        this.rejectionPolicy = rejectionPolicy == null ? RejectionPolicy.CALLER_RUNS : rejectionPolicy;
+    }
+
+    public void execute(Runnable task) {
+        if (!(task instanceof ChannelEventRunnable)) {
+            pool.execute(task);
+            return;
+        }
+        Channel channel = ((ChannelEventRunnable) task).getEvent().getChannel();
+        getChildExecutor(channel).execute(task);
+    }
+
+    /**
+     * Returns the number of channel tasks waiting for a worker thread.
+     */
+    public int getQueueSize() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Returns the number of worker threads currently executing channel events.
+     */
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    /**
+     * Returns the current number of worker threads.
+     */
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+        childExecutors.clear();
+    }
+
+    private ChildExecutor getChildExecutor(final Channel channel) {
+        ChildExecutor executor = childExecutors.get(channel);
+        if (executor == null) {
+            executor = new ChildExecutor(channel);
+            ChildExecutor existing = childExecutors.putIfAbsent(channel, executor);
+            if (existing != null) {
+                return existing;
+            }
+            channel.getCloseFuture().addListener(new ChannelFutureListener() {
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    childExecutors.remove(channel);
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Serializes the events of a single channel on top of the shared pool.
+     */
+    private final class ChildExecutor implements Executor, Runnable {
+
+        private final Channel channel;
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        ChildExecutor(Channel channel) {
+            this.channel = channel;
+        }
+
+        public void execute(Runnable task) {
+            tasks.add(task);
+            if (running.compareAndSet(false, true)) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            if (pool.isShutdown()) {
+                tasks.clear();
+                running.set(false);
+                return;
+            }
+            try {
+                pool.execute(this);
+            } catch (RejectedExecutionException e) {
+                if (rejectionPolicy == RejectionPolicy.CALLER_RUNS) {
+                    run();
+                } else {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("Memcached worker pool is saturated, closing channel [" + channel + "]");
+                    }
+                    tasks.clear();
+                    running.set(false);
+                    channel.close();
+                }
+            }
+        }
+
+        public void run() {
+            boolean drained = false;
+            try {
+                while (true) {
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        running.set(false);
+                        // a task might have been added after the poll and before the flag was reset
+                        if (tasks.isEmpty() || !running.compareAndSet(false, true)) {
+                            drained = true;
+                            return;
+                        }
+                        continue;
+                    }
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        logger.error("Failed to execute memcached channel event", e);
+                    }
+                }
+            } finally {
+                if (!drained) {
+                    // an error escaped a task, hand the following events of the channel to another worker
+                    running.set(false);
+                    if (!tasks.isEmpty() && running.compareAndSet(false, true)) {
+                        submit();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.memcached.protocol;
+
+import java.util.List;
+
+/**
+ * A run of consecutive quiet commands of the same kind (for example binary <code>getq</code> or <code>setq</code>)
+ * which were received together, and can be executed against the space as a single bulk operation.
+ * <p/>
+ * Commands are kept in the order they were received in, and the responses are produced in the same order.
+ */
+public final class QuietCommandBatch {
+
+    private final Op op;
+
+    private final List<CommandMessage> commands;
+
+    public QuietCommandBatch(Op op, List<CommandMessage> commands) {
+        this.op = op;
+        this.commands = commands;
+    }
+
+    /**
+     * Returns the operation shared by all the commands of the batch.
+     */
+    public Op getOp() {
+        return op;
+    }
+
+    public List<CommandMessage> getCommands() {
+        return commands;
+    }
+
+    public int size() {
+        return commands.size();
+    }
+}
@@ -17,7 +17,6 @@
  ******************************************************************************/
 package org.openspaces.memcached.protocol;
 
-import com.j_spaces.kernel.threadpool.DynamicExecutors;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
@@ -32,8 +31,6 @@ import org.openspaces.memcached.protocol.text.MemcachedCommandDecoder;
 import org.openspaces.memcached.protocol.text.MemcachedFrameDecoder;
 import org.openspaces.memcached.protocol.text.MemcachedResponseEncoder;
 
-import java.util.concurrent.Executors;
-
 /**
  * @author kimchy (shay.banon)
  */
@@ -47,16 +44,20 @@ public class UnifiedProtocolDecoder extends FrameDecoder {
     public final int idle_limit;
     public final boolean verbose;
 
-    private final boolean threaded;
+    private final ExecutionHandler executionHandler;
 
+    /**
+     * @param executionHandler the execution handler shared by all the daemon pipelines, or <code>null</code>
+     *                         to process commands on the I/O threads
+     */
     public UnifiedProtocolDecoder(SpaceCache cache, DefaultChannelGroup channelGroup, String version, int idle_limit, boolean verbose,
-                                  boolean threaded) {
+                                  ExecutionHandler executionHandler) {
         this.cache = cache;
         this.channelGroup = channelGroup;
         this.version = version;
         this.idle_limit = idle_limit;
         this.verbose = verbose;
-        this.threaded = threaded;
+        this.executionHandler = executionHandler;
     }
 
     @Override
@@ -70,8 +71,8 @@ public class UnifiedProtocolDecoder extends FrameDecoder {
             // binary protocol
             ChannelPipeline p = ctx.getPipeline();
             p.addLast("decoder", new MemcachedBinaryCommandDecoder());
-            if (threaded) {
-                p.addLast("executor", new ExecutionHandler(Executors.newCachedThreadPool(DynamicExecutors.daemonThreadFactory("memcached"))));
+            if (executionHandler != null) {
+                p.addLast("executor", executionHandler);
             }
             p.addLast("handler", new MemcachedCommandHandler(cache, version, verbose, idle_limit, channelGroup));
             p.addLast("encoder", new MemcachedBinaryResponseEncoder());
@@ -81,8 +82,8 @@ public class UnifiedProtocolDecoder extends FrameDecoder {
             ChannelPipeline p = ctx.getPipeline();
             p.addLast("frame", new MemcachedFrameDecoder(status, 32768 * 1024));
             p.addLast("decoder", new MemcachedCommandDecoder(status));
-            if (threaded) {
-                p.addLast("executor", new ExecutionHandler(Executors.newCachedThreadPool(DynamicExecutors.daemonThreadFactory("memcached"))));
+            if (executionHandler != null) {
+                p.addLast("executor", executionHandler);
             }
             p.addLast("handler", new MemcachedCommandHandler(cache, version, verbose, idle_limit, channelGroup));
             p.addLast("encoder", new MemcachedResponseEncoder());
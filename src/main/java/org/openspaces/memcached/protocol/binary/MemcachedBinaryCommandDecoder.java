@@ -20,7 +20,6 @@ package org.openspaces.memcached.protocol.binary;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelHandler;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.handler.codec.frame.FrameDecoder;
 import org.openspaces.memcached.Key;
@@ -28,19 +27,32 @@ import org.openspaces.memcached.LocalCacheElement;
 import org.openspaces.memcached.SpaceCache;
 import org.openspaces.memcached.protocol.CommandMessage;
 import org.openspaces.memcached.protocol.Op;
+import org.openspaces.memcached.protocol.QuietCommandBatch;
 import org.openspaces.memcached.protocol.exceptions.MalformedCommandException;
+import org.openspaces.memcached.protocol.exceptions.UnknownCommandException;
 
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
+ * Decodes binary protocol frames into {@link CommandMessage}s.
+ * <p/>
+ * Runs of quiet <code>getq</code>/<code>getkq</code> or <code>setq</code> commands that are already fully
+ * received are decoded together into a single {@link QuietCommandBatch}, allowing the handler to execute them as a
+ * single bulk space operation. Batching never waits for more data, so it does not add latency.
+ * <p/>
+ * Note, this decoder holds the cumulated buffer of a channel, and can not be shared between pipelines.
  */
-@ChannelHandler.Sharable
 public class MemcachedBinaryCommandDecoder extends FrameDecoder {
 
     public static final Charset USASCII = Charset.forName("US-ASCII");
 
+    public static final int DEFAULT_MAX_QUIET_BATCH_SIZE = 256;
+
     public static enum BinaryOp {
         Get(0x00, Op.GET, false),
         Set(0x01, Op.SET, false),
@@ -51,7 +63,7 @@ public class MemcachedBinaryCommandDecoder extends FrameDecoder {
         Decrement(0x06, Op.DECR, false),
         Quit(0x07, Op.QUIT, false),
         Flush(0x08, Op.FLUSH_ALL, false),
-        GetQ(0x09, Op.GET, false),
+        GetQ(0x09, Op.GET, true),
         Noop(0x0A, null, false),
         Version(0x0B, Op.VERSION, false),
         GetK(0x0C, Op.GET, false, true),
@@ -124,9 +136,67 @@ public class MemcachedBinaryCommandDecoder extends FrameDecoder {
 
     }
 
+    private final int maxQuietBatchSize;
+
+    public MemcachedBinaryCommandDecoder() {
+        this(DEFAULT_MAX_QUIET_BATCH_SIZE);
+    }
+
+    /**
+     * @param maxQuietBatchSize the maximum number of quiet commands decoded into a single batch, <code>1</code>
+     *                          disables batching
+     */
+    public MemcachedBinaryCommandDecoder(int maxQuietBatchSize) {
+        this.maxQuietBatchSize = maxQuietBatchSize;
+    }
+
     @Override
     protected Object decode(ChannelHandlerContext channelHandlerContext, Channel channel, ChannelBuffer channelBuffer) throws Exception {
+        CommandMessage first = decodeCommand(channelBuffer);
+        if (first == null || maxQuietBatchSize <= 1 || !isBatchable(first)) {
+            return first;
+        }
+        List<CommandMessage> commands = null;
+        Set<Key> keys = null;
+        while (channelBuffer.readable() && (commands == null || commands.size() < maxQuietBatchSize)) {
+            int readerIndex = channelBuffer.readerIndex();
+            CommandMessage next;
+            try {
+                next = decodeCommand(channelBuffer);
+            } catch (Exception e) {
+                // emit the commands decoded so far, the next decode round reports the failure
+                channelBuffer.readerIndex(readerIndex);
+                break;
+            }
+            if (next == null) {
+                break;
+            }
+            if (commands == null) {
+                commands = new ArrayList<CommandMessage>();
+                commands.add(first);
+                keys = new HashSet<Key>();
+                keys.add(first.keys.get(0));
+            }
+            // writing the same key twice within a bulk write is ambiguous, end the batch before it
+            boolean duplicateWrite = first.op == Op.SET && keys.contains(next.keys.get(0));
+            if (next.op != first.op || !isBatchable(next) || duplicateWrite) {
+                channelBuffer.readerIndex(readerIndex);
+                break;
+            }
+            commands.add(next);
+            keys.add(next.keys.get(0));
+        }
+        if (commands == null) {
+            return first;
+        }
+        return new QuietCommandBatch(first.op, commands);
+    }
 
+    private static boolean isBatchable(CommandMessage command) {
+        return command.noreply && (command.op == Op.GET || command.op == Op.SET) && command.keys.size() == 1;
+    }
+
+    private CommandMessage decodeCommand(ChannelBuffer channelBuffer) throws Exception {
         // need at least 24 bytes, to get header
         if (channelBuffer.readableBytes() < 24) return null;
 
@@ -159,6 +229,12 @@ public class MemcachedBinaryCommandDecoder extends FrameDecoder {
             return null;
         }
 
+        if (opcode >= BinaryOp.values().length) {
+            // skip the frame, so the following commands can still be decoded
+            channelBuffer.skipBytes(totalBodyLength);
+            throw new UnknownCommandException("unknown binary opcode: 0x" + Integer.toHexString(opcode));
+        }
+
         // This assumes correct order in the enum. If that ever changes, we will have to scan for 'code' field.
         BinaryOp bcmd = BinaryOp.values()[opcode];
 
@@ -21,23 +21,39 @@ import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.handler.execution.ExecutionHandler;
 import org.openspaces.memcached.SpaceCache;
 import org.openspaces.memcached.protocol.MemcachedCommandHandler;
 
 
 public class MemcachedBinaryPipelineFactory implements ChannelPipelineFactory {
 
-    private final MemcachedBinaryCommandDecoder decoder = new MemcachedBinaryCommandDecoder();
     private final MemcachedCommandHandler memcachedCommandHandler;
     private final MemcachedBinaryResponseEncoder memcachedBinaryResponseEncoder = new MemcachedBinaryResponseEncoder();
 
+    private final ExecutionHandler executionHandler;
+
     public MemcachedBinaryPipelineFactory(SpaceCache cache, String version, boolean verbose, int idleTime, DefaultChannelGroup channelGroup) {
+        this(cache, version, verbose, idleTime, channelGroup, null);
+    }
+
+    public MemcachedBinaryPipelineFactory(SpaceCache cache, String version, boolean verbose, int idleTime, DefaultChannelGroup channelGroup,
+                                          ExecutionHandler executionHandler) {
         memcachedCommandHandler = new MemcachedCommandHandler(cache, version, verbose, idleTime, channelGroup);
+        this.executionHandler = executionHandler;
     }
 
     public ChannelPipeline getPipeline() throws Exception {
+        if (executionHandler != null) {
+            return Channels.pipeline(
+                    new MemcachedBinaryCommandDecoder(),
+                    executionHandler,
+                    memcachedCommandHandler,
+                    memcachedBinaryResponseEncoder
+            );
+        }
         return Channels.pipeline(
-                decoder,
+                new MemcachedBinaryCommandDecoder(),
                 memcachedCommandHandler,
                 memcachedBinaryResponseEncoder
         );
@@ -28,18 +28,26 @@ import org.openspaces.memcached.protocol.ResponseMessage;
 import org.openspaces.memcached.protocol.exceptions.UnknownCommandException;
 
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- *
+ * Encodes responses using the binary protocol.
+ * <p/>
+ * Responses are aggregated per channel into a single composite buffer: responses to quiet commands are held back
+ * until the next non quiet command (usually a <code>noop</code>), and then written along with its response in
+ * a single write.
  */
 // TODO refactor so this can be unit tested separate from netty? scalacheck?
 @ChannelHandler.Sharable
 public class MemcachedBinaryResponseEncoder extends SimpleChannelUpstreamHandler {
 
-    private ConcurrentHashMap<Integer, ChannelBuffer> corkedBuffers = new ConcurrentHashMap<Integer, ChannelBuffer>();
+    /**
+     * The amount of pending quiet responses after which they are written even before a non quiet command arrives.
+     */
+    private static final int MAX_CORKED_BYTES = 64 * 1024;
 
     protected final static Log logger = LogFactory.getLog(MemcachedBinaryResponseEncoder.class);
 
@@ -195,11 +203,11 @@ public class MemcachedBinaryResponseEncoder extends SimpleChannelUpstreamHandler
             casUnique = command.elements[0].getCasUnique();
         }
 
+        ResponseCode statusCode = getStatusCode(command);
+        Channel channel = messageEvent.getChannel();
+
         // stats is special -- with it, we write N times, one for each stat, then an empty payload
         if (command.cmd.op == Op.STATS) {
-            // first uncork any corked buffers
-            if (corkedBuffers.containsKey(command.cmd.opaque)) uncork(command.cmd.opaque, messageEvent.getChannel());
-
             for (Map.Entry<String, Set<String>> statsEntries : command.stats.entrySet()) {
                 for (String stat : statsEntries.getValue()) {
 
@@ -210,82 +218,71 @@ public class MemcachedBinaryResponseEncoder extends SimpleChannelUpstreamHandler
                     keyBuffer = ChannelBuffers.wrappedBuffer(ByteOrder.BIG_ENDIAN, statsEntries.getKey().getBytes("US-ASCII"));
                     valueBuffer = ChannelBuffers.wrappedBuffer(ByteOrder.BIG_ENDIAN, stat.getBytes("US-ASCII"));
 
-                    ChannelBuffer headerBuffer = constructHeader(bcmd, extrasBuffer, keyBuffer, valueBuffer, getStatusCode(command).code, command.cmd.opaque, casUnique);
+                    ChannelBuffer headerBuffer = constructHeader(bcmd, extrasBuffer, keyBuffer, valueBuffer, statusCode.code, command.cmd.opaque, casUnique);
 
-                    writePayload(messageEvent, extrasBuffer, keyBuffer, valueBuffer, headerBuffer);
+                    cork(channelHandlerContext, channel, headerBuffer, extrasBuffer, keyBuffer, valueBuffer);
                 }
             }
 
             keyBuffer = null;
             valueBuffer = null;
+        }
 
-            ChannelBuffer headerBuffer = constructHeader(bcmd, extrasBuffer, keyBuffer, valueBuffer, getStatusCode(command).code, command.cmd.opaque, casUnique);
-
-            writePayload(messageEvent, extrasBuffer, keyBuffer, valueBuffer, headerBuffer);
+        ChannelBuffer headerBuffer = constructHeader(bcmd, extrasBuffer, keyBuffer, valueBuffer, statusCode.code, command.cmd.opaque, casUnique);
 
+        if (bcmd.isNoreply()) {
+            // quiet commands only report get hits and failures, and are written along with the next non quiet response
+            boolean getCommand = command.cmd.op == Op.GET || command.cmd.op == Op.GETS;
+            if (getCommand ? statusCode == ResponseCode.OK : statusCode != ResponseCode.OK) {
+                cork(channelHandlerContext, channel, headerBuffer, extrasBuffer, keyBuffer, valueBuffer);
+            }
         } else {
-            ChannelBuffer headerBuffer = constructHeader(bcmd, extrasBuffer, keyBuffer, valueBuffer, getStatusCode(command).code, command.cmd.opaque, casUnique);
-
-            // write everything
-            // is the command 'quiet?' if so, then we append to our 'corked' buffer until a non-corked command comes along
-            if (bcmd.isNoreply()) {
-                int totalCapacity = headerBuffer.capacity() + (extrasBuffer != null ? extrasBuffer.capacity() : 0)
-                + (keyBuffer != null ? keyBuffer.capacity() : 0) + (valueBuffer != null ? valueBuffer.capacity() : 0);
-
-                ChannelBuffer corkedResponse = cork(command.cmd.opaque, totalCapacity);
-
-
-                corkedResponse.writeBytes(headerBuffer);
-                if (extrasBuffer != null)
-                    corkedResponse.writeBytes(extrasBuffer);
-                if (keyBuffer != null)
-                    corkedResponse.writeBytes(keyBuffer);
-                if (valueBuffer != null)
-                    corkedResponse.writeBytes(valueBuffer);
-            } else {
-                // first write out any corked responses
-                if (corkedBuffers.containsKey(command.cmd.opaque))
-                    uncork(command.cmd.opaque, messageEvent.getChannel());
-
+            cork(channelHandlerContext, channel, headerBuffer, extrasBuffer, keyBuffer, valueBuffer);
+            uncork(channelHandlerContext, channel);
+        }
+    }
 
-                writePayload(messageEvent, extrasBuffer, keyBuffer, valueBuffer, headerBuffer);
+    /**
+     * Appends the response to the responses pending on the channel. The pending responses are kept per pipeline
+     * (as the context attachment), and are written once their total size exceeds {@link #MAX_CORKED_BYTES}.
+     */
+    private void cork(ChannelHandlerContext ctx, Channel channel, ChannelBuffer... buffers) {
+        CorkedResponses corked = (CorkedResponses) ctx.getAttachment();
+        if (corked == null) {
+            corked = new CorkedResponses();
+            ctx.setAttachment(corked);
+        }
+        for (ChannelBuffer buffer : buffers) {
+            if (buffer != null) {
+                corked.buffers.add(buffer);
+                corked.bytes += buffer.readableBytes();
             }
         }
+        if (corked.bytes >= MAX_CORKED_BYTES) {
+            uncork(ctx, channel);
+        }
     }
 
-    private ChannelBuffer cork(int opaque, int totalCapacity) {
-        if (corkedBuffers.containsKey(opaque)) {
-            ChannelBuffer corkedResponse = corkedBuffers.get(opaque);
-            ChannelBuffer oldBuffer = corkedResponse;
-            corkedResponse = ChannelBuffers.buffer(ByteOrder.BIG_ENDIAN, totalCapacity + corkedResponse.capacity());
-            corkedResponse.writeBytes(oldBuffer);
-            oldBuffer.clear();
-
-            corkedBuffers.remove(opaque);
-            corkedBuffers.put(opaque, corkedResponse);
-            return corkedResponse;
+    /**
+     * Writes all the pending responses of the channel as a single composite buffer.
+     */
+    private void uncork(ChannelHandlerContext ctx, Channel channel) {
+        CorkedResponses corked = (CorkedResponses) ctx.getAttachment();
+        if (corked == null || corked.buffers.isEmpty()) {
+            return;
+        }
+        ChannelBuffer response = ChannelBuffers.wrappedBuffer(corked.buffers.toArray(new ChannelBuffer[corked.buffers.size()]));
+        corked.buffers.clear();
+        corked.bytes = 0;
+        if (channel.isOpen()) {
+            channel.write(response);
         }
-        ChannelBuffer buffer = ChannelBuffers.buffer(ByteOrder.BIG_ENDIAN, totalCapacity);
-        corkedBuffers.put(opaque, buffer);
-        return buffer;
     }
 
-    private void uncork(int opaque, Channel channel) {
-        ChannelBuffer corkedBuffer = corkedBuffers.get(opaque);
-        assert corkedBuffer != null;
-        channel.write(corkedBuffer);
-        corkedBuffers.remove(opaque);
-    }
+    private static final class CorkedResponses {
 
-    private void writePayload(MessageEvent messageEvent, ChannelBuffer extrasBuffer, ChannelBuffer keyBuffer, ChannelBuffer valueBuffer, ChannelBuffer headerBuffer) {
-        if (messageEvent.getChannel().isOpen()) {
-            messageEvent.getChannel().write(headerBuffer);
-            if (extrasBuffer != null)
-                messageEvent.getChannel().write(extrasBuffer);
-            if (keyBuffer != null)
-                messageEvent.getChannel().write(keyBuffer);
-            if (valueBuffer != null)
-                messageEvent.getChannel().write(valueBuffer);
-        }
+        final List<ChannelBuffer> buffers = new ArrayList<ChannelBuffer>();
+
+        int bytes;
     }
 }
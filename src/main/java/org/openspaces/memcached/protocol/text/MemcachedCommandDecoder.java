@@ -31,14 +31,16 @@ import org.openspaces.memcached.protocol.exceptions.UnknownCommandException;
 import org.openspaces.memcached.util.BufferUtils;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * The MemcachedCommandDecoder is responsible for taking lines from the MemcachedFrameDecoder and parsing them
  * into CommandMessage instances for handling by the MemcachedCommandHandler
  * <p/>
  * Protocol status is held in the SessionStatus instance which is shared between each of the decoders in the pipeline.
+ * <p/>
+ * Command lines are parsed in place: the line is split into token offsets (held by this decoder, which is created
+ * per channel, and reused between commands), and only the keys and payloads that are handed over to the handler are
+ * copied out of the buffer.
  */
 public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler {
 
@@ -46,6 +48,10 @@ public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler
 
     private static final byte[] NOREPLY = "noreply".getBytes();
 
+    // start index and length of each token of the current command line, within the line buffer
+    private int[] tokenStart = new int[8];
+    private int[] tokenLength = new int[8];
+    private int numTokens;
 
     public MemcachedCommandDecoder(SessionStatus status) {
         this.status = status;
@@ -68,25 +74,11 @@ public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler
             // Verify that we are in 'processing()' mode
             if (status.state == SessionStatus.State.PROCESSING) {
                 // split into pieces
-                List<byte[]> pieces = new ArrayList<byte[]>(6);
-                int pos = in.bytesBefore((byte) ' ');
-                do {
-                    if (pos != -1) {
-                        byte[] piece = new byte[pos];
-                        in.readBytes(piece);
-                        pieces.add(piece);
-                        in.skipBytes(1);
-                    }
-                } while ((pos = in.bytesBefore((byte) ' ')) != -1);
-                byte[] remainder = new byte[in.readableBytes()];
-                in.readBytes(remainder);
-                pieces.add(remainder);
-
-                processLine(pieces, messageEvent.getChannel(), channelHandlerContext);
+                tokenize(in);
+                processLine(in, messageEvent.getChannel(), channelHandlerContext);
             } else if (status.state == SessionStatus.State.PROCESSING_MULTILINE) {
-                ChannelBuffer slice = in.copy();
-                byte[] payload = slice.array();
-                in.skipBytes(in.readableBytes());
+                byte[] payload = new byte[in.readableBytes()];
+                in.readBytes(payload);
                 continueSet(messageEvent.getChannel(), status, payload, channelHandlerContext);
             } else {
                 throw new InvalidProtocolStateException("invalid protocol state");
@@ -100,24 +92,71 @@ public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler
         }
     }
 
+    /**
+     * Splits the (space separated) line into tokens, recording their offsets without copying them.
+     */
+    private void tokenize(ChannelBuffer in) {
+        numTokens = 0;
+        int end = in.writerIndex();
+        int start = in.readerIndex();
+        for (int index = start; index < end; index++) {
+            if (in.getByte(index) == ' ') {
+                addToken(start, index - start);
+                start = index + 1;
+            }
+        }
+        addToken(start, end - start);
+        in.readerIndex(end);
+    }
+
+    private void addToken(int start, int length) {
+        if (numTokens == tokenStart.length) {
+            int[] newStart = new int[numTokens * 2];
+            int[] newLength = new int[numTokens * 2];
+            System.arraycopy(tokenStart, 0, newStart, 0, numTokens);
+            System.arraycopy(tokenLength, 0, newLength, 0, numTokens);
+            tokenStart = newStart;
+            tokenLength = newLength;
+        }
+        tokenStart[numTokens] = start;
+        tokenLength[numTokens] = length;
+        numTokens++;
+    }
+
+    private boolean isNoreply(ChannelBuffer in, int token) {
+        return BufferUtils.equals(in, tokenStart[token], tokenLength[token], NOREPLY);
+    }
+
+    private int atoi(ChannelBuffer in, int token) {
+        return BufferUtils.atoi(in, tokenStart[token], tokenLength[token]);
+    }
+
+    private long atol(ChannelBuffer in, int token) {
+        return BufferUtils.atol(in, tokenStart[token], tokenLength[token]);
+    }
+
+    private Key key(ChannelBuffer in, int token) {
+        byte[] bytes = new byte[tokenLength[token]];
+        in.getBytes(tokenStart[token], bytes);
+        return new Key(bytes);
+    }
+
     /**
      * Process an individual complete protocol line and either passes the command for processing by the
      * session handler, or (in the case of SET-type commands) partially parses the command and sets the session into
      * a state to wait for additional data.
      *
-     * @param parts                 the (originally space separated) parts of the command
+     * @param in                    the line buffer, the tokens of the line are referenced by offset
      * @param channel               the netty channel to operate on
      * @param channelHandlerContext the netty channel handler context
      */
-    private void processLine(List<byte[]> parts, Channel channel, ChannelHandlerContext channelHandlerContext) throws UnknownCommandException, MalformedCommandException {
-        final int numParts = parts.size();
+    private void processLine(ChannelBuffer in, Channel channel, ChannelHandlerContext channelHandlerContext) throws UnknownCommandException, MalformedCommandException {
+        final int numParts = numTokens;
 
         // Turn the command into an enum for matching on
-        Op op;
-        try {
-            op = Op.findOp(parts.get(0));
-        } catch (IllegalArgumentException e) {
-            throw new UnknownCommandException("unknown operation: " + new String(parts.get(0)));
+        Op op = Op.findOp(in, tokenStart[0], tokenLength[0]);
+        if (op == null) {
+            throw new UnknownCommandException("unknown operation: " + in.toString(tokenStart[0], tokenLength[0], MemcachedPipelineFactory.USASCII));
         }
 
         // Produce the initial command message, for filling in later
@@ -128,15 +167,15 @@ public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler
                 if (numParts < 2 || numParts > 4) // Malformed
                     throw new MalformedCommandException("invalid delete command");
                 
-                cmd.setKey(parts.get(1));
+                cmd.setKey(key(in, 1));
 
                 if (numParts > 2) {
-                    if (Arrays.equals(parts.get(numParts - 1), NOREPLY)) {
+                    if (isNoreply(in, numParts - 1)) {
                         cmd.noreply = true;
                         if (numParts == 4) // else --> delete <key> [noreply]
-                            cmd.time = BufferUtils.atoi((parts.get(2)));
+                            cmd.time = atoi(in, 2);
                     } else if (numParts == 3){ // delete <key> [<time>]
-                        cmd.time = BufferUtils.atoi((parts.get(2)));
+                        cmd.time = atoi(in, 2);
                     }else{
                         throw new MalformedCommandException("invalid delete command");
                     }
@@ -149,10 +188,10 @@ public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler
                 if (numParts < 3 || numParts > 4) // Malformed
                     throw new MalformedCommandException("invalid incr/decr command");
 
-                cmd.setKey(parts.get(1));
-                cmd.incrAmount = BufferUtils.atoi(parts.get(2));
+                cmd.setKey(key(in, 1));
+                cmd.incrAmount = atoi(in, 2);
 
-                if (numParts == 4 && Arrays.equals(parts.get(3), NOREPLY)) {
+                if (numParts == 4 && isNoreply(in, 3)) {
                     cmd.noreply = true;
                 }
 
@@ -161,12 +200,12 @@ public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler
 
             case FLUSH_ALL: // flush_all [time] [noreply]\r\n
                 if (numParts >= 1) {
-                    if (Arrays.equals(parts.get(numParts - 1), NOREPLY)) {
+                    if (isNoreply(in, numParts - 1)) {
                         cmd.noreply = true;
                         if (numParts == 3)
-                            cmd.time = BufferUtils.atoi((parts.get(1)));
+                            cmd.time = atoi(in, 1);
                     } else if (numParts == 2)
-                        cmd.time = BufferUtils.atoi((parts.get(1)));
+                        cmd.time = atoi(in, 1);
                 }
                 Channels.fireMessageReceived(channelHandlerContext, cmd, channel.getRemoteAddress());
                 break;
@@ -175,9 +214,9 @@ public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler
                 if (numParts < 2 || numParts > 3)
                     throw new MalformedCommandException("invalid verbosity command");
                 
-                cmd.time = BufferUtils.atoi((parts.get(1))); // verbose level
+                cmd.time = atoi(in, 1); // verbose level
                 
-                if (numParts > 1 && Arrays.equals(parts.get(2), NOREPLY)) 
+                if (numParts > 2 && isNoreply(in, 2))
                     cmd.noreply = true;
                 Channels.fireMessageReceived(channelHandlerContext, cmd, channel.getRemoteAddress());
                 break;
@@ -192,9 +231,9 @@ public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler
                 }
 
                 // Fill in all the elements of the command
-                int size = BufferUtils.atoi(parts.get(4));
-                int expire = BufferUtils.atoi(parts.get(3));
-                int flags = BufferUtils.atoi(parts.get(2));
+                int size = atoi(in, 4);
+                int expire = atoi(in, 3);
+                int flags = atoi(in, 2);
                 // expire is relative to now, always, translates to LEASE.
                 if (expire == 0) {
                     expire = Integer.MAX_VALUE;
@@ -202,16 +241,16 @@ public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler
                     expire = LocalCacheElement.Now() - expire;
                 }
 
-                cmd.element = new LocalCacheElement(new Key(parts.get(1)), flags, expire, 0L);
+                cmd.element = new LocalCacheElement(key(in, 1), flags, expire, 0L);
 
                 // look for cas and "noreply" elements
                 if (numParts > 5) {
                     int noreply = op == Op.CAS ? 6 : 5;
                     if (op == Op.CAS) {
-                        cmd.cas_key = BufferUtils.atol(parts.get(5));
+                        cmd.cas_key = atol(in, 5);
                     }
 
-                    if (numParts == noreply + 1 && Arrays.equals(parts.get(noreply), NOREPLY))
+                    if (numParts == noreply + 1 && isNoreply(in, noreply))
                         cmd.noreply = true;
                 }
 
@@ -223,7 +262,11 @@ public final class MemcachedCommandDecoder extends SimpleChannelUpstreamHandler
             case GETS: //gets <key>*\r\n
             case STATS: // stats [args]\r\n
                 // Get all the keys
-                cmd.setKeys(parts.subList(1, numParts));
+                ArrayList<Key> keys = new ArrayList<Key>(numParts - 1);
+                for (int i = 1; i < numParts; i++) {
+                    keys.add(key(in, i));
+                }
+                cmd.keys = keys;
 
                 // Pass it on.
                 Channels.fireMessageReceived(channelHandlerContext, cmd, channel.getRemoteAddress());
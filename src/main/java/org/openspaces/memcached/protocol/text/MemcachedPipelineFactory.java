@@ -21,6 +21,7 @@ import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.handler.execution.ExecutionHandler;
 import org.openspaces.memcached.SpaceCache;
 import org.openspaces.memcached.protocol.MemcachedCommandHandler;
 import org.openspaces.memcached.protocol.SessionStatus;
@@ -43,20 +44,35 @@ public final class MemcachedPipelineFactory implements ChannelPipelineFactory {
 
     private final MemcachedCommandHandler memcachedCommandHandler;
 
+    private final ExecutionHandler executionHandler;
 
     public MemcachedPipelineFactory(SpaceCache cache, String version, boolean verbose, int idleTime, int frameSize, DefaultChannelGroup channelGroup) {
+        this(cache, version, verbose, idleTime, frameSize, channelGroup, null);
+    }
+
+    public MemcachedPipelineFactory(SpaceCache cache, String version, boolean verbose, int idleTime, int frameSize, DefaultChannelGroup channelGroup,
+                                    ExecutionHandler executionHandler) {
         this.cache = cache;
         this.version = version;
         this.verbose = verbose;
         this.idleTime = idleTime;
         this.frameSize = frameSize;
         this.channelGroup = channelGroup;
+        this.executionHandler = executionHandler;
         memcachedCommandHandler = new MemcachedCommandHandler(this.cache, this.version, this.verbose, this.idleTime, this.channelGroup);
     }
 
     public final ChannelPipeline getPipeline() throws Exception {
         SessionStatus status = new SessionStatus().ready();
 
+        if (executionHandler != null) {
+            return Channels.pipeline(
+                    new MemcachedFrameDecoder(status, frameSize),
+                    new MemcachedCommandDecoder(status),
+                    executionHandler,
+                    memcachedCommandHandler,
+                    memcachedResponseEncoder);
+        }
         return Channels.pipeline(
                 new MemcachedFrameDecoder(status, frameSize),
                 new MemcachedCommandDecoder(status),
@@ -17,6 +17,8 @@
  ******************************************************************************/
 package org.openspaces.memcached.util;
 
+import org.jboss.netty.buffer.ChannelBuffer;
+
 /**
  */
 public class BufferUtils {
@@ -279,4 +281,114 @@ public class BufferUtils {
         return negative ? result : -result;
     }
 
+    /**
+     * Same as {@link #atoi(byte[])}, parsing the ASCII digits in place from the given buffer region.
+     */
+    public static int atoi(ChannelBuffer buffer, int index, int length)
+            throws NumberFormatException
+    {
+        int result = 0;
+        boolean negative = false;
+        int i = index, end = index + length;
+        int limit = -Integer.MAX_VALUE;
+        int multmin;
+        int digit;
+
+        if (length > 0) {
+            byte firstChar = buffer.getByte(index);
+            if (firstChar < '0') { // Possible leading "-"
+                if (firstChar == '-') {
+                    negative = true;
+                    limit = Integer.MIN_VALUE;
+                } else
+                    throw new NumberFormatException();
+
+                if (length == 1) // Cannot have lone "-"
+                    throw new NumberFormatException();
+                i++;
+            }
+            multmin = limit / 10;
+            while (i < end) {
+                // Accumulating negatively avoids surprises near MAX_VALUE
+                digit = Character.digit(buffer.getByte(i++),10);
+                if (digit < 0) {
+                    throw new NumberFormatException();
+                }
+                if (result < multmin) {
+                    throw new NumberFormatException();
+                }
+                result *= 10;
+                if (result < limit + digit) {
+                    throw new NumberFormatException();
+                }
+                result -= digit;
+            }
+        } else {
+            throw new NumberFormatException();
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Same as {@link #atol(byte[])}, parsing the ASCII digits in place from the given buffer region.
+     */
+    public static long atol(ChannelBuffer buffer, int index, int length)
+            throws NumberFormatException
+    {
+        long result = 0;
+        boolean negative = false;
+        int i = index, end = index + length;
+        long limit = -Long.MAX_VALUE;
+        long multmin;
+        int digit;
+
+        if (length > 0) {
+            byte firstChar = buffer.getByte(index);
+            if (firstChar < '0') { // Possible leading "-"
+                if (firstChar == '-') {
+                    negative = true;
+                    limit = Long.MIN_VALUE;
+                } else
+                    throw new NumberFormatException();
+
+                if (length == 1) // Cannot have lone "-"
+                    throw new NumberFormatException();
+                i++;
+            }
+            multmin = limit / 10;
+            while (i < end) {
+                // Accumulating negatively avoids surprises near MAX_VALUE
+                digit = Character.digit(buffer.getByte(i++),10);
+                if (digit < 0) {
+                    throw new NumberFormatException();
+                }
+                if (result < multmin) {
+                    throw new NumberFormatException();
+                }
+                result *= 10;
+                if (result < limit + digit) {
+                    throw new NumberFormatException();
+                }
+                result -= digit;
+            }
+        } else {
+            throw new NumberFormatException();
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Returns <code>true</code> if the given buffer region holds exactly the given bytes.
+     */
+    public static boolean equals(ChannelBuffer buffer, int index, int length, byte[] bytes) {
+        if (length != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.getByte(index + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
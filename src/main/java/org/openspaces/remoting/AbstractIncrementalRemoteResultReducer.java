@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.remoting;
+
+/**
+ * A base class for {@link IncrementalRemoteResultReducer}s, implementing
+ * {@link #reduce(SpaceRemotingResult[], SpaceRemotingInvocation)} by feeding the results to an
+ * accumulator.
+ */
+public abstract class AbstractIncrementalRemoteResultReducer<T, Y> implements IncrementalRemoteResultReducer<T, Y> {
+
+    public T reduce(SpaceRemotingResult<Y>[] results, SpaceRemotingInvocation remotingInvocation) throws Exception {
+        RemoteResultAccumulator<T, Y> accumulator = createAccumulator(remotingInvocation);
+        for (SpaceRemotingResult<Y> result : results) {
+            if (!accumulator.accumulate(result)) {
+                break;
+            }
+        }
+        return accumulator.getResult();
+    }
+}
@@ -29,9 +29,10 @@ import org.springframework.remoting.support.RemoteAccessor;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
 
 import static org.openspaces.remoting.RemotingUtils.createByClassOrFindByName;
@@ -112,6 +113,8 @@ public class EventDrivenSpaceRemotingProxyFactoryBean extends RemoteAccessor imp
 
     private Map<Method, RemotingUtils.MethodHash> methodHashLookup;
 
+    private final ConcurrentMap<Method, InvocationPlan> invocationPlans = new ConcurrentHashMap<Method, InvocationPlan>();
+
     private ApplicationContext applicationContext;
 
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
@@ -218,19 +221,7 @@ public class EventDrivenSpaceRemotingProxyFactoryBean extends RemoteAccessor imp
 
     @SuppressWarnings("unchecked")
     public Object invoke(MethodInvocation methodInvocation) throws Throwable {
-        RemoteInvocationAspect localRemoteInvocationAspect = null;
-        Annotation[] methodAnnotations = methodInvocation.getMethod().getAnnotations();
-        for (Annotation methodAnnotation : methodAnnotations) {
-            if (methodAnnotation instanceof EventDrivenRemotingMethod) {
-                EventDrivenRemotingMethod remotingMethodAnnotation = (EventDrivenRemotingMethod) methodAnnotation;
-                localRemoteInvocationAspect = (RemoteInvocationAspect) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.remoteInvocationAspect(),
-                        remotingMethodAnnotation.remoteInvocationAspectType());
-            }
-        }
-        if (localRemoteInvocationAspect == null) {
-            localRemoteInvocationAspect = remoteInvocationAspect;
-        }
-
+        RemoteInvocationAspect localRemoteInvocationAspect = getInvocationPlan(methodInvocation.getMethod()).remoteInvocationAspect;
         if (localRemoteInvocationAspect != null) {
             return localRemoteInvocationAspect.invoke(methodInvocation, this);
         }
@@ -238,71 +229,25 @@ public class EventDrivenSpaceRemotingProxyFactoryBean extends RemoteAccessor imp
     }
 
     public Object invokeRemote(MethodInvocation methodInvocation) throws Throwable {
+        InvocationPlan plan = getInvocationPlan(methodInvocation.getMethod());
         String lookupName = getServiceInterface().getName();
-        String methodName = methodInvocation.getMethod().getName();
-
-        boolean localFifo = false;
-        boolean localVoidOneWay = false;
-        boolean localGlobalOneWay = false;
-        RemoteRoutingHandler localRoutingHandler = null;
-        MetaArgumentsHandler localMetaArgumentsHandler = null;
-        long localTimeout = -1;
-
-        Annotation[] methodAnnotations = methodInvocation.getMethod().getAnnotations();
-        boolean hasMethodLevelRemotingAnnotation = false;
-        for (Annotation methodAnnotation : methodAnnotations) {
-            if (methodAnnotation instanceof EventDrivenRemotingMethod) {
-                hasMethodLevelRemotingAnnotation = true;
-                EventDrivenRemotingMethod remotingMethodAnnotation = (EventDrivenRemotingMethod) methodAnnotation;
-                localFifo= remotingMethodAnnotation.fifo();
-                localGlobalOneWay = remotingMethodAnnotation.globalOneWay();
-                localVoidOneWay = remotingMethodAnnotation.voidOneWay();
-                localMetaArgumentsHandler = (MetaArgumentsHandler) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.metaArgumentsHandler(),
-                                                                                             remotingMethodAnnotation.metaArgumentsHandlerType());
-                localTimeout = remotingMethodAnnotation.timeout();
-                localRoutingHandler = (RemoteRoutingHandler) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.remoteRoutingHandler(),
-                                                                                       remotingMethodAnnotation.remoteRoutingHandlerType());
-            }
-        }
-
-        if (!hasMethodLevelRemotingAnnotation) {
-            localFifo = fifo;
-            localVoidOneWay = voidOneWay;
-            localGlobalOneWay = globalOneWay;
-            localRoutingHandler = remoteRoutingHandler;
-            localMetaArgumentsHandler = metaArgumentsHandler;
-            localTimeout = timeout;
-        }
-
-
-
-
-        boolean asyncExecution = false;
-        if (Future.class.isAssignableFrom(methodInvocation.getMethod().getReturnType())) {
-            asyncExecution = true;
-            if (methodName.startsWith(asyncMethodPrefix)) {
-                methodName = StringUtils.uncapitalize(methodName.substring(asyncMethodPrefix.length()));
-            }
-        }
+        String methodName = plan.methodName;
 
         SpaceRemotingEntry remotingEntry = remotingEntryFactory.createHashEntry().buildInvocation(lookupName, methodName,
-                methodHashLookup.get(methodInvocation.getMethod()), methodInvocation.getArguments());
+                plan.methodHash, methodInvocation.getArguments());
 
-        remotingEntry.setRouting(RemotingProxyUtils.computeRouting(remotingEntry, localRoutingHandler, methodInvocation));
+        remotingEntry.setRouting(RemotingProxyUtils.computeRouting(remotingEntry, plan.routingHandler, methodInvocation.getArguments(),
+                plan.routingParameterIndex, plan.routingProperty));
 
-        if (localMetaArgumentsHandler != null) {
-            remotingEntry.setMetaArguments(localMetaArgumentsHandler.obtainMetaArguments(remotingEntry));
+        if (plan.metaArgumentsHandler != null) {
+            remotingEntry.setMetaArguments(plan.metaArgumentsHandler.obtainMetaArguments(remotingEntry));
         }
 
         // check if this invocation will be a one way invocation
-        if (localGlobalOneWay) {
+        if (plan.oneWay) {
             remotingEntry.setOneWay(Boolean.TRUE);
-        } else {
-            if (localVoidOneWay && methodInvocation.getMethod().getReturnType() == void.class) {
-                remotingEntry.setOneWay(Boolean.TRUE);
-            }
         }
-        remotingEntry.setFifo(localFifo);
+        remotingEntry.setFifo(plan.fifo);
 
         gigaSpace.write(remotingEntry);
 
@@ -312,18 +257,106 @@ public class EventDrivenSpaceRemotingProxyFactoryBean extends RemoteAccessor imp
         }
 
         // if the return value is a future, return the future
-        if (asyncExecution) {
+        if (plan.asyncExecution) {
             return new EventDrivenRemoteFuture(gigaSpace, remotingEntry);
         }
 
-        SpaceRemotingEntry invokeResult = gigaSpace.take(remotingEntry.buildResultTemplate(), localTimeout);
+        SpaceRemotingEntry invokeResult = gigaSpace.take(remotingEntry.buildResultTemplate(), plan.timeout);
         if (invokeResult == null) {
             throw new RemoteTimeoutException("Timeout waiting for result for [" + lookupName +
-                    "] and method [" + methodName + "]", localTimeout);
+                    "] and method [" + methodName + "]", plan.timeout);
         }
         if (invokeResult.getException() != null) {
             throw invokeResult.getException();
         }
         return invokeResult.getResult();
     }
-}
\ No newline at end of file
+
+    private InvocationPlan getInvocationPlan(Method method) {
+        InvocationPlan plan = invocationPlans.get(method);
+        if (plan == null) {
+            plan = buildInvocationPlan(method);
+            InvocationPlan existing = invocationPlans.putIfAbsent(method, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Resolves once what the invocations of the given method need: the method level
+     * {@link EventDrivenRemotingMethod} settings (which replace the proxy level ones), the handlers
+     * they reference, the async prefix handling and the routing parameter.
+     */
+    private InvocationPlan buildInvocationPlan(Method method) {
+        InvocationPlan plan = new InvocationPlan();
+        plan.methodName = method.getName();
+        plan.methodHash = methodHashLookup.get(method);
+        if (Future.class.isAssignableFrom(method.getReturnType())) {
+            plan.asyncExecution = true;
+            if (plan.methodName.startsWith(asyncMethodPrefix)) {
+                plan.methodName = StringUtils.uncapitalize(plan.methodName.substring(asyncMethodPrefix.length()));
+            }
+        }
+
+        boolean localGlobalOneWay = globalOneWay;
+        boolean localVoidOneWay = voidOneWay;
+        plan.fifo = fifo;
+        plan.timeout = timeout;
+        plan.routingHandler = remoteRoutingHandler;
+        plan.metaArgumentsHandler = metaArgumentsHandler;
+        plan.remoteInvocationAspect = remoteInvocationAspect;
+        EventDrivenRemotingMethod remotingMethodAnnotation = method.getAnnotation(EventDrivenRemotingMethod.class);
+        if (remotingMethodAnnotation != null) {
+            plan.fifo = remotingMethodAnnotation.fifo();
+            localGlobalOneWay = remotingMethodAnnotation.globalOneWay();
+            localVoidOneWay = remotingMethodAnnotation.voidOneWay();
+            plan.timeout = remotingMethodAnnotation.timeout();
+            plan.metaArgumentsHandler = (MetaArgumentsHandler) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.metaArgumentsHandler(),
+                    remotingMethodAnnotation.metaArgumentsHandlerType());
+            plan.routingHandler = (RemoteRoutingHandler) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.remoteRoutingHandler(),
+                    remotingMethodAnnotation.remoteRoutingHandlerType());
+            RemoteInvocationAspect methodRemoteInvocationAspect = (RemoteInvocationAspect) createByClassOrFindByName(applicationContext,
+                    remotingMethodAnnotation.remoteInvocationAspect(), remotingMethodAnnotation.remoteInvocationAspectType());
+            if (methodRemoteInvocationAspect != null) {
+                plan.remoteInvocationAspect = methodRemoteInvocationAspect;
+            }
+        }
+        plan.oneWay = localGlobalOneWay || (localVoidOneWay && method.getReturnType() == void.class);
+
+        plan.routingParameterIndex = RemotingProxyUtils.findRoutingParameter(method);
+        Routing routingAnnotation = RemotingProxyUtils.findRoutingAnnotation(method);
+        plan.routingProperty = routingAnnotation == null ? null : routingAnnotation.value();
+        return plan;
+    }
+
+    /**
+     * The settings of the invocations of a single service method. Built on the first invocation of
+     * the method and never changed afterwards.
+     */
+    private static final class InvocationPlan {
+
+        String methodName;
+
+        RemotingUtils.MethodHash methodHash;
+
+        boolean asyncExecution;
+
+        boolean fifo;
+
+        boolean oneWay;
+
+        long timeout;
+
+        RemoteRoutingHandler routingHandler;
+
+        MetaArgumentsHandler metaArgumentsHandler;
+
+        RemoteInvocationAspect remoteInvocationAspect;
+
+        int routingParameterIndex;
+
+        String routingProperty;
+    }
+}
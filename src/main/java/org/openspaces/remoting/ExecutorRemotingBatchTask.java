@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.remoting;
+
+import com.j_spaces.kernel.JSpaceUtilities;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openspaces.core.cluster.ClusterInfo;
+import org.openspaces.core.cluster.ClusterInfoAware;
+import org.openspaces.core.executor.Task;
+import org.openspaces.core.executor.TaskRoutingProvider;
+import org.springframework.remoting.RemoteAccessException;
+
+import java.io.*;
+
+/**
+ * A {@link org.openspaces.core.executor.Task} carrying several {@link ExecutorRemotingTask}s routed
+ * to the same partition, coalesced by an {@link ExecutorSpaceRemotingProxyFactoryBean} into a
+ * single execution. The invocations are handed to the
+ * {@link org.openspaces.remoting.SpaceRemotingServiceExporter}, which might run them in parallel,
+ * and the outcome of each (its result or exception) is returned in the matching slot of the
+ * {@link InternalBatchResult}.
+ *
+ * @see ExecutorSpaceRemotingProxyFactoryBean#setCoalescingWindow(long)
+ */
+public class ExecutorRemotingBatchTask implements Task<ExecutorRemotingBatchTask.InternalBatchResult>, ClusterInfoAware,
+        TaskRoutingProvider, Externalizable {
+
+    private static final long serialVersionUID = 5466307212632454389L;
+
+    private final static transient Log logger = LogFactory.getLog(ExecutorRemotingBatchTask.class);
+
+    private ExecutorRemotingTask[] tasks;
+
+    private Integer routing;
+
+    private transient ClusterInfo clusterInfo;
+
+    private transient SpaceRemotingServiceExporter serviceExporter;
+
+    /**
+     * Should not be used. Used for externalizable.
+     */
+    public ExecutorRemotingBatchTask() {
+    }
+
+    public ExecutorRemotingBatchTask(ExecutorRemotingTask[] tasks, Integer routing) {
+        this.tasks = tasks;
+        this.routing = routing;
+    }
+
+    public void setClusterInfo(ClusterInfo clusterInfo) {
+        this.clusterInfo = clusterInfo;
+    }
+
+    public void setServiceExporter(SpaceRemotingServiceExporter serviceExporter) {
+        this.serviceExporter = serviceExporter;
+    }
+
+    public InternalBatchResult execute() throws Exception {
+        for (ExecutorRemotingTask task : tasks) {
+            task.setServiceExporter(serviceExporter);
+            if (clusterInfo != null) {
+                task.setClusterInfo(clusterInfo);
+            }
+        }
+        Object[] outcomes = serviceExporter.invokeExecutorBatch(tasks);
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] instanceof ExecutorRemotingTask.InternalExecutorException) {
+                outcomes[i] = ensureSerializable(tasks[i], (ExecutorRemotingTask.InternalExecutorException) outcomes[i]);
+            }
+        }
+        return new InternalBatchResult(outcomes);
+    }
+
+    /**
+     * A single non serializable exception would fail the whole batch, replace it with one carrying
+     * its description.
+     */
+    private ExecutorRemotingTask.InternalExecutorException ensureSerializable(ExecutorRemotingTask task,
+                                                                            ExecutorRemotingTask.InternalExecutorException exception) {
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream());
+            out.writeObject(exception.getException());
+            out.close();
+            return exception;
+        } catch (IOException e) {
+            logger.warn("Non serializable exception raised by [" + task.getLookupName() + "] and method [" + task.getMethodName() + "], root exception: ["
+                    + JSpaceUtilities.getStackTrace(exception.getException()) + "]", e);
+            RemoteAccessException replacement = new RemoteAccessException("Non serializable exception raised by [" + task.getLookupName()
+                    + "] and method [" + task.getMethodName() + "]: " + exception.getException());
+            return new ExecutorRemotingTask.InternalExecutorException(replacement, clusterInfo == null ? null : clusterInfo.getInstanceId(),
+                    task.getLookupName(), task.getMethodName());
+        }
+    }
+
+    public Integer getRouting() {
+        return routing;
+    }
+
+    public ExecutorRemotingTask[] getTasks() {
+        return tasks;
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(routing);
+        out.writeInt(tasks.length);
+        for (ExecutorRemotingTask task : tasks) {
+            out.writeBoolean(task instanceof ExecutorRemotingMethodIdTask);
+            task.writeExternal(out);
+        }
+    }
+
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        routing = in.readInt();
+        tasks = new ExecutorRemotingTask[in.readInt()];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = in.readBoolean() ? new ExecutorRemotingMethodIdTask() : new ExecutorRemotingTask();
+            tasks[i].readExternal(in);
+        }
+    }
+
+    /**
+     * The outcomes of the coalesced invocations, each either an
+     * {@link ExecutorRemotingTask.InternalExecutorResult} or an
+     * {@link ExecutorRemotingTask.InternalExecutorException}.
+     */
+    public static class InternalBatchResult implements Externalizable {
+
+        private static final long serialVersionUID = -2286604371745406734L;
+
+        private Object[] outcomes;
+
+        public InternalBatchResult() {
+        }
+
+        public InternalBatchResult(Object[] outcomes) {
+            this.outcomes = outcomes;
+        }
+
+        public Object[] getOutcomes() {
+            return outcomes;
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt(outcomes.length);
+            for (Object outcome : outcomes) {
+                out.writeObject(outcome);
+            }
+        }
+
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            outcomes = new Object[in.readInt()];
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = in.readObject();
+            }
+        }
+    }
+}
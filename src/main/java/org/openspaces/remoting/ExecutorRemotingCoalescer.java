@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.remoting;
+
+import com.gigaspaces.async.AsyncFuture;
+import com.gigaspaces.async.AsyncFutureListener;
+import com.gigaspaces.async.AsyncResult;
+import com.gigaspaces.async.internal.DefaultAsyncResult;
+import com.gigaspaces.internal.client.spaceproxy.ISpaceProxy;
+import com.j_spaces.kernel.threadpool.DynamicExecutors;
+
+import org.openspaces.core.GigaSpace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces the executor remoting invocations of a proxy routed to the same partition. The first
+ * invocation of a partition opens a batch that is sent once the coalescing window elapsed (or it
+ * reached its maximum size), as a single {@link ExecutorRemotingBatchTask}. Each invocation gets a
+ * future of its own, completed with its own result or exception once the batch returns.
+ *
+ * <p>The partition of an invocation is computed the same way the space routes it:
+ * <code>abs(routing) % numberOfPartitions</code>. Invocations with different routing values owned by
+ * the same partition share a batch, which is sent with the partition id as its routing.
+ *
+ * <p>Invocations without any routing (no routing handler nor routing parameter) may run on any
+ * partition, and are all coalesced into the same batch.
+ *
+ * <p>Invocations issued within a transaction are never coalesced: a batch is executed by the thread
+ * sending it, which would either lose the transaction or run the invocations of other callers
+ * under it. They are executed right away instead.
+ *
+ * @see ExecutorSpaceRemotingProxyFactoryBean#setCoalescingWindow(long)
+ */
+public class ExecutorRemotingCoalescer {
+
+    private static final Object ANY_ROUTING = new Object();
+
+    private final GigaSpace gigaSpace;
+
+    private final long window;
+
+    private final int maxBatchSize;
+
+    private final int numberOfPartitions;
+
+    private final ConcurrentMap<Object, Batch> openBatches = new ConcurrentHashMap<Object, Batch>();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * Creates a coalescer for the space of the given proxy, reading its number of partitions from
+     * the cluster info of the space.
+     *
+     * @param window       the time, in <b>microseconds</b>, a batch waits for more invocations
+     * @param maxBatchSize the number of invocations at which a batch is sent without waiting
+     */
+    public ExecutorRemotingCoalescer(GigaSpace gigaSpace, String name, long window, int maxBatchSize) {
+        this(gigaSpace, name, window, maxBatchSize, numberOfPartitions(gigaSpace));
+    }
+
+    /**
+     * @param window             the time, in <b>microseconds</b>, a batch waits for more invocations
+     * @param maxBatchSize       the number of invocations at which a batch is sent without waiting
+     * @param numberOfPartitions the number of partitions of the space, <code>1</code> if it is not
+     *                           partitioned
+     */
+    public ExecutorRemotingCoalescer(GigaSpace gigaSpace, String name, long window, int maxBatchSize, int numberOfPartitions) {
+        this.gigaSpace = gigaSpace;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.numberOfPartitions = Math.max(1, numberOfPartitions);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, DynamicExecutors.daemonThreadFactory(name));
+    }
+
+    /**
+     * Queues the given invocation into the open batch of its routing.
+     *
+     * @param routed <code>false</code> if the task routing is random, the invocation then joining
+     *               any open batch
+     */
+    public AsyncFuture execute(ExecutorRemotingTask task, boolean routed) {
+        if (gigaSpace.getCurrentTransaction() != null) {
+            return gigaSpace.execute(task, task.getRouting());
+        }
+        CoalescedFuture future = new CoalescedFuture();
+        Integer partitionId = partitionOf(task.getRouting());
+        Object key = routed ? partitionId : ANY_ROUTING;
+        while (true) {
+            Batch batch = openBatches.get(key);
+            if (batch == null) {
+                batch = new Batch(key, partitionId);
+                Batch existing = openBatches.putIfAbsent(key, batch);
+                if (existing != null) {
+                    batch = existing;
+                } else {
+                    try {
+                        scheduler.schedule(batch, window, TimeUnit.MICROSECONDS);
+                    } catch (RejectedExecutionException e) {
+                        // shut down, the batch is sent right away below
+                    }
+                }
+            }
+            int size = batch.add(task, future);
+            if (size < 0) {
+                // sent concurrently, and already removed from the open batches
+                continue;
+            }
+            if (size >= maxBatchSize || scheduler.isShutdown()) {
+                send(batch);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Returns the zero based id of the partition the given routing value is owned by.
+     */
+    private Integer partitionOf(Integer routing) {
+        int value = routing;
+        return (value == Integer.MIN_VALUE ? Integer.MAX_VALUE : Math.abs(value)) % numberOfPartitions;
+    }
+
+    private static int numberOfPartitions(GigaSpace gigaSpace) {
+        ISpaceProxy spaceProxy = (ISpaceProxy) gigaSpace.getSpace();
+        return spaceProxy.getDirectProxy().getSpaceClusterInfo().getNumberOfPartitions();
+    }
+
+    /**
+     * Stops the timer. Open batches are still sent once their window elapses.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private void send(Batch batch) {
+        // remove before closing, so invocations failing to join the batch never find it again
+        openBatches.remove(batch.key, batch);
+        final List<ExecutorRemotingTask> tasks = new ArrayList<ExecutorRemotingTask>();
+        final List<CoalescedFuture> futures = new ArrayList<CoalescedFuture>();
+        if (!batch.close(tasks, futures) || tasks.isEmpty()) {
+            // already sent, or all its invocations were cancelled
+            return;
+        }
+        try {
+            if (tasks.size() == 1) {
+                gigaSpace.execute(tasks.get(0), batch.routing).setListener(futures.get(0));
+                return;
+            }
+            ExecutorRemotingBatchTask batchTask = new ExecutorRemotingBatchTask(tasks.toArray(new ExecutorRemotingTask[tasks.size()]), batch.routing);
+            AsyncFuture<ExecutorRemotingBatchTask.InternalBatchResult> execution = gigaSpace.execute(batchTask, batch.routing);
+            execution.setListener(new AsyncFutureListener<ExecutorRemotingBatchTask.InternalBatchResult>() {
+                public void onResult(AsyncResult<ExecutorRemotingBatchTask.InternalBatchResult> result) {
+                    if (result.getException() != null) {
+                        for (CoalescedFuture future : futures) {
+                            future.complete(null, result.getException());
+                        }
+                        return;
+                    }
+                    Object[] outcomes = result.getResult().getOutcomes();
+                    for (int i = 0; i < outcomes.length; i++) {
+                        if (outcomes[i] instanceof Exception) {
+                            futures.get(i).complete(null, (Exception) outcomes[i]);
+                        } else {
+                            futures.get(i).complete(outcomes[i], null);
+                        }
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            for (CoalescedFuture future : futures) {
+                future.complete(null, e);
+            }
+        }
+    }
+
+    private final class Batch implements Runnable {
+
+        final Object key;
+
+        final Integer routing;
+
+        private List<ExecutorRemotingTask> tasks = new ArrayList<ExecutorRemotingTask>();
+
+        private List<CoalescedFuture> futures = new ArrayList<CoalescedFuture>();
+
+        Batch(Object key, Integer routing) {
+            this.key = key;
+            this.routing = routing;
+        }
+
+        /**
+         * Returns the size of the batch including the given invocation, <code>-1</code> if the
+         * batch was already sent.
+         */
+        synchronized int add(ExecutorRemotingTask task, CoalescedFuture future) {
+            if (tasks == null) {
+                return -1;
+            }
+            tasks.add(task);
+            futures.add(future);
+            future.batch = this;
+            return tasks.size();
+        }
+
+        /**
+         * Withdraws the invocation of the given future, returning <code>false</code> if the batch
+         * was already sent.
+         */
+        synchronized boolean remove(CoalescedFuture future) {
+            if (tasks == null) {
+                return false;
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                if (futures.get(i) == future) {
+                    futures.remove(i);
+                    tasks.remove(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized boolean close(List<ExecutorRemotingTask> closedTasks, List<CoalescedFuture> closedFutures) {
+            if (tasks == null) {
+                return false;
+            }
+            closedTasks.addAll(tasks);
+            closedFutures.addAll(futures);
+            tasks = null;
+            futures = null;
+            return true;
+        }
+
+        public void run() {
+            send(this);
+        }
+    }
+
+    /**
+     * The future of a single coalesced invocation, behaving as the future of a non coalesced one.
+     * Cancelling it withdraws the invocation if its batch was not sent yet, otherwise the invocation
+     * still runs and its outcome is discarded.
+     */
+    private static final class CoalescedFuture implements AsyncFuture, AsyncFutureListener {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        volatile Batch batch;
+
+        private boolean completed;
+
+        private Object result;
+
+        private Exception exception;
+
+        private AsyncFutureListener listener;
+
+        public void onResult(AsyncResult result) {
+            complete(result.getResult(), result.getException());
+        }
+
+        void complete(Object result, Exception exception) {
+            AsyncFutureListener localListener;
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+                this.result = result;
+                this.exception = exception;
+                localListener = listener;
+            }
+            done.countDown();
+            if (localListener != null) {
+                localListener.onResult(new DefaultAsyncResult(result, exception));
+            }
+        }
+
+        public void setListener(AsyncFutureListener listener) {
+            boolean fire;
+            synchronized (this) {
+                this.listener = listener;
+                fire = completed;
+            }
+            if (fire) {
+                listener.onResult(new DefaultAsyncResult(result, exception));
+            }
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (this) {
+                if (completed) {
+                    return false;
+                }
+            }
+            Batch localBatch = batch;
+            if (localBatch != null) {
+                localBatch.remove(this);
+            }
+            complete(null, new CancellationException());
+            return isCancelled();
+        }
+
+        public synchronized boolean isCancelled() {
+            return exception instanceof CancellationException;
+        }
+
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        public Object get() throws InterruptedException, ExecutionException {
+            done.await();
+            return report();
+        }
+
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return report();
+        }
+
+        private synchronized Object report() throws ExecutionException {
+            if (exception instanceof CancellationException) {
+                throw (CancellationException) exception;
+            }
+            if (exception != null) {
+                throw new ExecutionException(exception);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.remoting;
+
+import com.gigaspaces.internal.version.PlatformLogicalVersion;
+import com.gigaspaces.lrmi.LRMIInvocationContext;
+
+import java.io.*;
+
+/**
+ * An {@link ExecutorRemotingTask} sent by a proxy with
+ * {@link ExecutorSpaceRemotingProxyFactoryBean#setMethodIdDispatch(boolean) method id dispatch}
+ * enabled. Once the ids of a method are confirmed by the exporter, the invocation carries only the
+ * compact service and method ids instead of the lookup name, method name and method hash.
+ *
+ * <p>Being a class of its own, the wire format of a plain {@link ExecutorRemotingTask} is left
+ * untouched. When sent to a space running a version unaware of method ids, the task is replaced
+ * by a plain, name dispatched, {@link ExecutorRemotingTask}.
+ *
+ * @see SpaceRemotingServiceExporter
+ */
+public class ExecutorRemotingMethodIdTask<T extends Serializable> extends ExecutorRemotingTask<T> {
+
+    private static final long serialVersionUID = -1709846423529187251L;
+
+    /**
+     * Should not be used. Used for externalizable.
+     */
+    public ExecutorRemotingMethodIdTask() {
+    }
+
+    /**
+     * @param confirmed <code>true</code> to send only the ids, <code>false</code> to probe them,
+     *                  sending the names and hash along
+     */
+    public ExecutorRemotingMethodIdTask(String lookupName, String methodName, RemotingUtils.MethodHash methodHash, Object[] arguments,
+                                        int serviceId, int methodId, boolean confirmed) {
+        super(lookupName, methodName, methodHash, arguments);
+        setMethodIds(serviceId, methodId, confirmed);
+    }
+
+    /**
+     * Switches a task dispatched by id back to probing, so it is resolved by its names and hash.
+     */
+    void probe() {
+        setMethodIds(getServiceId(), getMethodId(), false);
+    }
+
+    @Override
+    InternalExecutorResult<T> createResult(T result, Integer instanceId) {
+        return new InternalMethodIdExecutorResult<T>(result, instanceId, isMethodIdsAccepted());
+    }
+
+    /**
+     * Falls back to a plain name dispatched task for spaces not aware of method ids.
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        if (LRMIInvocationContext.getEndpointLogicalVersion().greaterOrEquals(PlatformLogicalVersion.v11_0_0)) {
+            return this;
+        }
+        return toNameDispatchTask();
+    }
+
+    ExecutorRemotingTask<T> toNameDispatchTask() {
+        ExecutorRemotingTask<T> task = new ExecutorRemotingTask<T>(getLookupName(), getMethodName(), getMethodHash(), getArguments());
+        task.setMetaArguments(getMetaArguments());
+        if (getRouting() != null) {
+            task.setRouting(getRouting());
+        }
+        return task;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        writeMethodIdExternal(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        readMethodIdExternal(in);
+    }
+
+    /**
+     * The result of a method id task, also reporting whether the exporter accepted probed ids.
+     */
+    public static class InternalMethodIdExecutorResult<T extends Serializable> extends InternalExecutorResult<T> {
+
+        private static final long serialVersionUID = 3526094405187206617L;
+
+        private boolean methodIdsAccepted;
+
+        public InternalMethodIdExecutorResult() {
+        }
+
+        public InternalMethodIdExecutorResult(T result, Integer instanceId, boolean methodIdsAccepted) {
+            super(result, instanceId);
+            this.methodIdsAccepted = methodIdsAccepted;
+        }
+
+        @Override
+        public boolean isMethodIdsAccepted() {
+            return methodIdsAccepted;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            super.writeExternal(out);
+            out.writeBoolean(methodIdsAccepted);
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            super.readExternal(in);
+            methodIdsAccepted = in.readBoolean();
+        }
+    }
+}
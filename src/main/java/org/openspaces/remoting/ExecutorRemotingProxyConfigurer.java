@@ -86,6 +86,38 @@ public class ExecutorRemotingProxyConfigurer<T> {
         return this;
     }
 
+    /**
+     * @see org.openspaces.remoting.ExecutorSpaceRemotingProxyFactoryBean#setPartialResultsOnTimeout(boolean)
+     */
+    public ExecutorRemotingProxyConfigurer<T> partialResultsOnTimeout(boolean partialResultsOnTimeout) {
+        executorFactoryBean.setPartialResultsOnTimeout(partialResultsOnTimeout);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.remoting.ExecutorSpaceRemotingProxyFactoryBean#setMethodIdDispatch(boolean)
+     */
+    public ExecutorRemotingProxyConfigurer<T> methodIdDispatch(boolean methodIdDispatch) {
+        executorFactoryBean.setMethodIdDispatch(methodIdDispatch);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.remoting.ExecutorSpaceRemotingProxyFactoryBean#setCoalescingWindow(long)
+     */
+    public ExecutorRemotingProxyConfigurer<T> coalescingWindow(long coalescingWindow) {
+        executorFactoryBean.setCoalescingWindow(coalescingWindow);
+        return this;
+    }
+
+    /**
+     * @see org.openspaces.remoting.ExecutorSpaceRemotingProxyFactoryBean#setCoalescingMaxBatchSize(int)
+     */
+    public ExecutorRemotingProxyConfigurer<T> coalescingMaxBatchSize(int coalescingMaxBatchSize) {
+        executorFactoryBean.setCoalescingMaxBatchSize(coalescingMaxBatchSize);
+        return this;
+    }
+
     /**
      * @see org.openspaces.remoting.ExecutorSpaceRemotingProxyFactoryBean#setMetaArgumentsHandler(MetaArgumentsHandler)
      */
@@ -17,6 +17,8 @@
 package org.openspaces.remoting;
 
 import com.gigaspaces.async.AsyncResult;
+import com.gigaspaces.async.AsyncResultFilter;
+import com.gigaspaces.async.AsyncResultFilterEvent;
 import com.gigaspaces.internal.version.PlatformLogicalVersion;
 import com.gigaspaces.lrmi.LRMIInvocationContext;
 import com.j_spaces.kernel.JSpaceUtilities;
@@ -45,12 +47,29 @@ import java.util.List;
  * @author kimchy
  */
 public class ExecutorRemotingTask<T extends Serializable> implements DistributedTask<ExecutorRemotingTask.InternalExecutorResult<T>, List<AsyncResult<ExecutorRemotingTask.InternalExecutorResult<T>>>>,
-        ApplicationContextAware, ClusterInfoAware, TaskRoutingProvider, SpaceRemotingInvocation, Externalizable {
+        AsyncResultFilter<ExecutorRemotingTask.InternalExecutorResult<T>>, ApplicationContextAware, ClusterInfoAware, TaskRoutingProvider,
+        SpaceRemotingInvocation, Externalizable {
 
     static final long serialVersionUID = -3901451909736348231L;
     
     private final static transient Log logger = LogFactory.getLog(ExecutorRemotingTask.class);
 
+    /**
+     * The invocation carries the lookup name, method name and method hash.
+     */
+    static final byte DISPATCH_BY_NAME = 0;
+
+    /**
+     * The invocation carries only the service and method ids.
+     */
+    static final byte DISPATCH_BY_ID = 1;
+
+    /**
+     * The invocation carries both, and the exporter reports whether the ids matched the method it
+     * resolved by hash. Used until the ids of a method are confirmed.
+     */
+    static final byte DISPATCH_PROBE = 2;
+
     private String lookupName;
 
     private String methodName;
@@ -63,12 +82,24 @@ public class ExecutorRemotingTask<T extends Serializable> implements Distributed
 
     private Integer routing;
 
+    private byte dispatch = DISPATCH_BY_NAME;
+
+    private int serviceId;
+
+    private int methodId;
+
+    private transient boolean methodIdsAccepted;
+
     private transient ApplicationContext applicationContext;
 
     private transient Integer instanceId;
 
     private transient SpaceRemotingServiceExporter serviceExporter;
 
+    private transient AsyncResultFilter<InternalExecutorResult<T>> resultFilter;
+
+    private transient long receiveTime;
+
     /**
      * Should not be used. Used for externalizable.
      */
@@ -97,12 +128,16 @@ public class ExecutorRemotingTask<T extends Serializable> implements Distributed
     public InternalExecutorResult<T> execute() throws Exception {
         try {
             Object result = serviceExporter.invokeExecutor(this);
-            return new InternalExecutorResult<T>((T) result, instanceId);
+            return createResult((T) result, instanceId);
         } catch (Throwable e) {
             throw new InternalExecutorException(e, instanceId, lookupName, methodName);
         }
     }
 
+    InternalExecutorResult<T> createResult(T result, Integer instanceId) {
+        return new InternalExecutorResult<T>(result, instanceId);
+    }
+
     public static SpaceRemotingServiceExporter getServiceExporter(ApplicationContext applicationContext) {
         try {
             if (logger.isDebugEnabled())
@@ -123,6 +158,20 @@ public class ExecutorRemotingTask<T extends Serializable> implements Distributed
         return results;
     }
 
+    /**
+     * Lets the client side filter the results of a broadcast invocation as they arrive.
+     */
+    public Decision onResult(AsyncResultFilterEvent<InternalExecutorResult<T>> event) {
+        if (resultFilter == null) {
+            return Decision.CONTINUE;
+        }
+        return resultFilter.onResult(event);
+    }
+
+    void setResultFilter(AsyncResultFilter<InternalExecutorResult<T>> resultFilter) {
+        this.resultFilter = resultFilter;
+    }
+
     public Integer getRouting() {
         return routing;
     }
@@ -147,6 +196,66 @@ public class ExecutorRemotingTask<T extends Serializable> implements Distributed
         return arguments;
     }
 
+    /**
+     * Returns the compact service id of this invocation, see {@link RemotingUtils#serviceId(String)}.
+     * Only meaningful when {@link #isMethodIdDispatch()}.
+     */
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    /**
+     * Returns the compact method id of this invocation, see
+     * {@link RemotingUtils#methodId(RemotingUtils.MethodHash)}. Only meaningful when
+     * {@link #isMethodIdDispatch()}.
+     */
+    public int getMethodId() {
+        return methodId;
+    }
+
+    /**
+     * Returns <code>true</code> if this invocation carries service and method ids.
+     */
+    public boolean isMethodIdDispatch() {
+        return dispatch != DISPATCH_BY_NAME;
+    }
+
+    byte getDispatch() {
+        return dispatch;
+    }
+
+    void setMethodIds(int serviceId, int methodId, boolean confirmed) {
+        this.serviceId = serviceId;
+        this.methodId = methodId;
+        this.dispatch = confirmed ? DISPATCH_BY_ID : DISPATCH_PROBE;
+    }
+
+    /**
+     * Called by the exporter once it resolved an invocation dispatched by id, filling in the names
+     * and hash not sent over the wire.
+     */
+    void setResolvedMethod(String lookupName, String methodName, RemotingUtils.MethodHash methodHash) {
+        this.lookupName = lookupName;
+        this.methodName = methodName;
+        this.methodHash = methodHash;
+    }
+
+    /**
+     * The {@link System#nanoTime()} the task was deserialized by the space, <code>0</code> if it
+     * never was (an embedded invocation).
+     */
+    long getReceiveTime() {
+        return receiveTime;
+    }
+
+    void setMethodIdsAccepted(boolean methodIdsAccepted) {
+        this.methodIdsAccepted = methodIdsAccepted;
+    }
+
+    boolean isMethodIdsAccepted() {
+        return methodIdsAccepted;
+    }
+
     public Object[] getMetaArguments() {
         return metaArguments;
     }
@@ -158,6 +267,58 @@ public class ExecutorRemotingTask<T extends Serializable> implements Distributed
     public void writeExternal(ObjectOutput out) throws IOException {
         out.writeUTF(lookupName);
         out.writeUTF(methodName);
+        writeArguments(out);
+        methodHash.writeExternal(out);
+    }
+
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        receiveTime = System.nanoTime();
+        lookupName = in.readUTF();
+        methodName = in.readUTF();
+        readArguments(in);
+        methodHash = new RemotingUtils.MethodHash();
+        methodHash.readExternal(in);
+    }
+
+    /**
+     * Writes the invocation in the format of {@link ExecutorRemotingMethodIdTask}, leaving out the
+     * names and hash when dispatched by id.
+     */
+    void writeMethodIdExternal(ObjectOutput out) throws IOException {
+        out.writeByte(dispatch);
+        if (dispatch != DISPATCH_BY_ID) {
+            out.writeUTF(lookupName);
+            out.writeUTF(methodName);
+        }
+        if (dispatch != DISPATCH_BY_NAME) {
+            out.writeInt(serviceId);
+            out.writeInt(methodId);
+        }
+        writeArguments(out);
+        if (dispatch != DISPATCH_BY_ID) {
+            methodHash.writeExternal(out);
+        }
+    }
+
+    void readMethodIdExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        receiveTime = System.nanoTime();
+        dispatch = in.readByte();
+        if (dispatch != DISPATCH_BY_ID) {
+            lookupName = in.readUTF();
+            methodName = in.readUTF();
+        }
+        if (dispatch != DISPATCH_BY_NAME) {
+            serviceId = in.readInt();
+            methodId = in.readInt();
+        }
+        readArguments(in);
+        if (dispatch != DISPATCH_BY_ID) {
+            methodHash = new RemotingUtils.MethodHash();
+            methodHash.readExternal(in);
+        }
+    }
+
+    private void writeArguments(ObjectOutput out) throws IOException {
         if (arguments == null) {
             out.writeInt(0);
         } else {
@@ -174,13 +335,9 @@ public class ExecutorRemotingTask<T extends Serializable> implements Distributed
                 out.writeObject(arg);
             }
         }
-
-        methodHash.writeExternal(out);
     }
 
-    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        lookupName = in.readUTF();
-        methodName = in.readUTF();
+    private void readArguments(ObjectInput in) throws IOException, ClassNotFoundException {
         int size = in.readInt();
         if (size > 0) {
             arguments = new Object[size];
@@ -195,9 +352,6 @@ public class ExecutorRemotingTask<T extends Serializable> implements Distributed
                 metaArguments[i] = in.readObject();
             }
         }
-
-        methodHash = new RemotingUtils.MethodHash();
-        methodHash.readExternal(in);
     }
 
     /**
@@ -227,6 +381,14 @@ public class ExecutorRemotingTask<T extends Serializable> implements Distributed
             return instanceId;
         }
 
+        /**
+         * Returns <code>true</code> if the invocation probed method id dispatch and the exporter
+         * resolved its ids to the invoked method.
+         */
+        public boolean isMethodIdsAccepted() {
+            return false;
+        }
+
         public void writeExternal(ObjectOutput out) throws IOException {
             if (result == null) {
                 out.writeBoolean(false);
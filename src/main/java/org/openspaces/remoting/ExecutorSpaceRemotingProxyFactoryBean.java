@@ -19,6 +19,8 @@ package org.openspaces.remoting;
 import com.gigaspaces.async.AsyncFuture;
 import com.gigaspaces.async.AsyncFutureListener;
 import com.gigaspaces.async.AsyncResult;
+import com.gigaspaces.async.AsyncResultFilter;
+import com.gigaspaces.async.AsyncResultFilterEvent;
 import com.gigaspaces.async.internal.DefaultAsyncResult;
 
 import org.aopalliance.intercept.MethodInterceptor;
@@ -26,19 +28,23 @@ import org.aopalliance.intercept.MethodInvocation;
 import org.openspaces.core.GigaSpace;
 import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.remoting.support.RemoteAccessor;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
 import java.io.Serializable;
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -79,6 +85,8 @@ import static org.openspaces.remoting.RemotingUtils.*;
  * for example) by setting the {@link #setBroadcast(boolean) broadcast} flag to <code>true</code>. In such cases,
  * a custom {@link #setRemoteResultReducer(org.openspaces.remoting.RemoteResultReducer)}  can be plugged to reduce the results of
  * all different services into a single response (assuming that the service has a return value).
+ * An {@link IncrementalRemoteResultReducer} reduces the results as they arrive, and may complete the
+ * invocation without waiting for all of them.
  * <p/>
  * <p>The actual remote invocation can be replaced with an aspect implementing {@link RemoteInvocationAspect}
  * which can be set using {@link #setRemoteInvocationAspect(org.openspaces.remoting.RemoteInvocationAspect)}. It is up the aspect to then
@@ -86,16 +94,20 @@ import static org.openspaces.remoting.RemotingUtils.*;
  * <p>Note that it is also possible to configure method level broadcasting, {@link RemoteResultReducer},
  * {@link RemoteRoutingHandler}, {@link RemoteInvocationAspect} and {@link MetaArgumentsHandler} using the
  * {@link ExecutorRemotingMethod} annotation.
+ * <p>Fine grained invocations issued concurrently can be coalesced per partition into a single
+ * execution by setting a {@link #setCoalescingWindow(long) coalescing window}.
  *
  *
  * @author kimchy
  * @see SpaceRemotingServiceExporter
  */
 public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implements FactoryBean, InitializingBean,
-        MethodInterceptor, RemotingInvoker, ApplicationContextAware {
+        DisposableBean, MethodInterceptor, RemotingInvoker, ApplicationContextAware {
 
     public static final String DEFAULT_ASYNC_METHOD_PREFIX = "async";
 
+    public static final int DEFAULT_COALESCING_MAX_BATCH_SIZE = 64;
+
 
     private GigaSpace gigaSpace;
 
@@ -111,14 +123,26 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
 
     private boolean returnFirstResult = true;
 
+    private boolean partialResultsOnTimeout = false;
+
     private RemoteResultReducer remoteResultReducer;
 
     private RemoteInvocationAspect remoteInvocationAspect;
 
+    private boolean methodIdDispatch = false;
+
+    private long coalescingWindow = 0;
+
+    private int coalescingMaxBatchSize = DEFAULT_COALESCING_MAX_BATCH_SIZE;
+
+    private ExecutorRemotingCoalescer coalescer;
+
     private Object serviceProxy;
 
     private Map<Method, RemotingUtils.MethodHash> methodHashLookup;
 
+    private final ConcurrentMap<Method, InvocationPlan> invocationPlans = new ConcurrentHashMap<Method, InvocationPlan>();
+
     private ApplicationContext applicationContext;
 
     /**
@@ -183,6 +207,18 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
         this.returnFirstResult = returnFirstResult;
     }
 
+    /**
+     * When set to <code>true</code> (defaults to <code>false</code>) a broadcast invocation timing
+     * out completes with the results received so far instead of failing with a timeout: the
+     * accumulated result of an {@link IncrementalRemoteResultReducer}, the reduced received
+     * results of any other reducer, or the array (or first) of the received results.
+     * <p/>
+     * <p>Note, an invocation returning the first result without any result received still fails.
+     */
+    public void setPartialResultsOnTimeout(boolean partialResultsOnTimeout) {
+        this.partialResultsOnTimeout = partialResultsOnTimeout;
+    }
+
     /**
      * The actual remote invocation can be replaced with an aspect implementing {@link RemoteInvocationAspect}
      * which can be set using {@link #setRemoteInvocationAspect(org.openspaces.remoting.RemoteInvocationAspect)}. It is up the aspect to then
@@ -192,11 +228,71 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
         this.remoteInvocationAspect = remoteInvocationAspect;
     }
 
+    /**
+     * If set to <code>true</code> (defaults to <code>false</code>) invocations identify the service
+     * and method by two compact ids instead of the lookup name, method name and method hash, and
+     * the exporter dispatches them through a prebuilt table.
+     *
+     * <p>The ids of each method are negotiated: the first invocations of a method carry both the
+     * names and the ids, until the exporter confirms the ids lead to the same method. Should the
+     * exporter later fail to resolve the ids (for example, since it was redeployed with a different
+     * version of the service interface) the method falls back to name based dispatch, the failed
+     * invocation (sync or async) being retried transparently. Broadcast invocations are always
+     * dispatched by name.
+     *
+     * <p>Invocations sent to a space running a version not supporting method id dispatch are sent
+     * by name, in the format of that version. With method id dispatch disabled, invocations keep
+     * the plain {@link ExecutorRemotingTask} format.
+     */
+    public void setMethodIdDispatch(boolean methodIdDispatch) {
+        this.methodIdDispatch = methodIdDispatch;
+    }
+
+    /**
+     * Sets the coalescing window, in <b>microseconds</b>. Defaults to <code>0</code>, sending each
+     * invocation on its own.
+     *
+     * <p>When set, non broadcast invocations routed to the same partition within the window (for
+     * example, issued concurrently by many threads) are sent together as a single
+     * {@link ExecutorRemotingBatchTask}, saving a round trip per invocation at the cost of delaying
+     * the first invocation of each batch by up to the window. Each invocation still completes with
+     * its own result or exception. Invocations without routing may run on any partition and are
+     * coalesced together. Invocations issued within a transaction are never coalesced.
+     *
+     * <p>The exporter runs the invocations of a batch one after the other unless configured with
+     * several {@link SpaceRemotingServiceExporter#setBatchWorkers(int) batch workers}.
+     *
+     * @see #setCoalescingMaxBatchSize(int)
+     */
+    public void setCoalescingWindow(long coalescingWindow) {
+        Assert.isTrue(coalescingWindow >= 0, "'coalescingWindow' must not be negative");
+        this.coalescingWindow = coalescingWindow;
+    }
+
+    /**
+     * Sets the number of coalesced invocations at which a batch is sent without waiting for the
+     * rest of the {@link #setCoalescingWindow(long) window}. Defaults to <code>64</code>.
+     */
+    public void setCoalescingMaxBatchSize(int coalescingMaxBatchSize) {
+        Assert.isTrue(coalescingMaxBatchSize > 0, "'coalescingMaxBatchSize' must be positive");
+        this.coalescingMaxBatchSize = coalescingMaxBatchSize;
+    }
+
     public void afterPropertiesSet() {
         Assert.notNull(getServiceInterface(), "serviceInterface property is required");
         Assert.notNull(gigaSpace, "gigaSpace property is required");
         this.serviceProxy = ProxyFactory.getProxy(getServiceInterface(), this);
         this.methodHashLookup = buildMethodToHashLookupForInterface(getServiceInterface(), asyncMethodPrefix);
+        if (coalescingWindow > 0) {
+            this.coalescer = new ExecutorRemotingCoalescer(gigaSpace, "GS-" + ClassUtils.getShortName(getServiceInterface()) + "-coalescer",
+                    coalescingWindow, coalescingMaxBatchSize);
+        }
+    }
+
+    public void destroy() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
     }
 
     public Object getObject() {
@@ -212,19 +308,7 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
     }
 
     public Object invoke(MethodInvocation methodInvocation) throws Throwable {
-        RemoteInvocationAspect localRemoteInvocationAspect = null;
-        Annotation[] methodAnnotations = methodInvocation.getMethod().getAnnotations();
-        for (Annotation methodAnnotation : methodAnnotations) {
-            if (methodAnnotation instanceof ExecutorRemotingMethod) {
-                ExecutorRemotingMethod remotingMethodAnnotation = (ExecutorRemotingMethod) methodAnnotation;
-                localRemoteInvocationAspect = (RemoteInvocationAspect) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.remoteInvocationAspect(),
-                                                                                                               remotingMethodAnnotation.remoteInvocationAspectType());
-            }
-        }
-        if (localRemoteInvocationAspect == null) {
-            localRemoteInvocationAspect = remoteInvocationAspect;
-        }
-
+        RemoteInvocationAspect localRemoteInvocationAspect = getInvocationPlan(methodInvocation.getMethod()).remoteInvocationAspect;
         if (localRemoteInvocationAspect != null) {
             return localRemoteInvocationAspect.invoke(methodInvocation, this);
         }
@@ -232,64 +316,42 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
     }
 
     public Object invokeRemote(MethodInvocation methodInvocation) throws Throwable {
+        InvocationPlan plan = getInvocationPlan(methodInvocation.getMethod());
         String lookupName = getServiceInterface().getName();
-        String methodName = methodInvocation.getMethod().getName();
+        String methodName = plan.methodName;
+        boolean asyncExecution = plan.asyncExecution;
 
-        boolean asyncExecution = false;
-        if (Future.class.isAssignableFrom(methodInvocation.getMethod().getReturnType())) {
-            asyncExecution = true;
-            if (methodName.startsWith(asyncMethodPrefix)) {
-                methodName = StringUtils.uncapitalize(methodName.substring(asyncMethodPrefix.length()));
-            }
-        }
-
-        ExecutorRemotingTask task = new ExecutorRemotingTask(lookupName, methodName, methodHashLookup.get(methodInvocation.getMethod()), methodInvocation.getArguments());
-
-        BroadcastIndicator broadcastIndicator = null;
-        RemoteResultReducer localRemoteResultReducer = null;
-        RemoteRoutingHandler localRoutingHandler = null;
-        MetaArgumentsHandler localMetaArgumentsHandler = null;
-        Boolean localShouldBroadcast = null;
+        RemoteResultReducer localRemoteResultReducer = plan.remoteResultReducer;
+        RemoteRoutingHandler localRoutingHandler = plan.routingHandler;
+        MetaArgumentsHandler localMetaArgumentsHandler = plan.metaArgumentsHandler;
+        boolean localShouldBroadcast = plan.broadcast;
 
-        //compute broadcast related meta data
+        //compute broadcast related meta data, a broadcast indicator replaces the method level settings
         if (methodInvocation.getArguments() != null && methodInvocation.getArguments().length > 0 && methodInvocation.getArguments()[0] instanceof BroadcastIndicator) {
-            broadcastIndicator = (BroadcastIndicator) methodInvocation.getArguments()[0];
+            BroadcastIndicator broadcastIndicator = (BroadcastIndicator) methodInvocation.getArguments()[0];
+            localRemoteResultReducer = remoteResultReducer;
+            localRoutingHandler = remoteRoutingHandler;
+            localMetaArgumentsHandler = metaArgumentsHandler;
+            localShouldBroadcast = broadcast;
             if (broadcastIndicator.shouldBroadcast() != null) {
                 localShouldBroadcast = broadcastIndicator.shouldBroadcast();
-                localRemoteResultReducer = broadcastIndicator.getReducer();
-            }
-        } else {
-            Annotation[] methodAnnotations = methodInvocation.getMethod().getAnnotations();
-            for (Annotation methodAnnotation : methodAnnotations) {
-                if (methodAnnotation instanceof ExecutorRemotingMethod) {
-                    ExecutorRemotingMethod remotingMethodAnnotation = (ExecutorRemotingMethod) methodAnnotation;
-                    if (remotingMethodAnnotation.broadcast()) {
-                        localShouldBroadcast = true;
-                        localRemoteResultReducer = (RemoteResultReducer) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.remoteResultReducer(),
-                                                                                                   remotingMethodAnnotation.remoteResultReducerType());
-                    } else {
-                        localShouldBroadcast = false;
-                        RemoteRoutingHandler methodRoutingHandler = (RemoteRoutingHandler) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.remoteRoutingHandler(),
-                                                                                                                     remotingMethodAnnotation.remoteRoutingHandlerType());
-                        if (methodRoutingHandler != null) {
-                            localRoutingHandler = methodRoutingHandler;
-                        }
-                    }
-                    localMetaArgumentsHandler = (MetaArgumentsHandler) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.metaArgumentsHandler(),
-                                                                                                 remotingMethodAnnotation.metaArgumentsHandlerType());
-
+                if (broadcastIndicator.getReducer() != null) {
+                    localRemoteResultReducer = broadcastIndicator.getReducer();
                 }
             }
         }
 
-
-        if (localRemoteResultReducer == null) { localRemoteResultReducer = remoteResultReducer;}
-        if (localRoutingHandler == null) {localRoutingHandler = remoteRoutingHandler;}
-        if (localMetaArgumentsHandler == null) { localMetaArgumentsHandler = metaArgumentsHandler;}
-        if (localShouldBroadcast == null) { localShouldBroadcast = broadcast;}
+        ExecutorRemotingTask task;
+        if (methodIdDispatch && plan.methodHash != null && !localShouldBroadcast) {
+            task = new ExecutorRemotingMethodIdTask(lookupName, methodName, plan.methodHash, methodInvocation.getArguments(),
+                    plan.serviceId, plan.methodId, plan.methodIdsConfirmed);
+        } else {
+            task = new ExecutorRemotingTask(lookupName, methodName, plan.methodHash, methodInvocation.getArguments());
+        }
 
         if (!localShouldBroadcast) {
-            task.setRouting(RemotingProxyUtils.computeRouting(task, localRoutingHandler, methodInvocation));
+            task.setRouting(RemotingProxyUtils.computeRouting(task, localRoutingHandler, methodInvocation.getArguments(),
+                    plan.routingParameterIndex, plan.routingProperty));
         }
 
         if (localMetaArgumentsHandler != null) {
@@ -297,7 +359,11 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
         }
 
         if (localShouldBroadcast) {
-            DistributedExecutorAsyncFuture future = new DistributedExecutorAsyncFuture(gigaSpace.execute(task), localRemoteResultReducer, task);
+            BroadcastResultFilter resultFilter = createResultFilter(localRemoteResultReducer, task);
+            if (resultFilter != null) {
+                task.setResultFilter(resultFilter);
+            }
+            DistributedExecutorAsyncFuture future = new DistributedExecutorAsyncFuture(gigaSpace.execute(task), localRemoteResultReducer, task, resultFilter);
             if (asyncExecution)
                 return future;
             try {
@@ -310,7 +376,8 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
             }
         }
 
-        ExecutorAsyncFuture future = new ExecutorAsyncFuture(gigaSpace.execute(task, task.getRouting()), task);
+        boolean routed = localRoutingHandler != null || plan.routingParameterIndex >= 0;
+        ExecutorAsyncFuture future = new ExecutorAsyncFuture(this, execute(task, routed), task, routed, plan);
         if (asyncExecution)
             return future;
 
@@ -324,6 +391,203 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
         }
     }
 
+    /**
+     * Returns the filter handling the results of a broadcast invocation as they arrive, or
+     * <code>null</code> if they are only handled once all of them arrived.
+     */
+    private BroadcastResultFilter createResultFilter(RemoteResultReducer reducer, ExecutorRemotingTask task) throws Exception {
+        RemoteResultAccumulator accumulator = null;
+        if (reducer instanceof IncrementalRemoteResultReducer) {
+            accumulator = ((IncrementalRemoteResultReducer) reducer).createAccumulator(task);
+        }
+        boolean breakOnFirstResult = reducer == null && returnFirstResult;
+        if (accumulator == null && !breakOnFirstResult && !partialResultsOnTimeout) {
+            return null;
+        }
+        return new BroadcastResultFilter(accumulator, breakOnFirstResult, partialResultsOnTimeout);
+    }
+
+    private InvocationPlan getInvocationPlan(Method method) {
+        InvocationPlan plan = invocationPlans.get(method);
+        if (plan == null) {
+            plan = buildInvocationPlan(method);
+            InvocationPlan existing = invocationPlans.putIfAbsent(method, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Resolves once what the invocations of the given method need: the method level
+     * {@link ExecutorRemotingMethod} settings (falling back to the proxy level ones), the handlers
+     * they reference, the async prefix handling and the routing parameter.
+     */
+    private InvocationPlan buildInvocationPlan(Method method) {
+        InvocationPlan plan = new InvocationPlan();
+        plan.methodName = method.getName();
+        plan.methodHash = methodHashLookup.get(method);
+        if (Future.class.isAssignableFrom(method.getReturnType())) {
+            plan.asyncExecution = true;
+            if (plan.methodName.startsWith(asyncMethodPrefix)) {
+                plan.methodName = StringUtils.uncapitalize(plan.methodName.substring(asyncMethodPrefix.length()));
+            }
+        }
+
+        plan.broadcast = broadcast;
+        ExecutorRemotingMethod remotingMethodAnnotation = method.getAnnotation(ExecutorRemotingMethod.class);
+        if (remotingMethodAnnotation != null) {
+            plan.broadcast = remotingMethodAnnotation.broadcast();
+            if (remotingMethodAnnotation.broadcast()) {
+                plan.remoteResultReducer = (RemoteResultReducer) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.remoteResultReducer(),
+                        remotingMethodAnnotation.remoteResultReducerType());
+            } else {
+                plan.routingHandler = (RemoteRoutingHandler) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.remoteRoutingHandler(),
+                        remotingMethodAnnotation.remoteRoutingHandlerType());
+            }
+            plan.metaArgumentsHandler = (MetaArgumentsHandler) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.metaArgumentsHandler(),
+                    remotingMethodAnnotation.metaArgumentsHandlerType());
+            plan.remoteInvocationAspect = (RemoteInvocationAspect) createByClassOrFindByName(applicationContext, remotingMethodAnnotation.remoteInvocationAspect(),
+                    remotingMethodAnnotation.remoteInvocationAspectType());
+        }
+        if (plan.remoteResultReducer == null) { plan.remoteResultReducer = remoteResultReducer;}
+        if (plan.routingHandler == null) {plan.routingHandler = remoteRoutingHandler;}
+        if (plan.metaArgumentsHandler == null) { plan.metaArgumentsHandler = metaArgumentsHandler;}
+        if (plan.remoteInvocationAspect == null) { plan.remoteInvocationAspect = remoteInvocationAspect;}
+
+        plan.routingParameterIndex = RemotingProxyUtils.findRoutingParameter(method);
+        Routing routingAnnotation = RemotingProxyUtils.findRoutingAnnotation(method);
+        plan.routingProperty = routingAnnotation == null ? null : routingAnnotation.value();
+
+        if (plan.methodHash != null) {
+            plan.serviceId = RemotingUtils.serviceId(getServiceInterface().getName());
+            plan.methodId = RemotingUtils.methodId(plan.methodHash);
+        }
+        return plan;
+    }
+
+    /**
+     * The settings of the invocations of a single service method. Built on the first invocation of
+     * the method and never changed afterwards, apart from the method id dispatch negotiation.
+     */
+    private static final class InvocationPlan {
+
+        String methodName;
+
+        RemotingUtils.MethodHash methodHash;
+
+        boolean asyncExecution;
+
+        boolean broadcast;
+
+        RemoteResultReducer remoteResultReducer;
+
+        RemoteRoutingHandler routingHandler;
+
+        MetaArgumentsHandler metaArgumentsHandler;
+
+        RemoteInvocationAspect remoteInvocationAspect;
+
+        int routingParameterIndex;
+
+        String routingProperty;
+
+        int serviceId;
+
+        int methodId;
+
+        volatile boolean methodIdsConfirmed;
+
+        void onResult(ExecutorRemotingTask.InternalExecutorResult result) {
+            if (result != null && result.isMethodIdsAccepted()) {
+                methodIdsConfirmed = true;
+            }
+        }
+
+        void onException(Throwable exception) {
+            if (exception instanceof MethodIdLookupFailureException) {
+                methodIdsConfirmed = false;
+            }
+        }
+    }
+
+    /**
+     * Handles the results of a broadcast invocation as they arrive: feeds them to the accumulator of
+     * an {@link IncrementalRemoteResultReducer} without retaining them, stops waiting once the first
+     * result arrived when only it is returned, and keeps the received results when partial results
+     * are returned on timeout.
+     */
+    private static final class BroadcastResultFilter implements AsyncResultFilter<ExecutorRemotingTask.InternalExecutorResult> {
+
+        private final RemoteResultAccumulator accumulator;
+
+        private final boolean breakOnFirstResult;
+
+        private final List<AsyncResult<ExecutorRemotingTask.InternalExecutorResult>> received;
+
+        private Throwable failure;
+
+        private boolean closed;
+
+        private boolean reduced;
+
+        private Object reducedResult;
+
+        private BroadcastResultFilter(RemoteResultAccumulator accumulator, boolean breakOnFirstResult, boolean keepReceived) {
+            this.accumulator = accumulator;
+            this.breakOnFirstResult = breakOnFirstResult;
+            this.received = keepReceived && accumulator == null ? new ArrayList<AsyncResult<ExecutorRemotingTask.InternalExecutorResult>>() : null;
+        }
+
+        public synchronized Decision onResult(AsyncResultFilterEvent<ExecutorRemotingTask.InternalExecutorResult> event) {
+            if (closed) {
+                return Decision.SKIP_AND_BREAK;
+            }
+            AsyncResult<ExecutorRemotingTask.InternalExecutorResult> result = event.getCurrentResult();
+            if (accumulator != null) {
+                try {
+                    if (accumulator.accumulate(new ExecutorSpaceRemotingResult(result, null))) {
+                        return Decision.SKIP;
+                    }
+                } catch (Throwable e) {
+                    failure = e;
+                }
+                closed = true;
+                return Decision.SKIP_AND_BREAK;
+            }
+            if (received != null) {
+                received.add(result);
+            }
+            return breakOnFirstResult ? Decision.BREAK : Decision.CONTINUE;
+        }
+
+        boolean isAccumulating() {
+            return accumulator != null;
+        }
+
+        synchronized Object getAccumulatedResult() throws Throwable {
+            if (failure == null && !reduced) {
+                closed = true;
+                try {
+                    reducedResult = accumulator.getResult();
+                    reduced = true;
+                } catch (Throwable e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return reducedResult;
+        }
+
+        synchronized List<AsyncResult<ExecutorRemotingTask.InternalExecutorResult>> closeAndGetReceived() {
+            closed = true;
+            return new ArrayList<AsyncResult<ExecutorRemotingTask.InternalExecutorResult>>(received);
+        }
+    }
+
     private class DistributedExecutorAsyncFuture implements AsyncFuture {
 
         private final AsyncFuture<List<AsyncResult<ExecutorRemotingTask.InternalExecutorResult>>> future;
@@ -332,14 +596,18 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
 
         private final ExecutorRemotingTask task;
 
-        public DistributedExecutorAsyncFuture(AsyncFuture<List<AsyncResult<ExecutorRemotingTask.InternalExecutorResult>>> future, RemoteResultReducer remoteResultReducer, ExecutorRemotingTask task) {
+        private final BroadcastResultFilter resultFilter;
+
+        public DistributedExecutorAsyncFuture(AsyncFuture<List<AsyncResult<ExecutorRemotingTask.InternalExecutorResult>>> future, RemoteResultReducer remoteResultReducer,
+                                              ExecutorRemotingTask task, BroadcastResultFilter resultFilter) {
             this.future = future;
             this.remoteResultReducer = remoteResultReducer;
             this.task = task;
+            this.resultFilter = resultFilter;
         }
 
         public void setListener(AsyncFutureListener listener) {
-            future.setListener(new ExecutorAsyncFutureListener(listener));
+            future.setListener(new ExecutorAsyncFutureListener(listener, null));
         }
 
         public boolean cancel(boolean mayInterruptIfRunning) {
@@ -367,10 +635,27 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
             Object retVal;
             try {
                 List<AsyncResult<ExecutorRemotingTask.InternalExecutorResult>> results;
-                if (timeout == -1) {
-                    results = future.get();
-                } else {
-                    results = future.get(timeout, unit);
+                try {
+                    if (timeout == -1) {
+                        results = future.get();
+                    } else {
+                        results = future.get(timeout, unit);
+                    }
+                } catch (TimeoutException e) {
+                    if (resultFilter == null || !partialResultsOnTimeout) {
+                        throw e;
+                    }
+                    future.cancel(false);
+                    if (resultFilter.isAccumulating()) {
+                        return resultFilter.getAccumulatedResult();
+                    }
+                    results = resultFilter.closeAndGetReceived();
+                    if (results.isEmpty() && remoteResultReducer == null) {
+                        throw e;
+                    }
+                }
+                if (resultFilter != null && resultFilter.isAccumulating()) {
+                    return resultFilter.getAccumulatedResult();
                 }
                 if (remoteResultReducer != null) {
                     SpaceRemotingResult[] ret = new SpaceRemotingResult[results.size()];
@@ -384,7 +669,7 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
                     if (result.getException() != null) {
                         throw result.getException();
                     }
-                    return result.getResult();
+                    return result.getResult().getResult();
                 } else {
                     Object[] retVals = new Object[results.size()];
                     int i = 0;
@@ -399,6 +684,8 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
                 return retVal;
             } catch (InterruptedException e) {
                 throw e;
+            } catch (TimeoutException e) {
+                throw e;
             } catch (ExecutionException e) {
                 if (e.getCause() instanceof ExecutorRemotingTask.InternalExecutorException) {
                     throw new ExecutionException("Failed to invoke service [" + task.getLookupName() + "] with method [" + task.getMethodName() + "]", ((ExecutorRemotingTask.InternalExecutorException) e.getCause()).getException());
@@ -414,19 +701,75 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
         }
     }
 
+    private AsyncFuture execute(ExecutorRemotingTask task, boolean routed) {
+        if (coalescer != null) {
+            return coalescer.execute(task, routed);
+        }
+        return gigaSpace.execute(task, task.getRouting());
+    }
+
+    /**
+     * The future of a single routed invocation. An invocation dispatched by method id that the
+     * exporter failed to resolve (for example after a service was redeployed with a changed
+     * interface) is sent again, once, with its names and hash, both for sync and async invocations.
+     */
     private static class ExecutorAsyncFuture implements AsyncFuture {
 
-        private final AsyncFuture<ExecutorRemotingTask.InternalExecutorResult> future;
+        private final ExecutorSpaceRemotingProxyFactoryBean proxy;
+
+        private volatile AsyncFuture<ExecutorRemotingTask.InternalExecutorResult> future;
 
         private final ExecutorRemotingTask task;
 
-        private ExecutorAsyncFuture(AsyncFuture<ExecutorRemotingTask.InternalExecutorResult> future, ExecutorRemotingTask task) {
+        private final boolean routed;
+
+        private final InvocationPlan plan;
+
+        private ExecutorAsyncFuture(ExecutorSpaceRemotingProxyFactoryBean proxy, AsyncFuture<ExecutorRemotingTask.InternalExecutorResult> future,
+                                    ExecutorRemotingTask task, boolean routed, InvocationPlan plan) {
+            this.proxy = proxy;
             this.future = future;
             this.task = task;
+            this.routed = routed;
+            this.plan = plan;
         }
 
-        public void setListener(AsyncFutureListener listener) {
-            future.setListener(new ExecutorAsyncFutureListener(listener));
+        /**
+         * Sends the invocation again by name if the given failure of the given execution is a
+         * method id lookup failure, returning <code>true</code> if it was (or already is) sent again.
+         */
+        private boolean redispatch(AsyncFuture<ExecutorRemotingTask.InternalExecutorResult> execution, Throwable failure) {
+            if (!(task instanceof ExecutorRemotingMethodIdTask) || task.getDispatch() != ExecutorRemotingTask.DISPATCH_BY_ID) {
+                return future != execution;
+            }
+            if (failure instanceof ExecutorRemotingTask.InternalExecutorException) {
+                failure = ((ExecutorRemotingTask.InternalExecutorException) failure).getException();
+            }
+            if (!(failure instanceof MethodIdLookupFailureException)) {
+                return false;
+            }
+            synchronized (this) {
+                if (future != execution) {
+                    return true;
+                }
+                plan.onException(failure);
+                ((ExecutorRemotingMethodIdTask) task).probe();
+                future = proxy.execute(task, routed);
+                return true;
+            }
+        }
+
+        public void setListener(final AsyncFutureListener listener) {
+            final AsyncFuture<ExecutorRemotingTask.InternalExecutorResult> execution = future;
+            execution.setListener(new AsyncFutureListener() {
+                public void onResult(AsyncResult result) {
+                    if (result.getException() != null && redispatch(execution, result.getException())) {
+                        setListener(listener);
+                        return;
+                    }
+                    new ExecutorAsyncFutureListener(listener, plan).onResult(result);
+                }
+            });
         }
 
         public boolean cancel(boolean mayInterruptIfRunning) {
@@ -442,36 +785,55 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
         }
 
         public Object get() throws InterruptedException, ExecutionException {
-            try {
-                ExecutorRemotingTask.InternalExecutorResult result = future.get();
-                return result.getResult();
-            } catch (ExecutionException e) {
-                if (e.getCause() instanceof ExecutorRemotingTask.InternalExecutorException) {
-                    throw new ExecutionException("Failed to invoke service [" + task.getLookupName() + "] with method [" + task.getMethodName() + "]", ((ExecutorRemotingTask.InternalExecutorException) e.getCause()).getException());
+            while (true) {
+                AsyncFuture<ExecutorRemotingTask.InternalExecutorResult> execution = future;
+                try {
+                    ExecutorRemotingTask.InternalExecutorResult result = execution.get();
+                    plan.onResult(result);
+                    return result.getResult();
+                } catch (ExecutionException e) {
+                    if (!redispatch(execution, e.getCause())) {
+                        throw translate(e);
+                    }
                 }
-                throw e;
             }
         }
 
         public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-            try {
-                ExecutorRemotingTask.InternalExecutorResult result = future.get(timeout, unit);
-                return result.getResult();
-            } catch (ExecutionException e) {
-                if (e.getCause() instanceof ExecutorRemotingTask.InternalExecutorException) {
-                    throw new ExecutionException("Failed to invoke service [" + task.getLookupName() + "] with method [" + task.getMethodName() + "]", ((ExecutorRemotingTask.InternalExecutorException) e.getCause()).getException());
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (true) {
+                AsyncFuture<ExecutorRemotingTask.InternalExecutorResult> execution = future;
+                try {
+                    ExecutorRemotingTask.InternalExecutorResult result = execution.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    plan.onResult(result);
+                    return result.getResult();
+                } catch (ExecutionException e) {
+                    if (!redispatch(execution, e.getCause())) {
+                        throw translate(e);
+                    }
                 }
-                throw e;
             }
         }
+
+        private ExecutionException translate(ExecutionException e) {
+            if (e.getCause() instanceof ExecutorRemotingTask.InternalExecutorException) {
+                Throwable exception = ((ExecutorRemotingTask.InternalExecutorException) e.getCause()).getException();
+                plan.onException(exception);
+                return new ExecutionException("Failed to invoke service [" + task.getLookupName() + "] with method [" + task.getMethodName() + "]", exception);
+            }
+            return e;
+        }
     }
 
     private static class ExecutorAsyncFutureListener implements AsyncFutureListener {
 
         private final AsyncFutureListener listener;
 
-        private ExecutorAsyncFutureListener(AsyncFutureListener listener) {
+        private final InvocationPlan plan;
+
+        private ExecutorAsyncFutureListener(AsyncFutureListener listener, InvocationPlan plan) {
             this.listener = listener;
+            this.plan = plan;
         }
 
         public void onResult(AsyncResult result) {
@@ -480,10 +842,16 @@ public class ExecutorSpaceRemotingProxyFactoryBean extends RemoteAccessor implem
                 if (e instanceof ExecutorRemotingTask.InternalExecutorException) {
                     e = (Exception) ((ExecutorRemotingTask.InternalExecutorException) e).getException();
                 }
+                if (plan != null) {
+                    plan.onException(e);
+                }
                 listener.onResult(new DefaultAsyncResult(null, e));
             } else {
-                Object res = ((ExecutorRemotingTask.InternalExecutorResult) result.getResult()).getResult();
-                listener.onResult(new DefaultAsyncResult(res, null));
+                ExecutorRemotingTask.InternalExecutorResult internalResult = (ExecutorRemotingTask.InternalExecutorResult) result.getResult();
+                if (plan != null) {
+                    plan.onResult(internalResult);
+                }
+                listener.onResult(new DefaultAsyncResult(internalResult.getResult(), null));
             }
         }
     }
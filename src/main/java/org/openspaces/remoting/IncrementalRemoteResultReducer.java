@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.remoting;
+
+/**
+ * A {@link RemoteResultReducer} reducing the results of a broadcast invocation incrementally, as
+ * the result of each cluster member arrives, instead of once all of them arrived. Results are not
+ * retained once accumulated, and the accumulation can stop early, without waiting for the
+ * remaining cluster members.
+ *
+ * <p>The {@link ExecutorSpaceRemotingProxyFactoryBean} creates an accumulator per invocation, so
+ * the reducer itself may be shared. {@link #reduce(SpaceRemotingResult[], SpaceRemotingInvocation)}
+ * is not used by the proxy, see {@link AbstractIncrementalRemoteResultReducer} for an
+ * implementation based on the accumulator.
+ *
+ * @see ExecutorSpaceRemotingProxyFactoryBean#setPartialResultsOnTimeout(boolean)
+ */
+public interface IncrementalRemoteResultReducer<T, Y> extends RemoteResultReducer<T, Y> {
+
+    /**
+     * Creates the accumulator of the results of a single broadcast invocation.
+     *
+     * @param remotingInvocation The remote invocation
+     */
+    RemoteResultAccumulator<T, Y> createAccumulator(SpaceRemotingInvocation remotingInvocation) throws Exception;
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.remoting;
+
+import org.springframework.remoting.RemoteLookupFailureException;
+
+/**
+ * A Space remoting exception raised by the exporter when an invocation dispatched by method id
+ * does not match any of its exported methods, typically since the client and the exporter use
+ * different versions of the service interface. The executor remoting proxy then falls back to name
+ * based dispatch.
+ *
+ * @see ExecutorSpaceRemotingProxyFactoryBean#setMethodIdDispatch(boolean)
+ */
+public class MethodIdLookupFailureException extends RemoteLookupFailureException {
+
+    private static final long serialVersionUID = 4530911787745271045L;
+
+    private final int serviceId;
+
+    private final int methodId;
+
+    public MethodIdLookupFailureException(int serviceId, int methodId) {
+        super("Failed to find method id [" + methodId + "] for service id [" + serviceId + "]");
+        this.serviceId = serviceId;
+        this.methodId = methodId;
+    }
+
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public int getMethodId() {
+        return methodId;
+    }
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.remoting;
+
+/**
+ * Accumulates the results of a single broadcast invocation, created by an
+ * {@link IncrementalRemoteResultReducer}. Its methods are never called concurrently.
+ */
+public interface RemoteResultAccumulator<T, Y> {
+
+    /**
+     * Accumulates the result of a single cluster member, in the order results arrive.
+     *
+     * <p>An exception thrown fails the invocation and is propagated to the client.
+     *
+     * @return <code>true</code> to keep accumulating, <code>false</code> to complete the invocation
+     *         without waiting for the remaining results
+     */
+    boolean accumulate(SpaceRemotingResult<Y> result) throws Exception;
+
+    /**
+     * Returns the reduced value of the results accumulated so far. Called once, after all results
+     * were accumulated, the accumulation stopped, or the invocation timed out with partial results
+     * on timeout enabled.
+     *
+     * @throws Exception An exception that will be propagated to the client
+     */
+    T getResult() throws Exception;
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.remoting;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openspaces.core.util.ConcurrentHistogram;
+
+import com.gigaspaces.metrics.LongCounter;
+
+/**
+ * The metrics of a single remoted service method, recorded by the
+ * {@link SpaceRemotingServiceExporter} on both the event driven and executor paths.
+ *
+ * <p>Times are recorded in microseconds, and cover the last one to two minutes. The queue time is
+ * the time an executor invocation waited from reaching the exporter's space until the service
+ * method started, and is only known for invocations that arrived from a remote client. Event driven
+ * invocations never record a queue time. The serialized sizes of the arguments and results
+ * are sampled, measuring them costs a serialization.
+ *
+ * @see SpaceRemotingServiceExporter#setMetricsSizeSampleRate(int)
+ */
+final class RemotingMethodMetrics {
+
+    private static final long LATENCY_WINDOW_MILLIS = 60000;
+
+    private final String name;
+
+    private final int sizeSampleRate;
+
+    private final LongCounter invocations = new LongCounter();
+
+    private final LongCounter failures = new LongCounter();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final ConcurrentHistogram queueTimes = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+
+    private final ConcurrentHistogram executionTimes = new ConcurrentHistogram(LATENCY_WINDOW_MILLIS);
+
+    private final ConcurrentHistogram argumentSizes = new ConcurrentHistogram();
+
+    private final ConcurrentHistogram resultSizes = new ConcurrentHistogram();
+
+    private final AtomicLong argumentSamples = new AtomicLong();
+
+    private final AtomicLong resultSamples = new AtomicLong();
+
+    RemotingMethodMetrics(String name, int sizeSampleRate) {
+        this.name = name;
+        this.sizeSampleRate = sizeSampleRate;
+    }
+
+    /**
+     * Records the start of an invocation, returning its start time to pass to
+     * {@link #invocationEnded(long, boolean, Object)}.
+     *
+     * @param receiveTime the {@link System#nanoTime()} the invocation reached the exporter's space,
+     *                    <code>0</code> if unknown
+     */
+    long invocationStarted(long receiveTime, Object[] arguments) {
+        if (receiveTime != 0) {
+            queueTimes.record((System.nanoTime() - receiveTime) / 1000);
+        }
+        if (shouldSample(argumentSamples)) {
+            long size = serializedSize(arguments);
+            if (size >= 0) {
+                argumentSizes.record(size);
+            }
+        }
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    void invocationEnded(long start, boolean failed, Object result) {
+        executionTimes.record((System.nanoTime() - start) / 1000);
+        inFlight.decrementAndGet();
+        invocations.inc();
+        if (failed) {
+            failures.inc();
+        } else if (shouldSample(resultSamples)) {
+            long size = serializedSize(new Object[]{result});
+            if (size >= 0) {
+                resultSizes.record(size);
+            }
+        }
+    }
+
+    private boolean shouldSample(AtomicLong samples) {
+        return sizeSampleRate > 0 && samples.getAndIncrement() % sizeSampleRate == 0;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    LongCounter getInvocations() {
+        return invocations;
+    }
+
+    LongCounter getFailures() {
+        return failures;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    ConcurrentHistogram getQueueTimes() {
+        return queueTimes;
+    }
+
+    ConcurrentHistogram getExecutionTimes() {
+        return executionTimes;
+    }
+
+    ConcurrentHistogram getArgumentSizes() {
+        return argumentSizes;
+    }
+
+    ConcurrentHistogram getResultSizes() {
+        return resultSizes;
+    }
+
+    RemotingServiceMonitors.RemoteMethodStats toStats() {
+        return new RemotingServiceMonitors.RemoteMethodStats(name, invocations.getCount(), failures.getCount(), inFlight.get(),
+                queueTimes.getPercentile(50), queueTimes.getPercentile(99),
+                executionTimes.getPercentile(50), executionTimes.getPercentile(99), executionTimes.getMax(),
+                (long) argumentSizes.getMean(), (long) resultSizes.getMean());
+    }
+
+    /**
+     * Returns the number of bytes the given objects serialize to, <code>-1</code> if they are not
+     * serializable.
+     */
+    static long serializedSize(Object[] objects) {
+        if (objects == null) {
+            return 0;
+        }
+        CountingOutputStream counter = new CountingOutputStream();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(counter);
+            for (Object object : objects) {
+                out.writeObject(object);
+            }
+            out.close();
+        } catch (IOException e) {
+            return -1;
+        }
+        return counter.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.springframework.util.StringUtils;
 import com.gigaspaces.document.SpaceDocument;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 
 /**
  * A set of common code shared between different remoting proxies.
@@ -41,35 +42,38 @@ public abstract class RemotingProxyUtils {
      */
     public static Object computeRouting(SpaceRemotingInvocation remotingEntry, RemoteRoutingHandler remoteRoutingHandler,
                                         MethodInvocation methodInvocation) throws Exception {
+        Routing routingAnnotation = findRoutingAnnotation(methodInvocation.getMethod());
+        return computeRouting(remotingEntry, remoteRoutingHandler, methodInvocation.getArguments(),
+                findRoutingParameter(methodInvocation.getMethod()), routingAnnotation == null ? null : routingAnnotation.value());
+    }
+
+    /**
+     * Computes the routing index for a given remote invocation, using a routing parameter resolved
+     * in advance by {@link #findRoutingParameter(java.lang.reflect.Method)}.
+     *
+     * @param routingParameterIndex the index of the routing parameter, <code>-1</code> if there is none
+     * @param routingProperty       the property of the routing parameter to route by, the parameter itself if empty
+     */
+    public static Object computeRouting(SpaceRemotingInvocation remotingEntry, RemoteRoutingHandler remoteRoutingHandler,
+                                        Object[] arguments, int routingParameterIndex, String routingProperty) throws Exception {
         Object routing = null;
         if (remoteRoutingHandler != null) {
             routing = remoteRoutingHandler.computeRouting(remotingEntry);
         }
-        if (routing == null) {
-            Annotation[][] parametersAnnotations = methodInvocation.getMethod().getParameterAnnotations();
-            for (int i = 0; i < parametersAnnotations.length; i++) {
-                Annotation[] parameterAnnotations = parametersAnnotations[i];
-                for (Annotation parameterAnnotation : parameterAnnotations) {
-                    if (parameterAnnotation instanceof Routing) {
-                        Routing routingAnnotation = (Routing) parameterAnnotation;
-                        if (StringUtils.hasLength(routingAnnotation.value())) {
-                            Object parameter = methodInvocation.getArguments()[i];
-                            if (parameter instanceof SpaceDocument){
-                                routing = ((SpaceDocument)parameter).getProperty(routingAnnotation.value());
-                            } else {
-                                MethodInvoker methodInvoker = new MethodInvoker();
-                                methodInvoker.setTargetObject(parameter);
-                                methodInvoker.setTargetMethod(routingAnnotation.value());
-                                methodInvoker.prepare();
-                                routing = methodInvoker.invoke();
-                            }
-                        } else {
-                            routing = methodInvocation.getArguments()[i];
-                        }
-                        i = parametersAnnotations.length;
-                        break;
-                    }
+        if (routing == null && routingParameterIndex >= 0) {
+            Object parameter = arguments[routingParameterIndex];
+            if (StringUtils.hasLength(routingProperty)) {
+                if (parameter instanceof SpaceDocument) {
+                    routing = ((SpaceDocument) parameter).getProperty(routingProperty);
+                } else {
+                    MethodInvoker methodInvoker = new MethodInvoker();
+                    methodInvoker.setTargetObject(parameter);
+                    methodInvoker.setTargetMethod(routingProperty);
+                    methodInvoker.prepare();
+                    routing = methodInvoker.invoke();
                 }
+            } else {
+                routing = parameter;
             }
         }
         if (routing == null) {
@@ -77,4 +81,37 @@ public abstract class RemotingProxyUtils {
         }
         return routing;
     }
+
+    /**
+     * Returns the index of the first parameter of the given method annotated with {@link Routing},
+     * <code>-1</code> if there is none.
+     */
+    public static int findRoutingParameter(Method method) {
+        Annotation[][] parametersAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parametersAnnotations.length; i++) {
+            for (Annotation parameterAnnotation : parametersAnnotations[i]) {
+                if (parameterAnnotation instanceof Routing) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the {@link Routing} annotation of the first parameter of the given method annotated
+     * with it, <code>null</code> if there is none.
+     */
+    public static Routing findRoutingAnnotation(Method method) {
+        int index = findRoutingParameter(method);
+        if (index < 0) {
+            return null;
+        }
+        for (Annotation parameterAnnotation : method.getParameterAnnotations()[index]) {
+            if (parameterAnnotation instanceof Routing) {
+                return (Routing) parameterAnnotation;
+            }
+        }
+        return null;
+    }
 }
@@ -86,6 +86,143 @@ public class RemotingServiceMonitors extends PlainServiceMonitors {
     }
 
 
+    /**
+     * The metrics of a single remoted service method. Times are in microseconds and cover the last
+     * one to two minutes, sizes are in bytes.
+     */
+    public static class RemoteMethodStats implements Externalizable {
+
+        private static final long serialVersionUID = -3817190356203398341L;
+
+        private String id;
+        private long invocations;
+        private long failures;
+        private int inFlight;
+        private long queueTimeMedian;
+        private long queueTime99thPercentile;
+        private long executionTimeMedian;
+        private long executionTime99thPercentile;
+        private long executionTimeMax;
+        private long averageArgumentsSize;
+        private long averageResultSize;
+
+        public RemoteMethodStats() {
+        }
+
+        public RemoteMethodStats(String id, long invocations, long failures, int inFlight,
+                                 long queueTimeMedian, long queueTime99thPercentile,
+                                 long executionTimeMedian, long executionTime99thPercentile, long executionTimeMax,
+                                 long averageArgumentsSize, long averageResultSize) {
+            this.id = id;
+            this.invocations = invocations;
+            this.failures = failures;
+            this.inFlight = inFlight;
+            this.queueTimeMedian = queueTimeMedian;
+            this.queueTime99thPercentile = queueTime99thPercentile;
+            this.executionTimeMedian = executionTimeMedian;
+            this.executionTime99thPercentile = executionTime99thPercentile;
+            this.executionTimeMax = executionTimeMax;
+            this.averageArgumentsSize = averageArgumentsSize;
+            this.averageResultSize = averageResultSize;
+        }
+
+        /**
+         * The service bean id and method name, for example <code>myService.calculate</code>.
+         */
+        public String getId() {
+            return id;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * The number of invocations of the method currently executing.
+         */
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        /**
+         * The median time executor invocations waited before executing. Not measured for event
+         * driven invocations, <code>0</code> for methods invoked only by event driven proxies.
+         */
+        public long getQueueTimeMedian() {
+            return queueTimeMedian;
+        }
+
+        public long getQueueTime99thPercentile() {
+            return queueTime99thPercentile;
+        }
+
+        public long getExecutionTimeMedian() {
+            return executionTimeMedian;
+        }
+
+        public long getExecutionTime99thPercentile() {
+            return executionTime99thPercentile;
+        }
+
+        public long getExecutionTimeMax() {
+            return executionTimeMax;
+        }
+
+        /**
+         * The average serialized size of the invocation arguments, over the sampled invocations.
+         */
+        public long getAverageArgumentsSize() {
+            return averageArgumentsSize;
+        }
+
+        /**
+         * The average serialized size of the invocation results, over the sampled invocations.
+         */
+        public long getAverageResultSize() {
+            return averageResultSize;
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeObject(id);
+            out.writeLong(invocations);
+            out.writeLong(failures);
+            out.writeInt(inFlight);
+            out.writeLong(queueTimeMedian);
+            out.writeLong(queueTime99thPercentile);
+            out.writeLong(executionTimeMedian);
+            out.writeLong(executionTime99thPercentile);
+            out.writeLong(executionTimeMax);
+            out.writeLong(averageArgumentsSize);
+            out.writeLong(averageResultSize);
+        }
+
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            id = (String) in.readObject();
+            invocations = in.readLong();
+            failures = in.readLong();
+            inFlight = in.readInt();
+            queueTimeMedian = in.readLong();
+            queueTime99thPercentile = in.readLong();
+            executionTimeMedian = in.readLong();
+            executionTime99thPercentile = in.readLong();
+            executionTimeMax = in.readLong();
+            averageArgumentsSize = in.readLong();
+            averageResultSize = in.readLong();
+        }
+
+        @Override
+        public String toString() {
+            return "[" + id + "], invocations [" + invocations + "], failures [" + failures + "], in flight [" + inFlight
+                    + "], execution time p50/p99/max [" + executionTimeMedian + "/" + executionTime99thPercentile + "/" + executionTimeMax
+                    + "] us, queue time p50/p99 [" + queueTimeMedian + "/" + queueTime99thPercentile + "] us";
+        }
+    }
+
+
     public RemotingServiceMonitors() {
         super();
     }
@@ -99,6 +236,14 @@ public class RemotingServiceMonitors extends PlainServiceMonitors {
         }
     }
 
+    public RemotingServiceMonitors(String id, long processed, long failed, RemoteServiceStats[] remoteServiceStats,
+                                   RemoteMethodStats[] remoteMethodStats) {
+        this(id, processed, failed, remoteServiceStats);
+        for (RemoteMethodStats stats : remoteMethodStats) {
+            getMonitors().put(stats.getId(), stats);
+        }
+    }
+
     public RemotingServiceDetails getRemotingDetails() {
         return (RemotingServiceDetails) getDetails();
     }
@@ -125,6 +270,25 @@ public class RemotingServiceMonitors extends PlainServiceMonitors {
         return remoteServiceStats.toArray(new RemoteServiceStats[remoteServiceStats.size()]);
     }
 
+    /**
+     * Returns the stats of the given service method (for example <code>myService.calculate</code>),
+     * <code>null</code> if there are none.
+     */
+    public RemoteMethodStats getRemoteMethodStats(String id) {
+        Object monitor = getMonitors().get(id);
+        return monitor instanceof RemoteMethodStats ? (RemoteMethodStats) monitor : null;
+    }
+
+    public RemoteMethodStats[] getRemoteMethodStats() {
+        ArrayList<RemoteMethodStats> remoteMethodStats = new ArrayList<RemoteMethodStats>();
+        for (Object monitor : getMonitors().values()) {
+            if (monitor instanceof RemoteMethodStats) {
+                remoteMethodStats.add((RemoteMethodStats) monitor);
+            }
+        }
+        return remoteMethodStats.toArray(new RemoteMethodStats[remoteMethodStats.size()]);
+    }
+
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
         super.writeExternal(out);
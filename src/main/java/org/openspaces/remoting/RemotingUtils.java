@@ -80,6 +80,25 @@ public class RemotingUtils {
         }
     }
 
+    /**
+     * Returns the compact id of the service registered under the given lookup name, used by method
+     * id based dispatch. Both sides derive it from the lookup name, so no id table needs to be
+     * exchanged.
+     */
+    public static int serviceId(String lookupName) {
+        return lookupName.hashCode();
+    }
+
+    /**
+     * Returns the compact id of the method with the given hash, used by method id based dispatch.
+     * Since the hash covers the method name and parameter types, a changed signature yields a
+     * different id.
+     */
+    public static int methodId(MethodHash methodHash) {
+        byte[] hash = methodHash.hash();
+        return ((hash[0] & 0xFF) << 24) | ((hash[1] & 0xFF) << 16) | ((hash[2] & 0xFF) << 8) | (hash[3] & 0xFF);
+    }
+
     public static Object createByClassOrFindByName(ApplicationContext applicationContext, String name, Class clazz) throws NoSuchBeanDefinitionException {
         if (StringUtils.hasLength(name)) {
             return applicationContext.getBean(name);
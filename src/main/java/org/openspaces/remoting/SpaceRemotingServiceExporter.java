@@ -19,12 +19,20 @@ package org.openspaces.remoting;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -34,13 +42,17 @@ import org.jini.rio.boot.ServiceClassLoader;
 import org.openspaces.core.GigaSpace;
 import org.openspaces.core.cluster.ClusterInfo;
 import org.openspaces.core.cluster.ClusterInfoAware;
+import org.openspaces.core.util.ConcurrentHistogram;
 import org.openspaces.events.EventTemplateProvider;
 import org.openspaces.events.SpaceDataEventListener;
+import org.openspaces.pu.container.ProcessingUnitContainerContext;
+import org.openspaces.pu.container.ProcessingUnitContainerContextAware;
 import org.openspaces.pu.service.ServiceDetails;
 import org.openspaces.pu.service.ServiceDetailsProvider;
 import org.openspaces.pu.service.ServiceMonitors;
 import org.openspaces.pu.service.ServiceMonitorsProvider;
 import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
@@ -57,6 +69,9 @@ import org.springframework.util.Assert;
 import com.gigaspaces.internal.reflection.IMethod;
 import com.gigaspaces.internal.reflection.ReflectionUtil;
 import com.gigaspaces.internal.reflection.standard.StandardMethod;
+import com.gigaspaces.metrics.BeanMetricManager;
+import com.gigaspaces.metrics.Gauge;
+import com.j_spaces.kernel.threadpool.DynamicExecutors;
 
 /**
  * Exports a list of services (beans) as remote services with the Space as the transport layer. All
@@ -84,16 +99,26 @@ import com.gigaspaces.internal.reflection.standard.StandardMethod;
  * passed back to the client. This can be disabled by setting {@link #setDisableAutowiredArguments(boolean)}
  * to <code>true</code>.
  *
+ * <p>The exporter keeps metrics for each remoted service method (invocations, failures, queue and
+ * execution times, argument and result sizes), exposed through its service monitors. Queue and
+ * execution times cover the last one to two minutes. The queue time is only measured for executor
+ * based invocations, from the time the task reached the space: event driven invocations are taken
+ * by the event container before reaching the exporter, so event driven methods report no queue
+ * time.
+ *
  * @author kimchy
  * @see org.openspaces.events.polling.SimplePollingEventListenerContainer
  * @see SpaceRemotingEntry
  * @see EventDrivenSpaceRemotingProxyFactoryBean
  */
-public class SpaceRemotingServiceExporter implements SpaceDataEventListener<SpaceRemotingEntry>, InitializingBean, ApplicationContextAware, BeanNameAware,
-        EventTemplateProvider, ClusterInfoAware, ApplicationListener, ServiceDetailsProvider, ServiceMonitorsProvider {
+public class SpaceRemotingServiceExporter implements SpaceDataEventListener<SpaceRemotingEntry>, InitializingBean, DisposableBean, ApplicationContextAware, BeanNameAware,
+        EventTemplateProvider, ClusterInfoAware, ApplicationListener, ServiceDetailsProvider, ServiceMonitorsProvider,
+        ProcessingUnitContainerContextAware {
 
     public static final String DEFAULT_ASYNC_INTERFACE_SUFFIX = "Async";
 
+    public static final int DEFAULT_METRICS_SIZE_SAMPLE_RATE = 100;
+
     private static final Log logger = LogFactory.getLog(SpaceRemotingServiceExporter.class);
     
     final private SpaceRemotingEntryFactory remotingEntryFactory = new SpaceRemotingEntryMetadataFactory();
@@ -130,6 +155,16 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
 
     private Map<String, Map<RemotingUtils.MethodHash, IMethod>> methodInvocationLookup;
 
+    private Map<Integer, MethodIdDispatcher> methodIdLookup;
+
+    private int batchWorkers = 1;
+
+    private ThreadPoolExecutor batchExecutor;
+
+    private int metricsSizeSampleRate = DEFAULT_METRICS_SIZE_SAMPLE_RATE;
+
+    private BeanMetricManager beanMetricManager;
+
     // for backward comp
     final private MethodInvocationCache methodInvocationCache = new MethodInvocationCache();
 
@@ -203,6 +238,29 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
         this.templateLookupName = templateLookupName;
     }
 
+    /**
+     * Sets the number of threads running the invocations of a batch coalesced by an
+     * {@link ExecutorSpaceRemotingProxyFactoryBean#setCoalescingWindow(long) executor proxy}. Defaults
+     * to <code>1</code>, running them one after the other in the thread executing the batch. With
+     * more workers, the invocations of a batch run in parallel, so they must not depend on each
+     * other's order.
+     */
+    public void setBatchWorkers(int batchWorkers) {
+        Assert.isTrue(batchWorkers > 0, "'batchWorkers' must be positive");
+        this.batchWorkers = batchWorkers;
+    }
+
+    /**
+     * Sets how often the serialized size of the arguments and result of a service method invocation
+     * is measured: once every <code>metricsSizeSampleRate</code> invocations of the method. Defaults
+     * to <code>100</code>, as measuring the size costs an additional serialization. Set to
+     * <code>0</code> to disable size metrics.
+     */
+    public void setMetricsSizeSampleRate(int metricsSizeSampleRate) {
+        Assert.isTrue(metricsSizeSampleRate >= 0, "'metricsSizeSampleRate' must not be negative");
+        this.metricsSizeSampleRate = metricsSizeSampleRate;
+    }
+
     /**
      * Application context injected by Spring
      */
@@ -221,6 +279,10 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
         this.clusterInfo = clusterInfo;
     }
 
+    public void setProcessingUnitContainerContext(ProcessingUnitContainerContext processingUnitContainerContext) {
+        this.beanMetricManager = processingUnitContainerContext.createBeanMetricManager(beanName != null ? beanName : "serviceExporter");
+    }
+
     public void addService(String beanId, Object service) throws IllegalStateException {
         if (initialized) {
             throw new IllegalStateException("Can't add a service once the exporter has initialized");
@@ -232,6 +294,21 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
         if (beanName == null) {
             beanName = "serviceExporter";
         }
+        if (batchWorkers > 1) {
+            // the executing thread runs an invocation of each batch as well
+            batchExecutor = new ThreadPoolExecutor(batchWorkers - 1, batchWorkers - 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    DynamicExecutors.daemonThreadFactory("GS-" + beanName + "-batch"));
+            batchExecutor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    public void destroy() throws Exception {
+        if (batchExecutor != null) {
+            batchExecutor.shutdown();
+        }
+        if (beanMetricManager != null) {
+            beanMetricManager.clear();
+        }
     }
 
     @Override
@@ -256,15 +333,26 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
                     }
                 }
                 methodInvocationLookup = new HashMap<String, Map<RemotingUtils.MethodHash, IMethod>>();
+                methodIdLookup = new HashMap<Integer, MethodIdDispatcher>();
+                Set<Integer> collidingServiceIds = new HashSet<Integer>();
                 for (ServiceInfo serviceInfo : servicesInfo) {
                     Set<Class> interfaces = ReflectionUtil.getAllInterfacesForClassAsSet(serviceInfo.getService().getClass());
+                    Set<Method> remotedMethods = new HashSet<Method>();
                     for (Class<?> anInterface : interfaces) {
                         interfaceToService.put(anInterface.getName(), serviceInfo.getService());
-                        methodInvocationLookup.put(anInterface.getName(), RemotingUtils.buildHashToMethodLookupForInterface(anInterface, useFastReflection));
+                        Map<RemotingUtils.MethodHash, IMethod> hashToMethod = RemotingUtils.buildHashToMethodLookupForInterface(anInterface, useFastReflection);
+                        methodInvocationLookup.put(anInterface.getName(), hashToMethod);
+                        for (IMethod method : hashToMethod.values()) {
+                            remotedMethods.add(method.getMethod());
+                        }
+                        // async clients look the service up with the async interface name
+                        addMethodIdDispatcher(new MethodIdDispatcher(anInterface.getName(), serviceInfo.getService(), hashToMethod), collidingServiceIds);
+                        addMethodIdDispatcher(new MethodIdDispatcher(anInterface.getName() + asyncInterfaceSuffix, serviceInfo.getService(), hashToMethod), collidingServiceIds);
                         // for backward comp
                         methodInvocationCache.addService(anInterface, serviceInfo.getService(), useFastReflection);
                     }
 
+                    createMethodMetrics(serviceInfo, remotedMethods);
                     serviceToServiceInfoMap.put(serviceInfo.getService(), serviceInfo);
                 }
                 initialized = true;
@@ -275,6 +363,139 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
         }
     }
 
+    private void createMethodMetrics(ServiceInfo serviceInfo, Set<Method> methods) {
+        // several interfaces might declare the same method
+        Map<String, Method> signatures = new HashMap<String, Method>();
+        for (Method method : methods) {
+            signatures.put(methodSignature(method), method);
+        }
+        Map<String, Integer> nameCounts = new HashMap<String, Integer>();
+        for (Method method : signatures.values()) {
+            Integer count = nameCounts.get(method.getName());
+            nameCounts.put(method.getName(), count == null ? 1 : count + 1);
+        }
+        for (Method method : signatures.values()) {
+            addMethodMetrics(serviceInfo, method, nameCounts.get(method.getName()) > 1);
+        }
+    }
+
+    /**
+     * Returns the name and parameter types of the given method. Metrics are keyed by it, as the
+     * name based dispatch resolves the method of the service class rather than the one declared by
+     * the interface.
+     */
+    private static String methodSignature(Method method) {
+        StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(parameterTypes[i].getName());
+        }
+        return signature.append(')').toString();
+    }
+
+    /**
+     * Returns the metrics of the given service method, <code>null</code> if the service is not one
+     * of the exported services (or the method could not be resolved).
+     */
+    private RemotingMethodMetrics methodMetrics(Object service, IMethod method) {
+        ServiceInfo serviceInfo = serviceToServiceInfoMap.get(service);
+        if (serviceInfo == null || method == null) {
+            return null;
+        }
+        RemotingMethodMetrics metrics = serviceInfo.getMethodMetrics().get(methodSignature(method.getMethod()));
+        if (metrics == null) {
+            // not one of the interface methods resolved on startup, its name might be overloaded
+            metrics = addMethodMetrics(serviceInfo, method.getMethod(), true);
+        }
+        return metrics;
+    }
+
+    private RemotingMethodMetrics addMethodMetrics(ServiceInfo serviceInfo, Method method, boolean overloaded) {
+        StringBuilder name = new StringBuilder(serviceInfo.getBeanId()).append('.').append(method.getName());
+        if (overloaded) {
+            name.append('(');
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (i > 0) {
+                    name.append(',');
+                }
+                name.append(parameterTypes[i].getSimpleName());
+            }
+            name.append(')');
+        }
+        RemotingMethodMetrics metrics = new RemotingMethodMetrics(name.toString(), metricsSizeSampleRate);
+        RemotingMethodMetrics existing = serviceInfo.getMethodMetrics().putIfAbsent(methodSignature(method), metrics);
+        if (existing != null) {
+            return existing;
+        }
+        registerMetrics(metrics);
+        return metrics;
+    }
+
+    private void registerMetrics(final RemotingMethodMetrics metrics) {
+        if (beanMetricManager == null) {
+            return;
+        }
+        String name = metrics.getName();
+        beanMetricManager.register(name + ".invocations", metrics.getInvocations());
+        beanMetricManager.register(name + ".failures", metrics.getFailures());
+        beanMetricManager.register(name + ".in-flight", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() throws Exception {
+                return metrics.getInFlight();
+            }
+        });
+        registerHistogram(name + ".queue-time", metrics.getQueueTimes());
+        registerHistogram(name + ".execution-time", metrics.getExecutionTimes());
+        if (metricsSizeSampleRate > 0) {
+            registerHistogram(name + ".argument-size", metrics.getArgumentSizes());
+            registerHistogram(name + ".result-size", metrics.getResultSizes());
+        }
+    }
+
+    /**
+     * Registers the p50, p99 and max of the given histogram as gauges named after it.
+     */
+    private void registerHistogram(String name, final ConcurrentHistogram histogram) {
+        beanMetricManager.register(name + "-p50", new Gauge<Long>() {
+            @Override
+            public Long getValue() throws Exception {
+                return histogram.getPercentile(50);
+            }
+        });
+        beanMetricManager.register(name + "-p99", new Gauge<Long>() {
+            @Override
+            public Long getValue() throws Exception {
+                return histogram.getPercentile(99);
+            }
+        });
+        beanMetricManager.register(name + "-max", new Gauge<Long>() {
+            @Override
+            public Long getValue() throws Exception {
+                return histogram.getMax();
+            }
+        });
+    }
+
+    private void addMethodIdDispatcher(MethodIdDispatcher dispatcher, Set<Integer> collidingServiceIds) {
+        int serviceId = RemotingUtils.serviceId(dispatcher.lookupName);
+        if (collidingServiceIds.contains(serviceId)) {
+            return;
+        }
+        MethodIdDispatcher existing = methodIdLookup.put(serviceId, dispatcher);
+        if (existing != null && !existing.lookupName.equals(dispatcher.lookupName)) {
+            // two lookup names sharing an id, both are only dispatched by name
+            methodIdLookup.remove(serviceId);
+            collidingServiceIds.add(serviceId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Lookups [" + existing.lookupName + "] and [" + dispatcher.lookupName + "] share service id [" + serviceId + "], disabling method id dispatch for them");
+            }
+        }
+    }
+
     /**
      * The template used for receiving events. Defaults to all objects that are of type
      * {@link SpaceRemotingEntry}.
@@ -300,10 +521,16 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
 
     public ServiceMonitors[] getServicesMonitors() {
         ArrayList<RemotingServiceMonitors.RemoteServiceStats> remoteServiceStats = new ArrayList<RemotingServiceMonitors.RemoteServiceStats>();
+        ArrayList<RemotingServiceMonitors.RemoteMethodStats> remoteMethodStats = new ArrayList<RemotingServiceMonitors.RemoteMethodStats>();
         for (ServiceInfo serviceInfo : servicesInfo) {
             remoteServiceStats.add(new RemotingServiceMonitors.RemoteServiceStats(serviceInfo.getBeanId(), serviceInfo.getProcessed().get(), serviceInfo.getFailures().get()));
+            for (RemotingMethodMetrics metrics : serviceInfo.getMethodMetrics().values()) {
+                remoteMethodStats.add(metrics.toStats());
+            }
         }
-        return new ServiceMonitors[]{new RemotingServiceMonitors(beanName, processed.get(), failed.get(), remoteServiceStats.toArray(new RemotingServiceMonitors.RemoteServiceStats[remoteServiceStats.size()]))};
+        return new ServiceMonitors[]{new RemotingServiceMonitors(beanName, processed.get(), failed.get(),
+                remoteServiceStats.toArray(new RemotingServiceMonitors.RemoteServiceStats[remoteServiceStats.size()]),
+                remoteMethodStats.toArray(new RemotingServiceMonitors.RemoteMethodStats[remoteMethodStats.size()]))};
     }
 
     /**
@@ -360,12 +587,23 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
                     + remotingEntry.getMethodName() + "] for lookup [" + remotingEntry.getLookupName() + "]", e));
             return;
         }
+        RemotingMethodMetrics metrics = methodMetrics(service, method);
         try {
-            Object retVal;
-            if (serviceExecutionAspect != null) {
-                retVal = serviceExecutionAspect.invoke(remotingEntry, new InternalMethodInvocation(method), service);
-            } else {
-                retVal = method.invoke(service, remotingEntry.getArguments());
+            Object retVal = null;
+            // the event was taken from the space before reaching here, so its queue time is unknown
+            long start = metrics == null ? 0 : metrics.invocationStarted(0, remotingEntry.getArguments());
+            boolean failure = true;
+            try {
+                if (serviceExecutionAspect != null) {
+                    retVal = serviceExecutionAspect.invoke(remotingEntry, new InternalMethodInvocation(method), service);
+                } else {
+                    retVal = method.invoke(service, remotingEntry.getArguments());
+                }
+                failure = false;
+            } finally {
+                if (metrics != null) {
+                    metrics.invocationEnded(start, failure, retVal);
+                }
             }
             writeResponse(gigaSpace, remotingEntry, retVal);
             processedExecution(service);
@@ -444,6 +682,17 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
 
     public Object invokeExecutor(ExecutorRemotingTask task) throws Throwable {
         waitTillInitialized();
+        if (task.getDispatch() == ExecutorRemotingTask.DISPATCH_BY_ID) {
+            MethodIdDispatcher dispatcher = methodIdLookup.get(task.getServiceId());
+            int index = dispatcher == null ? -1 : dispatcher.indexOf(task.getMethodId());
+            if (index < 0) {
+                throw new MethodIdLookupFailureException(task.getServiceId(), task.getMethodId());
+            }
+            task.setResolvedMethod(dispatcher.lookupName, dispatcher.methodNames[index], dispatcher.methodHashes[index]);
+            autowireArguments(dispatcher.service, task.getArguments());
+            return invokeExecutor(task, dispatcher.service, dispatcher.methods[index]);
+        }
+
         String lookupName = task.getLookupName();
         if (lookupName.endsWith(asyncInterfaceSuffix)) {
             lookupName = lookupName.substring(0, lookupName.length() - asyncInterfaceSuffix.length());
@@ -477,12 +726,78 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
             failedExecution(service);
             throw new RemoteLookupFailureException("Failed to find method [" + task.getMethodName() + "] for lookup [" + task.getLookupName() + "]", e);
         }
+        if (task.getDispatch() == ExecutorRemotingTask.DISPATCH_PROBE) {
+            // let the client switch to id dispatch only if the ids lead to the very same method
+            MethodIdDispatcher dispatcher = methodIdLookup.get(task.getServiceId());
+            int index = dispatcher == null ? -1 : dispatcher.indexOf(task.getMethodId());
+            task.setMethodIdsAccepted(index >= 0 && dispatcher.service == service && dispatcher.methods[index] == method);
+        }
+        return invokeExecutor(task, service, method);
+    }
+
+    /**
+     * Runs the invocations of a batch coalesced by an executor proxy, returning the outcome of each:
+     * its {@link ExecutorRemotingTask.InternalExecutorResult} or
+     * {@link ExecutorRemotingTask.InternalExecutorException}.
+     */
+    Object[] invokeExecutorBatch(final ExecutorRemotingTask[] tasks) throws InterruptedException {
+        final Object[] outcomes = new Object[tasks.length];
+        if (batchExecutor == null || tasks.length == 1) {
+            for (int i = 0; i < tasks.length; i++) {
+                outcomes[i] = executeBatched(tasks[i]);
+            }
+            return outcomes;
+        }
+        final CountDownLatch done = new CountDownLatch(tasks.length - 1);
+        for (int i = 1; i < tasks.length; i++) {
+            final int index = i;
+            Runnable invocation = new Runnable() {
+                public void run() {
+                    try {
+                        outcomes[index] = executeBatched(tasks[index]);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+            try {
+                batchExecutor.execute(invocation);
+            } catch (RejectedExecutionException e) {
+                // shutting down, run it here
+                invocation.run();
+            }
+        }
+        outcomes[0] = executeBatched(tasks[0]);
+        done.await();
+        return outcomes;
+    }
+
+    private Object executeBatched(ExecutorRemotingTask task) {
         try {
-            Object retVal;
-            if (serviceExecutionAspect != null) {
-                retVal = serviceExecutionAspect.invoke(task, new InternalMethodInvocation(method), service);
-            } else {
-                retVal = method.invoke(service, task.getArguments());
+            return task.execute();
+        } catch (Exception e) {
+            // always an InternalExecutorException
+            return e;
+        }
+    }
+
+    private Object invokeExecutor(ExecutorRemotingTask task, Object service, IMethod method) throws Throwable {
+        RemotingMethodMetrics metrics = methodMetrics(service, method);
+        try {
+            Object retVal = null;
+            long start = metrics == null ? 0 : metrics.invocationStarted(task.getReceiveTime(), task.getArguments());
+            boolean failure = true;
+            try {
+                if (serviceExecutionAspect != null) {
+                    retVal = serviceExecutionAspect.invoke(task, new InternalMethodInvocation(method), service);
+                } else {
+                    retVal = method.invoke(service, task.getArguments());
+                }
+                failure = false;
+            } finally {
+                if (metrics != null) {
+                    metrics.invocationEnded(start, failure, retVal);
+                }
             }
             processedExecution(service);
             return retVal;
@@ -616,12 +931,67 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
         }
     }
 
+    /**
+     * Dispatches invocations of a single lookup name by method id, see
+     * {@link RemotingUtils#methodId(RemotingUtils.MethodHash)}. The ids are kept sorted so a lookup is
+     * a binary search over a plain array. Methods sharing an id with another method of the service
+     * are left out, and therefore only dispatched by name.
+     */
+    private static class MethodIdDispatcher {
+
+        private final String lookupName;
+
+        private final Object service;
+
+        private final int[] methodIds;
+
+        private final IMethod[] methods;
+
+        private final String[] methodNames;
+
+        private final RemotingUtils.MethodHash[] methodHashes;
+
+        private MethodIdDispatcher(String lookupName, Object service, Map<RemotingUtils.MethodHash, IMethod> hashToMethod) {
+            this.lookupName = lookupName;
+            this.service = service;
+            TreeMap<Integer, Map.Entry<RemotingUtils.MethodHash, IMethod>> byId = new TreeMap<Integer, Map.Entry<RemotingUtils.MethodHash, IMethod>>();
+            Set<Integer> colliding = new HashSet<Integer>();
+            for (Map.Entry<RemotingUtils.MethodHash, IMethod> entry : hashToMethod.entrySet()) {
+                int methodId = RemotingUtils.methodId(entry.getKey());
+                if (byId.put(methodId, entry) != null) {
+                    colliding.add(methodId);
+                }
+            }
+            byId.keySet().removeAll(colliding);
+            this.methodIds = new int[byId.size()];
+            this.methods = new IMethod[byId.size()];
+            this.methodNames = new String[byId.size()];
+            this.methodHashes = new RemotingUtils.MethodHash[byId.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Map.Entry<RemotingUtils.MethodHash, IMethod>> entry : byId.entrySet()) {
+                methodIds[i] = entry.getKey();
+                methodHashes[i] = entry.getValue().getKey();
+                methods[i] = entry.getValue().getValue();
+                methodNames[i] = methods[i].getMethod().getName();
+                i++;
+            }
+        }
+
+        /**
+         * Returns the index of the given method id, a negative value if it is unknown.
+         */
+        private int indexOf(int methodId) {
+            return Arrays.binarySearch(methodIds, methodId);
+        }
+    }
+
     private static class ServiceInfo {
         private final String beanId;
         private final String className;
         private final Object service;
         private final AtomicLong processed = new AtomicLong();
         private final AtomicLong failures = new AtomicLong();
+        private final ConcurrentMap<String, RemotingMethodMetrics> methodMetrics = new ConcurrentHashMap<String, RemotingMethodMetrics>();
 
         private ServiceInfo(String beanId, String className, Object service) {
             this.beanId = beanId;
@@ -648,6 +1018,10 @@ public class SpaceRemotingServiceExporter implements SpaceDataEventListener<Spac
         public AtomicLong getFailures() {
             return failures;
         }
+
+        public ConcurrentMap<String, RemotingMethodMetrics> getMethodMetrics() {
+            return methodMetrics;
+        }
     }
 
     private static class InternalMethodInvocation implements ServiceExecutionAspect.MethodInvocation {
@@ -39,6 +39,14 @@ public class ExecutorProxyBeanDefinitionParser extends AbstractSingleBeanDefinit
 
     private static final String RETURN_FIRST_RESULT = "return-first-result";
 
+    private static final String PARTIAL_RESULTS_ON_TIMEOUT = "partial-results-on-timeout";
+
+    private static final String METHOD_ID_DISPATCH = "method-id-dispatch";
+
+    private static final String COALESCING_WINDOW = "coalescing-window";
+
+    private static final String COALESCING_MAX_BATCH_SIZE = "coalescing-max-batch-size";
+
     private static final String ROUTING_HANDLER = "routing-handler";
 
     private static final String META_ARGUMENT_HANDLER = "meta-arguments-handler";
@@ -77,6 +85,26 @@ public class ExecutorProxyBeanDefinitionParser extends AbstractSingleBeanDefinit
             builder.addPropertyValue("returnFirstResult", returnFirstResult);
         }
 
+        String partialResultsOnTimeout = element.getAttribute(PARTIAL_RESULTS_ON_TIMEOUT);
+        if (StringUtils.hasLength(partialResultsOnTimeout)) {
+            builder.addPropertyValue("partialResultsOnTimeout", partialResultsOnTimeout);
+        }
+
+        String methodIdDispatch = element.getAttribute(METHOD_ID_DISPATCH);
+        if (StringUtils.hasLength(methodIdDispatch)) {
+            builder.addPropertyValue("methodIdDispatch", methodIdDispatch);
+        }
+
+        String coalescingWindow = element.getAttribute(COALESCING_WINDOW);
+        if (StringUtils.hasLength(coalescingWindow)) {
+            builder.addPropertyValue("coalescingWindow", coalescingWindow);
+        }
+
+        String coalescingMaxBatchSize = element.getAttribute(COALESCING_MAX_BATCH_SIZE);
+        if (StringUtils.hasLength(coalescingMaxBatchSize)) {
+            builder.addPropertyValue("coalescingMaxBatchSize", coalescingMaxBatchSize);
+        }
+
         Element routingHandlerEle = DomUtils.getChildElementByTagName(element, ROUTING_HANDLER);
         if (routingHandlerEle != null) {
             builder.addPropertyValue("remoteRoutingHandler", parserContext.getDelegate().parsePropertyValue(
@@ -50,6 +50,16 @@ public class ServiceExporterBeanDefinitionParser extends AbstractSingleBeanDefin
             builder.addPropertyValue("templateLookupName", templateLookupName);
         }
 
+        String batchWorkers = element.getAttribute("batch-workers");
+        if (StringUtils.hasLength(batchWorkers)) {
+            builder.addPropertyValue("batchWorkers", batchWorkers);
+        }
+
+        String metricsSizeSampleRate = element.getAttribute("metrics-size-sample-rate");
+        if (StringUtils.hasLength(metricsSizeSampleRate)) {
+            builder.addPropertyValue("metricsSizeSampleRate", metricsSizeSampleRate);
+        }
+
         Element aspectEle = DomUtils.getChildElementByTagName(element, ASPECT);
         if (aspectEle != null) {
             builder.addPropertyValue("serviceExecutionAspect", parserContext.getDelegate().parsePropertyValue(
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.archive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import org.openspaces.archive.ArchiveOperationHandler;
+import org.openspaces.archive.ArchivePipeline;
+
+public class ArchivePipelineTests extends TestCase {
+
+    private ArchivePipeline pipeline;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    public void testBatchesAreMerged() throws Exception {
+        RecordingHandler handler = new RecordingHandler(true);
+        pipeline = new ArchivePipeline("test", handler, 1, 100, 1000, 200);
+        int consumers = 8;
+        CountDownLatch done = archiveConcurrently(consumers, 5);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(consumers * 5, handler.archived.size());
+        assertTrue("expected merged archive calls, got " + handler.calls.get(), handler.calls.get() < consumers);
+        assertEquals(consumers * 5, pipeline.getArchivedEntries().getCount());
+        assertEquals(consumers, pipeline.getArchiveLags().getCount());
+    }
+
+    public void testFailedMergeIsRetriedPerBatch() throws Exception {
+        RecordingHandler handler = new RecordingHandler(true);
+        handler.poison = "poison";
+        pipeline = new ArchivePipeline("test", handler, 1, 100, 1000, 200);
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(3);
+        for (final Object[] batch : new Object[][]{{"a"}, {"poison"}, {"b", "c"}}) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        pipeline.archive(batch);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, failures.get());
+        assertEquals(1, pipeline.getFailedBatches().getCount());
+        assertTrue(handler.archived.containsAll(Arrays.asList("a", "b", "c")));
+        assertFalse(handler.archived.contains("poison"));
+    }
+
+    public void testNonBatchHandlerArchivesOneAtATime() throws Exception {
+        RecordingHandler handler = new RecordingHandler(false);
+        pipeline = new ArchivePipeline("test", handler, 2, 10, 1000, 10);
+        pipeline.archive(new Object[]{"a"});
+        pipeline.archive(new Object[]{"b"});
+        assertEquals(2, handler.calls.get());
+        assertEquals(2, handler.archived.size());
+    }
+
+    private CountDownLatch archiveConcurrently(int consumers, final int batchSize) {
+        final CountDownLatch done = new CountDownLatch(consumers);
+        for (int i = 0; i < consumers; i++) {
+            final int consumer = i;
+            new Thread() {
+                @Override
+                public void run() {
+                    Object[] batch = new Object[batchSize];
+                    for (int j = 0; j < batchSize; j++) {
+                        batch[j] = consumer + "-" + j;
+                    }
+                    try {
+                        pipeline.archive(batch);
+                        done.countDown();
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                }
+            }.start();
+        }
+        return done;
+    }
+
+    private static class RecordingHandler implements ArchiveOperationHandler {
+
+        final boolean batch;
+
+        final List<Object> archived = Collections.synchronizedList(new ArrayList<Object>());
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        volatile Object poison;
+
+        RecordingHandler(boolean batch) {
+            this.batch = batch;
+        }
+
+        public void archive(Object... objects) {
+            calls.incrementAndGet();
+            for (Object object : objects) {
+                if (object.equals(poison)) {
+                    throw new IllegalArgumentException("poison");
+                }
+            }
+            Collections.addAll(archived, objects);
+        }
+
+        public boolean supportsBatchArchiving() {
+            return batch;
+        }
+    }
+}
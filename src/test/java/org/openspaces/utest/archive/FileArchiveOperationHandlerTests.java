@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.archive;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.openspaces.archive.FileArchiveOperationHandler;
+import org.openspaces.archive.FileArchiveReader;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+public class FileArchiveOperationHandlerTests extends TestCase {
+
+    private File directory;
+
+    private FileArchiveOperationHandler handler;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("archive", "");
+        directory.delete();
+        handler = new FileArchiveOperationHandler();
+        handler.setDirectory(directory);
+        handler.setSegmentSize(4096);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        handler.destroy();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public void testReplayAcrossSegments() throws Exception {
+        handler.afterPropertiesSet();
+        List<String> expected = archive(200);
+        handler.destroy();
+        FileArchiveReader reader = new FileArchiveReader(directory);
+        assertTrue(reader.getSegments().length > 1);
+        assertEquals(expected, readAll(reader));
+        assertEquals(0, reader.getCorruptedBlocks());
+    }
+
+    public void testCompressedReplay() throws Exception {
+        handler.setCompress(true);
+        handler.afterPropertiesSet();
+        List<String> expected = archive(200);
+        handler.destroy();
+        assertEquals(expected, readAll(new FileArchiveReader(directory)));
+    }
+
+    public void testRestartStartsNewSegment() throws Exception {
+        handler.afterPropertiesSet();
+        List<String> expected = archive(10);
+        handler.destroy();
+        handler = new FileArchiveOperationHandler();
+        handler.setDirectory(directory);
+        handler.afterPropertiesSet();
+        expected.addAll(archive(10));
+        handler.destroy();
+        FileArchiveReader reader = new FileArchiveReader(directory);
+        assertEquals(2, reader.getSegments().length);
+        assertEquals(expected, readAll(reader));
+    }
+
+    public void testTornBlockIsIgnored() throws Exception {
+        handler.afterPropertiesSet();
+        handler.archive("a", "b");
+        handler.archive("c");
+        handler.destroy();
+        File segment = new FileArchiveReader(directory).getSegments()[0];
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            // flip the last byte of the second block
+            long end = raf.length() - 1;
+            raf.seek(end);
+            while (raf.readByte() == 0) {
+                raf.seek(--end);
+            }
+            raf.seek(end);
+            byte last = raf.readByte();
+            raf.seek(end);
+            raf.writeByte(~last);
+        } finally {
+            raf.close();
+        }
+        FileArchiveReader reader = new FileArchiveReader(directory);
+        List<Object> read = readAll(reader);
+        assertEquals(2, read.size());
+        assertEquals(1, reader.getCorruptedBlocks());
+    }
+
+    public void testFailedRollStartsNewSegment() throws Exception {
+        handler.afterPropertiesSet();
+        handler.archive("before");
+        File first = new FileArchiveReader(directory).getSegments()[0];
+        // occupy the name of the next segment, so rolling to it fails
+        File blocker = new File(directory, first.getName().replace(String.format("%020d", 0), String.format("%020d", 1)));
+        assertTrue(blocker.mkdir());
+        char[] large = new char[5000];
+        Arrays.fill(large, 'x');
+        try {
+            handler.archive(new String(large));
+            fail("Rolling to the next segment should fail");
+        } catch (DataAccessResourceFailureException e) {
+            // expected
+        }
+        assertTrue(blocker.delete());
+
+        // fits the rolled segment, but must not be appended to it once closed
+        handler.archive("after");
+        handler.destroy();
+        FileArchiveReader reader = new FileArchiveReader(directory);
+        assertEquals(2, reader.getSegments().length);
+        assertEquals(Arrays.asList("before", "after"), readAll(reader));
+    }
+
+    private List<String> archive(int batches) {
+        List<String> archived = new ArrayList<String>();
+        for (int i = 0; i < batches; i++) {
+            String[] batch = new String[]{"entry-" + i + "-a", "entry-" + i + "-b"};
+            handler.archive((Object[]) batch);
+            archived.add(batch[0]);
+            archived.add(batch[1]);
+        }
+        return archived;
+    }
+
+    private static List<Object> readAll(FileArchiveReader reader) {
+        List<Object> read = new ArrayList<Object>();
+        while (reader.hasNext()) {
+            read.add(reader.next());
+        }
+        return read;
+    }
+}
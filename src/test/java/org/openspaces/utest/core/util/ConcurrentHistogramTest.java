@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.core.util;
+
+import junit.framework.TestCase;
+import org.openspaces.core.util.ConcurrentHistogram;
+
+public class ConcurrentHistogramTest extends TestCase {
+
+    public void testEmpty() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0.0, histogram.getMean());
+    }
+
+    public void testSmallValuesAreExact() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+        assertEquals(50, histogram.getCount());
+        assertEquals(25, histogram.getPercentile(50));
+        assertEquals(50, histogram.getPercentile(100));
+        assertEquals(50, histogram.getMax());
+        assertEquals(25.5, histogram.getMean());
+    }
+
+    public void testPercentilesRelativeError() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        assertWithin(50000, histogram.getPercentile(50));
+        assertWithin(99000, histogram.getPercentile(99));
+        assertWithin(99900, histogram.getPercentile(99.9));
+        assertEquals(100000, histogram.getPercentile(100));
+    }
+
+    public void testLargeValues() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(50));
+    }
+
+    public void testConcurrentRecording() throws Exception {
+        final ConcurrentHistogram histogram = new ConcurrentHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        histogram.record(j);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, histogram.getCount());
+        assertEquals(9999, histogram.getMax());
+    }
+
+    public void testWindowKeepsRecentValues() throws Exception {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(200);
+        histogram.record(100);
+        Thread.sleep(250);
+        // the first window elapsed, its values are still read as the previous window
+        histogram.record(10);
+        assertEquals(2, histogram.getCount());
+        assertEquals(110, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        assertEquals(10, histogram.getPercentile(50));
+    }
+
+    public void testWindowExpiresOldValues() throws Exception {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(100);
+        histogram.record(1000);
+        Thread.sleep(250);
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(99));
+
+        histogram.record(5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(5, histogram.getMax());
+    }
+
+    public void testCumulativeHistogramNeverExpires() throws Exception {
+        ConcurrentHistogram histogram = new ConcurrentHistogram();
+        histogram.record(1000);
+        Thread.sleep(50);
+        assertEquals(1, histogram.getCount());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    private void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual, Math.abs(actual - expected) <= expected * 0.04);
+    }
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.events.asyncpolling;
+
+import com.gigaspaces.async.AsyncFuture;
+import com.gigaspaces.async.AsyncFutureListener;
+import com.gigaspaces.async.internal.DefaultAsyncResult;
+import org.jmock.Mock;
+import org.jmock.MockObjectTestCase;
+import org.openspaces.core.GigaSpace;
+import org.openspaces.core.transaction.internal.InternalAsyncFutureListener;
+import org.openspaces.events.SpaceDataEventListener;
+import org.openspaces.events.asyncpolling.SimpleAsyncPollingEventListenerContainer;
+import org.openspaces.events.asyncpolling.receive.AsyncOperationHandler;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests the async polling container keeping several operations outstanding per consumer.
+ */
+public class AsyncPollingPipelineTests extends MockObjectTestCase {
+
+    private final List<AsyncFutureListener> receives = Collections.synchronizedList(new ArrayList<AsyncFutureListener>());
+
+    private final List<Object> events = Collections.synchronizedList(new ArrayList<Object>());
+
+    private GigaSpace gigaSpace;
+
+    private SimpleAsyncPollingEventListenerContainer container;
+
+    protected void setUp() throws Exception {
+        Mock mockGigaSpace = mock(GigaSpace.class);
+        mockGigaSpace.stubs().method("getName").will(returnValue("space"));
+        gigaSpace = (GigaSpace) mockGigaSpace.proxy();
+
+        container = new SimpleAsyncPollingEventListenerContainer();
+        container.setBeanName("pipelined");
+        container.setGigaSpace(gigaSpace);
+        container.setTemplate(new Object());
+        container.setPerformSnapshot(false);
+        container.setActiveWhenPrimary(false);
+        container.setAsyncOperationHandler(new AsyncOperationHandler() {
+            public AsyncFuture asyncReceive(Object template, GigaSpace gigaSpace, long receiveTimeout, AsyncFutureListener listener) {
+                receives.add(listener);
+                return null;
+            }
+        });
+        container.setEventListener(new SpaceDataEventListener<Object>() {
+            public void onEvent(Object data, GigaSpace gigaSpace, TransactionStatus txStatus, Object source) {
+                if ("poison".equals(data)) {
+                    throw new IllegalStateException("poison");
+                }
+                events.add(data);
+            }
+        });
+    }
+
+    protected void tearDown() throws Exception {
+        container.destroy();
+    }
+
+    public void testOperationsAreIssuedPerConsumer() {
+        start(2, 3);
+
+        assertEquals(6, receives.size());
+        assertEquals(6, container.getInFlightOperations());
+    }
+
+    public void testResultsAreHandledInIssueOrder() {
+        start(1, 3);
+
+        complete(2, "c");
+        complete(1, "b");
+        assertTrue(events.isEmpty());
+
+        complete(0, "a");
+        assertEquals(Arrays.<Object>asList("a", "b", "c"), events);
+    }
+
+    public void testOperationIsIssuedAgainOnceItsResultIsHandled() {
+        start(1, 3);
+
+        complete(1, "b");
+        complete(2, "c");
+        // queued behind the first operation, neither is issued again yet
+        assertEquals(1, container.getInFlightOperations());
+        assertEquals(3, receives.size());
+
+        complete(0, "a");
+        assertEquals(3, container.getInFlightOperations());
+        assertEquals(6, receives.size());
+
+        // the operations are issued again in order, so their results keep being handled in order
+        complete(4, "e");
+        complete(3, "d");
+        assertEquals(Arrays.<Object>asList("a", "b", "c", "d", "e"), events);
+    }
+
+    public void testEmptyResultsAndFailuresDoNotHoldBackLaterResults() {
+        start(1, 3);
+
+        complete(2, "c");
+        complete(1, "poison");
+        complete(0, null);
+
+        assertEquals(Arrays.<Object>asList("c"), events);
+        assertEquals(3, container.getInFlightOperations());
+        assertEquals(6, receives.size());
+    }
+
+    public void testConsumersHandleResultsIndependently() {
+        start(2, 2);
+
+        // the first consumer issued operations 0 and 1, the second 2 and 3
+        complete(1, "a2");
+        complete(2, "b1");
+        assertEquals(Arrays.<Object>asList("b1"), events);
+
+        complete(0, "a1");
+        assertEquals(Arrays.<Object>asList("b1", "a1", "a2"), events);
+    }
+
+    private void start(int concurrentConsumers, int pipelineDepth) {
+        container.setConcurrentConsumers(concurrentConsumers);
+        container.setPipelineDepth(pipelineDepth);
+        container.afterPropertiesSet();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void complete(int receive, Object result) {
+        // delivered the way GigaSpace delivers async results to the container
+        new InternalAsyncFutureListener<Object>(gigaSpace, receives.get(receive)).onResult(new DefaultAsyncResult<Object>(result, null));
+    }
+}
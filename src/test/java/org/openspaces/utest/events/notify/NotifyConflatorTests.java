@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.events.notify;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.jini.core.event.RemoteEvent;
+import org.openspaces.events.notify.NotifyConflator;
+import org.openspaces.events.notify.NotifyConflator.RemovalPolicy;
+
+public class NotifyConflatorTests extends TestCase {
+
+    public void testLatestNotificationOfEachIdDelivered() {
+        Notification a1 = write("a"), b1 = write("b"), a2 = write("a"), c1 = write("c"), b2 = write("b");
+        assertConflated(RemovalPolicy.DELIVER, new Notification[]{a1, b1, a2, c1, b2}, a2, c1, b2);
+    }
+
+    public void testNotificationsWithoutIdNotConflated() {
+        Notification n1 = write(null), a1 = write("a"), n2 = write(null), a2 = write("a");
+        assertConflated(RemovalPolicy.DELIVER, new Notification[]{n1, a1, n2, a2}, n1, n2, a2);
+    }
+
+    public void testSameIdOfDifferentTypesConflatedSeparately() {
+        Notification order1 = write("Order", "1"), trade1 = write("Trade", "1"), order2 = write("Order", "1");
+        assertConflated(RemovalPolicy.DELIVER, new Notification[]{order1, trade1, order2}, trade1, order2);
+    }
+
+    public void testRemovalOnlySupersedesNotificationsOfItsType() {
+        Notification order1 = write("Order", "1"), trade1 = write("Trade", "1"), takeOrder = take("Order", "1");
+        assertConflated(RemovalPolicy.DISCARD, new Notification[]{order1, trade1, takeOrder}, trade1);
+    }
+
+    public void testEmptyBatch() {
+        assertConflated(RemovalPolicy.DELIVER, new Notification[0]);
+    }
+
+    public void testDefaultRemovalPolicyIsDeliver() {
+        assertEquals(RemovalPolicy.DELIVER, new TestConflator(null).getRemovalPolicy());
+    }
+
+    public void testDeliverRemovalSupersedesEarlierNotifications() {
+        Notification a1 = write("a"), b1 = write("b"), takeA = take("a");
+        assertConflated(RemovalPolicy.DELIVER, new Notification[]{a1, b1, takeA}, b1, takeA);
+    }
+
+    public void testDeliverConflatesNotificationsFollowingRemovalSeparately() {
+        Notification a1 = write("a"), takeA = take("a"), a2 = write("a"), b1 = write("b"), a3 = write("a");
+        assertConflated(RemovalPolicy.DELIVER, new Notification[]{a1, takeA, a2, b1, a3}, takeA, b1, a3);
+    }
+
+    public void testDeliverKeepsEveryRemoval() {
+        Notification takeA1 = take("a"), a1 = write("a"), takeA2 = take("a");
+        assertConflated(RemovalPolicy.DELIVER, new Notification[]{takeA1, a1, takeA2}, takeA1, takeA2);
+    }
+
+    public void testConflateTreatsRemovalLikeAnyNotification() {
+        Notification a1 = write("a"), takeA = take("a"), b1 = write("b");
+        assertConflated(RemovalPolicy.CONFLATE, new Notification[]{a1, takeA, b1}, takeA, b1);
+
+        Notification a2 = write("a");
+        assertConflated(RemovalPolicy.CONFLATE, new Notification[]{a1, takeA, a2, b1}, a2, b1);
+    }
+
+    public void testDiscardDropsRemovalAndEarlierNotifications() {
+        Notification a1 = write("a"), b1 = write("b"), takeA = take("a");
+        assertConflated(RemovalPolicy.DISCARD, new Notification[]{a1, b1, takeA}, b1);
+    }
+
+    public void testDiscardKeepsNotificationsFollowingRemoval() {
+        Notification a1 = write("a"), takeA = take("a"), a2 = write("a"), takeB = take("b");
+        assertConflated(RemovalPolicy.DISCARD, new Notification[]{a1, takeA, a2, takeB}, a2);
+    }
+
+    private static void assertConflated(RemovalPolicy removalPolicy, Notification[] events, Notification... expected) {
+        RemoteEvent[] conflated = new TestConflator(removalPolicy).conflate(events);
+        assertEquals(Arrays.asList(expected), Arrays.asList(conflated));
+    }
+
+    private static Notification write(String id) {
+        return write("Entry", id);
+    }
+
+    private static Notification write(String type, String id) {
+        return new Notification(type, id, false);
+    }
+
+    private static Notification take(String id) {
+        return take("Entry", id);
+    }
+
+    private static Notification take(String type, String id) {
+        return new Notification(type, id, true);
+    }
+
+    private static class Notification extends RemoteEvent {
+
+        private static final long serialVersionUID = 1L;
+
+        private static long sequence;
+
+        final String type;
+
+        final String id;
+
+        final boolean removal;
+
+        Notification(String type, String id, boolean removal) {
+            super("test", 1, ++sequence, null);
+            this.type = type;
+            this.id = id;
+            this.removal = removal;
+        }
+
+        @Override
+        public String toString() {
+            return (removal ? "take " : "write ") + type + ":" + id + " #" + getSequenceNumber();
+        }
+    }
+
+    private static class TestConflator extends NotifyConflator {
+
+        TestConflator(RemovalPolicy removalPolicy) {
+            super(null, removalPolicy);
+        }
+
+        @Override
+        protected boolean isRemoval(RemoteEvent event) {
+            return ((Notification) event).removal;
+        }
+
+        @Override
+        protected Object getEntry(RemoteEvent event) {
+            return event;
+        }
+
+        @Override
+        protected String getTypeName(Object data) {
+            return ((Notification) data).type;
+        }
+
+        @Override
+        protected Object getId(String typeName, Object data) {
+            return ((Notification) data).id;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.events.notify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import org.openspaces.events.notify.NotifyDispatcher;
+
+public class NotifyDispatcherTests extends TestCase {
+
+    private NotifyDispatcher dispatcher;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    public void testOrderPreservedPerKey() throws Exception {
+        dispatcher = new NotifyDispatcher("test", 4, 100, NotifyDispatcher.Backpressure.BLOCK);
+        final int keys = 8;
+        final int perKey = 200;
+        final List<List<Integer>> seen = new ArrayList<List<Integer>>();
+        for (int k = 0; k < keys; k++) {
+            seen.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        final CountDownLatch done = new CountDownLatch(keys * perKey);
+        for (int i = 0; i < perKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                final int key = k;
+                final int value = i;
+                dispatcher.dispatch(key, new Runnable() {
+                    public void run() {
+                        seen.get(key).add(value);
+                        done.countDown();
+                    }
+                });
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> values : seen) {
+            assertEquals(perKey, values.size());
+            for (int i = 0; i < perKey; i++) {
+                assertEquals(i, values.get(i).intValue());
+            }
+        }
+        assertEquals(keys * perKey, dispatcher.getWaitTimes().getCount());
+    }
+
+    public void testDropOldest() throws Exception {
+        dispatcher = new NotifyDispatcher("test", 1, 2, NotifyDispatcher.Backpressure.DROP_OLDEST);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        dispatcher.dispatch("a", new Runnable() {
+            public void run() {
+                blocked.countDown();
+                await(release);
+            }
+        });
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(2);
+        for (final String value : new String[]{"1", "2", "3", "4"}) {
+            dispatcher.dispatch("a", new Runnable() {
+                public void run() {
+                    executed.add(value);
+                    done.countDown();
+                }
+            });
+        }
+        assertEquals(2, dispatcher.getQueueDepth());
+        assertEquals(2, dispatcher.getDroppedTasks().getCount());
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("3", "4"), executed);
+    }
+
+    public void testFail() throws Exception {
+        dispatcher = new NotifyDispatcher("test", 1, 1, NotifyDispatcher.Backpressure.FAIL);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        dispatcher.dispatch(null, new Runnable() {
+            public void run() {
+                blocked.countDown();
+                await(release);
+            }
+        });
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        Runnable noop = new Runnable() {
+            public void run() {
+            }
+        };
+        dispatcher.dispatch(null, noop);
+        try {
+            dispatcher.dispatch(null, noop);
+            fail("queue is full");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(1, dispatcher.getRejectedTasks().getCount());
+        release.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.events.polling;
+
+import com.gigaspaces.metadata.SpaceTypeDescriptor;
+import com.gigaspaces.query.IdQuery;
+import net.jini.core.transaction.Transaction;
+import org.jmock.Mock;
+import org.jmock.MockObjectTestCase;
+import org.jmock.core.Invocation;
+import org.jmock.core.stub.CustomStub;
+import org.openspaces.core.GigaSpace;
+import org.openspaces.core.GigaSpaceTypeManager;
+import org.openspaces.events.SpaceDataEventListener;
+import org.openspaces.events.polling.SimplePollingEventListenerContainer;
+import org.openspaces.events.polling.receive.ReceiveOperationHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a polling container against a mocked space. Received events are fed through a queue, and
+ * the events still in the space (available to be retaken by id) are kept in a map. Events retaken
+ * by id are removed from the map once the transaction they were taken in commits.
+ */
+public abstract class AbstractPollingContainerTests extends MockObjectTestCase {
+
+    protected final BlockingQueue<Object> received = new LinkedBlockingQueue<Object>();
+
+    protected final Map<Object, Object> space = new ConcurrentHashMap<Object, Object>();
+
+    protected final List<Object> written = Collections.synchronizedList(new ArrayList<Object>());
+
+    private final ThreadLocal<List<Object>> takenIds = new ThreadLocal<List<Object>>() {
+        protected List<Object> initialValue() {
+            return new ArrayList<Object>();
+        }
+    };
+
+    protected final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+
+    protected final RecordingListener listener = new RecordingListener();
+
+    protected SimplePollingEventListenerContainer container;
+
+    protected void setUp() throws Exception {
+        Mock typeDescriptor = mock(SpaceTypeDescriptor.class);
+        typeDescriptor.stubs().method("getIdPropertyName").will(returnValue("id"));
+        Mock typeManager = mock(GigaSpaceTypeManager.class);
+        typeManager.stubs().method("getTypeDescriptor").will(returnValue(typeDescriptor.proxy()));
+
+        Mock gigaSpace = mock(GigaSpace.class);
+        gigaSpace.stubs().method("getName").will(returnValue("space"));
+        gigaSpace.stubs().method("getTypeManager").will(returnValue(typeManager.proxy()));
+        gigaSpace.stubs().method("getCurrentTransaction").will(returnValue(mock(Transaction.class).proxy()));
+        gigaSpace.stubs().method("takeById").will(new CustomStub("takes the entry from the space") {
+            public Object invoke(Invocation invocation) {
+                Object id = ((IdQuery<?>) invocation.parameterValues.get(0)).getId();
+                Object entry = space.get(id);
+                if (entry != null) {
+                    takenIds.get().add(id);
+                }
+                return entry;
+            }
+        });
+        gigaSpace.stubs().method("write").will(new CustomStub("records the written entry") {
+            public Object invoke(Invocation invocation) {
+                written.add(invocation.parameterValues.get(0));
+                return null;
+            }
+        });
+
+        container = new SimplePollingEventListenerContainer();
+        container.setBeanName("test");
+        container.setGigaSpace((GigaSpace) gigaSpace.proxy());
+        container.setTemplate(new Event());
+        container.setPerformSnapshot(false);
+        container.setActiveWhenPrimary(false);
+        container.setDisableTransactionValidation(true);
+        container.setReceiveOperationHandler(new ReceiveOperationHandler() {
+            public Object receive(Object template, GigaSpace gigaSpace, long receiveTimeout) {
+                try {
+                    return received.poll(receiveTimeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        });
+        container.setEventListener(listener);
+    }
+
+    protected void tearDown() throws Exception {
+        container.destroy();
+    }
+
+    /**
+     * Writes the given events to the space, making them available to be retaken by id.
+     */
+    protected void store(Event... events) {
+        for (Event event : events) {
+            space.put(event.getId(), event);
+        }
+    }
+
+    /**
+     * Hands the given events to the container as the result of a single receive operation.
+     */
+    protected void receive(Event... events) {
+        received.add(events.length == 1 ? events[0] : events);
+    }
+
+    protected void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.isMet()) {
+            assertTrue("Timed out waiting for the container", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    protected interface Condition {
+        boolean isMet();
+    }
+
+    public static class Event {
+
+        private String id;
+
+        private String key;
+
+        public Event() {
+        }
+
+        public Event(String id, String key) {
+            this.id = id;
+            this.key = key;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public String toString() {
+            return id;
+        }
+    }
+
+    /**
+     * Records the events (or event arrays) it is invoked with, taking the given processing time
+     * for each. Fails for poisoned events, and marks the transaction rollback only for events to
+     * be rolled back.
+     */
+    public static class RecordingListener implements SpaceDataEventListener<Object> {
+
+        final List<Object> events = Collections.synchronizedList(new ArrayList<Object>());
+
+        final List<Object> invocations = Collections.synchronizedList(new ArrayList<Object>());
+
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+        final Set<Object> poisoned = Collections.synchronizedSet(new HashSet<Object>());
+
+        final Set<Object> rolledBack = Collections.synchronizedSet(new HashSet<Object>());
+
+        volatile long processingTime;
+
+        public void onEvent(Object data, GigaSpace gigaSpace, TransactionStatus txStatus, Object source) {
+            invocations.add(data);
+            threads.add(Thread.currentThread().getName());
+            if (processingTime > 0) {
+                try {
+                    Thread.sleep(processingTime);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (poisoned.contains(data)) {
+                throw new IllegalStateException("Poisoned event [" + data + "]");
+            }
+            if (rolledBack.contains(data)) {
+                txStatus.setRollbackOnly();
+                return;
+            }
+            events.add(data);
+        }
+
+        int invocationsOf(Object event) {
+            int count = 0;
+            synchronized (invocations) {
+                for (Object invocation : invocations) {
+                    if (invocation == event) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    public class RecordingTransactionManager implements PlatformTransactionManager {
+
+        final AtomicInteger commits = new AtomicInteger();
+
+        final AtomicInteger rollbacks = new AtomicInteger();
+
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        public void commit(TransactionStatus status) {
+            for (Object id : takenIds.get()) {
+                space.remove(id);
+            }
+            takenIds.get().clear();
+            commits.incrementAndGet();
+        }
+
+        public void rollback(TransactionStatus status) {
+            takenIds.get().clear();
+            rollbacks.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.events.polling;
+
+import org.openspaces.events.polling.parallel.OrderingKeyExtractor;
+import org.openspaces.events.polling.scaling.ConsumerScalingStatistics;
+
+/**
+ * Tests the consumer utilization the scaling policy is given relates the time spent in the
+ * listener to the number of threads running it.
+ */
+public class ConsumerUtilizationTests extends AbstractPollingContainerTests {
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        container.setReceiveTimeout(60000);
+        container.setConcurrentConsumers(1);
+        container.setMaxConcurrentConsumers(2);
+        container.setScalingInterval(200);
+        container.setSampleBacklog(false);
+        listener.processingTime = 10;
+    }
+
+    public void testBusyConsumerFullyUtilized() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            receive(new Event("event" + i, "a"));
+        }
+        container.afterPropertiesSet();
+
+        ConsumerScalingStatistics statistics = waitForScalingStatistics();
+        assertTrue(String.valueOf(statistics.getUtilization()), statistics.getUtilization() > 0.5);
+    }
+
+    public void testUtilizationNormalizedByBatchWorkers() throws Exception {
+        // each array keeps two of the four workers busy, while the consumers wait for them
+        container.setBatchWorkers(4);
+        container.setOrderingKeyExtractor(new OrderingKeyExtractor() {
+            public Object extractKey(Object event) {
+                return ((Event) event).getKey();
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            receive(new Event("event" + i + "a", "a"), new Event("event" + i + "b", "b"));
+        }
+        container.afterPropertiesSet();
+
+        ConsumerScalingStatistics statistics = waitForScalingStatistics();
+        double utilization = statistics.getUtilization();
+        assertTrue(String.valueOf(utilization), utilization > 0.15 && utilization < 0.75);
+    }
+
+    private ConsumerScalingStatistics waitForScalingStatistics() throws InterruptedException {
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return container.getLastScalingStatistics() != null;
+            }
+        });
+        return container.getLastScalingStatistics();
+    }
+}
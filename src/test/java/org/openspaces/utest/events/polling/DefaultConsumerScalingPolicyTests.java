@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.events.polling;
+
+import junit.framework.TestCase;
+import org.openspaces.events.polling.scaling.ConsumerScalingStatistics;
+import org.openspaces.events.polling.scaling.DefaultConsumerScalingPolicy;
+
+public class DefaultConsumerScalingPolicyTests extends TestCase {
+
+    private static final long MILLI = 1000000L;
+
+    private final DefaultConsumerScalingPolicy policy = new DefaultConsumerScalingPolicy();
+
+    private ConsumerScalingStatistics stats(int scheduled, long backlog, long latency, double utilization) {
+        return new ConsumerScalingStatistics(1, 10, scheduled, backlog, 100, latency, utilization, 1000 * MILLI);
+    }
+
+    public void testBacklogDrivesTarget() {
+        // 500 pending entries of 10ms each should be drained within a second by 5 consumers
+        assertEquals(5, policy.calculateTargetConsumers(stats(1, 500, 10 * MILLI, 0.5)));
+    }
+
+    public void testBacklogBoundedByMax() {
+        assertEquals(10, policy.calculateTargetConsumers(stats(2, 100000, 10 * MILLI, 0.5)));
+        assertEquals(10, policy.calculateTargetConsumers(stats(2, Long.MAX_VALUE / 2, 10 * MILLI, 0.5)));
+    }
+
+    public void testBacklogWithUnknownLatencyAddsOne() {
+        assertEquals(3, policy.calculateTargetConsumers(stats(2, 10, 0, 0)));
+    }
+
+    public void testHighUtilizationScalesUp() {
+        assertEquals(6, policy.calculateTargetConsumers(stats(4, ConsumerScalingStatistics.UNKNOWN_BACKLOG, MILLI, 0.9)));
+        assertEquals(2, policy.calculateTargetConsumers(stats(1, 0, MILLI, 0.9)));
+    }
+
+    public void testLowUtilizationScalesDownOneAtATime() {
+        assertEquals(5, policy.calculateTargetConsumers(stats(6, 0, MILLI, 0.1)));
+        assertEquals(1, policy.calculateTargetConsumers(stats(1, 0, MILLI, 0.0)));
+    }
+
+    public void testSmallBacklogScalesDownOneAtATime() {
+        assertEquals(7, policy.calculateTargetConsumers(stats(8, 1, MILLI, 0.1)));
+    }
+
+    public void testLargeBacklogPreventsScaleDown() {
+        assertEquals(8, policy.calculateTargetConsumers(stats(8, 1000, 8 * MILLI, 0.1)));
+    }
+
+    public void testSteadyLoadKeepsTarget() {
+        assertEquals(4, policy.calculateTargetConsumers(stats(4, ConsumerScalingStatistics.UNKNOWN_BACKLOG, MILLI, 0.5)));
+    }
+}
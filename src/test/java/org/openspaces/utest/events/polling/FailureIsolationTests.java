@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.events.polling;
+
+import org.jmock.Mock;
+import org.jmock.core.Invocation;
+import org.jmock.core.stub.CustomStub;
+import org.openspaces.core.GigaSpace;
+import org.openspaces.events.polling.PollingEventContainerServiceMonitors;
+import org.openspaces.events.polling.isolation.DeadLetterEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class FailureIsolationTests extends AbstractPollingContainerTests {
+
+    private final Event good1 = new Event("good1", "a");
+
+    private final Event poisoned = new Event("poisoned", "a");
+
+    private final Event good2 = new Event("good2", "a");
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        container.setReceiveTimeout(60000);
+        container.setTransactionManager(transactionManager);
+        container.setFailureIsolation(true);
+        container.setMaxFailures(3);
+        listener.poisoned.add(poisoned);
+    }
+
+    public void testPoisonedEventIsolatedAndQuarantined() throws Exception {
+        long start = System.currentTimeMillis();
+        container.afterPropertiesSet();
+        store(good1, poisoned, good2);
+        receive(good1, poisoned, good2);
+        waitForQuarantine(written);
+
+        // [good1, poisoned, good2] fails, [good1] succeeds, [poisoned, good2] fails and
+        // [poisoned] fails three times on its own, after which [good2] succeeds
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return listener.events.contains(good2);
+            }
+        });
+        assertEquals(5, listener.invocationsOf(poisoned));
+        assertEquals(2, listener.invocationsOf(good1));
+        assertEquals(1, listener.invocationsOf(good2));
+        assertEquals(2, listener.events.size());
+        assertTrue(space.isEmpty());
+
+        assertEquals(1, written.size());
+        DeadLetterEntry deadLetter = (DeadLetterEntry) written.get(0);
+        assertSame(poisoned, deadLetter.getEvent());
+        assertEquals("test", deadLetter.getContainerName());
+        assertEquals(Event.class.getName(), deadLetter.getEventType());
+        assertEquals(3, deadLetter.getFailures().intValue());
+        assertTrue(deadLetter.getFailure(), deadLetter.getFailure().contains("Poisoned event [poisoned]"));
+        assertTrue(deadLetter.getTimestamp() >= start);
+
+        PollingEventContainerServiceMonitors monitors = (PollingEventContainerServiceMonitors) container.getServicesMonitors()[0];
+        assertEquals(4, monitors.getIsolationRetries().longValue());
+        assertEquals(1, monitors.getQuarantinedEvents().longValue());
+    }
+
+    public void testSingleEventRetriedUpToMaxFailures() throws Exception {
+        container.setMaxFailures(2);
+        container.afterPropertiesSet();
+        store(poisoned);
+        receive(poisoned);
+        waitForQuarantine(written);
+
+        assertEquals(3, listener.invocationsOf(poisoned));
+        assertEquals(2, ((DeadLetterEntry) written.get(0)).getFailures().intValue());
+        PollingEventContainerServiceMonitors monitors = (PollingEventContainerServiceMonitors) container.getServicesMonitors()[0];
+        assertEquals(2, monitors.getIsolationRetries().longValue());
+    }
+
+    public void testEventsTakenByOthersAreNotRetried() throws Exception {
+        container.afterPropertiesSet();
+        // the poisoned event was taken by another consumer once the transaction rolled back
+        store(good1, good2);
+        receive(good1, poisoned, good2);
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return listener.events.contains(good2);
+            }
+        });
+
+        assertEquals(1, listener.invocationsOf(poisoned));
+        assertEquals(2, listener.invocationsOf(good1));
+        assertEquals(1, listener.invocationsOf(good2));
+        assertTrue(written.isEmpty());
+        PollingEventContainerServiceMonitors monitors = (PollingEventContainerServiceMonitors) container.getServicesMonitors()[0];
+        assertEquals(0, monitors.getIsolationRetries().longValue());
+        assertEquals(0, monitors.getQuarantinedEvents().longValue());
+    }
+
+    public void testUnwrappedDeadLetterWrittenToDeadLetterSpace() throws Exception {
+        final List<Object> deadLetters = Collections.synchronizedList(new ArrayList<Object>());
+        Mock deadLetterSpace = mock(GigaSpace.class);
+        deadLetterSpace.stubs().method("write").will(new CustomStub("records the dead letter") {
+            public Object invoke(Invocation invocation) {
+                deadLetters.add(invocation.parameterValues.get(0));
+                return null;
+            }
+        });
+        container.setDeadLetterSpace((GigaSpace) deadLetterSpace.proxy());
+        container.setWrapDeadLetters(false);
+        container.afterPropertiesSet();
+        store(poisoned);
+        receive(poisoned);
+        waitForQuarantine(deadLetters);
+
+        assertSame(poisoned, deadLetters.get(0));
+        assertTrue(written.isEmpty());
+        assertTrue(space.isEmpty());
+    }
+
+    public void testNoIsolationWithoutFailureIsolation() throws Exception {
+        container.setFailureIsolation(false);
+        container.afterPropertiesSet();
+        store(good1, poisoned, good2);
+        receive(good1, poisoned, good2);
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return transactionManager.rollbacks.get() == 1;
+            }
+        });
+
+        assertEquals(1, listener.invocationsOf(poisoned));
+        assertEquals(0, listener.invocationsOf(good2));
+        assertTrue(written.isEmpty());
+    }
+
+    private void waitForQuarantine(final List<Object> deadLetters) throws InterruptedException {
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return !deadLetters.isEmpty();
+            }
+        });
+    }
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.events.polling;
+
+import org.openspaces.events.polling.PollingEventContainerServiceMonitors;
+
+import java.util.Arrays;
+
+public class MicroBatchingTests extends AbstractPollingContainerTests {
+
+    private final Event e1 = new Event("e1", "a");
+
+    private final Event e2 = new Event("e2", "a");
+
+    private final Event e3 = new Event("e3", "a");
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        container.setReceiveTimeout(60000);
+    }
+
+    public void testFullBatchDeliveredAsTypedArray() throws Exception {
+        container.setMaxBatchSize(3);
+        container.setMaxBatchDelay(60000);
+        receive(e1);
+        receive(e2);
+        receive(e3);
+        container.afterPropertiesSet();
+        waitForInvocations(1);
+
+        Object batch = listener.invocations.get(0);
+        assertEquals(Event[].class, batch.getClass());
+        assertEquals(Arrays.asList(e1, e2, e3), Arrays.asList((Object[]) batch));
+        assertEquals(1, getMonitors().getBatches().longValue());
+    }
+
+    public void testPartialBatchDeliveredOnDelay() throws Exception {
+        container.setMaxBatchSize(10);
+        container.setMaxBatchDelay(50);
+        receive(e1);
+        receive(e2);
+        container.afterPropertiesSet();
+        waitForInvocations(1);
+
+        assertEquals(Arrays.asList(e1, e2), Arrays.asList((Object[]) listener.invocations.get(0)));
+    }
+
+    public void testReceivedArraysFlattenedIntoBatch() throws Exception {
+        container.setMaxBatchSize(3);
+        container.setMaxBatchDelay(60000);
+        receive(e1, e2);
+        receive(e3);
+        container.afterPropertiesSet();
+        waitForInvocations(1);
+
+        Object batch = listener.invocations.get(0);
+        assertEquals(Event[].class, batch.getClass());
+        assertEquals(Arrays.asList(e1, e2, e3), Arrays.asList((Object[]) batch));
+    }
+
+    public void testMixedBatchDeliveredAsObjectArray() throws Exception {
+        container.setMaxBatchSize(2);
+        container.setMaxBatchDelay(60000);
+        receive(e1);
+        received.add("text");
+        container.afterPropertiesSet();
+        waitForInvocations(1);
+
+        Object batch = listener.invocations.get(0);
+        assertEquals(Object[].class, batch.getClass());
+        assertEquals(Arrays.asList(e1, "text"), Arrays.asList((Object[]) batch));
+    }
+
+    public void testEmptyReceiveNotDelivered() throws Exception {
+        container.setMaxBatchSize(10);
+        container.setMaxBatchDelay(50);
+        received.add(new Object[0]);
+        container.afterPropertiesSet();
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return received.isEmpty();
+            }
+        });
+        receive(e1);
+        waitForInvocations(1);
+        Thread.sleep(100);
+
+        assertEquals(1, listener.invocations.size());
+        assertEquals(Arrays.asList(e1), Arrays.asList((Object[]) listener.invocations.get(0)));
+        assertEquals(1, getMonitors().getBatches().longValue());
+    }
+
+    private void waitForInvocations(final int count) throws InterruptedException {
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return listener.invocations.size() >= count;
+            }
+        });
+    }
+
+    private PollingEventContainerServiceMonitors getMonitors() {
+        return (PollingEventContainerServiceMonitors) container.getServicesMonitors()[0];
+    }
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.events.polling;
+
+import org.openspaces.events.polling.parallel.OrderingKeyExtractor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ParallelBatchWorkersTests extends AbstractPollingContainerTests {
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        container.setReceiveTimeout(60000);
+        container.setBatchWorkers(4);
+        container.setOrderingKeyExtractor(new OrderingKeyExtractor() {
+            public Object extractKey(Object event) {
+                return ((Event) event).getKey();
+            }
+        });
+    }
+
+    public void testSingleWorkerRejected() {
+        try {
+            container.setBatchWorkers(1);
+            fail("A single batch worker should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        container.setBatchWorkers(0);
+        container.setBatchWorkers(2);
+    }
+
+    public void testEventsOfSameKeyProcessedInOrder() throws Exception {
+        final Event[] events = events(60, 3);
+        container.afterPropertiesSet();
+        receive(events);
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return listener.events.size() == events.length;
+            }
+        });
+
+        for (int key = 0; key < 3; key++) {
+            assertEquals(eventsOfKey(events, "key" + key), eventsOfKey(listener.events.toArray(), "key" + key));
+        }
+        for (String thread : listener.threads) {
+            assertTrue(thread, thread.startsWith("GS-test-batch"));
+        }
+    }
+
+    public void testTransactionCommittedOnceAllWorkersSucceed() throws Exception {
+        final Event[] events = events(20, 4);
+        container.setTransactionManager(transactionManager);
+        container.afterPropertiesSet();
+        receive(events);
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return transactionManager.commits.get() == 1;
+            }
+        });
+
+        assertEquals(events.length, listener.events.size());
+        assertEquals(0, transactionManager.rollbacks.get());
+    }
+
+    public void testWorkerFailureRollsBackWholeArray() throws Exception {
+        Event[] events = events(20, 4);
+        listener.poisoned.add(events[5]);
+        container.setTransactionManager(transactionManager);
+        container.afterPropertiesSet();
+        receive(events);
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return transactionManager.rollbacks.get() == 1;
+            }
+        });
+
+        assertEquals(1, listener.invocationsOf(events[5]));
+        assertEquals(0, transactionManager.commits.get());
+        // events of the failing key following the poisoned one are not processed
+        assertFalse(listener.invocations.contains(events[9]));
+    }
+
+    public void testWorkerRollbackOnlyRollsBackWholeArray() throws Exception {
+        Event[] events = events(20, 4);
+        listener.rolledBack.add(events[6]);
+        container.setTransactionManager(transactionManager);
+        container.afterPropertiesSet();
+        receive(events);
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return transactionManager.rollbacks.get() == 1;
+            }
+        });
+
+        assertEquals(1, listener.invocationsOf(events[6]));
+        assertEquals(0, transactionManager.commits.get());
+    }
+
+    public void testFailureWithoutTransactionDoesNotStopOtherEvents() throws Exception {
+        final Event[] events = events(20, 4);
+        listener.poisoned.add(events[5]);
+        container.afterPropertiesSet();
+        receive(events);
+        waitFor(new Condition() {
+            public boolean isMet() {
+                return listener.events.size() == events.length - 1;
+            }
+        });
+
+        assertFalse(listener.events.contains(events[5]));
+        assertEquals(1, listener.invocationsOf(events[5]));
+    }
+
+    private static Event[] events(int count, int keys) {
+        Event[] events = new Event[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = new Event("event" + i, "key" + (i % keys));
+        }
+        return events;
+    }
+
+    private static List<Object> eventsOfKey(Object[] events, String key) {
+        List<Object> result = new ArrayList<Object>();
+        for (Object event : events) {
+            if (key.equals(((Event) event).getKey())) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.memcached;
+
+import com.gigaspaces.client.ReadByIdsResult;
+import org.jmock.Mock;
+import org.jmock.MockObjectTestCase;
+import org.jmock.core.Invocation;
+import org.jmock.core.stub.CustomStub;
+import org.openspaces.core.GigaSpace;
+import org.openspaces.memcached.GetBatcher;
+import org.openspaces.memcached.Key;
+import org.openspaces.memcached.MemcachedEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class GetBatcherTests extends MockObjectTestCase {
+
+    private static final long LONG_DELAY_MICROS = TimeUnit.SECONDS.toMicros(10);
+
+    private final Map<Key, MemcachedEntry> space = new ConcurrentHashMap<Key, MemcachedEntry>();
+
+    private final List<Object[]> reads = Collections.synchronizedList(new ArrayList<Object[]>());
+
+    private volatile RuntimeException readFailure;
+
+    private volatile CountDownLatch readStarted = new CountDownLatch(1);
+
+    private volatile CountDownLatch releaseRead;
+
+    private GigaSpace gigaSpace;
+
+    private GetBatcher batcher;
+
+    protected void setUp() throws Exception {
+        Mock gigaSpaceMock = mock(GigaSpace.class);
+        gigaSpaceMock.stubs().method("readByIds").will(new CustomStub("reads the entries of the test space") {
+            public Object invoke(Invocation invocation) throws Throwable {
+                Object[] ids = (Object[]) invocation.parameterValues.get(1);
+                reads.add(ids);
+                readStarted.countDown();
+                if (releaseRead != null) {
+                    awaitUninterruptibly(releaseRead);
+                }
+                if (readFailure != null) {
+                    throw readFailure;
+                }
+                MemcachedEntry[] entries = new MemcachedEntry[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    entries[i] = space.get(ids[i]);
+                }
+                Mock result = new Mock(ReadByIdsResult.class);
+                result.stubs().method("getResultsArray").will(returnValue(entries));
+                return result.proxy();
+            }
+        });
+        gigaSpace = (GigaSpace) gigaSpaceMock.proxy();
+        for (int i = 0; i < 10; i++) {
+            space.put(key("key" + i), new MemcachedEntry(key("key" + i), ("value" + i).getBytes()));
+        }
+    }
+
+    protected void tearDown() throws Exception {
+        if (releaseRead != null) {
+            releaseRead.countDown();
+        }
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    public void testSameKeyCollapsesIntoOneSlot() throws Exception {
+        batcher = new GetBatcher(gigaSpace, 4, LONG_DELAY_MICROS, 1);
+        Getter[] getters = start("key1", "key1", "key1", "key2");
+        for (Getter getter : getters) {
+            getter.assertCompleted();
+        }
+
+        assertEquals(1, reads.size());
+        assertEquals(2, reads.get(0).length);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("value1", new String(getters[i].entry.getValue()));
+        }
+        assertEquals("value2", new String(getters[3].entry.getValue()));
+        assertEquals(1, batcher.getBatches());
+        assertEquals(4, batcher.getBatchedGets());
+    }
+
+    public void testMissingKeyReturnsNull() throws Exception {
+        batcher = new GetBatcher(gigaSpace, 2, LONG_DELAY_MICROS, 1);
+        Getter[] getters = start("key1", "missing");
+        for (Getter getter : getters) {
+            getter.assertCompleted();
+        }
+        assertEquals("value1", new String(getters[0].entry.getValue()));
+        assertNull(getters[1].entry);
+    }
+
+    public void testBatchCutAtMaxBatchSize() throws Exception {
+        batcher = new GetBatcher(gigaSpace, 2, LONG_DELAY_MICROS, 1);
+        long start = System.nanoTime();
+        Getter[] getters = start("key1", "key2", "key3", "key4");
+        for (Getter getter : getters) {
+            getter.assertCompleted();
+        }
+
+        // the delay is never waited for as the batches fill up
+        assertTrue(System.nanoTime() - start < TimeUnit.MICROSECONDS.toNanos(LONG_DELAY_MICROS));
+        assertEquals(2, reads.size());
+        assertEquals(2, reads.get(0).length);
+        assertEquals(2, reads.get(1).length);
+        assertEquals(2, batcher.getBatches());
+        assertEquals(4, batcher.getBatchedGets());
+    }
+
+    public void testBatchCutWhenDelayRunsOut() throws Exception {
+        batcher = new GetBatcher(gigaSpace, 100, TimeUnit.MILLISECONDS.toMicros(50), 1);
+        long start = System.nanoTime();
+        MemcachedEntry entry = batcher.get(key("key1"));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals("value1", new String(entry.getValue()));
+        assertEquals(1, reads.size());
+        assertEquals(1, reads.get(0).length);
+    }
+
+    public void testReadFailureFailsEveryPendingGet() throws Exception {
+        readFailure = new IllegalStateException("expected");
+        batcher = new GetBatcher(gigaSpace, 3, LONG_DELAY_MICROS, 1);
+        Getter[] getters = start("key1", "key2", "key2");
+        for (Getter getter : getters) {
+            getter.join(10000);
+            assertSame(readFailure, getter.error);
+        }
+
+        assertEquals(1, reads.size());
+        assertEquals(0, batcher.getBatches());
+        assertEquals(0, batcher.getBatchedGets());
+    }
+
+    public void testCloseFailsQueuedGets() throws Exception {
+        releaseRead = new CountDownLatch(1);
+        batcher = new GetBatcher(gigaSpace, 1, LONG_DELAY_MICROS, 1);
+        Getter executing = start("key1")[0];
+        assertTrue(readStarted.await(10, TimeUnit.SECONDS));
+        // the batcher thread is busy reading, so this get stays queued
+        Getter queued = start("key2")[0];
+        awaitWaiting(queued);
+
+        batcher.close();
+        queued.join(10000);
+        assertTrue(queued.error instanceof IllegalStateException);
+        assertEquals("Get batcher is closed", queued.error.getMessage());
+
+        releaseRead.countDown();
+        executing.assertCompleted();
+        assertEquals(1, reads.size());
+    }
+
+    public void testGetAfterCloseFails() {
+        batcher = new GetBatcher(gigaSpace, 1, LONG_DELAY_MICROS, 1);
+        batcher.close();
+        try {
+            batcher.get(key("key1"));
+            fail("get should fail once the batcher is closed");
+        } catch (IllegalStateException e) {
+            assertEquals("Get batcher is closed", e.getMessage());
+        }
+    }
+
+    public void testGetsRacingWithCloseDoNotHang() throws Exception {
+        batcher = new GetBatcher(gigaSpace, 8, 100, 2);
+        final CountDownLatch running = new CountDownLatch(8);
+        Thread[] threads = new Thread[8];
+        final List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<Throwable>());
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    running.countDown();
+                    while (true) {
+                        try {
+                            batcher.get(key("key1"));
+                        } catch (IllegalStateException e) {
+                            if (!"Get batcher is closed".equals(e.getMessage())) {
+                                unexpected.add(e);
+                            }
+                            return;
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        Thread.sleep(20);
+
+        batcher.close();
+        for (Thread thread : threads) {
+            // a get lost by close() would only be released by the get timeout
+            thread.join(10000);
+            assertFalse(thread.isAlive());
+        }
+        assertTrue(unexpected.toString(), unexpected.isEmpty());
+    }
+
+    public void testGetTimeout() throws Exception {
+        releaseRead = new CountDownLatch(1);
+        batcher = new GetBatcher(gigaSpace, 1, LONG_DELAY_MICROS, 1, 100);
+        long start = System.nanoTime();
+        try {
+            batcher.get(key("key1"));
+            fail("get should time out while the read is blocked");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Timed out after [100ms]"));
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    private Getter[] start(String... keys) {
+        Getter[] getters = new Getter[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            getters[i] = new Getter(key(keys[i]));
+            getters[i].start();
+        }
+        return getters;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.TIMED_WAITING) {
+            assertTrue("Thread did not block in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Key key(String key) {
+        return new Key(key.getBytes());
+    }
+
+    private class Getter extends Thread {
+
+        private final Key key;
+
+        volatile MemcachedEntry entry;
+
+        volatile RuntimeException error;
+
+        Getter(Key key) {
+            this.key = key;
+        }
+
+        public void run() {
+            try {
+                entry = batcher.get(key);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        void assertCompleted() throws InterruptedException {
+            join(10000);
+            assertFalse(isAlive());
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.memcached;
+
+import junit.framework.TestCase;
+import org.openspaces.memcached.HotKeySketch;
+import org.openspaces.memcached.Key;
+
+import java.util.List;
+
+public class HotKeySketchTests extends TestCase {
+
+    public void testTopKeys() {
+        HotKeySketch sketch = new HotKeySketch(8, 1);
+        for (int i = 0; i < 100; i++) {
+            sketch.offer(key("hot"));
+            if (i % 2 == 0) {
+                sketch.offer(key("warm"));
+            }
+            sketch.offer(key("cold" + i));
+        }
+        List<HotKeySketch.HotKey> top = sketch.top(2);
+        assertEquals(2, top.size());
+        assertEquals("hot", new String(top.get(0).getKey().bytes));
+        assertEquals(100, top.get(0).getCount());
+        assertEquals("warm", new String(top.get(1).getKey().bytes));
+    }
+
+    public void testBounded() {
+        HotKeySketch sketch = new HotKeySketch(4, 1);
+        for (int i = 0; i < 100; i++) {
+            sketch.offer(key("key" + i));
+        }
+        assertEquals(4, sketch.top(10).size());
+    }
+
+    public void testSampling() {
+        HotKeySketch sketch = new HotKeySketch(4, 8);
+        for (int i = 0; i < 800; i++) {
+            sketch.offer(key("hot"));
+        }
+        List<HotKeySketch.HotKey> top = sketch.top(1);
+        assertEquals(800, top.get(0).getCount());
+    }
+
+    private Key key(String key) {
+        return new Key(key.getBytes());
+    }
+}
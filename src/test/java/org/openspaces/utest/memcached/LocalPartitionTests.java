@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.memcached;
+
+import junit.framework.TestCase;
+import org.openspaces.memcached.Key;
+import org.openspaces.memcached.LocalPartition;
+
+import java.util.Arrays;
+
+public class LocalPartitionTests extends TestCase {
+
+    public void testPartitionOfMatchesKeyHashCode() {
+        byte[] bytes = "session:1234".getBytes();
+        Key key = new Key(bytes);
+        assertEquals(Math.abs(Arrays.hashCode(bytes)) % 4, LocalPartition.partitionOf(key, 4));
+    }
+
+    public void testPartitionOfIsNeverNegative() {
+        for (int i = 0; i < 1000; i++) {
+            int partition = LocalPartition.partitionOf(new Key(("key" + i).getBytes()), 7);
+            assertTrue(partition >= 0 && partition < 7);
+        }
+    }
+
+    public void testOwnsOnlyWhenPrimary() {
+        Key key = new Key("key1".getBytes());
+        LocalPartition partition = new LocalPartition(null, LocalPartition.partitionOf(key, 3), 3);
+        assertFalse(partition.owns(key));
+        partition.setPrimary(true);
+        assertTrue(partition.owns(key));
+    }
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.memcached;
+
+import junit.framework.TestCase;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.CodecEmbedderException;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.openspaces.memcached.protocol.CommandMessage;
+import org.openspaces.memcached.protocol.Op;
+import org.openspaces.memcached.protocol.QuietCommandBatch;
+import org.openspaces.memcached.protocol.binary.MemcachedBinaryCommandDecoder;
+import org.openspaces.memcached.protocol.exceptions.UnknownCommandException;
+
+public class MemcachedBinaryCommandDecoderTests extends TestCase {
+
+    private static final int GETQ = 0x09;
+    private static final int NOOP = 0x0A;
+    private static final int SETQ = 0x11;
+    private static final int UNKNOWN = 0x7F;
+
+    public void testQuietGetsAreBatched() {
+        DecoderEmbedder<Object> embedder = new DecoderEmbedder<Object>(new MemcachedBinaryCommandDecoder());
+        embedder.offer(ChannelBuffers.wrappedBuffer(get(GETQ, "key1"), get(GETQ, "key2"), get(GETQ, "key1"), noop()));
+
+        QuietCommandBatch batch = (QuietCommandBatch) embedder.poll();
+        assertEquals(Op.GET, batch.getOp());
+        assertEquals(3, batch.size());
+        assertEquals("key2", new String(batch.getCommands().get(1).keys.get(0).bytes));
+        assertTrue(batch.getCommands().get(0).noreply);
+
+        CommandMessage noop = (CommandMessage) embedder.poll();
+        assertNull(noop.op);
+        assertNull(embedder.poll());
+    }
+
+    public void testBatchEndsOnDuplicateSet() {
+        DecoderEmbedder<Object> embedder = new DecoderEmbedder<Object>(new MemcachedBinaryCommandDecoder());
+        embedder.offer(ChannelBuffers.wrappedBuffer(set(SETQ, "key1", "a"), set(SETQ, "key2", "b"), set(SETQ, "key1", "c")));
+
+        QuietCommandBatch batch = (QuietCommandBatch) embedder.poll();
+        assertEquals(Op.SET, batch.getOp());
+        assertEquals(2, batch.size());
+
+        CommandMessage last = (CommandMessage) embedder.poll();
+        assertEquals(Op.SET, last.op);
+        assertEquals("c", new String(last.element.getData()));
+    }
+
+    public void testPartialFrameIsNotBatched() {
+        DecoderEmbedder<Object> embedder = new DecoderEmbedder<Object>(new MemcachedBinaryCommandDecoder());
+        ChannelBuffer second = get(GETQ, "key2");
+        embedder.offer(ChannelBuffers.wrappedBuffer(get(GETQ, "key1"), second.slice(0, 10)));
+
+        CommandMessage first = (CommandMessage) embedder.poll();
+        assertEquals("key1", new String(first.keys.get(0).bytes));
+        assertNull(embedder.poll());
+
+        embedder.offer(second.slice(10, second.readableBytes() - 10));
+        CommandMessage next = (CommandMessage) embedder.poll();
+        assertEquals("key2", new String(next.keys.get(0).bytes));
+    }
+
+    public void testBatchIsEmittedBeforeUnknownOpcode() {
+        DecoderEmbedder<Object> embedder = new DecoderEmbedder<Object>(new MemcachedBinaryCommandDecoder());
+        try {
+            embedder.offer(ChannelBuffers.wrappedBuffer(get(GETQ, "key1"), get(GETQ, "key2"), get(UNKNOWN, "key3")));
+            fail("Unknown opcode should be reported");
+        } catch (CodecEmbedderException e) {
+            assertTrue(e.getCause() instanceof UnknownCommandException);
+        }
+
+        QuietCommandBatch batch = (QuietCommandBatch) embedder.poll();
+        assertEquals(2, batch.size());
+        assertEquals("key1", new String(batch.getCommands().get(0).keys.get(0).bytes));
+        assertEquals("key2", new String(batch.getCommands().get(1).keys.get(0).bytes));
+
+        // the unknown frame is skipped, decoding resumes with the following command
+        embedder.offer(noop());
+        CommandMessage noop = (CommandMessage) embedder.poll();
+        assertNull(noop.op);
+    }
+
+    private static ChannelBuffer get(int opcode, String key) {
+        return frame(opcode, key, 0, null);
+    }
+
+    private static ChannelBuffer set(int opcode, String key, String value) {
+        return frame(opcode, key, 8, value.getBytes());
+    }
+
+    private static ChannelBuffer noop() {
+        return frame(NOOP, null, 0, null);
+    }
+
+    private static ChannelBuffer frame(int opcode, String key, int extrasLength, byte[] value) {
+        byte[] keyBytes = key == null ? new byte[0] : key.getBytes();
+        int valueLength = value == null ? 0 : value.length;
+        ChannelBuffer buffer = ChannelBuffers.buffer(24 + extrasLength + keyBytes.length + valueLength);
+        buffer.writeByte(0x80);
+        buffer.writeByte(opcode);
+        buffer.writeShort(keyBytes.length);
+        buffer.writeByte(extrasLength);
+        buffer.writeByte(0);
+        buffer.writeShort(0);
+        buffer.writeInt(extrasLength + keyBytes.length + valueLength);
+        buffer.writeInt(0);
+        buffer.writeLong(0);
+        buffer.writeZero(extrasLength);
+        buffer.writeBytes(keyBytes);
+        if (value != null) {
+            buffer.writeBytes(value);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.memcached;
+
+import com.gigaspaces.client.ChangeOperationResult;
+import com.gigaspaces.client.ChangeResult;
+import com.gigaspaces.client.ChangedEntryDetails;
+import com.gigaspaces.server.MutableServerEntry;
+import org.jmock.Mock;
+import org.jmock.MockObjectTestCase;
+import org.jmock.core.Invocation;
+import org.jmock.core.stub.CustomStub;
+import org.openspaces.core.GigaSpace;
+import org.openspaces.memcached.AppendChangeOperation;
+import org.openspaces.memcached.IncrDecrChangeOperation;
+import org.openspaces.memcached.Key;
+import org.openspaces.memcached.LocalCacheElement;
+import org.openspaces.memcached.MemcachedEntry;
+import org.openspaces.memcached.SpaceCache;
+import org.openspaces.memcached.ValueCompressor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+public class MemcachedChangeOperationsTests extends MockObjectTestCase {
+
+    private final Map<String, Object> properties = new HashMap<String, Object>();
+
+    public void testAppend() {
+        MutableServerEntry entry = entry("value".getBytes(), false);
+        assertNull(new AppendChangeOperation("-appended".getBytes(), false).change(entry));
+        assertEquals("value-appended", value());
+    }
+
+    public void testPrepend() {
+        MutableServerEntry entry = entry("value".getBytes(), false);
+        assertNull(new AppendChangeOperation("prepended-".getBytes(), true).change(entry));
+        assertEquals("prepended-value", value());
+    }
+
+    public void testAppendToCompressedValue() {
+        String original = repeat("compressible ", 20);
+        MutableServerEntry entry = compressedEntry(original);
+        new AppendChangeOperation("tail".getBytes(), false).change(entry);
+        assertEquals(original + "tail", value());
+        assertEquals(Boolean.FALSE, properties.get(MemcachedEntry.COMPRESSED_PROPERTY));
+    }
+
+    public void testIncr() {
+        MutableServerEntry entry = entry("41".getBytes(), false);
+        assertEquals(42, new IncrDecrChangeOperation(1).change(entry));
+        assertEquals("42", value());
+    }
+
+    public void testDecr() {
+        MutableServerEntry entry = entry("42".getBytes(), false);
+        assertEquals(40, new IncrDecrChangeOperation(-2).change(entry));
+        assertEquals("40", value());
+    }
+
+    public void testDecrClampsAtZero() {
+        MutableServerEntry entry = entry("3".getBytes(), false);
+        assertEquals(0, new IncrDecrChangeOperation(-5).change(entry));
+        assertEquals("0", value());
+    }
+
+    public void testIncrNonNumericValue() {
+        MutableServerEntry entry = entry("value".getBytes(), false);
+        try {
+            new IncrDecrChangeOperation(1).change(entry);
+            fail("incr of a non numeric value should fail");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+        assertEquals("value", value());
+    }
+
+    public void testIncrCompressedValue() {
+        MutableServerEntry entry = compressedEntry(repeat("0", 40) + "41");
+        assertEquals(42, new IncrDecrChangeOperation(1).change(entry));
+        assertEquals("42", value());
+        assertEquals(Boolean.FALSE, properties.get(MemcachedEntry.COMPRESSED_PROPERTY));
+    }
+
+    public void testGetAddReturnsOperationResult() {
+        MutableServerEntry entry = entry("41".getBytes(), false);
+        Object result = new IncrDecrChangeOperation(1).change(entry);
+        SpaceCache cache = new SpaceCache(space(changeResult(result)));
+        assertEquals(Integer.valueOf(42), cache.get_add(new Key("key1".getBytes()), 1));
+    }
+
+    public void testGetAddOfMissingKeyReturnsNull() {
+        SpaceCache cache = new SpaceCache(space(changeResult(null)));
+        assertNull(cache.get_add(new Key("key1".getBytes()), 1));
+        assertEquals(1, cache.getGetMisses());
+    }
+
+    private MutableServerEntry entry(byte[] value, boolean compressed) {
+        properties.put(MemcachedEntry.VALUE_PROPERTY, value);
+        properties.put(MemcachedEntry.COMPRESSED_PROPERTY, compressed);
+        Mock entry = mock(MutableServerEntry.class);
+        entry.stubs().method("getPathValue").will(new CustomStub("reads a property") {
+            public Object invoke(Invocation invocation) throws Throwable {
+                return properties.get(invocation.parameterValues.get(0));
+            }
+        });
+        entry.stubs().method("setPathValue").will(new CustomStub("changes a property") {
+            public Object invoke(Invocation invocation) throws Throwable {
+                properties.put((String) invocation.parameterValues.get(0), invocation.parameterValues.get(1));
+                return null;
+            }
+        });
+        return (MutableServerEntry) entry.proxy();
+    }
+
+    private MutableServerEntry compressedEntry(String value) {
+        LocalCacheElement element = new LocalCacheElement(new Key("key1".getBytes()), 0, 0, 0);
+        element.setData(value.getBytes());
+        MemcachedEntry compressed = new ValueCompressor(8, Deflater.BEST_SPEED).createEntry(element);
+        assertTrue(compressed.isCompressed());
+        return entry(compressed.getValue(), true);
+    }
+
+    /**
+     * Returns the result of a change by id of an existing entry (or of a missing one for a <code>null</code>
+     * operation result), as returned with detailed results.
+     */
+    private ChangeResult<?> changeResult(Object operationResult) {
+        Mock changeResult = mock(ChangeResult.class);
+        if (operationResult == null) {
+            changeResult.stubs().method("getNumberOfChangedEntries").will(returnValue(0));
+            return (ChangeResult<?>) changeResult.proxy();
+        }
+        Mock operation = mock(ChangeOperationResult.class);
+        operation.stubs().method("getResult").will(returnValue(operationResult));
+        Mock details = mock(ChangedEntryDetails.class);
+        details.stubs().method("getChangeOperationsResults").will(returnValue(Collections.singletonList(operation.proxy())));
+        changeResult.stubs().method("getNumberOfChangedEntries").will(returnValue(1));
+        changeResult.stubs().method("getResults").will(returnValue(Collections.singletonList(details.proxy())));
+        return (ChangeResult<?>) changeResult.proxy();
+    }
+
+    private GigaSpace space(ChangeResult<?> changeResult) {
+        Mock space = mock(GigaSpace.class);
+        space.stubs().method("change").will(returnValue(changeResult));
+        return (GigaSpace) space.proxy();
+    }
+
+    private String value() {
+        return new String((byte[]) properties.get(MemcachedEntry.VALUE_PROPERTY));
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.memcached;
+
+import junit.framework.TestCase;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.openspaces.memcached.protocol.CommandMessage;
+import org.openspaces.memcached.protocol.Op;
+import org.openspaces.memcached.protocol.SessionStatus;
+import org.openspaces.memcached.protocol.text.MemcachedCommandDecoder;
+import org.openspaces.memcached.protocol.text.MemcachedFrameDecoder;
+import org.openspaces.memcached.protocol.text.MemcachedPipelineFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+public class MemcachedCommandDecoderTests extends TestCase {
+
+    /**
+     * An upper bound for the bytes allocated while decoding a single key get command (including the
+     * netty events and the decoded message). Decoding in place allocates about 300 bytes per command,
+     * copying the command line and its tokens allocates over 480, so the bound guards against
+     * re-introducing per token copies.
+     */
+    private static final long MAX_BYTES_PER_GET = 384;
+
+    public void testGet() {
+        DecoderEmbedder<CommandMessage> embedder = createEmbedder();
+        embedder.offer(ChannelBuffers.copiedBuffer("get key1 key2\r\n", MemcachedPipelineFactory.USASCII));
+        CommandMessage cmd = embedder.poll();
+        assertEquals(Op.GET, cmd.op);
+        assertEquals(2, cmd.keys.size());
+        assertEquals("key1", new String(cmd.keys.get(0).bytes));
+        assertEquals("key2", new String(cmd.keys.get(1).bytes));
+    }
+
+    public void testSetWithPayload() {
+        DecoderEmbedder<CommandMessage> embedder = createEmbedder();
+        embedder.offer(ChannelBuffers.copiedBuffer("set key1 5 0 6 noreply\r\nvalue1\r\n", MemcachedPipelineFactory.USASCII));
+        CommandMessage cmd = embedder.poll();
+        assertEquals(Op.SET, cmd.op);
+        assertTrue(cmd.noreply);
+        assertEquals("key1", new String(cmd.element.getKey().bytes));
+        assertEquals(5, cmd.element.getFlags());
+        assertEquals("value1", new String(cmd.element.getData()));
+    }
+
+    public void testCasAndDelete() {
+        DecoderEmbedder<CommandMessage> embedder = createEmbedder();
+        embedder.offer(ChannelBuffers.copiedBuffer("cas key1 0 0 1 42\r\nx\r\ndelete key1 noreply\r\n", MemcachedPipelineFactory.USASCII));
+        CommandMessage cas = embedder.poll();
+        assertEquals(Op.CAS, cas.op);
+        assertEquals(42, cas.cas_key);
+        CommandMessage delete = embedder.poll();
+        assertEquals(Op.DELETE, delete.op);
+        assertTrue(delete.noreply);
+        assertEquals("key1", new String(delete.keys.get(0).bytes));
+    }
+
+    public void testAllocationRate() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        final int commands = 10000;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < commands; i++) {
+            sb.append("get somewhat_longer_memcached_key_").append(i % 10).append("\r\n");
+        }
+        byte[] input = sb.toString().getBytes();
+
+        DecoderEmbedder<CommandMessage> embedder = createEmbedder();
+        // warm up
+        for (int i = 0; i < 5; i++) {
+            decode(embedder, input, commands);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        decode(embedder, input, commands);
+        long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+
+        long perCommand = allocated / commands;
+        assertTrue("allocated [" + perCommand + "] bytes per get command", perCommand < MAX_BYTES_PER_GET);
+    }
+
+    private void decode(DecoderEmbedder<CommandMessage> embedder, byte[] input, int commands) {
+        embedder.offer(ChannelBuffers.wrappedBuffer(input));
+        for (int i = 0; i < commands; i++) {
+            assertNotNull(embedder.poll());
+        }
+    }
+
+    private DecoderEmbedder<CommandMessage> createEmbedder() {
+        SessionStatus status = new SessionStatus().ready();
+        return new DecoderEmbedder<CommandMessage>(new MemcachedFrameDecoder(status, 32768 * 1024), new MemcachedCommandDecoder(status));
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.memcached;
+
+import junit.framework.TestCase;
+import org.openspaces.memcached.Key;
+import org.openspaces.memcached.LocalCacheElement;
+import org.openspaces.memcached.MemcachedEntry;
+import org.openspaces.memcached.NearCache;
+
+public class NearCacheTests extends TestCase {
+
+    public void testPutAndGet() {
+        NearCache nearCache = new NearCache(1000, 1024 * 1024, 60000);
+        MemcachedEntry entry = entry("key1", "value1", 3);
+        nearCache.put(entry, nearCache.getInvalidationStamp(entry.getKey()));
+
+        LocalCacheElement element = nearCache.get(key("key1"));
+        assertNotNull(element);
+        assertEquals("value1", new String(element.getData()));
+        assertEquals(3, element.getCasUnique());
+        assertNull(nearCache.get(key("key2")));
+        assertEquals(1, nearCache.getHits());
+        assertEquals(1, nearCache.getMisses());
+    }
+
+    public void testInvalidate() {
+        NearCache nearCache = new NearCache(1000, 1024 * 1024, 60000);
+        nearCache.put(entry("key1", "value1", 1), nearCache.getInvalidationStamp(key("key1")));
+        nearCache.invalidate(key("key1"));
+        assertNull(nearCache.get(key("key1")));
+    }
+
+    public void testPutIgnoredWhenInvalidatedWhileReading() {
+        NearCache nearCache = new NearCache(1000, 1024 * 1024, 60000);
+        long stamp = nearCache.getInvalidationStamp(key("key1"));
+        nearCache.invalidate(key("key1"));
+        nearCache.put(entry("key1", "stale", 1), stamp);
+        assertNull(nearCache.get(key("key1")));
+    }
+
+    public void testPutNotAffectedByInvalidationOfOtherSegments() {
+        NearCache nearCache = new NearCache(1000, 1024 * 1024, 60000);
+        long stamp = nearCache.getInvalidationStamp(key("key1"));
+        int invalidated = 0;
+        for (int i = 0; i < 100; i++) {
+            nearCache.invalidate(key("other" + i));
+            if (nearCache.getInvalidationStamp(key("key1")) != stamp) {
+                // same segment as key1, start over
+                stamp = nearCache.getInvalidationStamp(key("key1"));
+            } else {
+                invalidated++;
+            }
+        }
+        assertTrue(invalidated > 0);
+        nearCache.put(entry("key1", "value1", 1), stamp);
+        assertEquals("value1", new String(nearCache.get(key("key1")).getData()));
+    }
+
+    public void testTimeToLive() throws Exception {
+        NearCache nearCache = new NearCache(1000, 1024 * 1024, 1);
+        nearCache.put(entry("key1", "value1", 1), nearCache.getInvalidationStamp(key("key1")));
+        Thread.sleep(10);
+        assertNull(nearCache.get(key("key1")));
+    }
+
+    public void testBoundedByEntries() {
+        NearCache nearCache = new NearCache(160, 1024 * 1024, 60000);
+        for (int i = 0; i < 1000; i++) {
+            nearCache.put(entry("key" + i, "value" + i, 1), nearCache.getInvalidationStamp(key("key" + i)));
+        }
+        assertTrue(nearCache.getSize() <= 160);
+    }
+
+    public void testBoundedByBytes() {
+        NearCache nearCache = new NearCache(100000, 16 * 100, 60000);
+        for (int i = 0; i < 1000; i++) {
+            nearCache.put(entry("key" + i, "0123456789", 1), nearCache.getInvalidationStamp(key("key" + i)));
+        }
+        assertTrue(nearCache.getSize() <= 160);
+    }
+
+    private static Key key(String key) {
+        return new Key(key.getBytes());
+    }
+
+    private static MemcachedEntry entry(String key, String value, int version) {
+        MemcachedEntry entry = new MemcachedEntry(key(key), value.getBytes());
+        entry.setVersion(version);
+        return entry;
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.memcached;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.jboss.netty.channel.UpstreamMessageEvent;
+import org.jboss.netty.handler.execution.ChannelEventRunnable;
+import org.jmock.Mock;
+import org.jmock.MockObjectTestCase;
+import org.openspaces.memcached.protocol.OrderedChannelExecutor;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class OrderedChannelExecutorTests extends MockObjectTestCase {
+
+    private OrderedChannelExecutor executor;
+
+    protected void setUp() throws Exception {
+        executor = new OrderedChannelExecutor(2, 2, 100, OrderedChannelExecutor.RejectionPolicy.CALLER_RUNS);
+    }
+
+    protected void tearDown() throws Exception {
+        executor.shutdown();
+    }
+
+    public void testEventsOfChannelRunInOrder() throws Exception {
+        Channel channel = channel();
+        final List<Integer> seen = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            final int value = i;
+            executor.execute(new TestRunnable(channel) {
+                protected void doRun() {
+                    seen.add(value);
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, seen.get(i).intValue());
+        }
+    }
+
+    public void testErrorDoesNotStallChannel() throws Exception {
+        Channel channel = channel();
+        final CountDownLatch failed = new CountDownLatch(1);
+        executor.execute(new TestRunnable(channel) {
+            protected void doRun() {
+                failed.countDown();
+                throw new StackOverflowError("expected");
+            }
+        });
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new TestRunnable(channel) {
+            protected void doRun() {
+                done.countDown();
+            }
+        });
+        assertTrue("the channel stalled after an error", done.await(10, TimeUnit.SECONDS));
+    }
+
+    private Channel channel() {
+        Mock channel = mock(Channel.class);
+        channel.stubs().method("getCloseFuture").will(returnValue(new DefaultChannelFuture((Channel) channel.proxy(), false)));
+        return (Channel) channel.proxy();
+    }
+
+    private abstract static class TestRunnable extends ChannelEventRunnable {
+
+        TestRunnable(Channel channel) {
+            super(null, new UpstreamMessageEvent(channel, "event", new InetSocketAddress(11211)), null);
+        }
+    }
+}
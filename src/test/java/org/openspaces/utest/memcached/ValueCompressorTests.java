@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.memcached;
+
+import junit.framework.TestCase;
+import org.openspaces.memcached.Key;
+import org.openspaces.memcached.LocalCacheElement;
+import org.openspaces.memcached.MemcachedEntry;
+import org.openspaces.memcached.ValueCompressor;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+public class ValueCompressorTests extends TestCase {
+
+    public void testLargeValueIsCompressed() {
+        ValueCompressor compressor = new ValueCompressor(1024, Deflater.BEST_SPEED);
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"session attribute\"},");
+        }
+        byte[] value = json.toString().getBytes();
+
+        MemcachedEntry entry = compressor.createEntry(element("key1", value, 7));
+        assertTrue(entry.isCompressed());
+        assertTrue(entry.getValue().length < value.length);
+        assertEquals(7, entry.getFlags());
+        assertEquals(1, compressor.getCompressedValues());
+        assertTrue(compressor.getCompressionRatio() < 1);
+
+        MemcachedEntry inflated = compressor.inflate(entry);
+        assertFalse(inflated.isCompressed());
+        assertTrue(Arrays.equals(value, inflated.getValue()));
+        assertEquals(7, inflated.getFlags());
+        // the read entry is left untouched
+        assertTrue(entry.isCompressed());
+    }
+
+    public void testSmallValueIsNotCompressed() {
+        ValueCompressor compressor = new ValueCompressor(1024, Deflater.BEST_SPEED);
+        MemcachedEntry entry = compressor.createEntry(element("key1", new byte[100], 0));
+        assertFalse(entry.isCompressed());
+        assertSame(entry, compressor.inflate(entry));
+    }
+
+    public void testIncompressibleValueIsNotCompressed() {
+        ValueCompressor compressor = new ValueCompressor(1024, Deflater.BEST_SPEED);
+        byte[] value = new byte[4096];
+        new Random(17).nextBytes(value);
+        MemcachedEntry entry = compressor.createEntry(element("key1", value, 0));
+        assertFalse(entry.isCompressed());
+        assertTrue(Arrays.equals(value, entry.getValue()));
+        assertEquals(0, compressor.getCompressedValues());
+    }
+
+    private LocalCacheElement element(String key, byte[] value, int flags) {
+        LocalCacheElement element = new LocalCacheElement(new Key(key.getBytes()), flags, 0, 0);
+        element.setData(value);
+        return element;
+    }
+}
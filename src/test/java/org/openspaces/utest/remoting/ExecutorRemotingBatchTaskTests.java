@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.remoting;
+
+import junit.framework.TestCase;
+
+import org.openspaces.remoting.ExecutorRemotingBatchTask;
+import org.openspaces.remoting.ExecutorRemotingMethodIdTask;
+import org.openspaces.remoting.ExecutorRemotingTask;
+import org.openspaces.remoting.RemotingUtils;
+import org.openspaces.remoting.SpaceRemotingServiceExporter;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.remoting.RemoteAccessException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the execution of coalesced invocations by {@link ExecutorRemotingBatchTask} and the
+ * service exporter.
+ */
+public class ExecutorRemotingBatchTaskTests extends TestCase {
+
+    public interface BatchedService {
+
+        int add(int a, int b);
+
+        void fail(String message);
+
+        Object nonSerializableFailure();
+
+        String await(CountDownLatch latch);
+    }
+
+    public static class DefaultBatchedService implements BatchedService {
+
+        final Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        public int add(int a, int b) {
+            threads.add(Thread.currentThread().getName());
+            return a + b;
+        }
+
+        public void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+
+        public Object nonSerializableFailure() {
+            throw new NonSerializableException();
+        }
+
+        public String await(CountDownLatch latch) {
+            latch.countDown();
+            try {
+                // only completes if the invocations of the batch run in parallel
+                return latch.await(10, TimeUnit.SECONDS) ? "parallel" : "sequential";
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    public static class NonSerializableException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        @SuppressWarnings("unused")
+        private final Object state = new Object();
+    }
+
+    private final DefaultBatchedService service = new DefaultBatchedService();
+
+    private SpaceRemotingServiceExporter exporter;
+
+    private Map<java.lang.reflect.Method, RemotingUtils.MethodHash> hashes;
+
+    protected void tearDown() throws Exception {
+        if (exporter != null) {
+            exporter.destroy();
+        }
+    }
+
+    public void testOutcomesMatchInvocations() throws Exception {
+        createExporter(1);
+
+        Object[] outcomes = execute(new ExecutorRemotingTask[]{
+                task("add", 1, 2),
+                task("fail", "second failed"),
+                task("add", 3, 4)});
+
+        assertEquals(3, outcomes.length);
+        assertEquals(3, ((ExecutorRemotingTask.InternalExecutorResult) outcomes[0]).getResult());
+        Throwable failure = ((ExecutorRemotingTask.InternalExecutorException) outcomes[1]).getException();
+        assertTrue(failure instanceof IllegalStateException);
+        assertEquals("second failed", failure.getMessage());
+        assertEquals(7, ((ExecutorRemotingTask.InternalExecutorResult) outcomes[2]).getResult());
+    }
+
+    public void testSingleWorkerRunsInvocationsInExecutingThread() throws Exception {
+        createExporter(1);
+
+        execute(new ExecutorRemotingTask[]{task("add", 1, 2), task("add", 3, 4)});
+
+        assertEquals(Collections.singleton(Thread.currentThread().getName()), service.threads);
+    }
+
+    public void testSeveralWorkersRunInvocationsInParallel() throws Exception {
+        createExporter(3);
+        CountDownLatch latch = new CountDownLatch(3);
+
+        Object[] outcomes = execute(new ExecutorRemotingTask[]{task("await", latch), task("await", latch), task("await", latch)});
+
+        for (Object outcome : outcomes) {
+            assertEquals("parallel", ((ExecutorRemotingTask.InternalExecutorResult) outcome).getResult());
+        }
+    }
+
+    public void testNonSerializableFailureIsReplaced() throws Exception {
+        createExporter(1);
+
+        Object[] outcomes = execute(new ExecutorRemotingTask[]{task("nonSerializableFailure"), task("add", 1, 2)});
+
+        Throwable failure = ((ExecutorRemotingTask.InternalExecutorException) outcomes[0]).getException();
+        assertTrue(failure instanceof RemoteAccessException);
+        assertTrue(failure.getMessage().contains("nonSerializableFailure"));
+        assertEquals(3, ((ExecutorRemotingTask.InternalExecutorResult) outcomes[1]).getResult());
+    }
+
+    public void testBatchRoundTrip() throws Exception {
+        createExporter(1);
+        ExecutorRemotingTask plain = task("add", 1, 2);
+        RemotingUtils.MethodHash hash = plain.getMethodHash();
+        ExecutorRemotingMethodIdTask byId = new ExecutorRemotingMethodIdTask(BatchedService.class.getName(), "add", hash, new Object[]{3, 4},
+                RemotingUtils.serviceId(BatchedService.class.getName()), RemotingUtils.methodId(hash), true);
+
+        ExecutorRemotingBatchTask read = roundTrip(new ExecutorRemotingBatchTask(new ExecutorRemotingTask[]{plain, byId}, 7));
+
+        assertEquals(7, (int) read.getRouting());
+        assertEquals(2, read.getTasks().length);
+        assertFalse(read.getTasks()[0] instanceof ExecutorRemotingMethodIdTask);
+        assertEquals("add", read.getTasks()[0].getMethodName());
+        assertTrue(read.getTasks()[1] instanceof ExecutorRemotingMethodIdTask);
+        assertEquals(RemotingUtils.methodId(hash), read.getTasks()[1].getMethodId());
+
+        read.setServiceExporter(exporter);
+        ExecutorRemotingBatchTask.InternalBatchResult result = roundTrip(read.execute());
+        assertEquals(3, ((ExecutorRemotingTask.InternalExecutorResult) result.getOutcomes()[0]).getResult());
+        assertEquals(7, ((ExecutorRemotingTask.InternalExecutorResult) result.getOutcomes()[1]).getResult());
+    }
+
+    private void createExporter(int batchWorkers) throws Exception {
+        exporter = new SpaceRemotingServiceExporter();
+        exporter.setApplicationContext(new StaticApplicationContext());
+        exporter.setServices(new ArrayList<Object>(Arrays.asList(service)));
+        exporter.setBatchWorkers(batchWorkers);
+        exporter.afterPropertiesSet();
+        exporter.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+        hashes = RemotingUtils.buildMethodToHashLookupForInterface(BatchedService.class, "async");
+    }
+
+    private ExecutorRemotingTask task(String methodName, Object... arguments) {
+        for (java.lang.reflect.Method method : BatchedService.class.getMethods()) {
+            if (method.getName().equals(methodName)) {
+                return new ExecutorRemotingTask(BatchedService.class.getName(), methodName, hashes.get(method), arguments);
+            }
+        }
+        throw new IllegalArgumentException(methodName);
+    }
+
+    private Object[] execute(ExecutorRemotingTask[] tasks) throws Exception {
+        ExecutorRemotingBatchTask batchTask = new ExecutorRemotingBatchTask(tasks, 0);
+        batchTask.setServiceExporter(exporter);
+        return batchTask.execute().getOutcomes();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends java.io.Externalizable> T roundTrip(T externalizable) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        externalizable.writeExternal(out);
+        out.close();
+        T read = (T) externalizable.getClass().newInstance();
+        read.readExternal(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        return read;
+    }
+}
@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.remoting;
+
+import com.gigaspaces.async.AsyncFuture;
+
+import net.jini.core.transaction.Transaction;
+
+import org.jmock.Mock;
+import org.jmock.MockObjectTestCase;
+import org.jmock.core.Invocation;
+import org.jmock.core.stub.CustomStub;
+import org.openspaces.core.GigaSpace;
+import org.openspaces.remoting.ExecutorRemotingBatchTask;
+import org.openspaces.remoting.ExecutorRemotingCoalescer;
+import org.openspaces.remoting.ExecutorRemotingTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class ExecutorRemotingCoalescerTests extends MockObjectTestCase {
+
+    private static final long LONG_WINDOW = TimeUnit.SECONDS.toMicros(60);
+
+    private static final int PARTITIONS = 4;
+
+    private final LinkedBlockingQueue<Execution> executions = new LinkedBlockingQueue<Execution>();
+
+    private Mock gigaSpace;
+
+    private ExecutorRemotingCoalescer coalescer;
+
+    protected void setUp() throws Exception {
+        gigaSpace = mock(GigaSpace.class);
+        gigaSpace.stubs().method("execute").will(new CustomStub("records the execution") {
+            public Object invoke(Invocation invocation) throws Throwable {
+                Execution execution = new Execution(invocation.parameterValues.get(0), invocation.parameterValues.get(1));
+                executions.add(execution);
+                return execution.future;
+            }
+        });
+    }
+
+    protected void tearDown() throws Exception {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
+    }
+
+    public void testInvocationsWithinWindowAreSentAsOneBatch() throws Exception {
+        noTransaction();
+        coalescer = new ExecutorRemotingCoalescer((GigaSpace) gigaSpace.proxy(), "test", LONG_WINDOW, 3, PARTITIONS);
+
+        coalescer.execute(task("first"), false);
+        coalescer.execute(task("second"), false);
+        assertTrue(executions.isEmpty());
+        coalescer.execute(task("third"), false);
+
+        Execution execution = executions.poll();
+        assertTrue(execution.task instanceof ExecutorRemotingBatchTask);
+        assertEquals(methodNames("first", "second", "third"), methodNames((ExecutorRemotingBatchTask) execution.task));
+        assertTrue(executions.isEmpty());
+    }
+
+    public void testBatchIsFlushedOnceWindowElapses() throws Exception {
+        noTransaction();
+        coalescer = new ExecutorRemotingCoalescer((GigaSpace) gigaSpace.proxy(), "test", TimeUnit.MILLISECONDS.toMicros(50), 64, PARTITIONS);
+
+        long start = System.nanoTime();
+        coalescer.execute(task("first"), false);
+        coalescer.execute(task("second"), false);
+
+        Execution execution = executions.poll(10, TimeUnit.SECONDS);
+        assertNotNull(execution);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(methodNames("first", "second"), methodNames((ExecutorRemotingBatchTask) execution.task));
+    }
+
+    public void testSingleInvocationIsSentAsIs() throws Exception {
+        noTransaction();
+        coalescer = new ExecutorRemotingCoalescer((GigaSpace) gigaSpace.proxy(), "test", TimeUnit.MILLISECONDS.toMicros(10), 64, PARTITIONS);
+
+        ExecutorRemotingTask task = task("first");
+        AsyncFuture future = coalescer.execute(task, false);
+
+        Execution execution = executions.poll(10, TimeUnit.SECONDS);
+        assertSame(task, execution.task);
+        execution.future.complete(new ExecutorRemotingTask.InternalExecutorResult<String>("result", 0), null);
+        assertEquals("result", ((ExecutorRemotingTask.InternalExecutorResult) future.get()).getResult());
+    }
+
+    public void testResultsAreFannedOutToEachInvocation() throws Exception {
+        noTransaction();
+        coalescer = new ExecutorRemotingCoalescer((GigaSpace) gigaSpace.proxy(), "test", LONG_WINDOW, 3, PARTITIONS);
+
+        AsyncFuture first = coalescer.execute(task("first"), false);
+        AsyncFuture second = coalescer.execute(task("second"), false);
+        AsyncFuture third = coalescer.execute(task("third"), false);
+
+        IllegalStateException failure = new IllegalStateException("second failed");
+        executions.poll().future.complete(new ExecutorRemotingBatchTask.InternalBatchResult(new Object[]{
+                new ExecutorRemotingTask.InternalExecutorResult<String>("first result", 0),
+                new ExecutorRemotingTask.InternalExecutorException(failure, 0, null, null),
+                new ExecutorRemotingTask.InternalExecutorResult<String>("third result", 0)}), null);
+
+        assertEquals("first result", ((ExecutorRemotingTask.InternalExecutorResult) first.get()).getResult());
+        try {
+            second.get();
+            fail("the failure of the second invocation was not reported");
+        } catch (ExecutionException e) {
+            assertSame(failure, ((ExecutorRemotingTask.InternalExecutorException) e.getCause()).getException());
+        }
+        assertEquals("third result", ((ExecutorRemotingTask.InternalExecutorResult) third.get()).getResult());
+    }
+
+    public void testBatchFailureFailsEveryInvocation() throws Exception {
+        noTransaction();
+        coalescer = new ExecutorRemotingCoalescer((GigaSpace) gigaSpace.proxy(), "test", LONG_WINDOW, 2, PARTITIONS);
+
+        AsyncFuture first = coalescer.execute(task("first"), false);
+        AsyncFuture second = coalescer.execute(task("second"), false);
+
+        IllegalStateException failure = new IllegalStateException("space unavailable");
+        executions.poll().future.complete(null, failure);
+
+        for (AsyncFuture future : new AsyncFuture[]{first, second}) {
+            try {
+                future.get();
+                fail("the batch failure was not reported");
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+    }
+
+    public void testCancelWithdrawsPendingInvocation() throws Exception {
+        noTransaction();
+        coalescer = new ExecutorRemotingCoalescer((GigaSpace) gigaSpace.proxy(), "test", LONG_WINDOW, 2, PARTITIONS);
+
+        AsyncFuture cancelled = coalescer.execute(task("cancelled"), false);
+        assertTrue(cancelled.cancel(false));
+        assertTrue(cancelled.isCancelled());
+        ExecutorRemotingTask sent = task("sent");
+        coalescer.execute(sent, false);
+        assertTrue(executions.isEmpty());
+        coalescer.execute(task("another"), false);
+
+        assertEquals(methodNames("sent", "another"), methodNames((ExecutorRemotingBatchTask) executions.poll().task));
+    }
+
+    public void testTransactionalInvocationsAreNotCoalesced() throws Exception {
+        gigaSpace.stubs().method("getCurrentTransaction").will(returnValue(mock(Transaction.class).proxy()));
+        coalescer = new ExecutorRemotingCoalescer((GigaSpace) gigaSpace.proxy(), "test", LONG_WINDOW, 64, PARTITIONS);
+
+        ExecutorRemotingTask first = task("first");
+        ExecutorRemotingTask second = task("second");
+        coalescer.execute(first, false);
+        coalescer.execute(second, false);
+
+        assertSame(first, executions.poll().task);
+        assertSame(second, executions.poll().task);
+    }
+
+    public void testInvocationsOfSamePartitionShareBatch() throws Exception {
+        noTransaction();
+        coalescer = new ExecutorRemotingCoalescer((GigaSpace) gigaSpace.proxy(), "test", LONG_WINDOW, 2, PARTITIONS);
+
+        // routing values 1 and 5 are both owned by partition 1, 2 by partition 2
+        coalescer.execute(task("first", 1), true);
+        coalescer.execute(task("other", 2), true);
+        assertTrue(executions.isEmpty());
+        coalescer.execute(task("second", 5), true);
+
+        Execution execution = executions.poll();
+        assertEquals(methodNames("first", "second"), methodNames((ExecutorRemotingBatchTask) execution.task));
+        assertEquals(1, execution.routing);
+        assertEquals(Integer.valueOf(1), ((ExecutorRemotingBatchTask) execution.task).getRouting());
+        assertTrue(executions.isEmpty());
+    }
+
+    public void testNegativeRoutingIsSentToItsPartition() throws Exception {
+        noTransaction();
+        coalescer = new ExecutorRemotingCoalescer((GigaSpace) gigaSpace.proxy(), "test", TimeUnit.MILLISECONDS.toMicros(10), 64, PARTITIONS);
+
+        coalescer.execute(task("first", -7), true);
+
+        assertEquals(3, executions.poll(10, TimeUnit.SECONDS).routing);
+    }
+
+    private void noTransaction() {
+        gigaSpace.stubs().method("getCurrentTransaction").will(returnValue(null));
+    }
+
+    private static ExecutorRemotingTask task(String methodName) {
+        // the proxy routes invocations without any routing by the hash code of the invocation
+        return task(methodName, methodName.hashCode());
+    }
+
+    private static ExecutorRemotingTask task(String methodName, final int routing) {
+        return new ExecutorRemotingTask("service", methodName, null, null) {
+            @Override
+            public Integer getRouting() {
+                return routing;
+            }
+        };
+    }
+
+    private static List<String> methodNames(String... names) {
+        List<String> list = new ArrayList<String>();
+        for (String name : names) {
+            list.add(name);
+        }
+        return list;
+    }
+
+    private static List<String> methodNames(ExecutorRemotingBatchTask batchTask) {
+        List<String> list = new ArrayList<String>();
+        for (ExecutorRemotingTask task : batchTask.getTasks()) {
+            list.add(task.getMethodName());
+        }
+        return list;
+    }
+
+    private static class Execution {
+
+        final Object task;
+
+        final SettableAsyncFuture<Object> future = new SettableAsyncFuture<Object>();
+
+        final Object routing;
+
+        Execution(Object task, Object routing) {
+            this.task = task;
+            this.routing = routing;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.remoting;
+
+import com.gigaspaces.async.AsyncFuture;
+import com.gigaspaces.async.AsyncFutureListener;
+import com.gigaspaces.async.AsyncResult;
+
+import org.jmock.Mock;
+import org.jmock.MockObjectTestCase;
+import org.jmock.core.Invocation;
+import org.jmock.core.stub.CustomStub;
+import org.openspaces.core.GigaSpace;
+import org.openspaces.remoting.ExecutorRemotingMethodIdTask;
+import org.openspaces.remoting.ExecutorRemotingTask;
+import org.openspaces.remoting.ExecutorSpaceRemotingProxyFactoryBean;
+import org.openspaces.remoting.MethodIdLookupFailureException;
+import org.openspaces.remoting.RemotingUtils;
+import org.openspaces.remoting.SpaceRemotingServiceExporter;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Tests the wire formats of executor remoting tasks, and the method id dispatch of the exporter
+ * and executor proxy, including the fall back to name based dispatch.
+ */
+public class ExecutorRemotingMethodIdTests extends MockObjectTestCase {
+
+    public interface Calculator {
+
+        int add(int a, int b);
+
+        Future<Integer> asyncAdd(int a, int b);
+    }
+
+    public static class DefaultCalculator implements Calculator {
+
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        public Future<Integer> asyncAdd(int a, int b) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private SpaceRemotingServiceExporter exporter;
+
+    private RemotingUtils.MethodHash addHash;
+
+    private int serviceId;
+
+    private int addId;
+
+    private final List<String> dispatches = new ArrayList<String>();
+
+    private int failingIdInvocations;
+
+    protected void setUp() throws Exception {
+        exporter = new SpaceRemotingServiceExporter();
+        exporter.setApplicationContext(new StaticApplicationContext());
+        exporter.setServices(new ArrayList<Object>(Arrays.asList(new DefaultCalculator())));
+        exporter.afterPropertiesSet();
+        exporter.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+
+        addHash = RemotingUtils.buildMethodToHashLookupForInterface(Calculator.class, "async")
+                .get(Calculator.class.getMethod("add", int.class, int.class));
+        serviceId = RemotingUtils.serviceId(Calculator.class.getName());
+        addId = RemotingUtils.methodId(addHash);
+    }
+
+    protected void tearDown() throws Exception {
+        exporter.destroy();
+    }
+
+    public void testPlainTaskKeepsLegacyWireFormat() throws Exception {
+        ExecutorRemotingTask task = new ExecutorRemotingTask(Calculator.class.getName(), "add", addHash, new Object[]{1, 2});
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(expected);
+        out.writeUTF(Calculator.class.getName());
+        out.writeUTF("add");
+        out.writeInt(2);
+        out.writeObject(1);
+        out.writeObject(2);
+        out.writeInt(0);
+        addHash.writeExternal(out);
+        out.close();
+
+        assertTrue(Arrays.equals(expected.toByteArray(), write(task)));
+    }
+
+    public void testPlainResultKeepsLegacyWireFormat() throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(expected);
+        out.writeBoolean(true);
+        out.writeObject(3);
+        out.writeBoolean(true);
+        out.writeInt(1);
+        out.close();
+
+        assertTrue(Arrays.equals(expected.toByteArray(), write(new ExecutorRemotingTask.InternalExecutorResult<Integer>(3, 1))));
+    }
+
+    public void testConfirmedMethodIdTaskCarriesOnlyIds() throws Exception {
+        ExecutorRemotingMethodIdTask task = new ExecutorRemotingMethodIdTask(Calculator.class.getName(), "add", addHash, new Object[]{1, 2},
+                serviceId, addId, true);
+
+        ExecutorRemotingTask read = roundTrip(task);
+
+        assertTrue(read instanceof ExecutorRemotingMethodIdTask);
+        assertTrue(read.isMethodIdDispatch());
+        assertEquals(serviceId, read.getServiceId());
+        assertEquals(addId, read.getMethodId());
+        assertNull(read.getLookupName());
+        assertNull(read.getMethodName());
+        assertNull(read.getMethodHash());
+        assertTrue(Arrays.equals(new Object[]{1, 2}, read.getArguments()));
+    }
+
+    public void testProbingMethodIdTaskCarriesNamesAndIds() throws Exception {
+        ExecutorRemotingMethodIdTask task = new ExecutorRemotingMethodIdTask(Calculator.class.getName(), "add", addHash, new Object[]{1, 2},
+                serviceId, addId, false);
+
+        ExecutorRemotingTask read = roundTrip(task);
+
+        assertTrue(read.isMethodIdDispatch());
+        assertEquals(serviceId, read.getServiceId());
+        assertEquals(addId, read.getMethodId());
+        assertEquals(Calculator.class.getName(), read.getLookupName());
+        assertEquals("add", read.getMethodName());
+        assertEquals(addHash, read.getMethodHash());
+    }
+
+    public void testMethodIdResultRoundTrip() throws Exception {
+        ExecutorRemotingTask.InternalExecutorResult read = roundTrip(
+                new ExecutorRemotingMethodIdTask.InternalMethodIdExecutorResult<Integer>(3, 1, true));
+
+        assertEquals(3, read.getResult());
+        assertEquals(1, read.getInstanceId());
+        assertTrue(read.isMethodIdsAccepted());
+    }
+
+    public void testDispatchById() throws Throwable {
+        ExecutorRemotingTask task = roundTrip(new ExecutorRemotingMethodIdTask(Calculator.class.getName(), "add", addHash, new Object[]{1, 2},
+                serviceId, addId, true));
+
+        assertEquals(3, exporter.invokeExecutor(task));
+        assertEquals("add", task.getMethodName());
+    }
+
+    public void testUnknownMethodIdFailsLookup() throws Throwable {
+        ExecutorRemotingTask task = roundTrip(new ExecutorRemotingMethodIdTask(Calculator.class.getName(), "add", addHash, new Object[]{1, 2},
+                serviceId, addId + 1, true));
+        try {
+            exporter.invokeExecutor(task);
+            fail("unknown method id resolved");
+        } catch (MethodIdLookupFailureException e) {
+            // expected
+        }
+    }
+
+    public void testProbeIsAcceptedOnlyForMatchingIds() throws Exception {
+        ExecutorRemotingTask matching = roundTrip(new ExecutorRemotingMethodIdTask(Calculator.class.getName(), "add", addHash, new Object[]{1, 2},
+                serviceId, addId, false));
+        matching.setServiceExporter(exporter);
+        ExecutorRemotingTask.InternalExecutorResult result = roundTrip(matching.execute());
+        assertEquals(3, result.getResult());
+        assertTrue(result.isMethodIdsAccepted());
+
+        ExecutorRemotingTask mismatching = roundTrip(new ExecutorRemotingMethodIdTask(Calculator.class.getName(), "add", addHash, new Object[]{1, 2},
+                serviceId, addId + 1, false));
+        mismatching.setServiceExporter(exporter);
+        result = roundTrip(mismatching.execute());
+        assertEquals(3, result.getResult());
+        assertFalse(result.isMethodIdsAccepted());
+    }
+
+    public void testSyncInvocationFallsBackToNameDispatch() throws Exception {
+        Calculator calculator = createProxy();
+
+        assertEquals(3, calculator.add(1, 2));
+        assertEquals(Arrays.asList("probe"), dispatches);
+        assertEquals(5, calculator.add(2, 3));
+        assertEquals(Arrays.asList("probe", "id"), dispatches);
+
+        failingIdInvocations = 1;
+        assertEquals(7, calculator.add(3, 4));
+        assertEquals(Arrays.asList("probe", "id", "id", "probe"), dispatches);
+    }
+
+    public void testAsyncInvocationFallsBackToNameDispatch() throws Exception {
+        Calculator calculator = createProxy();
+        // the async method has an invocation plan of its own, confirm its ids first
+        calculator.asyncAdd(1, 2).get();
+
+        failingIdInvocations = 1;
+        assertEquals(5, (int) calculator.asyncAdd(2, 3).get());
+        assertEquals(Arrays.asList("probe", "id", "probe"), dispatches);
+    }
+
+    public void testAsyncListenerInvocationFallsBackToNameDispatch() throws Exception {
+        Calculator calculator = createProxy();
+        // the async method has an invocation plan of its own, confirm its ids first
+        calculator.asyncAdd(1, 2).get();
+
+        failingIdInvocations = 1;
+        final SettableAsyncFuture<Object> received = new SettableAsyncFuture<Object>();
+        ((AsyncFuture) calculator.asyncAdd(2, 3)).setListener(new AsyncFutureListener() {
+            public void onResult(AsyncResult result) {
+                received.complete(result.getResult(), result.getException());
+            }
+        });
+        assertEquals(5, received.get());
+        assertEquals(Arrays.asList("probe", "id", "probe"), dispatches);
+    }
+
+    /**
+     * Creates a method id dispatching proxy, executing its tasks on the exporter after sending them
+     * through serialization. Fails the next {@link #failingIdInvocations} invocations dispatched by
+     * id, as an exporter redeployed with another service version would.
+     */
+    private Calculator createProxy() throws Exception {
+        Mock gigaSpace = mock(GigaSpace.class);
+        gigaSpace.stubs().method("execute").will(new CustomStub("execute on the exporter") {
+            public Object invoke(Invocation invocation) throws Throwable {
+                ExecutorRemotingTask task = roundTrip((ExecutorRemotingTask) invocation.parameterValues.get(0));
+                if (task.isMethodIdDispatch() && task.getLookupName() == null) {
+                    dispatches.add("id");
+                    if (failingIdInvocations > 0) {
+                        failingIdInvocations--;
+                        return SettableAsyncFuture.completed(null, new ExecutorRemotingTask.InternalExecutorException(
+                                new MethodIdLookupFailureException(task.getServiceId(), task.getMethodId()), 0, null, null));
+                    }
+                } else {
+                    dispatches.add(task.isMethodIdDispatch() ? "probe" : "name");
+                }
+                task.setServiceExporter(exporter);
+                try {
+                    return SettableAsyncFuture.completed(roundTrip(task.execute()), null);
+                } catch (Exception e) {
+                    return SettableAsyncFuture.completed(null, e);
+                }
+            }
+        });
+        gigaSpace.stubs().method("getCurrentTransaction").will(returnValue(null));
+
+        ExecutorSpaceRemotingProxyFactoryBean factoryBean = new ExecutorSpaceRemotingProxyFactoryBean();
+        factoryBean.setGigaSpace((GigaSpace) gigaSpace.proxy());
+        factoryBean.setServiceInterface(Calculator.class);
+        factoryBean.setMethodIdDispatch(true);
+        factoryBean.afterPropertiesSet();
+        return (Calculator) factoryBean.getObject();
+    }
+
+    private static byte[] write(Externalizable externalizable) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        externalizable.writeExternal(out);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Externalizable> T roundTrip(T externalizable) throws Exception {
+        byte[] bytes = write(externalizable);
+        T read = (T) externalizable.getClass().newInstance();
+        read.readExternal(new ObjectInputStream(new ByteArrayInputStream(bytes)));
+        return read;
+    }
+}
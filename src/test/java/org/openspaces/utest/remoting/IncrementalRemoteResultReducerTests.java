@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.remoting;
+
+import junit.framework.TestCase;
+import org.openspaces.remoting.AbstractIncrementalRemoteResultReducer;
+import org.openspaces.remoting.RemoteResultAccumulator;
+import org.openspaces.remoting.SpaceRemotingInvocation;
+import org.openspaces.remoting.SpaceRemotingResult;
+
+public class IncrementalRemoteResultReducerTests extends TestCase {
+
+    public void testReduceAccumulatesAllResults() throws Exception {
+        SumReducer reducer = new SumReducer(Integer.MAX_VALUE);
+        assertEquals(6, (int) reducer.reduce(results(1, 2, 3), null));
+    }
+
+    public void testReduceStopsOnceAccumulationCompleted() throws Exception {
+        SumReducer reducer = new SumReducer(3);
+        assertEquals(3, (int) reducer.reduce(results(1, 2, 3, 4), null));
+        assertEquals(2, reducer.accumulated);
+    }
+
+    public void testFailedResultIsPropagated() throws Exception {
+        SumReducer reducer = new SumReducer(Integer.MAX_VALUE);
+        SpaceRemotingResult<Integer>[] results = results(1, 2);
+        results[1] = new Result(null, new IllegalStateException("failed"));
+        try {
+            reducer.reduce(results, null);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SpaceRemotingResult<Integer>[] results(int... values) {
+        SpaceRemotingResult<Integer>[] results = new SpaceRemotingResult[values.length];
+        for (int i = 0; i < values.length; i++) {
+            results[i] = new Result(values[i], null);
+        }
+        return results;
+    }
+
+    /**
+     * Sums the results until reaching the given limit.
+     */
+    private static class SumReducer extends AbstractIncrementalRemoteResultReducer<Integer, Integer> {
+
+        private final int limit;
+
+        int accumulated;
+
+        SumReducer(int limit) {
+            this.limit = limit;
+        }
+
+        public RemoteResultAccumulator<Integer, Integer> createAccumulator(SpaceRemotingInvocation remotingInvocation) {
+            return new RemoteResultAccumulator<Integer, Integer>() {
+
+                private int sum;
+
+                public boolean accumulate(SpaceRemotingResult<Integer> result) throws Exception {
+                    if (result.getException() != null) {
+                        throw (Exception) result.getException();
+                    }
+                    accumulated++;
+                    sum += result.getResult();
+                    return sum < limit;
+                }
+
+                public Integer getResult() {
+                    return sum;
+                }
+            };
+        }
+    }
+
+    private static class Result implements SpaceRemotingResult<Integer> {
+
+        private final Integer result;
+
+        private final Throwable exception;
+
+        Result(Integer result, Throwable exception) {
+            this.result = result;
+            this.exception = exception;
+        }
+
+        public Integer getRouting() {
+            return null;
+        }
+
+        public Integer getResult() {
+            return result;
+        }
+
+        public Throwable getException() {
+            return exception;
+        }
+
+        public Integer getInstanceId() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.remoting;
+
+import junit.framework.TestCase;
+import org.openspaces.remoting.ExecutorRemotingMethodIdTask;
+import org.openspaces.remoting.ExecutorRemotingTask;
+import org.openspaces.remoting.RemotingServiceMonitors;
+import org.openspaces.remoting.RemotingUtils;
+import org.openspaces.remoting.SpaceRemotingServiceExporter;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Tests the per method metrics of the exporter are shared by all the ways an invocation can be
+ * dispatched.
+ */
+public class RemotingMethodMetricsTests extends TestCase {
+
+    public interface Greeter {
+
+        String greet(String name);
+
+        String greet(String greeting, String name);
+    }
+
+    public static class DefaultGreeter implements Greeter {
+
+        public String greet(String name) {
+            return "Hello " + name;
+        }
+
+        public String greet(String greeting, String name) {
+            return greeting + " " + name;
+        }
+    }
+
+    private SpaceRemotingServiceExporter exporter;
+
+    private Map<Method, RemotingUtils.MethodHash> hashes;
+
+    protected void setUp() throws Exception {
+        exporter = new SpaceRemotingServiceExporter();
+        exporter.setApplicationContext(new StaticApplicationContext());
+        exporter.setServices(new ArrayList<Object>(Arrays.asList(new DefaultGreeter())));
+        exporter.afterPropertiesSet();
+        exporter.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+        hashes = RemotingUtils.buildMethodToHashLookupForInterface(Greeter.class, "async");
+    }
+
+    protected void tearDown() throws Exception {
+        exporter.destroy();
+    }
+
+    public void testHashAndNameDispatchShareMetrics() throws Throwable {
+        RemotingUtils.MethodHash greetHash = hashes.get(Greeter.class.getMethod("greet", String.class));
+        // dispatched by the method hash to the interface method
+        assertEquals("Hello a", exporter.invokeExecutor(new ExecutorRemotingTask(Greeter.class.getName(), "greet", greetHash, new Object[]{"a"})));
+        // dispatched by name to the method of the service class
+        assertEquals("Hello b", exporter.invokeExecutor(new ExecutorRemotingTask(Greeter.class.getName(), "greet", null, new Object[]{"b"})));
+        // dispatched by method id
+        assertEquals("Hello c", exporter.invokeExecutor(new ExecutorRemotingMethodIdTask(Greeter.class.getName(), "greet", greetHash, new Object[]{"c"},
+                RemotingUtils.serviceId(Greeter.class.getName()), RemotingUtils.methodId(greetHash), true)));
+
+        RemotingServiceMonitors monitors = (RemotingServiceMonitors) exporter.getServicesMonitors()[0];
+        assertEquals(2, monitors.getRemoteMethodStats().length);
+        assertEquals(3, monitors.getRemoteMethodStats("NA1.greet(String)").getInvocations());
+        assertEquals(0, monitors.getRemoteMethodStats("NA1.greet(String,String)").getInvocations());
+    }
+
+    public void testOverloadedMethodsKeepSeparateMetrics() throws Throwable {
+        RemotingUtils.MethodHash greetHash = hashes.get(Greeter.class.getMethod("greet", String.class, String.class));
+        assertEquals("Hi a", exporter.invokeExecutor(new ExecutorRemotingTask(Greeter.class.getName(), "greet", greetHash, new Object[]{"Hi", "a"})));
+        assertEquals("Hi b", exporter.invokeExecutor(new ExecutorRemotingTask(Greeter.class.getName(), "greet", null, new Object[]{"Hi", "b"})));
+        assertEquals("Hello c", exporter.invokeExecutor(new ExecutorRemotingTask(Greeter.class.getName(), "greet", null, new Object[]{"c"})));
+
+        RemotingServiceMonitors monitors = (RemotingServiceMonitors) exporter.getServicesMonitors()[0];
+        assertEquals(2, monitors.getRemoteMethodStats().length);
+        assertEquals(2, monitors.getRemoteMethodStats("NA1.greet(String,String)").getInvocations());
+        assertEquals(1, monitors.getRemoteMethodStats("NA1.greet(String)").getInvocations());
+    }
+}
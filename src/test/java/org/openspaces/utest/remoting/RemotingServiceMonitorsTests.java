@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.remoting;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+import org.openspaces.remoting.RemotingServiceMonitors;
+
+public class RemotingServiceMonitorsTests extends TestCase {
+
+    public void testMethodStatsAreKeptApartFromServiceStats() {
+        RemotingServiceMonitors monitors = new RemotingServiceMonitors("exporter", 3, 1,
+                new RemotingServiceMonitors.RemoteServiceStats[]{new RemotingServiceMonitors.RemoteServiceStats("service", 3, 1)},
+                new RemotingServiceMonitors.RemoteMethodStats[]{
+                        new RemotingServiceMonitors.RemoteMethodStats("service.first", 2, 0, 0, 0, 0, 10, 20, 25, 100, 50),
+                        new RemotingServiceMonitors.RemoteMethodStats("service.second", 1, 1, 1, 5, 7, 30, 30, 30, 0, 0)});
+
+        assertEquals(1, monitors.getRemoteServiceStats().length);
+        assertEquals(2, monitors.getRemoteMethodStats().length);
+        assertEquals(1, monitors.getRemoteMethodStats("service.second").getFailures());
+        assertNull(monitors.getRemoteMethodStats("service"));
+    }
+
+    public void testMethodStatsSerialization() throws Exception {
+        RemotingServiceMonitors.RemoteMethodStats stats = new RemotingServiceMonitors.RemoteMethodStats("service.method",
+                10, 2, 3, 4, 5, 6, 7, 8, 9, 11);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(stats);
+        out.close();
+        RemotingServiceMonitors.RemoteMethodStats read = (RemotingServiceMonitors.RemoteMethodStats)
+                new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        assertEquals("service.method", read.getId());
+        assertEquals(10, read.getInvocations());
+        assertEquals(2, read.getFailures());
+        assertEquals(3, read.getInFlight());
+        assertEquals(4, read.getQueueTimeMedian());
+        assertEquals(5, read.getQueueTime99thPercentile());
+        assertEquals(6, read.getExecutionTimeMedian());
+        assertEquals(7, read.getExecutionTime99thPercentile());
+        assertEquals(8, read.getExecutionTimeMax());
+        assertEquals(9, read.getAverageArgumentsSize());
+        assertEquals(11, read.getAverageResultSize());
+    }
+}
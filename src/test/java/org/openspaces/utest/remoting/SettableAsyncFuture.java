@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * 
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ ******************************************************************************/
+package org.openspaces.utest.remoting;
+
+import com.gigaspaces.async.AsyncFuture;
+import com.gigaspaces.async.AsyncFutureListener;
+import com.gigaspaces.async.internal.DefaultAsyncResult;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * An {@link AsyncFuture} completed by the test, standing for the future of a space execution.
+ */
+public class SettableAsyncFuture<T> implements AsyncFuture<T> {
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private boolean completed;
+
+    private T result;
+
+    private Exception exception;
+
+    private AsyncFutureListener<T> listener;
+
+    public static <T> SettableAsyncFuture<T> completed(T result, Exception exception) {
+        SettableAsyncFuture<T> future = new SettableAsyncFuture<T>();
+        future.complete(result, exception);
+        return future;
+    }
+
+    public void complete(T result, Exception exception) {
+        AsyncFutureListener<T> localListener;
+        synchronized (this) {
+            this.result = result;
+            this.exception = exception;
+            completed = true;
+            localListener = listener;
+        }
+        done.countDown();
+        if (localListener != null) {
+            localListener.onResult(new DefaultAsyncResult<T>(result, exception));
+        }
+    }
+
+    public void setListener(AsyncFutureListener<T> listener) {
+        synchronized (this) {
+            this.listener = listener;
+            if (!completed) {
+                return;
+            }
+        }
+        listener.onResult(new DefaultAsyncResult<T>(result, exception));
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    public boolean isCancelled() {
+        return false;
+    }
+
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    public T get() throws InterruptedException, ExecutionException {
+        done.await();
+        return report();
+    }
+
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    private synchronized T report() throws ExecutionException {
+        if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+        return result;
+    }
+}